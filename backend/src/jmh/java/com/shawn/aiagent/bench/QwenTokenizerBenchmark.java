@@ -0,0 +1,82 @@
+package com.shawn.aiagent.bench;
+
+import com.shawn.aiagent.domain.chat.BytePairEncoder;
+import com.shawn.aiagent.domain.rag.TokenEstimationPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话记忆分词器基准
+ * 对比 BytePairEncoder 与启发式估算在典型对话消息上的吞吐；配合 -prof gc 查看每次计数的分配量。
+ *
+ * -Dqwen.vocab 指向 qwen.tiktoken 时使用真实词表；未指定时只用 256 个单字节词表（没有合并，只衡量预切分与编码开销）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QwenTokenizerBenchmark {
+
+    private static final String CHINESE = "最近总是反复梦到自己在考场上找不到座位，醒来之后心跳很快，白天也一直很焦虑。"
+            + "医生，这种梦是不是说明我压力太大了？我应该怎么调整作息和情绪？";
+    private static final String ENGLISH = "I keep dreaming that I am lost in an exam hall and cannot find my seat. "
+            + "When I wake up my heart is racing and I feel anxious for the rest of the day.";
+
+    @Param({"chinese", "english", "long"})
+    public String text;
+
+    private String input;
+    private BytePairEncoder encoder;
+    private final TokenEstimationPolicy estimationPolicy = new TokenEstimationPolicy();
+
+    @Setup
+    public void setUp() throws IOException {
+        String vocab = System.getProperty("qwen.vocab", "");
+        encoder = BytePairEncoder.fromTiktoken(vocab.isBlank()
+                ? byteVocabulary()
+                : Files.readAllLines(Path.of(vocab), StandardCharsets.UTF_8));
+        input = switch (text) {
+            case "chinese" -> CHINESE;
+            case "english" -> ENGLISH;
+            default -> (CHINESE + "\n" + ENGLISH + "\n").repeat(20);
+        };
+    }
+
+    @Benchmark
+    public int bytePairEncoder() {
+        return encoder.count(input);
+    }
+
+    @Benchmark
+    public long heuristicEstimate() {
+        return estimationPolicy.estimate(input);
+    }
+
+    private static List<String> byteVocabulary() {
+        List<String> lines = new ArrayList<>(256);
+        for (int b = 0; b < 256; b++) {
+            lines.add(Base64.getEncoder().encodeToString(new byte[]{(byte) b}) + " " + b);
+        }
+        return lines;
+    }
+}
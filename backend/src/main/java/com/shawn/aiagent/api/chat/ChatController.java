@@ -3,16 +3,22 @@ package com.shawn.aiagent.api.chat;
 import com.shawn.aiagent.domain.common.exception.BusinessException;
 import com.shawn.aiagent.domain.common.error.ErrorCode;
 import com.shawn.aiagent.app.chat.ChatWithPsychiatristUseCase;
+import com.shawn.aiagent.app.chat.ResumableStreamRegistry;
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
 import com.shawn.aiagent.domain.chat.ConversationId;
 import com.shawn.aiagent.domain.chat.Message;
+import com.shawn.aiagent.domain.chat.ReplayRingBuffer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
 import jakarta.annotation.Resource;
 
+import java.util.UUID;
+
 /**
  * 聊天接口控制器
  * 处理聊天相关的HTTP请求
@@ -22,13 +28,22 @@ import jakarta.annotation.Resource;
 @Slf4j
 public class ChatController {
 
+    /**
+     * 响应头：本次对话使用的会话ID（请求未携带 chatId 时为服务端新分配的ID，后续请求应携带它）
+     */
+    static final String CHAT_ID_HEADER = "X-Chat-Id";
+
     @Resource
     private ChatWithPsychiatristUseCase chatWithPsychiatristUseCase;
 
+    @Resource
+    private ResumableStreamRegistry resumableStreamRegistry;
+
     /**
      * Intent: 流式聊天接口
-     * Input: chatRequest (聊天请求DTO)
-     * Output: Flux<ServerSentEvent<String>> (SSE流式响应)
+     * Input: chatRequest (聊天请求DTO), response (用于写回 X-Chat-Id 响应头)
+     * Output: Flux<ServerSentEvent<String>> (SSE流式响应，按事件类型区分：
+     *         delta: 增量文本（不含分段标记）；segment: 完整段落；done: 结束，data 为段落总数)
      * SideEffects: 调用UseCase进行流式对话
      * Failure: 如果请求参数无效，抛出BusinessException
      * Idempotency: 非幂等
@@ -37,7 +52,8 @@ public class ChatController {
             value = "/send/stream",
             produces = MediaType.TEXT_EVENT_STREAM_VALUE
     )
-    public Flux<ServerSentEvent<String>> sendMessageStream(@RequestBody ChatRequest chatRequest) {
+    public Flux<ServerSentEvent<String>> sendMessageStream(@RequestBody ChatRequest chatRequest,
+                                                           ServerHttpResponse response) {
         log.info("收到流式聊天请求，chatId: {}", chatRequest.getChatId());
         
         // 参数验证
@@ -49,15 +65,63 @@ public class ChatController {
         Message message = Message.of(chatRequest.getMessage());
         ConversationId conversationId = chatRequest.getChatId() != null && !chatRequest.getChatId().trim().isEmpty()
                 ? ConversationId.of(chatRequest.getChatId())
-                : ConversationId.defaultId();
+                : ConversationId.generate();
+        response.getHeaders().set(CHAT_ID_HEADER, conversationId.getValue());
         
-        // 调用UseCase
-        Flux<String> responseStream = chatWithPsychiatristUseCase.streamChat(message, conversationId);
+        // 调用UseCase；回复以可续传方式输出，断线后可带 Last-Event-ID 重连
+        String messageId = UUID.randomUUID().toString();
+        Flux<ChatStreamEvent> responseStream = chatWithPsychiatristUseCase.streamSegments(message, conversationId);
         
-        // 转换为SSE格式
-        return responseStream
-                .map(chunk -> ServerSentEvent.builder(chunk).build())
+        return resumableStreamRegistry.publish(messageId, responseStream)
+                .map(event -> toServerSentEvent(messageId, event))
                 .doOnError(error -> log.error("流式聊天失败", error));
     }
-}
 
+    /**
+     * Intent: 断线重连：补发 Last-Event-ID 之后的事件，并接上仍在进行的生成
+     * Input: lastEventId (Last-Event-ID 请求头，格式 "{回复ID}:{帧编号}"；无法设置请求头的客户端可用 lastEventId 查询参数)
+     * Output: Flux<ServerSentEvent<String>> (与 /send/stream 相同的事件；生成已结束时补发完即结束)
+     * SideEffects: 无（不重新生成）
+     * Failure: 缺少或格式错误时抛出BusinessException(PARAMS_ERROR)；回复已过期或无法续传时抛出BusinessException(NOT_FOUND_ERROR)
+     * Idempotency: 幂等
+     */
+    @GetMapping(
+            value = "/send/stream/resume",
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public Flux<ServerSentEvent<String>> resumeMessageStream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        String lastEventId = lastEventIdHeader != null && !lastEventIdHeader.isBlank() ? lastEventIdHeader : lastEventIdParam;
+        int separator = lastEventId != null ? lastEventId.lastIndexOf(':') : -1;
+        if (separator <= 0) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "Last-Event-ID 无效");
+        }
+        String messageId = lastEventId.substring(0, separator).trim();
+        long lastSeq;
+        try {
+            lastSeq = Long.parseLong(lastEventId.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "Last-Event-ID 无效");
+        }
+        log.info("收到流式聊天重连请求，messageId: {}, lastSeq: {}", messageId, lastSeq);
+        
+        return resumableStreamRegistry.resume(messageId, lastSeq)
+                .map(event -> toServerSentEvent(messageId, event))
+                .doOnError(error -> log.error("流式聊天重连失败", error));
+    }
+
+    /**
+     * 事件名为类型小写，id 为 "{回复ID}:{帧编号}"；多行文本由编码器拆成多个 data 行
+     */
+    private static ServerSentEvent<String> toServerSentEvent(String messageId, ReplayRingBuffer.Sequenced sequenced) {
+        ChatStreamEvent event = sequenced.event();
+        return ServerSentEvent.<String>builder()
+                .id(messageId + ":" + sequenced.seq())
+                .event(event.getType().name().toLowerCase())
+                .data(event.getType() == ChatStreamEvent.Type.DONE
+                        ? String.valueOf(event.getIndex())
+                        : event.getText())
+                .build();
+    }
+}
@@ -16,7 +16,7 @@ public class ChatRequest implements Serializable {
     private String message;
 
     /**
-     * 会话ID（可选，默认为"1"）
+     * 会话ID（可选，缺省时服务端分配新会话，并通过 X-Chat-Id 响应头返回）
      */
     private String chatId;
 
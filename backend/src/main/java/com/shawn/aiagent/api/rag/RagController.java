@@ -2,15 +2,25 @@ package com.shawn.aiagent.api.rag;
 
 import com.shawn.aiagent.domain.common.error.ErrorCode;
 import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.app.rag.CancelReindexJobUseCase;
+import com.shawn.aiagent.app.rag.GetRelatedChunksUseCase;
+import com.shawn.aiagent.app.rag.GetReindexJobUseCase;
+import com.shawn.aiagent.app.rag.MigrateVectorStorageUseCase;
 import com.shawn.aiagent.app.rag.PreviewReindexUseCase;
-import com.shawn.aiagent.app.rag.ReindexDocumentsUseCase;
+import com.shawn.aiagent.app.rag.RetrieveByMultiQueryUseCase;
 import com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCase;
+import com.shawn.aiagent.app.rag.RollbackReindexUseCase;
+import com.shawn.aiagent.app.rag.StartReindexJobUseCase;
+import com.shawn.aiagent.domain.rag.ReindexDelta;
+import com.shawn.aiagent.domain.rag.ReindexJob;
 import com.shawn.aiagent.domain.rag.ReindexPreview;
 import com.shawn.aiagent.domain.rag.ReindexResult;
 import com.shawn.aiagent.support.response.ApiResponse;
 import com.shawn.aiagent.support.response.ApiResponseBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -18,6 +28,8 @@ import reactor.core.publisher.Mono;
 
 import jakarta.annotation.Resource;
 
+import java.time.Instant;
+
 /**
  * RAG数据摄取接口控制器
  * 处理RAG相关的HTTP请求
@@ -28,7 +40,13 @@ import jakarta.annotation.Resource;
 public class RagController {
 
     @Resource
-    private ReindexDocumentsUseCase reindexDocumentsUseCase;
+    private StartReindexJobUseCase startReindexJobUseCase;
+
+    @Resource
+    private GetReindexJobUseCase getReindexJobUseCase;
+
+    @Resource
+    private CancelReindexJobUseCase cancelReindexJobUseCase;
 
     @Resource
     private PreviewReindexUseCase previewReindexUseCase;
@@ -36,13 +54,25 @@ public class RagController {
     @Resource
     private RetrieveTop1ChunkByQueryUseCase retrieveTop1ChunkByQueryUseCase;
 
+    @Resource
+    private RollbackReindexUseCase rollbackReindexUseCase;
+
+    @Resource
+    private MigrateVectorStorageUseCase migrateVectorStorageUseCase;
+
+    @Resource
+    private GetRelatedChunksUseCase getRelatedChunksUseCase;
+
+    @Resource
+    private RetrieveByMultiQueryUseCase retrieveByMultiQueryUseCase;
+
     /**
-     * Intent: 执行重新索引或预览操作
+     * Intent: 执行预览操作，或启动重新索引任务
      * Input: dryRun (是否预览，默认为true)
-     * Output: Mono<ApiResponse<Object>> (重新索引结果或预览结果)
-     * SideEffects: 调用UseCase执行重新索引或预览
+     * Output: Mono<ApiResponse<Object>> (预览结果，或新建/正在执行的任务快照)
+     * SideEffects: 调用UseCase执行预览或创建 reindex 任务（任务在后台执行，不占用本请求）
      * Failure: 如果操作失败，返回错误响应
-     * Idempotency: 预览操作幂等，重新索引操作非幂等
+     * Idempotency: 预览操作幂等；启动任务在已有活动任务时返回该任务
      */
     @GetMapping("/reindex")
     public Mono<ApiResponse<Object>> reindex(
@@ -56,6 +86,90 @@ public class RagController {
         }
     }
 
+    /**
+     * Intent: 启动重新索引任务
+     * Input: 无
+     * Output: Mono<ApiResponse<Object>> (新建的任务快照；已有活动任务时返回该任务)
+     * SideEffects: 调用StartReindexJobUseCase创建任务并交由后台执行
+     * Failure: 任务创建失败时返回错误响应
+     * Idempotency: 幂等（集群内至多一个活动任务）
+     */
+    @PostMapping("/reindex/jobs")
+    public Mono<ApiResponse<Object>> startReindexJob() {
+        log.info("收到启动重新索引任务请求");
+        return executeReindex();
+    }
+
+    /**
+     * Intent: 查询重新索引任务进度
+     * Input: jobId (任务ID)
+     * Output: Mono<ApiResponse<?>> (任务状态、阶段、进度与吞吐)
+     * SideEffects: 只读查询
+     * Failure: 任务不存在返回 NOT_FOUND_ERROR
+     * Idempotency: 幂等
+     */
+    @GetMapping("/reindex/jobs/{jobId}")
+    public Mono<ApiResponse<?>> getReindexJob(@PathVariable("jobId") String jobId) {
+        return toJobApiResponse(getReindexJobUseCase.execute(jobId), "查询重新索引任务失败");
+    }
+
+    /**
+     * Intent: 取消重新索引任务
+     * Input: jobId (任务ID)
+     * Output: Mono<ApiResponse<?>> (取消请求后的任务快照)
+     * SideEffects: 调用CancelReindexJobUseCase；执行中的任务在下一个批次边界停止
+     * Failure: 任务不存在返回 NOT_FOUND_ERROR
+     * Idempotency: 幂等
+     */
+    @PostMapping("/reindex/jobs/{jobId}/cancel")
+    public Mono<ApiResponse<?>> cancelReindexJob(@PathVariable("jobId") String jobId) {
+        log.info("收到取消重新索引任务请求，jobId={}", jobId);
+        return toJobApiResponse(cancelReindexJobUseCase.execute(jobId), "取消重新索引任务失败");
+    }
+
+    /**
+     * Intent: 将线上向量索引回滚到上一代（blue/green 保留的 previous）
+     * Input: 无
+     * Output: Mono<ApiResponse<Object>> (回滚后线上表的文档数量)
+     * SideEffects: 调用RollbackReindexUseCase交换 live 与 previous
+     * Failure: 不存在上一代或回滚失败时返回错误响应
+     * Idempotency: 非幂等（再次调用会切回）
+     */
+    @SuppressWarnings("unchecked")
+    @PostMapping("/reindex/rollback")
+    public Mono<ApiResponse<Object>> rollbackReindex() {
+        log.info("收到回滚重新索引请求");
+        return rollbackReindexUseCase.execute()
+                .map(this::toReindexResponse)
+                .map(response -> (ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.success(response))
+                .onErrorResume(e -> {
+                    log.error("回滚重新索引失败", e);
+                    return Mono.just((ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.error(50000, "回滚重新索引失败: " + e.getMessage()));
+                });
+    }
+
+    /**
+     * Intent: 把线上表向量列迁移为配置的存储类型（rag.ingestion.vector-type：VECTOR / HALFVEC）
+     * Input: strategy (NEW_GENERATION 默认：写入新一代表后切换；IN_PLACE：原地转换)
+     * Output: Mono<ApiResponse<Object>> (迁移后线上表的行数与说明)
+     * SideEffects: 调用MigrateVectorStorageUseCase；不调用 embedding 接口
+     * Failure: 迁移失败时返回错误响应，线上表保持原类型
+     * Idempotency: 幂等（已是目标类型时直接返回）
+     */
+    @SuppressWarnings("unchecked")
+    @PostMapping("/vector-storage/migrate")
+    public Mono<ApiResponse<Object>> migrateVectorStorage(
+            @RequestParam(value = "strategy", defaultValue = "NEW_GENERATION") MigrateVectorStorageUseCase.Strategy strategy) {
+        log.info("收到向量存储类型迁移请求，strategy={}", strategy);
+        return migrateVectorStorageUseCase.execute(strategy)
+                .map(this::toReindexResponse)
+                .map(response -> (ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.success(response))
+                .onErrorResume(e -> {
+                    log.error("向量存储类型迁移失败", e);
+                    return Mono.just((ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.error(50000, "向量存储类型迁移失败: " + e.getMessage()));
+                });
+    }
+
     /**
      * Intent: 根据 query 检索最相似的 chunk
      * Input: query (必填), requestId (可选)
@@ -81,6 +195,82 @@ public class RagController {
                 });
     }
 
+    /**
+     * Intent: 检索 top-1 chunk 并返回同章节前后相邻 chunk 组成的上下文窗口
+     * Input: query (必填), radius (可选，前后各取的相邻 chunk 数), requestId (可选)
+     * Output: Mono<ApiResponse<?>> (上下文窗口：chunks 按章节内顺序，text 为拼接正文)
+     * SideEffects: 调用 embedding 与向量检索，另加一次批量查询取相邻 chunk
+     * Failure: 输入不合法/超时/网络错误返回对应错误码
+     * Idempotency: 非幂等
+     */
+    @GetMapping("/retrieve/context")
+    public Mono<ApiResponse<?>> retrieveWithContext(
+            @RequestParam("query") String query,
+            @RequestParam(value = "radius", required = false) Integer radius,
+            @RequestParam(value = "requestId", required = false) String requestId) {
+        log.info("收到上下文检索请求，requestId={}, radius={}", requestId, radius);
+        return retrieveTop1ChunkByQueryUseCase.executeWithContext(query, requestId, radius)
+                .<ApiResponse<?>>map(ApiResponseBuilder::success)
+                .onErrorResume(e -> {
+                    if (e instanceof BusinessException be) {
+                        log.error("上下文检索失败: code={}, msg={}", be.getCode(), be.getMessage(), be);
+                        return Mono.just(ApiResponseBuilder.error(be.getCode(), be.getMessage()));
+                    }
+                    log.error("上下文检索失败: {}", e.getMessage(), e);
+                    return Mono.just(ApiResponseBuilder.error(ErrorCode.SYSTEM_ERROR, "上下文检索失败: " + e.getMessage()));
+                });
+    }
+
+    /**
+     * Intent: 多查询检索：本地生成查询变体，批量向量化后并行检索，按倒数排名融合
+     * Input: query (必填), topK (可选，默认 rag.retrieval.multi-query-top-k), requestId (可选)
+     * Output: Mono<ApiResponse<?>> (融合后的 chunk 列表)
+     * SideEffects: 一次批量 embedding 调用与每个变体一次向量检索
+     * Failure: 输入不合法/超时/网络错误返回对应错误码
+     * Idempotency: 非幂等
+     */
+    @GetMapping("/retrieve/multi")
+    public Mono<ApiResponse<?>> retrieveMulti(
+            @RequestParam("query") String query,
+            @RequestParam(value = "topK", required = false) Integer topK,
+            @RequestParam(value = "requestId", required = false) String requestId) {
+        log.info("收到多查询检索请求，requestId={}, topK={}", requestId, topK);
+        return retrieveByMultiQueryUseCase.execute(query, topK, requestId)
+                .<ApiResponse<?>>map(ApiResponseBuilder::success)
+                .onErrorResume(e -> {
+                    if (e instanceof BusinessException be) {
+                        log.error("多查询检索失败: code={}, msg={}", be.getCode(), be.getMessage(), be);
+                        return Mono.just(ApiResponseBuilder.error(be.getCode(), be.getMessage()));
+                    }
+                    log.error("多查询检索失败: {}", e.getMessage(), e);
+                    return Mono.just(ApiResponseBuilder.error(ErrorCode.SYSTEM_ERROR, "多查询检索失败: " + e.getMessage()));
+                });
+    }
+
+    /**
+     * Intent: 查询与给定 chunk 最相似的 chunk（读取预计算近邻图，不调用 embedding、不做向量检索）
+     * Input: id (chunk UUID), limit (可选，默认 10，不超过 rag.ingestion.neighbor-count)
+     * Output: Mono<ApiResponse<?>> (相关 chunk 列表，按相似度降序)
+     * SideEffects: 只读查询
+     * Failure: id/limit 不合法返回 PARAMS_ERROR；chunk 不存在或尚未计算近邻返回 NOT_FOUND_ERROR
+     * Idempotency: 幂等
+     */
+    @GetMapping("/chunks/{id}/related")
+    public Mono<ApiResponse<?>> relatedChunks(
+            @PathVariable("id") String id,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return getRelatedChunksUseCase.execute(id, limit)
+                .<ApiResponse<?>>map(ApiResponseBuilder::success)
+                .onErrorResume(e -> {
+                    if (e instanceof BusinessException be) {
+                        log.warn("查询相关 chunk 失败: code={}, msg={}", be.getCode(), be.getMessage());
+                        return Mono.just(ApiResponseBuilder.error(be.getCode(), be.getMessage()));
+                    }
+                    log.error("查询相关 chunk 失败: {}", e.getMessage(), e);
+                    return Mono.just(ApiResponseBuilder.error(ErrorCode.SYSTEM_ERROR, "查询相关 chunk 失败: " + e.getMessage()));
+                });
+    }
+
     /**
      * Intent: 执行预览操作
      * Input: 无
@@ -101,24 +291,69 @@ public class RagController {
     }
 
     /**
-     * Intent: 执行重新索引操作
+     * Intent: 启动重新索引任务
      * Input: 无
-     * Output: Mono<ApiResponse<Object>> (重新索引结果)
-     * SideEffects: 调用ReindexDocumentsUseCase
-     * Failure: 如果重新索引失败，返回错误响应
-     * Idempotency: 非幂等
+     * Output: Mono<ApiResponse<Object>> (任务快照)
+     * SideEffects: 调用StartReindexJobUseCase
+     * Failure: 如果任务创建失败，返回错误响应
+     * Idempotency: 幂等（已有活动任务时返回该任务）
      */
     @SuppressWarnings("unchecked")
     private Mono<ApiResponse<Object>> executeReindex() {
-        return reindexDocumentsUseCase.execute()
-                .map(this::toReindexResponse)
+        return startReindexJobUseCase.execute()
+                .map(this::toJobResponse)
                 .map(response -> (ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.success(response))
                 .onErrorResume(e -> {
-                    log.error("重新索引失败", e);
-                    return Mono.just((ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.error(50000, "重新索引失败: " + e.getMessage()));
+                    log.error("启动重新索引任务失败", e);
+                    return Mono.just((ApiResponse<Object>) (ApiResponse<?>) ApiResponseBuilder.error(50000, "启动重新索引任务失败: " + e.getMessage()));
                 });
     }
 
+    private Mono<ApiResponse<?>> toJobApiResponse(Mono<ReindexJob> job, String failureMessage) {
+        return job.map(this::toJobResponse)
+                .<ApiResponse<?>>map(ApiResponseBuilder::success)
+                .onErrorResume(e -> {
+                    if (e instanceof BusinessException be) {
+                        log.warn("{}: code={}, msg={}", failureMessage, be.getCode(), be.getMessage());
+                        return Mono.just(ApiResponseBuilder.error(be.getCode(), be.getMessage()));
+                    }
+                    log.error("{}: {}", failureMessage, e.getMessage(), e);
+                    return Mono.just(ApiResponseBuilder.error(ErrorCode.SYSTEM_ERROR, failureMessage + ": " + e.getMessage()));
+                });
+    }
+
+    /**
+     * 将领域对象ReindexJob转换为DTO
+     */
+    private ReindexJobResponse toJobResponse(ReindexJob job) {
+        ReindexJobResponse response = new ReindexJobResponse();
+        response.setJobId(job.getId());
+        response.setStatus(job.getStatus().name());
+        response.setPhase(job.getPhase().name());
+        response.setMode(job.getMode());
+        response.setTotalChunks(job.getTotalChunks());
+        response.setEmbeddingsAvoided(job.getDuplicateChunks());
+        response.setEmbedTokens(job.getEmbedTokens());
+        response.setEmbedTokensSaved(job.getEmbedTokensSaved());
+        response.setProcessedChunks(job.getProcessedChunks());
+        response.setCompletedBatches(job.getCompletedBatches());
+        response.setProgressPercent(job.progressPercent());
+        response.setThroughputPerSecond(job.throughputPerSecond());
+        response.setIndexBuildPhase(job.getIndexBuildPhase());
+        response.setIndexBuildPercent(job.getIndexBuildPercent());
+        response.setAttempts(job.getAttempts());
+        response.setCancelRequested(job.isCancelRequested());
+        response.setErrorMessage(job.getErrorMessage());
+        response.setCreatedAt(formatInstant(job.getCreatedAt()));
+        response.setStartedAt(formatInstant(job.getStartedAt()));
+        response.setFinishedAt(formatInstant(job.getFinishedAt()));
+        return response;
+    }
+
+    private static String formatInstant(Instant instant) {
+        return instant != null ? instant.toString() : null;
+    }
+
     /**
      * 将领域对象ReindexResult转换为DTO
      */
@@ -138,6 +373,14 @@ public class RagController {
         response.setTableName(preview.getTableName());
         response.setEmbeddingModelName(preview.getEmbeddingModelName());
         response.setEmbeddingDim(preview.getEmbeddingDim());
+        ReindexDelta delta = preview.getDelta();
+        response.setAddedCount(delta.getAddedCount());
+        response.setChangedCount(delta.getChangedCount());
+        response.setUnchangedCount(delta.getUnchangedCount());
+        response.setRemovedCount(delta.getRemovedCount());
+        response.setEstimatedTokens(delta.getEstimatedTokens());
+        response.setDeltaEstimatedTokens(delta.getDeltaEstimatedTokens());
+        response.setProjectedSeconds(delta.getProjectedSeconds());
         return response;
     }
 }
@@ -0,0 +1,114 @@
+package com.shawn.aiagent.api.rag;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 重新索引任务响应DTO
+ */
+@Data
+public class ReindexJobResponse implements Serializable {
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务状态：PENDING / RUNNING / SUCCEEDED / FAILED / CANCELLED
+     */
+    private String status;
+
+    /**
+     * 当前阶段：PREPARING / WRITING / INDEXING / SWITCHING
+     */
+    private String phase;
+
+    /**
+     * 重新索引模式：IN_PLACE / BLUE_GREEN
+     */
+    private String mode;
+
+    /**
+     * 数据源 chunk 总数
+     */
+    private int totalChunks;
+
+    /**
+     * 被判定为近重复而合并的 chunk 数（省去的 embedding 调用次数）
+     */
+    private int embeddingsAvoided;
+
+    /**
+     * 需要向量化的估算 token 数（按数据源模板渲染后的文本）
+     */
+    private long embedTokens;
+
+    /**
+     * 向量化文本模板相比拼接全部 metadata 省下的估算 token 数
+     */
+    private long embedTokensSaved;
+
+    /**
+     * 已写入的 chunk 数量
+     */
+    private int processedChunks;
+
+    /**
+     * 已完成的批次数（续跑断点）
+     */
+    private int completedBatches;
+
+    /**
+     * 进度百分比（0~100）
+     */
+    private double progressPercent;
+
+    /**
+     * 平均吞吐（chunk/秒）
+     */
+    private double throughputPerSecond;
+
+    /**
+     * 向量索引构建阶段（pg_stat_progress_create_index.phase）
+     */
+    private String indexBuildPhase;
+
+    /**
+     * 向量索引构建阶段内的完成百分比
+     */
+    private double indexBuildPercent;
+
+    /**
+     * 已执行次数（含重启续跑）
+     */
+    private int attempts;
+
+    /**
+     * 是否已请求取消
+     */
+    private boolean cancelRequested;
+
+    /**
+     * 失败原因
+     */
+    private String errorMessage;
+
+    /**
+     * 创建时间（ISO-8601）
+     */
+    private String createdAt;
+
+    /**
+     * 首次开始执行时间（ISO-8601）
+     */
+    private String startedAt;
+
+    /**
+     * 结束时间（ISO-8601）
+     */
+    private String finishedAt;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -30,6 +30,41 @@ public class ReindexPreviewResponse implements Serializable {
      */
     private int embeddingDim;
 
+    /**
+     * 线上表中不存在、将新增的 chunk 数量
+     */
+    private int addedCount;
+
+    /**
+     * 内容哈希与线上表不一致、将更新的 chunk 数量
+     */
+    private int changedCount;
+
+    /**
+     * 内容未变化的 chunk 数量
+     */
+    private int unchangedCount;
+
+    /**
+     * 线上表中存在但数据源已没有、将被移除的 chunk 数量
+     */
+    private long removedCount;
+
+    /**
+     * 全量运行的 embedding token 估算
+     */
+    private long estimatedTokens;
+
+    /**
+     * 仅新增+变更部分的 embedding token 估算
+     */
+    private long deltaEstimatedTokens;
+
+    /**
+     * 按近期任务吞吐推算的全量耗时（秒）；无历史任务时为 -1
+     */
+    private double projectedSeconds;
+
     private static final long serialVersionUID = 1L;
 }
 
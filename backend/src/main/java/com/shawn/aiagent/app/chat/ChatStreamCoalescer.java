@@ -0,0 +1,134 @@
+package com.shawn.aiagent.app.chat;
+
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
+import com.shawn.aiagent.domain.chat.StreamFrameCoalescer;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatStreamConfig;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式回复帧合并
+ * 每个流一个 StreamFrameCoalescer：增量文本在缓冲里合并，窗口到期、字节数达到阈值或遇到段落边界时写出一帧。
+ * 窗口计时从缓冲由空变为非空开始，因此任何增量最多延迟一个窗口；窗口长度按当前并发流数自适应。
+ *
+ * 上游事件与窗口到期回调可能在不同线程上，同一个流内以该流的状态对象串行化，不同流之间互不加锁。
+ */
+@Component
+public class ChatStreamCoalescer {
+
+    private final ChatStreamConfig config;
+    private final ChatStreamMetricsGateway metricsGateway;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    public ChatStreamCoalescer(ChatStreamConfig config, ChatStreamMetricsGateway metricsGateway) {
+        this.config = config;
+        this.metricsGateway = metricsGateway;
+        metricsGateway.bindActiveStreams(activeStreams::get);
+    }
+
+    /**
+     * Intent: 合并一次回复的增量事件
+     * Input: events (单个回复的事件流)
+     * Output: Flux<ChatStreamEvent> (合并后的事件流；SEGMENT / DONE 原样保留且顺序不变)
+     * SideEffects: 订阅期间计入活跃流数；完整结束时记录事件数与帧数
+     * Failure: 上游失败时先写出缓冲中的增量再传播错误
+     * Idempotency: 幂等（每次订阅独立）
+     */
+    public Flux<ChatStreamEvent> coalesce(Flux<ChatStreamEvent> events) {
+        if (config.getCoalesceMinWindowMillis() <= 0) {
+            return events;
+        }
+        return Flux.create(sink -> new CoalescingStream(sink).start(events));
+    }
+
+    private Duration currentWindow() {
+        return StreamFrameCoalescer.adaptiveWindow(
+                Duration.ofMillis(config.getCoalesceMinWindowMillis()),
+                Duration.ofMillis(config.getCoalesceMaxWindowMillis()),
+                activeStreams.get(),
+                config.getCoalesceSaturationStreams());
+    }
+
+    /**
+     * 一个订阅的合并状态；除 start 外的方法都在 synchronized(this) 内执行
+     */
+    private final class CoalescingStream {
+
+        private final FluxSink<ChatStreamEvent> sink;
+        private final StreamFrameCoalescer coalescer = new StreamFrameCoalescer(config.getCoalesceMaxBytes());
+        private final Scheduler.Worker timer = Schedulers.parallel().createWorker();
+        private Disposable scheduledFlush;
+        private int events;
+        private int frames;
+
+        private CoalescingStream(FluxSink<ChatStreamEvent> sink) {
+            this.sink = sink;
+        }
+
+        private void start(Flux<ChatStreamEvent> upstream) {
+            activeStreams.incrementAndGet();
+            Disposable.Composite resources = Disposables.composite(timer, activeStreams::decrementAndGet);
+            // 先登记清理再订阅：上游同步结束或下游立即取消时也能释放
+            sink.onDispose(resources);
+            resources.add(upstream.subscribe(this::onNext, this::onError, this::onComplete));
+        }
+
+        private synchronized void onNext(ChatStreamEvent event) {
+            events++;
+            emit(coalescer.accept(event));
+            if (!coalescer.hasPending()) {
+                cancelScheduledFlush();
+            } else if (scheduledFlush == null) {
+                try {
+                    scheduledFlush = timer.schedule(this::flush, currentWindow().toNanos(), TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // 下游已取消，计时器随之释放；缓冲内容不再需要写出
+                }
+            }
+        }
+
+        private synchronized void flush() {
+            scheduledFlush = null;
+            emit(coalescer.drain());
+        }
+
+        private synchronized void onError(Throwable error) {
+            cancelScheduledFlush();
+            emit(coalescer.drain());
+            sink.error(error);
+        }
+
+        private synchronized void onComplete() {
+            cancelScheduledFlush();
+            emit(coalescer.drain());
+            metricsGateway.recordFrames(events, frames);
+            sink.complete();
+        }
+
+        private void emit(List<ChatStreamEvent> out) {
+            for (ChatStreamEvent frame : out) {
+                frames++;
+                sink.next(frame);
+            }
+        }
+
+        private void cancelScheduledFlush() {
+            if (scheduledFlush != null) {
+                scheduledFlush.dispose();
+                scheduledFlush = null;
+            }
+        }
+    }
+}
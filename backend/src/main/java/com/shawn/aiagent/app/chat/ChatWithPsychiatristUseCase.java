@@ -1,5 +1,6 @@
 package com.shawn.aiagent.app.chat;
 
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
 import com.shawn.aiagent.domain.chat.ConversationId;
 import com.shawn.aiagent.domain.chat.Message;
 import reactor.core.publisher.Flux;
@@ -12,12 +13,22 @@ public interface ChatWithPsychiatristUseCase {
     
     /**
      * Intent: 与心理医生进行流式对话
-     * Input: message (用户消息), conversationId (会话ID，可选，默认使用"1")
-     * Output: Flux<String> (AI回复流，每个元素是一个文本片段)
-     * SideEffects: 更新对话记忆（通过ChatModelGateway）
+     * Input: message (用户消息), conversationId (会话ID，可选，为 null 时分配新会话)
+     * Output: Flux<String> (AI回复流，每个元素是一个文本片段；同一会话的前一轮结束后才开始)
+     * SideEffects: 更新对话记忆（通过ChatModelGateway）；检索资料注入本轮提示词（一次 embedding 与向量检索）；回复完成后提交后台历史压缩
      * Failure: 如果消息为空或LLM调用失败，抛出RuntimeException
      * Idempotency: 非幂等（相同输入可能产生不同输出）
      */
     Flux<String> streamChat(Message message, ConversationId conversationId);
-}
 
+    /**
+     * Intent: 与心理医生进行流式对话，并按分段标记把回复切分为事件
+     * Input: message (用户消息), conversationId (会话ID，可选)
+     * Output: Flux<ChatStreamEvent> (DELTA 增量文本与 SEGMENT 完整段落按出现顺序交替，最后一个为 DONE；文本中不含分段标记；
+     *         同一段落内相邻的 DELTA 按 app.chat.stream.coalesce-* 合并)
+     * SideEffects: 同 streamChat；记录首 token、段落延迟与帧数指标
+     * Failure: 同 streamChat
+     * Idempotency: 非幂等
+     */
+    Flux<ChatStreamEvent> streamSegments(Message message, ConversationId conversationId);
+}
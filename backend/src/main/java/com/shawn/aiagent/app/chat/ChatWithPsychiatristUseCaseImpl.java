@@ -1,30 +1,69 @@
 package com.shawn.aiagent.app.chat;
 
+import com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCase;
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
+import com.shawn.aiagent.domain.chat.ChunkMarkerSegmenter;
 import com.shawn.aiagent.domain.chat.ConversationId;
 import com.shawn.aiagent.domain.chat.Message;
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.port.chat.ChatGroundingMetricsGateway;
+import com.shawn.aiagent.port.chat.ChatHistoryCompactionGateway;
 import com.shawn.aiagent.port.chat.ChatModelGateway;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatGroundingConfig;
 import com.shawn.aiagent.support.constants.CharacterCards;
 import com.shawn.aiagent.support.constants.ResponseFormat;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 与心理医生聊天用例实现
  * 编排与心理医生的对话流程
+ * 请求到达即开始检索资料（与加载对话记忆并行），在 app.chat.grounding.budget-millis 内拿到的资料注入本轮提示词，
+ * 超出预算或检索失败时本轮不带资料照常回复。本轮结束或被取消（客户端断开）时，仍在进行的检索随之取消。
  */
 @Component
 @Slf4j
 public class ChatWithPsychiatristUseCaseImpl implements ChatWithPsychiatristUseCase {
     
     private final ChatModelGateway chatModelGateway;
+    private final ChatHistoryCompactionGateway compactionGateway;
+    private final RetrieveTop1ChunkByQueryUseCase retrieveTop1ChunkByQueryUseCase;
+    private final ChatGroundingConfig groundingConfig;
+    private final ChatGroundingMetricsGateway groundingMetricsGateway;
+    private final ChatStreamMetricsGateway streamMetricsGateway;
+    private final ChatStreamCoalescer streamCoalescer;
+    private final ConversationTurnSequencer turnSequencer;
     private final String systemPrompt;
     
     public ChatWithPsychiatristUseCaseImpl(
             ChatModelGateway chatModelGateway,
+            ChatHistoryCompactionGateway compactionGateway,
+            RetrieveTop1ChunkByQueryUseCase retrieveTop1ChunkByQueryUseCase,
+            ChatGroundingConfig groundingConfig,
+            ChatGroundingMetricsGateway groundingMetricsGateway,
+            ChatStreamMetricsGateway streamMetricsGateway,
+            ChatStreamCoalescer streamCoalescer,
+            ConversationTurnSequencer turnSequencer,
             @Value("${app.chat.system-prompt:}") String systemPrompt) {
         this.chatModelGateway = chatModelGateway;
+        this.compactionGateway = compactionGateway;
+        this.retrieveTop1ChunkByQueryUseCase = retrieveTop1ChunkByQueryUseCase;
+        this.groundingConfig = groundingConfig;
+        this.groundingMetricsGateway = groundingMetricsGateway;
+        this.streamMetricsGateway = streamMetricsGateway;
+        this.streamCoalescer = streamCoalescer;
+        this.turnSequencer = turnSequencer;
         // 如果配置为空，使用默认提示词
         this.systemPrompt = systemPrompt != null && !systemPrompt.isEmpty() 
                 ? systemPrompt 
@@ -33,32 +72,98 @@ public class ChatWithPsychiatristUseCaseImpl implements ChatWithPsychiatristUseC
     
     @Override
     public Flux<String> streamChat(Message message, ConversationId conversationId) {
-        log.info("开始流式聊天，会话ID: {}, 消息长度: {}", 
-                conversationId.getValue(), message.getContent().length());
-        
-        try {
-            // 使用默认会话ID如果未提供
-            ConversationId effectiveConversationId = conversationId != null 
-                    ? conversationId 
-                    : ConversationId.defaultId();
-            
-            // 调用Gateway进行流式对话
-            Flux<String> response = chatModelGateway.streamChat(
-                    message, 
-                    effectiveConversationId, 
-                    systemPrompt
-            );
-            
-            log.debug("流式聊天请求已发送，会话ID: {}", effectiveConversationId.getValue());
-            return response;
-        } catch (Exception e) {
-            log.error("流式聊天失败，会话ID: {}, 错误: {}", 
-                    conversationId != null ? conversationId.getValue() : "default", 
-                    e.getMessage(), e);
-            return Flux.error(new RuntimeException("流式聊天失败: " + e.getMessage(), e));
-        }
+        // 未提供会话ID时分配新会话，不与其他请求共享记忆
+        ConversationId effectiveConversationId = conversationId != null
+                ? conversationId
+                : ConversationId.generate();
+        log.info("开始流式聊天，会话ID: {}, 消息长度: {}",
+                effectiveConversationId.getValue(), message.getContent().length());
+
+        // 同一会话的轮次按到达顺序串行（上一轮的记忆写入完成后才读取），不同会话并行
+        Flux<String> turn = Flux.defer(() -> {
+                    // 轮到本轮时才开始检索：排队时间不占用检索预算；检索仍与 Gateway 加载记忆并行
+                    Sinks.One<String> grounding = Sinks.one();
+                    Disposable retrieval = startGrounding(message, effectiveConversationId, grounding);
+                    return chatModelGateway.streamChat(message, effectiveConversationId, systemPrompt, grounding.asMono())
+                            // 本轮结束或被取消时取消仍在进行的向量化与向量检索
+                            .doFinally(signal -> retrieval.dispose());
+                })
+                .doOnComplete(() -> {
+                    // 回复已写入记忆；压缩在后台进行，不占用本轮与下一轮的请求路径
+                    compactionGateway.scheduleCompaction(effectiveConversationId, systemPrompt);
+                })
+                .doOnError(e -> log.error("流式聊天失败，会话ID: {}, 错误: {}",
+                        effectiveConversationId.getValue(), e.getMessage(), e));
+        return turnSequencer.sequence(effectiveConversationId, turn);
     }
     
+    @Override
+    public Flux<ChatStreamEvent> streamSegments(Message message, ConversationId conversationId) {
+        return Flux.defer(() -> {
+            // 每个订阅一个切分器：状态只属于这一次回复
+            ChunkMarkerSegmenter segmenter = new ChunkMarkerSegmenter(ResponseFormat.CHUNK_MARKER);
+            long start = System.nanoTime();
+            boolean[] firstDelta = {true};
+            return streamChat(message, conversationId)
+                    .concatMapIterable(segmenter::feed)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(segmenter.finish())))
+                    .concatWith(Mono.fromSupplier(() -> ChatStreamEvent.done(segmenter.segmentCount())))
+                    .doOnNext(event -> {
+                        long elapsed = System.nanoTime() - start;
+                        switch (event.getType()) {
+                            case DELTA -> {
+                                if (firstDelta[0]) {
+                                    firstDelta[0] = false;
+                                    streamMetricsGateway.recordFirstDelta(elapsed);
+                                }
+                            }
+                            case SEGMENT -> streamMetricsGateway.recordSegment(event.getIndex(), elapsed);
+                            case DONE -> streamMetricsGateway.recordCompleted(event.getIndex(), elapsed);
+                        }
+                    })
+                    .transform(streamCoalescer::coalesce);
+        });
+    }
+
+    /**
+     * 立即开始检索（即刻订阅，预算从此刻计），把预算内的资料文本写入 result；未命中、超时或失败时为空串，未启用时为空
+     * 返回的 Disposable 取消检索：订阅由本轮独占，不用 Mono.cache()（其订阅者全部取消时不会取消上游）
+     */
+    private Disposable startGrounding(Message message, ConversationId conversationId, Sinks.One<String> result) {
+        if (!groundingConfig.isEnabled()) {
+            result.tryEmitEmpty();
+            return Disposables.disposed();
+        }
+        long start = System.nanoTime();
+        return retrieveTop1ChunkByQueryUseCase
+                .executeWithContext(message.getContent(), conversationId.getValue(), groundingConfig.getContextRadius())
+                .timeout(Duration.ofMillis(groundingConfig.getBudgetMillis()))
+                .map(window -> {
+                    if (window.getScore() < groundingConfig.getMinScore()) {
+                        groundingMetricsGateway.recordRetrieval("low_score", System.nanoTime() - start);
+                        return "";
+                    }
+                    groundingMetricsGateway.recordRetrieval("hit", System.nanoTime() - start);
+                    return truncate(window.getText(), groundingConfig.getMaxContextChars());
+                })
+                .onErrorResume(e -> {
+                    String outcome = e instanceof TimeoutException ? "timeout"
+                            : e instanceof BusinessException be && be.getCode() == ErrorCode.RETRIEVAL_NOT_FOUND.getCode() ? "miss"
+                            : "error";
+                    groundingMetricsGateway.recordRetrieval(outcome, System.nanoTime() - start);
+                    log.debug("本轮对话不带检索资料，会话ID: {}, 原因: {}", conversationId.getValue(), outcome);
+                    return Mono.just("");
+                })
+                .subscribe(result::tryEmitValue, result::tryEmitError, result::tryEmitEmpty);
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text == null) {
+            return "";
+        }
+        return maxChars > 0 && text.length() > maxChars ? text.substring(0, maxChars) : text;
+    }
+
     /**
      * 获取默认系统提示词
      * 使用support/constants中定义的常量
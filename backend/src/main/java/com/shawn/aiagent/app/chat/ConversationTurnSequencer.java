@@ -0,0 +1,57 @@
+package com.shawn.aiagent.app.chat;
+
+import com.shawn.aiagent.domain.chat.ConversationId;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 会话内对话轮次的串行化
+ * 每个会话一个"队尾"：新的一轮在上一轮结束（完成、失败或被取消）之后才订阅，
+ * 因此同一会话的记忆读取与写入按请求到达顺序进行；不同会话互不等待。
+ *
+ * 没有全局锁：队尾的替换只是 ConcurrentHashMap 上单个键的原子 put，等待通过 future 回调衔接，不占用线程。
+ * 会话空闲（最后一轮结束且没有后继）时条目被移除。
+ */
+@Component
+public class ConversationTurnSequencer {
+
+    private final ConcurrentHashMap<ConversationId, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final ChatStreamMetricsGateway metricsGateway;
+
+    public ConversationTurnSequencer(ChatStreamMetricsGateway metricsGateway) {
+        this.metricsGateway = metricsGateway;
+    }
+
+    /**
+     * Intent: 让一轮对话排在同一会话的前一轮之后执行
+     * Input: conversationId, turn (本轮的回复流，订阅即开始处理)
+     * Output: Flux<T> (订阅时排队，前一轮结束后才订阅 turn)
+     * SideEffects: 登记会话队尾；排队时记录等待时间
+     * Failure: 透传 turn 的错误；前一轮失败不影响本轮
+     * Idempotency: 非幂等（每次订阅都是新的一轮）
+     */
+    public <T> Flux<T> sequence(ConversationId conversationId, Flux<T> turn) {
+        return Flux.defer(() -> {
+            CompletableFuture<Void> finished = new CompletableFuture<>();
+            CompletableFuture<Void> previous = tails.put(conversationId, finished);
+            Runnable release = () -> {
+                finished.complete(null);
+                tails.remove(conversationId, finished);
+            };
+            if (previous == null || previous.isDone()) {
+                return turn.doFinally(signal -> release.run());
+            }
+            long queuedAt = System.nanoTime();
+            // 本轮被取消时不能先于前一轮释放队尾，否则后继会与前一轮并发
+            return Mono.fromFuture(previous, true)
+                    .doOnSuccess(ignored -> metricsGateway.recordTurnWait(System.nanoTime() - queuedAt))
+                    .thenMany(turn)
+                    .doFinally(signal -> previous.whenComplete((ignored, error) -> release.run()));
+        });
+    }
+}
@@ -0,0 +1,284 @@
+package com.shawn.aiagent.app.chat;
+
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
+import com.shawn.aiagent.domain.chat.ReplayRingBuffer;
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatStreamConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可续传的流式回复
+ * 每个回复（按回复 ID）只订阅一次上游生成，写出的帧编号后进入 ReplayRingBuffer，再推送给当前连接的客户端。
+ * 断线的客户端带 Last-Event-ID（回复 ID + 帧编号）重连时，先补发缓冲中漏掉的帧，再接收后续的实时帧，不重复生成。
+ *
+ * 生命周期：
+ * - 最后一个客户端断开后立即取消上游（默认）；resume-grace-millis > 0 时生成继续等待这么久，期间无人重连才取消；
+ * - 回复结束（完成、失败或被取消）后缓冲保留 replay-ttl-seconds；全部缓冲超过 replay-max-bytes 时从最早结束的回复开始淘汰。
+ *   replay-max-bytes 是软上限：进行中的回复计入总量但不淘汰，总量最多超出
+ *   并发回复数 × replay-capacity-per-message 帧。
+ *
+ * 同一回复的追加、推送与客户端登记在该回复的锁内完成，不同回复互不加锁。
+ */
+@Component
+@Slf4j
+public class ResumableStreamRegistry {
+
+    private final Map<String, Replay> replays = new ConcurrentHashMap<>();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final ChatStreamConfig config;
+    private final ChatStreamMetricsGateway metricsGateway;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-stream-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ResumableStreamRegistry(ChatStreamConfig config, ChatStreamMetricsGateway metricsGateway) {
+        this.config = config;
+        this.metricsGateway = metricsGateway;
+        metricsGateway.bindReplayBuffer(bufferedBytes::get, replays::size);
+        scheduler.scheduleWithFixedDelay(this::sweepSafely, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Intent: 以可续传方式输出一次回复
+     * Input: messageId (回复 ID，全局唯一), events (回复的事件流，只会被订阅一次)
+     * Output: Flux<ReplayRingBuffer.Sequenced> (带编号的事件；订阅即开始生成)
+     * SideEffects: 登记回放缓冲；订阅上游生成
+     * Failure: messageId 已存在时以IllegalStateException结束
+     * Idempotency: 非幂等
+     */
+    public Flux<ReplayRingBuffer.Sequenced> publish(String messageId, Flux<ChatStreamEvent> events) {
+        return Flux.create(sink -> {
+            Replay replay = new Replay(messageId);
+            if (replays.putIfAbsent(messageId, replay) != null) {
+                sink.error(new IllegalStateException("回复 ID 重复: " + messageId));
+                return;
+            }
+            replay.attach(sink, -1);
+            replay.start(events);
+        });
+    }
+
+    /**
+     * Intent: 断线重连：补发 lastSeq 之后的帧并接上仍在进行的生成
+     * Input: messageId, lastSeq (客户端最后收到的帧编号)
+     * Output: Flux<ReplayRingBuffer.Sequenced> (补发的帧，随后是实时帧；生成已结束时补发完即结束)
+     * SideEffects: 取消等待中的上游取消；记录重连指标
+     * Failure: 回复不存在或已过期、或需要的帧已被覆盖时抛出BusinessException(NOT_FOUND_ERROR)，客户端应重新发送消息
+     * Idempotency: 幂等（只读回放，不重新生成）
+     */
+    public Flux<ReplayRingBuffer.Sequenced> resume(String messageId, long lastSeq) {
+        Replay replay = replays.get(messageId);
+        if (replay == null) {
+            metricsGateway.recordResume("expired");
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "回复已过期，请重新发送消息");
+        }
+        if (!replay.canReplayFrom(lastSeq)) {
+            metricsGateway.recordResume("gap");
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "回复的部分内容已不在缓冲中，请重新发送消息");
+        }
+        metricsGateway.recordResume("replayed");
+        return Flux.create(sink -> replay.attach(sink, lastSeq));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.error("回放缓冲清理失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 移除超过 TTL 的已结束回复；仍超过字节上限时按结束时间从早到晚继续移除
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        long ttlNanos = TimeUnit.SECONDS.toNanos(config.getReplayTtlSeconds());
+        List<Replay> finished = new ArrayList<>();
+        for (Replay replay : replays.values()) {
+            long finishedAt = replay.finishedAtNanos;
+            if (finishedAt == 0) {
+                continue;
+            }
+            if (now - finishedAt >= ttlNanos) {
+                replay.remove();
+            } else {
+                finished.add(replay);
+            }
+        }
+        if (bufferedBytes.get() <= config.getReplayMaxBytes()) {
+            return;
+        }
+        finished.sort(Comparator.comparingLong(replay -> replay.finishedAtNanos));
+        for (Replay replay : finished) {
+            if (bufferedBytes.get() <= config.getReplayMaxBytes()) {
+                break;
+            }
+            replay.remove();
+        }
+    }
+
+    /**
+     * 一次回复：上游订阅、回放缓冲与当前连接的客户端；除 finishedAtNanos 外的状态只在 synchronized(this) 内读写
+     */
+    private final class Replay {
+
+        private final String messageId;
+        private final ReplayRingBuffer buffer = new ReplayRingBuffer(config.getReplayCapacityPerMessage());
+        private final List<FluxSink<ReplayRingBuffer.Sequenced>> listeners = new CopyOnWriteArrayList<>();
+        private final Disposable.Swap upstream = Disposables.swap();
+        private ScheduledFuture<?> pendingCancel;
+        private boolean finished;
+        private boolean removed;
+        private Throwable error;
+        private long accountedBytes;
+        private volatile long finishedAtNanos;
+
+        private Replay(String messageId) {
+            this.messageId = messageId;
+        }
+
+        private void start(Flux<ChatStreamEvent> events) {
+            // 上游在订阅线程上同步发出的事件会重入本对象的锁，按顺序进入缓冲
+            upstream.update(events.subscribe(this::onEvent, this::onError, this::onComplete));
+        }
+
+        private synchronized boolean canReplayFrom(long lastSeq) {
+            return !removed && buffer.since(lastSeq).isPresent();
+        }
+
+        private synchronized void attach(FluxSink<ReplayRingBuffer.Sequenced> sink, long lastSeq) {
+            Optional<List<ReplayRingBuffer.Sequenced>> missed = buffer.since(lastSeq);
+            if (removed || missed.isEmpty()) {
+                sink.error(new BusinessException(ErrorCode.NOT_FOUND_ERROR, "回复已过期，请重新发送消息"));
+                return;
+            }
+            missed.get().forEach(sink::next);
+            if (finished) {
+                if (error != null) {
+                    sink.error(error);
+                } else {
+                    sink.complete();
+                }
+                return;
+            }
+            if (pendingCancel != null) {
+                pendingCancel.cancel(false);
+                pendingCancel = null;
+            }
+            listeners.add(sink);
+            sink.onDispose(() -> detach(sink));
+        }
+
+        private synchronized void detach(FluxSink<ReplayRingBuffer.Sequenced> sink) {
+            if (!listeners.remove(sink) || !listeners.isEmpty() || finished) {
+                return;
+            }
+            long grace = config.getResumeGraceMillis();
+            if (grace <= 0) {
+                cancelUpstream();
+            } else {
+                pendingCancel = scheduler.schedule(this::cancelIfAbandoned, grace, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void cancelIfAbandoned() {
+            pendingCancel = null;
+            if (listeners.isEmpty() && !finished) {
+                cancelUpstream();
+            }
+        }
+
+        private void cancelUpstream() {
+            log.debug("回复无客户端连接，取消上游生成: messageId={}", messageId);
+            finish();
+            upstream.dispose();
+            remove();
+        }
+
+        private synchronized void onEvent(ChatStreamEvent event) {
+            if (finished) {
+                return;
+            }
+            ReplayRingBuffer.Sequenced sequenced = buffer.append(event);
+            account();
+            for (FluxSink<ReplayRingBuffer.Sequenced> listener : listeners) {
+                listener.next(sequenced);
+            }
+        }
+
+        private synchronized void onError(Throwable throwable) {
+            if (finished) {
+                return;
+            }
+            error = throwable;
+            finish();
+            listeners.forEach(listener -> listener.error(throwable));
+            listeners.clear();
+        }
+
+        private synchronized void onComplete() {
+            if (finished) {
+                return;
+            }
+            finish();
+            listeners.forEach(FluxSink::complete);
+            listeners.clear();
+        }
+
+        private void finish() {
+            finished = true;
+            finishedAtNanos = System.nanoTime();
+        }
+
+        /**
+         * 移出注册表并归还占用的字节数（只执行一次）
+         */
+        private synchronized void remove() {
+            if (removed) {
+                return;
+            }
+            removed = true;
+            replays.remove(messageId, this);
+            bufferedBytes.addAndGet(-accountedBytes);
+            accountedBytes = 0;
+        }
+
+        private void account() {
+            if (removed) {
+                return;
+            }
+            long bytes = buffer.bytes();
+            bufferedBytes.addAndGet(bytes - accountedBytes);
+            accountedBytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import reactor.core.publisher.Mono;
+
+/**
+ * 取消重新索引任务用例接口
+ */
+public interface CancelReindexJobUseCase {
+
+    /**
+     * Intent: 请求取消 reindex 任务
+     * Input: jobId (任务ID)
+     * Output: Mono<ReindexJob> (取消请求后的任务快照)
+     * SideEffects: PENDING 任务立即置为 CANCELLED；RUNNING 任务设置取消标记，执行方在下一个批次边界停止
+     *             （BLUE_GREEN 已进入切换阶段时不再响应取消）；取消不会修改线上表
+     * Failure: 任务不存在时以BusinessException(NOT_FOUND_ERROR)失败
+     * Idempotency: 幂等（已终态的任务保持不变）
+     */
+    Mono<ReindexJob> execute(String jobId);
+}
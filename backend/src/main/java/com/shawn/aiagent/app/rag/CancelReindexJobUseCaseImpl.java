@@ -0,0 +1,32 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 取消重新索引任务用例实现
+ */
+@Component
+@Slf4j
+public class CancelReindexJobUseCaseImpl implements CancelReindexJobUseCase {
+
+    private final ReindexJobGateway reindexJobGateway;
+
+    public CancelReindexJobUseCaseImpl(ReindexJobGateway reindexJobGateway) {
+        this.reindexJobGateway = reindexJobGateway;
+    }
+
+    @Override
+    public Mono<ReindexJob> execute(String jobId) {
+        log.info("请求取消 reindex 任务: {}", jobId);
+        return Mono.fromCallable(() -> reindexJobGateway.requestCancel(jobId)
+                        .orElseThrow(() -> new BusinessException(ErrorCode.NOT_FOUND_ERROR, "reindex 任务不存在: " + jobId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,129 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.SourceFileChange;
+import com.shawn.aiagent.domain.rag.SourceSyncResult;
+import com.shawn.aiagent.port.rag.SourceChangeGateway;
+import com.shawn.aiagent.support.config.TextSourceConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 持续摄取执行器
+ * 接收目录监听产出的变更批次，在后台单线程中串行执行增量同步
+ *
+ * 待处理变更按文件合并（后到的覆盖先到的），同步期间新到的变更排在下一轮；
+ * 被 reindex 任务占锁时整批延后重试，失败时按配置有限次重试，超过后放弃（下次保存或全量 reindex 会修复）。
+ */
+@Component
+@ConditionalOnProperty(prefix = "rag.sources.text.watch", name = "enabled", havingValue = "true")
+@Slf4j
+public class ContinuousIngestionRunner {
+
+    private final SourceChangeGateway sourceChangeGateway;
+    private final SyncSourceFilesUseCase syncSourceFilesUseCase;
+    private final TextSourceConfig.Watch watchConfig;
+
+    private final Map<String, SourceFileChange> pending = new LinkedHashMap<>();
+    private final Map<String, Integer> failures = new LinkedHashMap<>();
+    private boolean drainScheduled;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "continuous-ingestion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ContinuousIngestionRunner(
+            SourceChangeGateway sourceChangeGateway,
+            SyncSourceFilesUseCase syncSourceFilesUseCase,
+            TextSourceConfig textSourceConfig) {
+        this.sourceChangeGateway = sourceChangeGateway;
+        this.syncSourceFilesUseCase = syncSourceFilesUseCase;
+        this.watchConfig = textSourceConfig.getWatch();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sourceChangeGateway.start(this::enqueue);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sourceChangeGateway.stop();
+        executor.shutdownNow();
+    }
+
+    private void enqueue(List<SourceFileChange> changes) {
+        executor.execute(() -> {
+            changes.forEach(change -> {
+                pending.put(change.getRelativePath(), change);
+                failures.remove(change.getRelativePath());
+            });
+            scheduleDrain(0);
+        });
+    }
+
+    private void scheduleDrain(long delaySeconds) {
+        if (drainScheduled) {
+            return;
+        }
+        drainScheduled = true;
+        executor.schedule(this::drain, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    private void drain() {
+        drainScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<SourceFileChange> batch = new ArrayList<>(pending.values());
+        pending.clear();
+        long retryDelay = Math.max(1, watchConfig.getRetryDelaySeconds());
+        try {
+            SourceSyncResult result = syncSourceFilesUseCase.execute(batch).block();
+            if (result != null && result.isDeferred()) {
+                requeue(batch);
+                scheduleDrain(retryDelay);
+                return;
+            }
+            batch.forEach(change -> failures.remove(change.getRelativePath()));
+        } catch (RuntimeException e) {
+            log.error("增量同步失败，文件数: {}, 错误: {}", batch.size(), e.getMessage(), e);
+            List<SourceFileChange> retry = new ArrayList<>();
+            for (SourceFileChange change : batch) {
+                int attempts = failures.merge(change.getRelativePath(), 1, Integer::sum);
+                if (attempts <= watchConfig.getMaxRetries()) {
+                    retry.add(change);
+                } else {
+                    failures.remove(change.getRelativePath());
+                    log.error("文件增量同步重试 {} 次仍失败，放弃: {}", watchConfig.getMaxRetries(), change.getRelativePath());
+                }
+            }
+            requeue(retry);
+            scheduleDrain(retryDelay);
+            return;
+        }
+        if (!pending.isEmpty()) {
+            scheduleDrain(0);
+        }
+    }
+
+    /**
+     * 放回待处理队列；保留原 changedAt，延后的时间计入摄取延迟
+     */
+    private void requeue(List<SourceFileChange> changes) {
+        changes.forEach(change -> pending.putIfAbsent(change.getRelativePath(), change));
+    }
+}
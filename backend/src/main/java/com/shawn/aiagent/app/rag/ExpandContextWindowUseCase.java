@@ -0,0 +1,23 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ContextWindow;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 上下文窗口扩展用例接口（检索的后置阶段）
+ */
+public interface ExpandContextWindowUseCase {
+
+    /**
+     * Intent: 把命中 chunk 扩展为同章节前后各 radius 个相邻 chunk，重叠窗口合并
+     * Input: hits (命中 chunk), radius (扩展半径，0 表示不扩展)
+     * Output: Mono<List<ContextWindow>> (按命中相似度降序)
+     * SideEffects: 一次批量只读查询（radius 为 0 或没有可扩展的命中时不查询）
+     * Failure: radius 越界时以BusinessException(INVALID_QUERY)失败；查询超时/失败时以BusinessException(VECTOR_SEARCH_TIMEOUT / VECTOR_STORE_ERROR)失败
+     * Idempotency: 幂等
+     */
+    Mono<List<ContextWindow>> execute(List<RetrievalResult> hits, int radius);
+}
@@ -0,0 +1,74 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.ChunkRange;
+import com.shawn.aiagent.domain.rag.ContextWindow;
+import com.shawn.aiagent.domain.rag.ContextWindowPolicy;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import com.shawn.aiagent.support.timeoutSemanticClassifier.TimeoutSemanticClassifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 上下文窗口扩展用例实现
+ * 先按命中 chunk 计算（已合并的）章节区间，再一次批量查询取回区间内全部 chunk，不逐个查询相邻 chunk。
+ * 相邻 chunk 始终读线上表：模型迁移期间两代表的 chunk 内容与 metadata 相同。
+ */
+@Component
+@Slf4j
+public class ExpandContextWindowUseCaseImpl implements ExpandContextWindowUseCase {
+
+    private final VectorStoreGateway vectorStoreGateway;
+    private final RetrievalConfig retrievalConfig;
+    private final TimeoutSemanticClassifier timeoutSemanticClassifier;
+
+    public ExpandContextWindowUseCaseImpl(
+            VectorStoreGateway vectorStoreGateway,
+            RetrievalConfig retrievalConfig,
+            TimeoutSemanticClassifier timeoutSemanticClassifier) {
+        this.vectorStoreGateway = vectorStoreGateway;
+        this.retrievalConfig = retrievalConfig;
+        this.timeoutSemanticClassifier = timeoutSemanticClassifier;
+    }
+
+    @Override
+    public Mono<List<ContextWindow>> execute(List<RetrievalResult> hits, int radius) {
+        return Mono.defer(() -> {
+            if (radius < 0 || radius > retrievalConfig.getContextWindowMaxRadius()) {
+                return Mono.error(new BusinessException(ErrorCode.INVALID_QUERY,
+                        "radius 必须在 0 到 " + retrievalConfig.getContextWindowMaxRadius() + " 之间"));
+            }
+            ContextWindowPolicy policy = new ContextWindowPolicy(radius);
+            List<ChunkRange> ranges = radius > 0 ? policy.plan(hits) : List.of();
+            if (ranges.isEmpty()) {
+                return Mono.just(policy.assemble(hits, List.of()));
+            }
+            return Mono.fromCallable(() -> vectorStoreGateway.findChunksInRanges(ranges))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutVectorSearchSeconds()))
+                    .onErrorMap(e -> {
+                        if (e instanceof BusinessException) {
+                            return e;
+                        }
+                        if (timeoutSemanticClassifier.isTimeout(e)) {
+                            return new BusinessException(ErrorCode.VECTOR_SEARCH_TIMEOUT, "上下文扩展查询超时");
+                        }
+                        return new BusinessException(ErrorCode.VECTOR_STORE_ERROR, "上下文扩展查询失败: " + e.getMessage());
+                    })
+                    .map(fetched -> {
+                        List<ContextWindow> windows = policy.assemble(hits, fetched);
+                        log.debug("上下文扩展完成: 命中 {}, 区间 {}, 取回 {}, 窗口 {}",
+                                hits.size(), ranges.size(), fetched.size(), windows.size());
+                        return windows;
+                    });
+        });
+    }
+}
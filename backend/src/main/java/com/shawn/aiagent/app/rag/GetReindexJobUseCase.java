@@ -0,0 +1,20 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import reactor.core.publisher.Mono;
+
+/**
+ * 查询重新索引任务用例接口
+ */
+public interface GetReindexJobUseCase {
+
+    /**
+     * Intent: 查询 reindex 任务的状态、阶段与进度
+     * Input: jobId (任务ID)
+     * Output: Mono<ReindexJob> (任务快照)
+     * SideEffects: 只读查询
+     * Failure: 任务不存在时以BusinessException(NOT_FOUND_ERROR)失败
+     * Idempotency: 幂等
+     */
+    Mono<ReindexJob> execute(String jobId);
+}
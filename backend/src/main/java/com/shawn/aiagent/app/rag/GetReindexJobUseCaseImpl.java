@@ -0,0 +1,29 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 查询重新索引任务用例实现
+ */
+@Component
+public class GetReindexJobUseCaseImpl implements GetReindexJobUseCase {
+
+    private final ReindexJobGateway reindexJobGateway;
+
+    public GetReindexJobUseCaseImpl(ReindexJobGateway reindexJobGateway) {
+        this.reindexJobGateway = reindexJobGateway;
+    }
+
+    @Override
+    public Mono<ReindexJob> execute(String jobId) {
+        return Mono.fromCallable(() -> reindexJobGateway.findById(jobId)
+                        .orElseThrow(() -> new BusinessException(ErrorCode.NOT_FOUND_ERROR, "reindex 任务不存在: " + jobId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,22 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 查询相关 chunk 用例接口（"more like this chunk"）
+ */
+public interface GetRelatedChunksUseCase {
+
+    /**
+     * Intent: 返回与给定 chunk 最相似的 chunk（读取 reindex 后预计算的近邻图，不做向量检索）
+     * Input: chunkId (chunk UUID), limit (返回数量，不超过预计算的近邻数)
+     * Output: Mono<List<RetrievalResult>> (按相似度降序，不含自身)
+     * SideEffects: 只读查询
+     * Failure: 参数不合法时以BusinessException(PARAMS_ERROR)失败；chunk 不在近邻图中时以BusinessException(NOT_FOUND_ERROR)失败
+     * Idempotency: 幂等
+     */
+    Mono<List<RetrievalResult>> execute(String chunkId, int limit);
+}
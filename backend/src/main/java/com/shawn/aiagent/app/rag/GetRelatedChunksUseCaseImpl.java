@@ -0,0 +1,53 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.ChunkNeighborGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 查询相关 chunk 用例实现
+ */
+@Component
+public class GetRelatedChunksUseCaseImpl implements GetRelatedChunksUseCase {
+
+    private final ChunkNeighborGateway chunkNeighborGateway;
+    private final IngestionConfig ingestionConfig;
+
+    public GetRelatedChunksUseCaseImpl(ChunkNeighborGateway chunkNeighborGateway, IngestionConfig ingestionConfig) {
+        this.chunkNeighborGateway = chunkNeighborGateway;
+        this.ingestionConfig = ingestionConfig;
+    }
+
+    @Override
+    public Mono<List<RetrievalResult>> execute(String chunkId, int limit) {
+        return Mono.fromCallable(() -> {
+                    int neighborCount = ingestionConfig.getNeighborCount();
+                    if (neighborCount <= 0) {
+                        throw new BusinessException(ErrorCode.OPERATION_ERROR, "未启用近邻图（rag.ingestion.neighbor-count=0）");
+                    }
+                    String id = validateChunkId(chunkId);
+                    if (limit <= 0 || limit > neighborCount) {
+                        throw new BusinessException(ErrorCode.PARAMS_ERROR, "limit 必须在 1 到 " + neighborCount + " 之间");
+                    }
+                    return chunkNeighborGateway.findRelated(id, limit)
+                            .orElseThrow(() -> new BusinessException(ErrorCode.NOT_FOUND_ERROR, "chunk 不存在或尚未计算近邻: " + id));
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static String validateChunkId(String chunkId) {
+        try {
+            return UUID.fromString(chunkId == null ? "" : chunkId.trim()).toString();
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "chunk id 不是合法的 UUID: " + chunkId);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * 向量存储类型迁移用例接口
+ * 定义把线上表向量列转换为配置的存储类型（rag.ingestion.vector-type）的业务契约
+ */
+public interface MigrateVectorStorageUseCase {
+
+    /**
+     * Intent: 把线上表向量列转换为配置的存储类型（vector ↔ halfvec），复用已有向量，不调用 embedding 接口
+     * Input: strategy (IN_PLACE：原地 ALTER TYPE 后重建索引；NEW_GENERATION：复制到影子表、建索引后原子切换)
+     * Output: Mono<ReindexResult> (迁移后线上表的行数与说明)
+     * SideEffects: IN_PLACE 重写线上表，期间阻塞读写，重建索引前查询走顺序扫描；
+     *              NEW_GENERATION 不影响线上读取，原表保留为上一代，可用回滚接口切回
+     * Failure: DDL / 复制 / 建索引失败时抛出RuntimeException，线上表保持迁移前的类型；
+     *          集群内有 reindex 任务持有锁时返回ReindexResult.inProgress()
+     * Idempotency: 幂等（已是目标类型时直接返回）
+     */
+    Mono<ReindexResult> execute(Strategy strategy);
+
+    /**
+     * 迁移方式
+     */
+    enum Strategy {
+        /**
+         * 原地转换线上表
+         */
+        IN_PLACE,
+        /**
+         * 写入新一代表后切换（blue/green）
+         */
+        NEW_GENERATION
+    }
+}
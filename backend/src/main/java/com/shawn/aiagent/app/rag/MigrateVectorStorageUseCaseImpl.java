@@ -0,0 +1,91 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexResult;
+import com.shawn.aiagent.port.rag.ReindexLockGateway;
+import com.shawn.aiagent.port.rag.VectorGenerationGateway;
+import com.shawn.aiagent.port.rag.VectorIndexGateway;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * 向量存储类型迁移用例实现
+ */
+@Component
+@Slf4j
+public class MigrateVectorStorageUseCaseImpl implements MigrateVectorStorageUseCase {
+
+    private final VectorIndexGateway vectorIndexGateway;
+    private final VectorGenerationGateway vectorGenerationGateway;
+    private final VectorStoreGateway vectorStoreGateway;
+    private final ReindexLockGateway reindexLockGateway;
+    private final IngestionConfig ingestionConfig;
+
+    public MigrateVectorStorageUseCaseImpl(
+            VectorIndexGateway vectorIndexGateway,
+            VectorGenerationGateway vectorGenerationGateway,
+            VectorStoreGateway vectorStoreGateway,
+            ReindexLockGateway reindexLockGateway,
+            IngestionConfig ingestionConfig) {
+        this.vectorIndexGateway = vectorIndexGateway;
+        this.vectorGenerationGateway = vectorGenerationGateway;
+        this.vectorStoreGateway = vectorStoreGateway;
+        this.reindexLockGateway = reindexLockGateway;
+        this.ingestionConfig = ingestionConfig;
+    }
+
+    @Override
+    public Mono<ReindexResult> execute(Strategy strategy) {
+        log.info("开始迁移向量存储类型: target={}, strategy={}", ingestionConfig.getVectorType(), strategy);
+        return Mono.fromCallable(() -> {
+                    // 与 reindex 任务、增量同步共用集群锁：迁移期间不能有其他写入或切换
+                    Optional<ReindexLockGateway.ReindexLock> acquired = reindexLockGateway.tryAcquire();
+                    if (acquired.isEmpty()) {
+                        log.warn("reindex 任务正在执行，拒绝迁移向量存储类型");
+                        return ReindexResult.inProgress();
+                    }
+                    try (ReindexLockGateway.ReindexLock ignored = acquired.get()) {
+                        return migrate(strategy);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private ReindexResult migrate(Strategy strategy) {
+        String target = ingestionConfig.getVectorType().sqlType();
+        String current = vectorIndexGateway.storedType();
+        if (current.equals(target)) {
+            return new ReindexResult((int) vectorStoreGateway.countDocuments(), "向量列已是 " + target + "，无需迁移");
+        }
+
+        long start = System.currentTimeMillis();
+        long rows;
+        switch (strategy) {
+            case IN_PLACE -> {
+                vectorIndexGateway.convertStoredType();
+                vectorIndexGateway.buildIndex(progress -> { });
+                rows = vectorStoreGateway.countDocuments();
+            }
+            case NEW_GENERATION -> {
+                vectorGenerationGateway.prepareShadow();
+                rows = vectorGenerationGateway.copyLiveToShadow();
+                vectorGenerationGateway.buildShadowIndex(progress -> { });
+                long shadowRows = vectorGenerationGateway.countShadowRows();
+                if (shadowRows != rows) {
+                    throw new IllegalStateException("影子表行数 " + shadowRows + " 与复制行数 " + rows + " 不一致，放弃切换");
+                }
+                vectorGenerationGateway.cutover();
+            }
+            default -> throw new IllegalArgumentException("不支持的迁移方式: " + strategy);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("向量存储类型迁移完成: {} -> {}, strategy={}, 行数={}, 耗时 {} ms", current, target, strategy, rows, elapsed);
+        return new ReindexResult((int) rows,
+                "向量列已由 " + current + " 迁移为 " + target + "（" + strategy + "），耗时 " + elapsed + " ms");
+    }
+}
@@ -0,0 +1,180 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.CandidateEmbeddingGateway;
+import com.shawn.aiagent.port.rag.CandidateVectorStoreGateway;
+import com.shawn.aiagent.port.rag.EmbeddingGateway;
+import com.shawn.aiagent.port.rag.ModelMigrationMetricsGateway;
+import com.shawn.aiagent.port.rag.SlaEmbeddingGateway;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.ModelMigrationConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Embedding 模型迁移的读路由
+ * 决定线上检索读哪一代（current / candidate），并把抽样到的请求在另一代上做影子查询。
+ *
+ * 影子查询不在响应路径上：线上结果返回后才提交到专用线程池，并发数由信号量限制，满了直接丢弃该次抽样，
+ * 不排队、不阻塞线上请求。两代延迟都只对被抽样的请求记录，保证对比口径一致。
+ * 未启用迁移（没有候选一代）时只有 current，shadowRead 为空操作。
+ */
+@Component
+@Slf4j
+public class ModelMigrationRouter {
+
+    static final String CURRENT = "current";
+    static final String CANDIDATE = "candidate";
+
+    /**
+     * 一代向量：查询向量化 + 检索
+     */
+    public record Generation(String name, EmbeddingGateway embeddingGateway, Searcher searcher) {
+    }
+
+    /**
+     * 一代向量上的检索（线上表走 VectorStoreGateway，候选表走 CandidateVectorStoreGateway）
+     */
+    @FunctionalInterface
+    public interface Searcher {
+        List<RetrievalResult> similaritySearch(String query, List<Double> embedding, int topK);
+    }
+
+    private final ModelMigrationConfig config;
+    private final Generation current;
+    private final Generation candidate;
+    private final ModelMigrationMetricsGateway metricsGateway;
+    private final Semaphore shadowPermits;
+    private final ExecutorService shadowExecutor;
+
+    @Autowired
+    public ModelMigrationRouter(
+            ModelMigrationConfig config,
+            @Qualifier("slaEmbeddingGateway") SlaEmbeddingGateway slaEmbeddingGateway,
+            VectorStoreGateway vectorStoreGateway,
+            ObjectProvider<CandidateEmbeddingGateway> candidateEmbeddingGateway,
+            ObjectProvider<CandidateVectorStoreGateway> candidateVectorStoreGateway,
+            ModelMigrationMetricsGateway metricsGateway) {
+        this(config,
+                new Generation(CURRENT, slaEmbeddingGateway, vectorStoreGateway::similaritySearch),
+                candidateGeneration(candidateEmbeddingGateway.getIfAvailable(), candidateVectorStoreGateway.getIfAvailable()),
+                metricsGateway);
+    }
+
+    private ModelMigrationRouter(ModelMigrationConfig config, Generation current, Generation candidate,
+                                 ModelMigrationMetricsGateway metricsGateway) {
+        this.config = config;
+        this.current = current;
+        this.candidate = candidate;
+        this.metricsGateway = metricsGateway;
+        if (candidate == null && config.getReadFrom() == ModelMigrationConfig.ReadSource.CANDIDATE) {
+            throw new IllegalStateException("rag.migration.read-from=CANDIDATE 需要 rag.migration.enabled=true 且配置候选模型与候选表");
+        }
+        int maxInFlight = Math.max(1, config.getShadowReadMaxInFlight());
+        this.shadowPermits = new Semaphore(maxInFlight);
+        this.shadowExecutor = candidate == null ? null : Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            Thread thread = new Thread(runnable, "rag-migration-shadow-read");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (candidate != null) {
+            log.info("embedding 模型迁移已启用: 读取 {}, 影子查询比例 {}, 并发上限 {}",
+                    config.getReadFrom(), config.getShadowReadRate(), maxInFlight);
+        }
+    }
+
+    /**
+     * Intent: 线上检索应读取的一代
+     * Input: 无
+     * Output: Generation
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public Generation serving() {
+        if (candidate != null && config.getReadFrom() == ModelMigrationConfig.ReadSource.CANDIDATE) {
+            return candidate;
+        }
+        return current;
+    }
+
+    /**
+     * Intent: 按抽样比例在另一代上异步执行同一查询，记录两代延迟与 top-1 是否一致
+     * Input: query (规范化后的查询), served (线上读取的一代), servedResult (线上 top-1), servedLatency (线上向量化 + 检索耗时)
+     * Output: 无（立即返回）
+     * SideEffects: 可能调用另一代的 embedding 模型（计费）与向量检索；更新迁移指标
+     * Failure: 无（影子查询的异常只记入指标与日志）
+     * Idempotency: 非幂等
+     */
+    public void shadowRead(String query, Generation served, RetrievalResult servedResult, Duration servedLatency) {
+        if (candidate == null || servedResult == null) {
+            return;
+        }
+        double rate = config.getShadowReadRate();
+        if (rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate) {
+            return;
+        }
+        Generation shadow = served == candidate ? current : candidate;
+        if (!shadowPermits.tryAcquire()) {
+            metricsGateway.recordShadowRead("dropped");
+            return;
+        }
+        metricsGateway.recordLatency(served.name(), false, servedLatency);
+        try {
+            shadowExecutor.execute(() -> {
+                try {
+                    runShadowRead(query, shadow, servedResult);
+                } finally {
+                    shadowPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 应用关闭中
+            shadowPermits.release();
+            metricsGateway.recordShadowRead("dropped");
+        }
+    }
+
+    private void runShadowRead(String query, Generation shadow, RetrievalResult servedResult) {
+        long start = System.nanoTime();
+        try {
+            List<Double> embedding = shadow.embeddingGateway().embed(query);
+            List<RetrievalResult> results = shadow.searcher().similaritySearch(query, embedding, 1);
+            metricsGateway.recordLatency(shadow.name(), true, Duration.ofNanos(System.nanoTime() - start));
+            boolean agree = !results.isEmpty()
+                    && Objects.equals(results.get(0).getChunkId(), servedResult.getChunkId());
+            metricsGateway.recordShadowRead(agree ? "agree" : "disagree");
+        } catch (Exception e) {
+            metricsGateway.recordShadowRead("error");
+            log.warn("影子查询失败: generation={}, error={}", shadow.name(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (shadowExecutor != null) {
+            shadowExecutor.shutdownNow();
+        }
+    }
+
+    private static Generation candidateGeneration(CandidateEmbeddingGateway embeddingGateway,
+                                                  CandidateVectorStoreGateway vectorStoreGateway) {
+        if (embeddingGateway == null || vectorStoreGateway == null) {
+            return null;
+        }
+        return new Generation(CANDIDATE, embeddingGateway, vectorStoreGateway::similaritySearch);
+    }
+}
@@ -12,10 +12,11 @@ public interface PreviewReindexUseCase {
     /**
      * Intent: 预览重新索引操作（不实际执行索引）
      * Input: 无
-     * Output: Mono<ReindexPreview> (预览结果，包含chunk数量、表名、模型名和维度)
-     * SideEffects: 仅读取数据源和配置信息，不写入数据库
-     * Failure: 如果数据源不可访问或配置错误，抛出RuntimeException
-     * Idempotency: 幂等（相同配置返回相同结果）
+     * Output: Mono<ReindexPreview> (预览结果，包含chunk数量、表名、模型名、维度，
+     *         以及与线上表按内容哈希比对的新增/变更/删除数量、token 估算和预计耗时)
+     * SideEffects: 只读：流式读取数据源、查询线上表内容哈希与历史任务吞吐；不调用 embedding 接口，不写入数据库
+     * Failure: 如果数据源或数据库不可访问，抛出RuntimeException
+     * Idempotency: 幂等（数据源与线上表不变时返回相同结果）
      */
     Mono<ReindexPreview> execute();
 }
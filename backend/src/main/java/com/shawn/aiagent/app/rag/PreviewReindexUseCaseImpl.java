@@ -1,9 +1,14 @@
 package com.shawn.aiagent.app.rag;
 
 import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.ReindexDelta;
+import com.shawn.aiagent.domain.rag.ReindexJob;
 import com.shawn.aiagent.domain.rag.ReindexPreview;
+import com.shawn.aiagent.domain.rag.TokenEstimationPolicy;
 import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
-import com.shawn.aiagent.port.rag.EmbeddingGateway;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -11,29 +16,48 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 预览重新索引用例实现
  * 编排预览重新索引操作的流程
+ *
+ * 流式分批读取数据源，每批按 id 查询线上表的内容哈希做比对，内存中只保留当前批次和计数器；
+ * 维度取自配置，不再为预览调用 embedding 接口。
  */
 @Component
 @Slf4j
 public class PreviewReindexUseCaseImpl implements PreviewReindexUseCase {
     
+    /**
+     * 参与吞吐估算的最近成功任务数
+     */
+    private static final int THROUGHPUT_SAMPLE_JOBS = 5;
+    
     private final DocumentLoaderGateway documentLoaderGateway;
-    private final EmbeddingGateway embeddingGateway;
+    private final VectorStoreGateway vectorStoreGateway;
+    private final ReindexJobGateway reindexJobGateway;
+    private final IngestionConfig ingestionConfig;
+    private final TokenEstimationPolicy tokenEstimationPolicy = new TokenEstimationPolicy();
     private final String tableName;
     private final String embeddingModelName;
+    private final int embeddingDim;
     
     public PreviewReindexUseCaseImpl(
             DocumentLoaderGateway documentLoaderGateway,
-            EmbeddingGateway embeddingGateway,
+            VectorStoreGateway vectorStoreGateway,
+            ReindexJobGateway reindexJobGateway,
+            IngestionConfig ingestionConfig,
             @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName,
-            @Value("${spring.ai.dashscope.embedding.options.model}") String embeddingModelName) {
+            @Value("${spring.ai.dashscope.embedding.options.model}") String embeddingModelName,
+            @Value("${spring.ai.vectorstore.pgvector.embedding-dimension}") int embeddingDim) {
         this.documentLoaderGateway = documentLoaderGateway;
-        this.embeddingGateway = embeddingGateway;
+        this.vectorStoreGateway = vectorStoreGateway;
+        this.reindexJobGateway = reindexJobGateway;
+        this.ingestionConfig = ingestionConfig;
         this.tableName = tableName;
         this.embeddingModelName = embeddingModelName;
+        this.embeddingDim = embeddingDim;
     }
     
     @Override
@@ -42,27 +66,30 @@ public class PreviewReindexUseCaseImpl implements PreviewReindexUseCase {
         
         return Mono.fromCallable(() -> {
             try {
-                // 1. 加载文档以获取 chunk 数量（不实际写入向量存储）
-                log.debug("加载文档以获取chunk数量");
-                List<DocumentChunk> chunks = documentLoaderGateway.loadDocuments();
-                int chunkCount = chunks.size();
-                log.debug("成功加载 {} 个文档块", chunkCount);
+                // 1. 流式比对数据源与线上表
+                DeltaCounter counter = new DeltaCounter();
+                documentLoaderGateway.streamDocuments(ingestionConfig.getBatchSize(), counter::accept);
+                
+                // 2. 线上表中未被数据源匹配到的行即为将被删除的行
+                long liveCount = vectorStoreGateway.countDocuments();
+                long removed = Math.max(0, liveCount - counter.matched);
                 
-                // 2. 获取 embedding 维度
-                log.debug("获取embedding维度");
-                int embeddingDim = embeddingGateway.getDimensions();
-                log.debug("embedding维度: {}", embeddingDim);
+                // 3. 按近期任务吞吐推算全量耗时
+                double projectedSeconds = projectSeconds(counter.total);
                 
-                // 3. 构建预览结果
+                ReindexDelta delta = new ReindexDelta(
+                        counter.added, counter.changed, counter.unchanged, removed,
+                        counter.tokens, counter.deltaTokens, projectedSeconds);
                 ReindexPreview preview = new ReindexPreview(
-                        chunkCount,
+                        counter.total,
                         tableName,
                         embeddingModelName,
-                        embeddingDim
+                        embeddingDim,
+                        delta
                 );
                 
-                log.info("dryRun 预览完成，chunk 数量: {}, table: {}, 模型: {}, 维度: {}", 
-                        chunkCount, tableName, embeddingModelName, embeddingDim);
+                log.info("dryRun 预览完成，chunk 数量: {}, table: {}, 模型: {}, 维度: {}, 差异: {}", 
+                        counter.total, tableName, embeddingModelName, embeddingDim, delta);
                 return preview;
             } catch (Exception e) {
                 log.error("dryRun 预览失败", e);
@@ -71,5 +98,53 @@ public class PreviewReindexUseCaseImpl implements PreviewReindexUseCase {
         })
         .subscribeOn(Schedulers.boundedElastic()); // 在非响应式线程池中执行
     }
+    
+    /**
+     * @return 预计秒数；没有可参考的成功任务时为 -1
+     */
+    private double projectSeconds(int chunkCount) {
+        List<ReindexJob> recent = reindexJobGateway.findRecentSucceeded(THROUGHPUT_SAMPLE_JOBS);
+        double throughput = recent.stream()
+                .mapToDouble(ReindexJob::throughputPerSecond)
+                .filter(value -> value > 0)
+                .average()
+                .orElse(0d);
+        return throughput > 0 ? chunkCount / throughput : -1d;
+    }
+    
+    /**
+     * 单次预览内的计数器（只在调用线程内使用）
+     */
+    private final class DeltaCounter {
+        private int total;
+        private int added;
+        private int changed;
+        private int unchanged;
+        private long matched;
+        private long tokens;
+        private long deltaTokens;
+        
+        private void accept(List<DocumentChunk> batch) {
+            Map<String, String> liveHashes = vectorStoreGateway.findContentHashes(
+                    batch.stream().map(DocumentChunk::getId).toList());
+            for (DocumentChunk chunk : batch) {
+                long chunkTokens = tokenEstimationPolicy.estimate(chunk.getEmbedText());
+                total++;
+                tokens += chunkTokens;
+                String liveHash = liveHashes.get(chunk.getId());
+                if (liveHash == null) {
+                    added++;
+                    deltaTokens += chunkTokens;
+                    continue;
+                }
+                matched++;
+                if (liveHash.equals(chunk.contentHash())) {
+                    unchanged++;
+                } else {
+                    changed++;
+                    deltaTokens += chunkTokens;
+                }
+            }
+        }
+    }
 }
-
@@ -0,0 +1,399 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.EmbedTextTemplate;
+import com.shawn.aiagent.domain.rag.NearDuplicatePolicy;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.domain.rag.ReindexJobPhase;
+import com.shawn.aiagent.domain.rag.ReindexJobStatus;
+import com.shawn.aiagent.domain.rag.TokenEstimationPolicy;
+import com.shawn.aiagent.port.rag.CandidateVectorStoreGateway;
+import com.shawn.aiagent.port.rag.ChunkNeighborGateway;
+import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import com.shawn.aiagent.port.rag.ReindexLockGateway;
+import com.shawn.aiagent.port.rag.VectorGenerationGateway;
+import com.shawn.aiagent.port.rag.VectorIndexGateway;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 重新索引任务执行器
+ * 在后台单线程中按阶段推进 reindex 任务，每批提交后记录断点
+ *
+ * 阶段：PREPARING → WRITING → INDEXING → SWITCHING（IN_PLACE 只有 WRITING；
+ * IN_PLACE_DEFERRED_INDEX 为 PREPARING（删索引）→ WRITING → INDEXING，删索引后任务以失败或取消结束时先重建索引）。
+ * 执行前先获取集群级 advisory lock，保证同一时刻只有一个节点在跑；
+ * 节点崩溃后锁随连接释放，其他节点（或重启后的本节点）在定时扫描时从最后完成的批次续跑。
+ * 近重复合并由加载器按文件完成，这里只从代表 chunk 的 duplicate_ids 取回被合并的 id（计数、原地模式清理残留）；
+ * 合并结果只取决于数据源内容与顺序，续跑时批次划分保持一致。
+ * 向量化文本由各数据源的模板决定，任务记录估算 token 数以及相比拼接全部 metadata 省下的 token 数。
+ * 模型迁移期间（存在候选向量表）每批同时写入候选表：候选表原地 upsert，不参与影子表切换，
+ * 任务完成后删除候选表中数据源已不存在的 chunk 并建索引。
+ * 任务成功后重新计算线上表的 chunk 近邻图（相关 chunk），失败只记日志，不影响任务结果。
+ */
+@Component
+@Slf4j
+public class ReindexJobRunner {
+
+    private final DocumentLoaderGateway documentLoaderGateway;
+    private final VectorStoreGateway vectorStoreGateway;
+    private final VectorGenerationGateway vectorGenerationGateway;
+    private final VectorIndexGateway vectorIndexGateway;
+    private final ReindexJobGateway reindexJobGateway;
+    private final ReindexLockGateway reindexLockGateway;
+    private final IngestionConfig ingestionConfig;
+    private final ObjectProvider<CandidateVectorStoreGateway> candidateVectorStoreGateway;
+    private final ChunkNeighborGateway chunkNeighborGateway;
+    private final TokenEstimationPolicy tokenEstimationPolicy = new TokenEstimationPolicy();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "reindex-job-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReindexJobRunner(
+            DocumentLoaderGateway documentLoaderGateway,
+            VectorStoreGateway vectorStoreGateway,
+            VectorGenerationGateway vectorGenerationGateway,
+            VectorIndexGateway vectorIndexGateway,
+            ReindexJobGateway reindexJobGateway,
+            ReindexLockGateway reindexLockGateway,
+            IngestionConfig ingestionConfig,
+            ObjectProvider<CandidateVectorStoreGateway> candidateVectorStoreGateway,
+            ChunkNeighborGateway chunkNeighborGateway) {
+        this.documentLoaderGateway = documentLoaderGateway;
+        this.vectorStoreGateway = vectorStoreGateway;
+        this.vectorGenerationGateway = vectorGenerationGateway;
+        this.vectorIndexGateway = vectorIndexGateway;
+        this.reindexJobGateway = reindexJobGateway;
+        this.reindexLockGateway = reindexLockGateway;
+        this.ingestionConfig = ingestionConfig;
+        this.candidateVectorStoreGateway = candidateVectorStoreGateway;
+        this.chunkNeighborGateway = chunkNeighborGateway;
+    }
+
+    /**
+     * 应用就绪后开始定期扫描遗留任务（首次扫描即完成"重启续跑"）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startResumeScan() {
+        long interval = Math.max(1, ingestionConfig.getJobResumeScanIntervalSeconds());
+        executor.scheduleWithFixedDelay(this::runActiveJob, 0, interval, TimeUnit.SECONDS);
+        log.info("reindex 任务续跑扫描已启动，间隔 {} 秒", interval);
+    }
+
+    /**
+     * Intent: 提交一次执行（新建任务后立即触发，不必等待下一次扫描）
+     * Input: 无
+     * Output: 无
+     * SideEffects: 在后台线程执行当前活动任务
+     * Failure: 无（执行中的异常记录到任务表）
+     * Idempotency: 幂等（单线程串行执行，已终态任务不会重复执行）
+     */
+    public void submit() {
+        executor.execute(this::runActiveJob);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void runActiveJob() {
+        try {
+            if (reindexJobGateway.findActive().isEmpty()) {
+                return;
+            }
+            Optional<ReindexLockGateway.ReindexLock> acquired = reindexLockGateway.tryAcquire();
+            if (acquired.isEmpty()) {
+                log.debug("reindex 锁被其他节点持有，本轮跳过");
+                return;
+            }
+            try (ReindexLockGateway.ReindexLock ignored = acquired.get()) {
+                // 拿到锁后重新读取：等锁期间任务可能已被其他节点完成或取消
+                Optional<ReindexJob> active = reindexJobGateway.findActive();
+                if (active.isPresent()) {
+                    runJob(active.get());
+                }
+            }
+        } catch (Exception e) {
+            // 扫描线程不能因单次异常退出，否则后续任务不再被续跑
+            log.error("reindex 任务扫描失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void runJob(ReindexJob job) {
+        String jobId = job.getId();
+        if (job.isCancelRequested()) {
+            finishUnsuccessfully(job, ReindexJobStatus.CANCELLED, null);
+            return;
+        }
+        if (job.getAttempts() >= Math.max(1, ingestionConfig.getJobMaxAttempts())) {
+            finishUnsuccessfully(job, ReindexJobStatus.FAILED,
+                    "超过最大执行次数 " + job.getAttempts() + "，放弃续跑");
+            return;
+        }
+        try {
+            List<DocumentChunk> chunks = documentLoaderGateway.loadDocuments();
+            // 断点只记录批次序号：数据源变化后序号不再对应同一批 chunk，不能续跑
+            if (job.getTotalChunks() > 0 && job.getTotalChunks() != chunks.size()) {
+                finishUnsuccessfully(job, ReindexJobStatus.FAILED,
+                        "数据源已变化（" + job.getTotalChunks() + " -> " + chunks.size() + "），无法从断点续跑");
+                return;
+            }
+            List<String> duplicateIds = duplicateIds(chunks);
+            if (job.getTotalChunks() > 0 && job.getDuplicateChunks() != duplicateIds.size()) {
+                finishUnsuccessfully(job, ReindexJobStatus.FAILED,
+                        "去重配置已变化（合并数 " + job.getDuplicateChunks() + " -> " + duplicateIds.size()
+                                + "），无法从断点续跑");
+                return;
+            }
+            job = reindexJobGateway.markRunning(jobId, chunks.size(), duplicateIds.size());
+            recordEmbedTokens(jobId, chunks);
+            if (chunks.isEmpty()) {
+                // 不能用空影子表替换线上表
+                log.warn("没有文档需要处理，reindex 任务直接结束: id={}", jobId);
+                reindexJobGateway.markFinished(jobId, ReindexJobStatus.SUCCEEDED, null);
+                return;
+            }
+            CandidateVectorStoreGateway candidate = candidateVectorStoreGateway.getIfAvailable();
+            if (candidate != null) {
+                candidate.prepare();
+            }
+            log.info("开始执行 reindex 任务: id={}, mode={}, phase={}, 已完成批次={}, 第 {} 次执行, 近重复合并 {}/{}",
+                    jobId, job.getMode(), job.getPhase(), job.getCompletedBatches(), job.getAttempts(),
+                    duplicateIds.size(), chunks.size());
+
+            boolean completed = switch (IngestionConfig.ReindexMode.valueOf(job.getMode())) {
+                case BLUE_GREEN -> runBlueGreen(job, chunks);
+                case IN_PLACE_DEFERRED_INDEX -> runInPlaceDeferredIndex(job, chunks, duplicateIds);
+                case IN_PLACE -> runInPlace(job, chunks, duplicateIds);
+            };
+            if (completed && candidate != null) {
+                finishCandidate(job, candidate, chunks);
+            }
+            if (completed) {
+                reindexJobGateway.markFinished(jobId, ReindexJobStatus.SUCCEEDED, null);
+                log.info("reindex 任务完成: id={}, 写入 chunk {} 个, 省去 embedding {} 次",
+                        jobId, chunks.size(), duplicateIds.size());
+                refreshNeighborGraph(jobId);
+            }
+        } catch (Exception e) {
+            log.error("reindex 任务失败: id={}", jobId, e);
+            finishUnsuccessfully(job, ReindexJobStatus.FAILED, e.getMessage());
+        }
+    }
+
+    /**
+     * 以失败或取消结束任务（所有非成功出口都经过这里）
+     * IN_PLACE_DEFERRED_INDEX 任务的阶段已越过 PREPARING 时线上索引可能已被删除，先重建再标记终态：
+     * 终态任务不会再被续跑，不重建的话线上表要到重启时才由 PgVectorSchemaInitializer 补建索引。
+     * 阶段以任务表中的最新断点为准（buildIndex 幂等，索引仍在时跳过）；重建失败只记日志，任务照常结束。
+     */
+    private void finishUnsuccessfully(ReindexJob job, ReindexJobStatus status, String errorMessage) {
+        String jobId = job.getId();
+        if (IngestionConfig.ReindexMode.IN_PLACE_DEFERRED_INDEX.name().equals(job.getMode())) {
+            try {
+                ReindexJobPhase phase = reindexJobGateway.findById(jobId).map(ReindexJob::getPhase).orElse(job.getPhase());
+                if (phase != ReindexJobPhase.PREPARING) {
+                    log.info("reindex 任务未完成，重建线上向量索引: id={}, phase={}", jobId, phase);
+                    vectorIndexGateway.buildIndex(progress -> reindexJobGateway.recordIndexProgress(jobId, progress));
+                }
+            } catch (Exception e) {
+                log.error("reindex 任务结束前重建线上向量索引失败: id={}, error={}", jobId, e.getMessage(), e);
+            }
+        }
+        reindexJobGateway.markFinished(jobId, status, errorMessage);
+    }
+
+    /**
+     * 影子表构建 → 建索引 → 行数校验 → 原子切换
+     * 任一步失败都不会切换，线上表保持原样
+     *
+     * @return false 表示任务在批次间被取消
+     */
+    private boolean runBlueGreen(ReindexJob job, List<DocumentChunk> chunks) {
+        String jobId = job.getId();
+        ReindexJobPhase phase = job.getPhase();
+        int completedBatches = job.getCompletedBatches();
+
+        if (phase == ReindexJobPhase.PREPARING
+                || (phase == ReindexJobPhase.WRITING && !vectorGenerationGateway.shadowExists())) {
+            vectorGenerationGateway.prepareShadow();
+            completedBatches = 0;
+            phase = ReindexJobPhase.WRITING;
+            reindexJobGateway.checkpoint(jobId, phase, 0, 0);
+        }
+
+        if (phase == ReindexJobPhase.WRITING) {
+            if (!writeBatches(job, chunks, completedBatches, vectorGenerationGateway::addDocumentsToShadow)) {
+                return false;
+            }
+            phase = ReindexJobPhase.INDEXING;
+            reindexJobGateway.checkpoint(jobId, phase, batchCount(job, chunks), chunks.size());
+        }
+
+        if (phase == ReindexJobPhase.INDEXING) {
+            // 批量写入完成后再建 HNSW，避免逐行插入时的增量图维护
+            vectorGenerationGateway.buildShadowIndex(progress -> reindexJobGateway.recordIndexProgress(jobId, progress));
+            long rows = vectorGenerationGateway.countShadowRows();
+            if (rows != chunks.size()) {
+                throw new IllegalStateException("影子表行数校验失败，期望 " + chunks.size() + " 实际 " + rows + "，已放弃切换");
+            }
+            phase = ReindexJobPhase.SWITCHING;
+            reindexJobGateway.checkpoint(jobId, phase, batchCount(job, chunks), chunks.size());
+        }
+
+        // 切换阶段不再响应取消：切换是单事务，要么完成要么不生效
+        if (vectorGenerationGateway.shadowExists()) {
+            vectorGenerationGateway.cutover();
+        } else {
+            log.info("影子表已不存在，视为上次执行已完成切换: id={}", jobId);
+        }
+        return true;
+    }
+
+    /**
+     * 删除线上向量索引 → 批量写入线上表 → 以调优参数一次性重建索引
+     * 写入期间线上查询走顺序扫描；取消或失败时由 finishUnsuccessfully 重建索引，不让线上表停留在无索引状态
+     *
+     * @return false 表示任务在批次间被取消
+     */
+    private boolean runInPlaceDeferredIndex(ReindexJob job, List<DocumentChunk> chunks, List<String> duplicateIds) {
+        String jobId = job.getId();
+        ReindexJobPhase phase = job.getPhase();
+        if (phase == ReindexJobPhase.PREPARING) {
+            // 先记断点再删索引：阶段越过 PREPARING 即表示索引可能已删除，任何非成功出口都会重建
+            phase = ReindexJobPhase.WRITING;
+            reindexJobGateway.checkpoint(jobId, phase, 0, 0);
+            vectorIndexGateway.dropIndex();
+        }
+        if (phase == ReindexJobPhase.WRITING) {
+            if (!writeBatches(job, chunks, job.getCompletedBatches(), vectorStoreGateway::addDocuments)) {
+                return false;
+            }
+            removeDuplicates(duplicateIds);
+            reindexJobGateway.checkpoint(jobId, ReindexJobPhase.INDEXING, batchCount(job, chunks), chunks.size());
+        }
+        vectorIndexGateway.buildIndex(progress -> reindexJobGateway.recordIndexProgress(jobId, progress));
+        return true;
+    }
+
+    /**
+     * @return false 表示任务在批次间被取消
+     */
+    private boolean runInPlace(ReindexJob job, List<DocumentChunk> chunks, List<String> duplicateIds) {
+        if (!writeBatches(job, chunks, job.getCompletedBatches(), vectorStoreGateway::addDocuments)) {
+            return false;
+        }
+        removeDuplicates(duplicateIds);
+        return true;
+    }
+
+    /**
+     * 原地写入时线上表可能残留此前未去重写入的重复 chunk，写完后一并删除
+     */
+    private void removeDuplicates(List<String> duplicateIds) {
+        if (!duplicateIds.isEmpty()) {
+            vectorStoreGateway.deleteDocuments(duplicateIds);
+        }
+    }
+
+    /**
+     * 候选表与线上表内容对齐：删掉数据源已不存在（含被近重复合并）的 chunk，再建向量索引
+     */
+    private void finishCandidate(ReindexJob job, CandidateVectorStoreGateway candidate, List<DocumentChunk> chunks) {
+        List<String> ids = chunks.stream().map(DocumentChunk::getId).toList();
+        long removed = candidate.retainOnly(ids);
+        candidate.buildIndex(progress -> reindexJobGateway.recordIndexProgress(job.getId(), progress));
+        log.info("候选表已与本次 reindex 对齐: {}, 删除 {} 个: id={}", candidate.describe(), removed, job.getId());
+    }
+
+    /**
+     * 近邻图只是加速结构，计算失败不回滚已完成的 reindex；下一次 reindex 或增量同步会再次计算
+     */
+    private void refreshNeighborGraph(String jobId) {
+        if (ingestionConfig.getNeighborCount() <= 0) {
+            return;
+        }
+        try {
+            chunkNeighborGateway.recomputeAll();
+        } catch (Exception e) {
+            log.error("reindex 后计算近邻图失败: id={}, error={}", jobId, e.getMessage(), e);
+        }
+    }
+
+    private void recordEmbedTokens(String jobId, List<DocumentChunk> chunks) {
+        long tokens = 0;
+        long baseline = 0;
+        for (DocumentChunk chunk : chunks) {
+            tokens += tokenEstimationPolicy.estimate(chunk.getEmbedText());
+            baseline += tokenEstimationPolicy.estimate(
+                    EmbedTextTemplate.renderAllMetadata(chunk.getContent(), chunk.getMetadata()));
+        }
+        long saved = Math.max(0, baseline - tokens);
+        reindexJobGateway.recordEmbedTokens(jobId, tokens, saved);
+        log.info("reindex 向量化文本估算 {} tokens，模板省下 {} tokens: id={}", tokens, saved, jobId);
+    }
+
+    private static List<String> duplicateIds(List<DocumentChunk> chunks) {
+        List<String> ids = new ArrayList<>();
+        for (DocumentChunk chunk : chunks) {
+            if (chunk.getMetadata().get(NearDuplicatePolicy.DUPLICATE_IDS_METADATA_KEY) instanceof List<?> duplicates) {
+                duplicates.forEach(id -> ids.add(String.valueOf(id)));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 从 startBatch 开始逐批写入，每批提交后记录断点；批次间检查取消标记
+     */
+    private boolean writeBatches(ReindexJob job, List<DocumentChunk> chunks, int startBatch,
+                                 Consumer<List<DocumentChunk>> writer) {
+        String jobId = job.getId();
+        int batchSize = Math.max(1, job.getBatchSize());
+        int totalBatches = batchCount(job, chunks);
+        for (int batch = startBatch; batch < totalBatches; batch++) {
+            if (isCancelRequested(jobId)) {
+                log.info("reindex 任务已取消: id={}, 已完成批次 {}/{}", jobId, batch, totalBatches);
+                finishUnsuccessfully(job, ReindexJobStatus.CANCELLED, null);
+                return false;
+            }
+            int from = batch * batchSize;
+            int to = Math.min(from + batchSize, chunks.size());
+            List<DocumentChunk> batchChunks = chunks.subList(from, to);
+            writer.accept(batchChunks);
+            // 候选表先于断点写入：续跑时从断点批次重写，候选表按 id upsert 不会重复
+            candidateVectorStoreGateway.ifAvailable(candidate -> candidate.addDocuments(batchChunks));
+            reindexJobGateway.checkpoint(jobId, ReindexJobPhase.WRITING, batch + 1, to);
+            log.info("reindex 写入进度: id={}, {}/{}", jobId, to, chunks.size());
+        }
+        return true;
+    }
+
+    private boolean isCancelRequested(String jobId) {
+        return reindexJobGateway.findById(jobId).map(ReindexJob::isCancelRequested).orElse(true);
+    }
+
+    private static int batchCount(ReindexJob job, List<DocumentChunk> chunks) {
+        int batchSize = Math.max(1, job.getBatchSize());
+        return (chunks.size() + batchSize - 1) / batchSize;
+    }
+}
@@ -0,0 +1,22 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 多查询检索用例接口
+ */
+public interface RetrieveByMultiQueryUseCase {
+
+    /**
+     * Intent: 用本地规则把 query 改写为多个变体，批量向量化后并行检索，再按倒数排名融合
+     * Input: query (必填), topK (可选，默认 rag.retrieval.multi-query-top-k), requestId (可选)
+     * Output: Mono<List<RetrievalResult>> (按融合名次排列；score 为各变体中的最高相似度)
+     * SideEffects: 一次批量 embedding 调用，每个变体一次向量检索（并行）
+     * Failure: 输入不合法返回BusinessException(INVALID_QUERY)；超时/外部错误返回对应错误码；无结果返回RETRIEVAL_NOT_FOUND
+     * Idempotency: 非幂等
+     */
+    Mono<List<RetrievalResult>> execute(String query, Integer topK, String requestId);
+}
@@ -0,0 +1,142 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.QueryVariantPolicy;
+import com.shawn.aiagent.domain.rag.ReciprocalRankFusionPolicy;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.EmbeddingGateway;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import com.shawn.aiagent.support.timeoutSemanticClassifier.RetrievalErrorMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 多查询检索用例实现
+ * 变体由 QueryVariantPolicy 本地生成（不额外调用 LLM）；全部变体在一次 embedding 请求中向量化，
+ * 各变体的向量检索在 boundedElastic 上并行执行，总耗时约为一次 embedding 加最慢的一次检索。
+ * 与单查询检索读取同一代向量（ModelMigrationRouter.serving()），不提交影子查询。
+ */
+@Component
+@Slf4j
+public class RetrieveByMultiQueryUseCaseImpl implements RetrieveByMultiQueryUseCase {
+
+    private final ModelMigrationRouter modelMigrationRouter;
+    private final RetrievalConfig retrievalConfig;
+    private final RetrievalErrorMapper retrievalErrorMapper;
+
+    public RetrieveByMultiQueryUseCaseImpl(
+            ModelMigrationRouter modelMigrationRouter,
+            RetrievalConfig retrievalConfig,
+            RetrievalErrorMapper retrievalErrorMapper) {
+        this.modelMigrationRouter = modelMigrationRouter;
+        this.retrievalConfig = retrievalConfig;
+        this.retrievalErrorMapper = retrievalErrorMapper;
+    }
+
+    @Override
+    public Mono<List<RetrievalResult>> execute(String query, Integer topK, String requestId) {
+        return Mono.defer(() -> {
+            final String reqId = requestId != null ? requestId : "";
+            final String normalized = normalizeQuery(query);
+            final int limit = topK != null ? topK : retrievalConfig.getMultiQueryTopK();
+            if (limit < 1 || limit > retrievalConfig.getMultiQueryTopK()) {
+                throw new BusinessException(ErrorCode.INVALID_QUERY,
+                        "topK 必须在 1 到 " + retrievalConfig.getMultiQueryTopK() + " 之间");
+            }
+            final List<String> variants = variantPolicy().variants(normalized);
+            final ModelMigrationRouter.Generation served = modelMigrationRouter.serving();
+            final long start = System.nanoTime();
+
+            log.info("收到多查询检索请求，requestId={}, query.length={}, variants={}", reqId, normalized.length(), variants.size());
+
+            Mono<List<List<Double>>> embeddingsMono = Mono.fromCallable(() -> served.embeddingGateway().embedAll(variants))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .map(embeddings -> validateEmbeddings(served.embeddingGateway(), variants, embeddings))
+                    .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutEmbeddingSeconds()))
+                    .onErrorMap(retrievalErrorMapper.embedding());
+
+            // 每个变体都按 multiQueryTopK 召回：融合需要比最终返回更深的名次才能体现多个变体的共识
+            int perVariant = retrievalConfig.getMultiQueryTopK();
+            Mono<List<RetrievalResult>> resultMono = embeddingsMono.flatMap(embeddings ->
+                    Flux.range(0, variants.size())
+                            .flatMapSequential(i -> Mono.fromCallable(() ->
+                                            served.searcher().similaritySearch(variants.get(i), embeddings.get(i), perVariant))
+                                    .subscribeOn(Schedulers.boundedElastic()))
+                            .collectList()
+                            .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutVectorSearchSeconds()))
+                            .onErrorMap(retrievalErrorMapper.vectorSearch())
+                            .map(rankings -> {
+                                List<RetrievalResult> fused =
+                                        new ReciprocalRankFusionPolicy(retrievalConfig.getMultiQueryRrfK()).fuse(rankings, limit);
+                                if (fused.isEmpty()) {
+                                    throw new BusinessException(ErrorCode.RETRIEVAL_NOT_FOUND, "未找到匹配的文档块");
+                                }
+                                return fused;
+                            })
+            );
+
+            return resultMono
+                    .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutTotalSeconds()))
+                    .onErrorMap(retrievalErrorMapper.total())
+                    .doOnSuccess(results -> log.info("多查询检索完成，requestId={}, variants={}, results={}, top1={}, 耗时 {} ms",
+                            reqId, variants.size(), results.size(), results.get(0).getChunkId(),
+                            Duration.ofNanos(System.nanoTime() - start).toMillis()))
+                    .doOnError(e -> log.error("多查询检索失败，requestId={}, error={}", reqId, e.getMessage()));
+        });
+    }
+
+    /**
+     * 每次请求按当前配置构建：同义词组可随配置刷新，构建成本只是几次字符串切分
+     */
+    private QueryVariantPolicy variantPolicy() {
+        List<String> groups = retrievalConfig.getMultiQuerySynonymGroups();
+        return new QueryVariantPolicy(
+                groups == null ? List.of() : groups.stream().map(group -> Arrays.asList(group.split(","))).toList(),
+                Math.max(1, retrievalConfig.getMultiQueryMaxVariants()));
+    }
+
+    private String normalizeQuery(String query) {
+        if (query == null) {
+            throw new BusinessException(ErrorCode.INVALID_QUERY, "query 不能为空");
+        }
+        String normalized = query.trim();
+        if (normalized.isEmpty()) {
+            throw new BusinessException(ErrorCode.INVALID_QUERY, "query 不能为空");
+        }
+        if (normalized.length() > retrievalConfig.getMaxQueryLength()) {
+            throw new BusinessException(ErrorCode.INVALID_QUERY, "query 超出最大长度限制");
+        }
+        return normalized;
+    }
+
+    private List<List<Double>> validateEmbeddings(EmbeddingGateway embeddingGateway, List<String> variants,
+                                                  List<List<Double>> embeddings) {
+        if (embeddings == null || embeddings.size() != variants.size()) {
+            throw new BusinessException(ErrorCode.EMBEDDING_API_ERROR, "embedding 结果数量与查询变体数量不一致");
+        }
+        int expected = embeddingGateway.getDimensions();
+        int prefixDimension = retrievalConfig.getPrefixDimension();
+        for (List<Double> embedding : embeddings) {
+            if (embedding == null || embedding.isEmpty()) {
+                throw new BusinessException(ErrorCode.EMBEDDING_API_ERROR, "embedding 结果为空");
+            }
+            if (expected > 0 && embedding.size() != expected) {
+                throw new BusinessException(ErrorCode.MODEL_CONFIG_ERROR,
+                        "embedding 维度不匹配，期望 " + expected + " 实际 " + embedding.size());
+            }
+            if (prefixDimension > 0 && prefixDimension >= embedding.size()) {
+                throw new BusinessException(ErrorCode.MODEL_CONFIG_ERROR,
+                        "前缀维度 " + prefixDimension + " 必须小于 embedding 维度 " + embedding.size());
+            }
+        }
+        return embeddings;
+    }
+}
@@ -1,5 +1,6 @@
 package com.shawn.aiagent.app.rag;
 
+import com.shawn.aiagent.domain.rag.ContextWindow;
 import com.shawn.aiagent.domain.rag.RetrievalResult;
 import reactor.core.publisher.Mono;
 
@@ -17,6 +18,16 @@ public interface RetrieveTop1ChunkByQueryUseCase {
      * Idempotency: 非幂等（每次可能触发新的 embedding 调用）
      */
     Mono<RetrievalResult> execute(String query, String requestId);
+
+    /**
+     * Intent: 检索 top-1 chunk 并扩展为同章节前后相邻 chunk 组成的上下文窗口
+     * Input: query (必填), requestId (可选), radius (前后各取的相邻 chunk 数；null 取 rag.retrieval.context-window-radius)
+     * Output: Mono<ContextWindow> (命中 chunk 及其相邻 chunk，按章节内顺序)
+     * SideEffects: 同 execute，另加一次批量只读查询
+     * Failure: 同 execute；radius 越界时抛出 BusinessException(INVALID_QUERY)
+     * Idempotency: 非幂等
+     */
+    Mono<ContextWindow> executeWithContext(String query, String requestId, Integer radius);
 }
 
 
@@ -2,14 +2,13 @@ package com.shawn.aiagent.app.rag;
 
 import com.shawn.aiagent.domain.common.error.ErrorCode;
 import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.domain.rag.ContextWindow;
 import com.shawn.aiagent.domain.rag.RetrievalResult;
 import com.shawn.aiagent.port.rag.EmbeddingGateway;
-import com.shawn.aiagent.port.rag.VectorStoreGateway;
 import com.shawn.aiagent.support.config.RetrievalConfig;
-import com.shawn.aiagent.support.timeoutSemanticClassifier.TimeoutSemanticClassifier;
+import com.shawn.aiagent.support.timeoutSemanticClassifier.RetrievalErrorMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -18,25 +17,27 @@ import java.util.List;
 
 /**
  * 基于查询语句检索最相似的 chunk
+ * 读取哪一代向量（当前模型 / 迁移候选模型）由 ModelMigrationRouter 决定；成功返回后按抽样提交影子查询。
+ * executeWithContext 在检索之后追加上下文窗口扩展阶段（ExpandContextWindowUseCase）。
  */
 @Component
 @Slf4j
 public class RetrieveTop1ChunkByQueryUseCaseImpl implements RetrieveTop1ChunkByQueryUseCase {
 
-    private final EmbeddingGateway embeddingGateway;
-    private final VectorStoreGateway vectorStoreGateway;
+    private final ModelMigrationRouter modelMigrationRouter;
+    private final ExpandContextWindowUseCase expandContextWindowUseCase;
     private final RetrievalConfig retrievalConfig;
-    private final TimeoutSemanticClassifier timeoutSemanticClassifier;
+    private final RetrievalErrorMapper retrievalErrorMapper;
 
     public RetrieveTop1ChunkByQueryUseCaseImpl(
-            EmbeddingGateway embeddingGateway,
-            VectorStoreGateway vectorStoreGateway,
+            ModelMigrationRouter modelMigrationRouter,
+            ExpandContextWindowUseCase expandContextWindowUseCase,
             RetrievalConfig retrievalConfig,
-            TimeoutSemanticClassifier timeoutSemanticClassifier) {
-        this.embeddingGateway = embeddingGateway;
-        this.vectorStoreGateway = vectorStoreGateway;
+            RetrievalErrorMapper retrievalErrorMapper) {
+        this.modelMigrationRouter = modelMigrationRouter;
+        this.expandContextWindowUseCase = expandContextWindowUseCase;
         this.retrievalConfig = retrievalConfig;
-        this.timeoutSemanticClassifier = timeoutSemanticClassifier;
+        this.retrievalErrorMapper = retrievalErrorMapper;
     }
 
     @Override
@@ -44,42 +45,22 @@ public class RetrieveTop1ChunkByQueryUseCaseImpl implements RetrieveTop1ChunkByQ
         return Mono.defer(() -> {
             final String reqId = requestId != null ? requestId : "";
             final String normalized = normalizeQuery(query);
+            final ModelMigrationRouter.Generation served = modelMigrationRouter.serving();
+            final long start = System.nanoTime();
 
             log.info("收到检索请求，requestId={}, query.length={}", reqId, normalized.length());
 
-            Mono<List<Double>> embeddingMono = Mono.fromCallable(() -> embeddingGateway.embed(normalized))
+            Mono<List<Double>> embeddingMono = Mono.fromCallable(() -> served.embeddingGateway().embed(normalized))
                     .subscribeOn(Schedulers.boundedElastic())
-                    .map(this::validateDimensions)
+                    .map(embedding -> validateDimensions(served.embeddingGateway(), embedding))
                     .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutEmbeddingSeconds()))
-                    .onErrorMap(e -> {
-                        if (e instanceof BusinessException) {
-                            return e;
-                        }
-                        if (timeoutSemanticClassifier.isTimeout(e)) {
-                            return new BusinessException(ErrorCode.EMBEDDING_TIMEOUT, "向量化超时");
-                        }
-                        if (hasCause(e, IllegalArgumentException.class)) {
-                            return new BusinessException(ErrorCode.INVALID_QUERY, bestMessage(e));
-                        }
-                        return new BusinessException(ErrorCode.EMBEDDING_API_ERROR, "向量化失败: " + bestMessage(e));
-                    });
+                    .onErrorMap(retrievalErrorMapper.embedding());
 
             Mono<RetrievalResult> resultMono = embeddingMono.flatMap(embedding ->
-                    Mono.fromCallable(() -> vectorStoreGateway.similaritySearch(normalized, embedding, 1))
+                    Mono.fromCallable(() -> served.searcher().similaritySearch(normalized, embedding, 1))
                             .subscribeOn(Schedulers.boundedElastic())
                             .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutVectorSearchSeconds()))
-                            .onErrorMap(e -> {
-                                if (e instanceof BusinessException) {
-                                    return e;
-                                }
-                                if (timeoutSemanticClassifier.isTimeout(e)) {
-                                    return new BusinessException(ErrorCode.VECTOR_SEARCH_TIMEOUT, "向量检索超时");
-                                }
-                                if (hasCause(e, IllegalArgumentException.class)) {
-                                    return new BusinessException(ErrorCode.INVALID_QUERY, bestMessage(e));
-                                }
-                                return new BusinessException(ErrorCode.VECTOR_STORE_ERROR, "向量检索失败: " + bestMessage(e));
-                            })
+                            .onErrorMap(retrievalErrorMapper.vectorSearch())
                             .map(results -> {
                                 if (results == null || results.isEmpty()) {
                                     throw new BusinessException(ErrorCode.RETRIEVAL_NOT_FOUND, "未找到匹配的文档块");
@@ -90,21 +71,29 @@ public class RetrieveTop1ChunkByQueryUseCaseImpl implements RetrieveTop1ChunkByQ
 
             return resultMono
                     .timeout(Duration.ofSeconds(retrievalConfig.getTimeoutTotalSeconds()))
-                    .onErrorMap(e -> {
-                        if (e instanceof BusinessException) {
-                            return e;
-                        }
-                        if (timeoutSemanticClassifier.isTimeout(e)) {
-                            return new BusinessException(ErrorCode.TOTAL_TIMEOUT, "检索总超时");
-                        }
-                        return new BusinessException(ErrorCode.SYSTEM_ERROR, "检索失败: " + bestMessage(e));
+                    .onErrorMap(retrievalErrorMapper.total())
+                    .doOnSuccess(r -> {
+                        log.info("检索完成，requestId={}, chunkId={}, score={}", reqId, r.getChunkId(), r.getScore());
+                        modelMigrationRouter.shadowRead(normalized, served, r, Duration.ofNanos(System.nanoTime() - start));
                     })
-                    .doOnSuccess(r -> log.info("检索完成，requestId={}, chunkId={}, score={}",
-                            reqId, r.getChunkId(), r.getScore()))
                     .doOnError(e -> log.error("检索失败，requestId={}, error={}", reqId, e.getMessage()));
         });
     }
 
+    @Override
+    public Mono<ContextWindow> executeWithContext(String query, String requestId, Integer radius) {
+        int effectiveRadius = radius != null ? radius : retrievalConfig.getContextWindowRadius();
+        // 先校验再检索，避免半径越界时白付一次 embedding
+        if (effectiveRadius < 0 || effectiveRadius > retrievalConfig.getContextWindowMaxRadius()) {
+            return Mono.error(new BusinessException(ErrorCode.INVALID_QUERY,
+                    "radius 必须在 0 到 " + retrievalConfig.getContextWindowMaxRadius() + " 之间"));
+        }
+        return execute(query, requestId)
+                .flatMap(hit -> expandContextWindowUseCase.execute(List.of(hit), effectiveRadius))
+                // 单个命中只会产生一个窗口
+                .map(windows -> windows.get(0));
+    }
+
     private String normalizeQuery(String query) {
         if (query == null) {
             throw new BusinessException(ErrorCode.INVALID_QUERY, "query 不能为空");
@@ -119,7 +108,7 @@ public class RetrieveTop1ChunkByQueryUseCaseImpl implements RetrieveTop1ChunkByQ
         return normalized;
     }
 
-    private List<Double> validateDimensions(List<Double> embedding) {
+    private List<Double> validateDimensions(EmbeddingGateway embeddingGateway, List<Double> embedding) {
         if (embedding == null || embedding.isEmpty()) {
             throw new BusinessException(ErrorCode.EMBEDDING_API_ERROR, "embedding 结果为空");
         }
@@ -128,29 +117,12 @@ public class RetrieveTop1ChunkByQueryUseCaseImpl implements RetrieveTop1ChunkByQ
             throw new BusinessException(ErrorCode.MODEL_CONFIG_ERROR,
                     "embedding 维度不匹配，期望 " + expected + " 实际 " + embedding.size());
         }
-        return embedding;
-    }
-
-    private static boolean hasCause(Throwable e, Class<?> type) {
-        Throwable t = Exceptions.unwrap(e);
-        while (t != null) {
-            if (type.isInstance(t)) {
-                return true;
-            }
-            t = t.getCause();
-        }
-        return false;
-    }
-
-    private static String bestMessage(Throwable e) {
-        Throwable t = Exceptions.unwrap(e);
-        while (t != null) {
-            String msg = t.getMessage();
-            if (msg != null && !msg.isBlank()) {
-                return msg;
-            }
-            t = t.getCause();
+        // 两阶段检索截取前缀：前缀必须严格短于全量向量，否则前缀列与全量列无区别或无法截取
+        int prefixDimension = retrievalConfig.getPrefixDimension();
+        if (prefixDimension > 0 && prefixDimension >= embedding.size()) {
+            throw new BusinessException(ErrorCode.MODEL_CONFIG_ERROR,
+                    "前缀维度 " + prefixDimension + " 必须小于 embedding 维度 " + embedding.size());
         }
-        return String.valueOf(e);
+        return embedding;
     }
 }
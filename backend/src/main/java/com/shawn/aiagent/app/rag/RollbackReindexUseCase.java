@@ -0,0 +1,22 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexResult;
+import reactor.core.publisher.Mono;
+
+/**
+ * 回滚重新索引用例接口
+ * 定义将线上索引切回上一代的业务契约
+ */
+public interface RollbackReindexUseCase {
+
+    /**
+     * Intent: 将线上向量索引切回上一代（blue/green 保留的 previous）
+     * Input: 无
+     * Output: Mono<ReindexResult> (回滚后线上表的文档数量)
+     * SideEffects: 单事务内交换 live 与 previous 表
+     * Failure: 不存在上一代时以 IllegalStateException 失败；数据库失败时抛出RuntimeException，线上表保持不变
+     *          集群内有 reindex 任务持有锁时返回ReindexResult.inProgress()
+     * Idempotency: 非幂等（再次调用会切回）
+     */
+    Mono<ReindexResult> execute();
+}
@@ -0,0 +1,47 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexResult;
+import com.shawn.aiagent.port.rag.ReindexLockGateway;
+import com.shawn.aiagent.port.rag.VectorGenerationGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Optional;
+
+/**
+ * 回滚重新索引用例实现
+ */
+@Component
+@Slf4j
+public class RollbackReindexUseCaseImpl implements RollbackReindexUseCase {
+
+    private final VectorGenerationGateway vectorGenerationGateway;
+    private final ReindexLockGateway reindexLockGateway;
+
+    public RollbackReindexUseCaseImpl(
+            VectorGenerationGateway vectorGenerationGateway,
+            ReindexLockGateway reindexLockGateway) {
+        this.vectorGenerationGateway = vectorGenerationGateway;
+        this.reindexLockGateway = reindexLockGateway;
+    }
+
+    @Override
+    public Mono<ReindexResult> execute() {
+        log.info("开始回滚到上一代索引");
+        return Mono.fromCallable(() -> {
+                    // 与 reindex 任务共用集群锁：任务切换期间回滚会交换到错误的代
+                    Optional<ReindexLockGateway.ReindexLock> acquired = reindexLockGateway.tryAcquire();
+                    if (acquired.isEmpty()) {
+                        log.warn("reindex 任务正在执行，拒绝回滚");
+                        return ReindexResult.inProgress();
+                    }
+                    try (ReindexLockGateway.ReindexLock ignored = acquired.get()) {
+                        long rows = vectorGenerationGateway.rollback();
+                        return new ReindexResult((int) rows, "已回滚到上一代索引");
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,21 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import reactor.core.publisher.Mono;
+
+/**
+ * 启动重新索引任务用例接口
+ * 定义创建并异步执行 reindex 任务的业务契约
+ */
+public interface StartReindexJobUseCase {
+
+    /**
+     * Intent: 创建 reindex 任务并交由后台执行，立即返回任务快照
+     * Input: 无（模式与批大小取当前配置，创建后固化在任务中）
+     * Output: Mono<ReindexJob> (新建的任务；集群内已有活动任务时返回该活动任务)
+     * SideEffects: 写入任务表，触发后台执行（加载文档、向量化、写入向量库）
+     * Failure: 任务表不可用时以RuntimeException失败；执行阶段的失败记录在任务状态中，不影响本调用
+     * Idempotency: 幂等（存在活动任务时不会重复创建）
+     */
+    Mono<ReindexJob> execute();
+}
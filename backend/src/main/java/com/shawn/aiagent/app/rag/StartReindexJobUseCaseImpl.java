@@ -0,0 +1,48 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.domain.rag.ReindexJobPhase;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 启动重新索引任务用例实现
+ */
+@Component
+@Slf4j
+public class StartReindexJobUseCaseImpl implements StartReindexJobUseCase {
+
+    private final ReindexJobGateway reindexJobGateway;
+    private final ReindexJobRunner reindexJobRunner;
+    private final IngestionConfig ingestionConfig;
+
+    public StartReindexJobUseCaseImpl(
+            ReindexJobGateway reindexJobGateway,
+            ReindexJobRunner reindexJobRunner,
+            IngestionConfig ingestionConfig) {
+        this.reindexJobGateway = reindexJobGateway;
+        this.reindexJobRunner = reindexJobRunner;
+        this.ingestionConfig = ingestionConfig;
+    }
+
+    @Override
+    public Mono<ReindexJob> execute() {
+        return Mono.fromCallable(() -> {
+                    IngestionConfig.ReindexMode mode = ingestionConfig.getReindexMode();
+                    ReindexJobPhase initialPhase = mode == IngestionConfig.ReindexMode.IN_PLACE
+                            ? ReindexJobPhase.WRITING
+                            : ReindexJobPhase.PREPARING;
+                    ReindexJob job = reindexJobGateway
+                            .createIfNoneActive(mode.name(), Math.max(1, ingestionConfig.getBatchSize()), initialPhase)
+                            .or(reindexJobGateway::findActive)
+                            .orElseThrow(() -> new IllegalStateException("创建 reindex 任务失败"));
+                    reindexJobRunner.submit();
+                    return job;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,25 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.SourceFileChange;
+import com.shawn.aiagent.domain.rag.SourceSyncResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 增量同步源文件用例接口
+ * 定义"只重新切分变更文件、只写入内容变化的 chunk"的业务契约
+ */
+public interface SyncSourceFilesUseCase {
+
+    /**
+     * Intent: 将一批变更文件同步到线上向量表
+     * Input: changes (去抖后的文件变更，同一文件至多一条)
+     * Output: Mono<SourceSyncResult> (写入 / 未变 / 删除的 chunk 数)
+     * SideEffects: 对内容变化的 chunk 调用 EmbeddingModel（可能计费）并 upsert；删除文件中已不存在的 chunk；记录摄取延迟指标
+     * Failure: 向量化或数据库失败时以RuntimeException失败（已写入的文件保留，重试幂等）；
+     *          集群内有 reindex 任务持有锁时返回SourceSyncResult.deferred()，不做任何写入
+     * Idempotency: 幂等（按 chunk id upsert，内容哈希未变的 chunk 跳过）
+     */
+    Mono<SourceSyncResult> execute(List<SourceFileChange> changes);
+}
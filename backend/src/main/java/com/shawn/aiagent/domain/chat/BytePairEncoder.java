@@ -0,0 +1,257 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 字节级 BPE 计数器（与 Qwen 的 tiktoken 词表兼容）
+ * 只计算 token 数，不产出 token id，用于提示词预算
+ *
+ * 规则（与 tiktoken 一致）：
+ * - 先按 Qwen 的预切分正则把文本切成片段；
+ * - 每个片段按 UTF-8 字节做 BPE：整段命中词表即 1 个 token，否则反复合并 rank 最小的相邻对，直到没有可合并的对；
+ * - 特殊 token（<|im_start|> 等）不参与，由调用方按对话模板另计。
+ *
+ * 低分配：词表存放在一块连续 byte[] 与开放寻址 int[] 表中，查找按字节切片比较，不构造 key 对象；
+ * 编码与合并使用线程内复用的缓冲区。每次计数只分配一个 Matcher。
+ */
+public final class BytePairEncoder {
+
+    /**
+     * Qwen 预切分正则（qwen.tiktoken 的 PAT_STR）
+     */
+    static final Pattern QWEN_PRE_TOKENIZER = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+",
+            Pattern.UNICODE_CHARACTER_CLASS);
+
+    private static final int NO_RANK = Integer.MAX_VALUE;
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int[] ranks;
+    private final int[] table;
+    private final int mask;
+    private final int size;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    private BytePairEncoder(List<byte[]> tokens, int[] tokenRanks) {
+        int total = 0;
+        for (byte[] token : tokens) {
+            total += token.length;
+        }
+        this.size = tokens.size();
+        this.data = new byte[total];
+        this.offsets = new int[size];
+        this.lengths = new int[size];
+        this.ranks = Arrays.copyOf(tokenRanks, size);
+        int capacity = Integer.highestOneBit(Math.max(2, size * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            byte[] token = tokens.get(i);
+            System.arraycopy(token, 0, data, position, token.length);
+            offsets[i] = position;
+            lengths[i] = token.length;
+            position += token.length;
+            int slot = hash(token, 0, token.length) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Intent: 从 tiktoken 格式的词表创建计数器（如 Qwen 的 qwen.tiktoken）
+     * Input: lines (每行 "base64(token 字节) rank"，空行忽略)
+     * Output: BytePairEncoder实例
+     * SideEffects: 无
+     * Failure: 行格式错误或词表不含全部 256 个单字节时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public static BytePairEncoder fromTiktoken(List<String> lines) {
+        List<byte[]> tokens = new ArrayList<>(lines.size());
+        int[] tokenRanks = new int[lines.size()];
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                throw new IllegalArgumentException("非法的词表行: " + line);
+            }
+            try {
+                tokenRanks[tokens.size()] = Integer.parseInt(line.substring(space + 1).trim());
+                tokens.add(Base64.getDecoder().decode(line.substring(0, space)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("非法的词表行: " + line, e);
+            }
+        }
+        BytePairEncoder encoder = new BytePairEncoder(tokens, tokenRanks);
+        byte[] single = new byte[1];
+        for (int b = 0; b < 256; b++) {
+            single[0] = (byte) b;
+            if (encoder.rank(single, 0, 1) == NO_RANK) {
+                throw new IllegalArgumentException("词表缺少单字节 token: " + b + "（不是字节级 BPE 词表）");
+            }
+        }
+        return encoder;
+    }
+
+    /**
+     * Intent: 计算文本的 token 数
+     * Input: text (可为 null)
+     * Output: int (null 或空串为 0)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        Scratch buffers = scratch.get();
+        Matcher matcher = QWEN_PRE_TOKENIZER.matcher(text);
+        int tokens = 0;
+        while (matcher.find()) {
+            int length = encodeUtf8(text, matcher.start(), matcher.end(), buffers);
+            tokens += countPiece(buffers, length);
+        }
+        return tokens;
+    }
+
+    /**
+     * @return 词表大小
+     */
+    public int vocabularySize() {
+        return size;
+    }
+
+    private int countPiece(Scratch buffers, int length) {
+        byte[] piece = buffers.bytes;
+        if (length <= 1 || rank(piece, 0, length) != NO_RANK) {
+            return length == 0 ? 0 : 1;
+        }
+        // parts[i] 为第 i 段的起始字节；pairRanks[i] 为第 i 段与第 i+1 段合并后的 rank
+        buffers.ensureParts(length + 1);
+        int[] parts = buffers.parts;
+        int[] pairRanks = buffers.pairRanks;
+        for (int i = 0; i <= length; i++) {
+            parts[i] = i;
+        }
+        int count = length + 1;
+        for (int i = 0; i < count - 2; i++) {
+            pairRanks[i] = rank(piece, i, 2);
+        }
+        pairRanks[count - 2] = NO_RANK;
+        while (count > 2) {
+            int best = NO_RANK;
+            int index = -1;
+            for (int i = 0; i < count - 2; i++) {
+                if (pairRanks[i] < best) {
+                    best = pairRanks[i];
+                    index = i;
+                }
+            }
+            if (index < 0) {
+                break;
+            }
+            // 删除边界 index + 1，再重算受影响的两个相邻对
+            System.arraycopy(parts, index + 2, parts, index + 1, count - index - 2);
+            System.arraycopy(pairRanks, index + 2, pairRanks, index + 1, count - index - 3);
+            count--;
+            pairRanks[count - 2] = NO_RANK;
+            pairRanks[index] = index + 2 < count ? rank(piece, parts[index], parts[index + 2] - parts[index]) : NO_RANK;
+            if (index > 0) {
+                pairRanks[index - 1] = rank(piece, parts[index - 1], parts[index + 1] - parts[index - 1]);
+            }
+        }
+        return count - 1;
+    }
+
+    private int rank(byte[] bytes, int offset, int length) {
+        int slot = hash(bytes, offset, length) & mask;
+        while (true) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return NO_RANK;
+            }
+            int id = entry - 1;
+            if (lengths[id] == length
+                    && Arrays.equals(data, offsets[id], offsets[id] + length, bytes, offset, offset + length)) {
+                return ranks[id];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 0x811c9dc5;
+        for (int i = offset; i < offset + length; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 把 text[start, end) 编码为 UTF-8 写入复用缓冲区，返回字节数（不经过 String.getBytes）
+     */
+    static int encodeUtf8(CharSequence text, int start, int end, Scratch buffers) {
+        buffers.ensureBytes((end - start) * 3);
+        byte[] out = buffers.bytes;
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out[n++] = (byte) c;
+            } else if (c < 0x800) {
+                out[n++] = (byte) (0xc0 | (c >> 6));
+                out[n++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out[n++] = (byte) (0xf0 | (codePoint >> 18));
+                out[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                out[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                out[n++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // 孤立代理项按 String.getBytes 的做法替换为 '?'
+                out[n++] = (byte) '?';
+            } else {
+                out[n++] = (byte) (0xe0 | (c >> 12));
+                out[n++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                out[n++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 线程内复用的编码与合并缓冲区
+     */
+    static final class Scratch {
+        private byte[] bytes = new byte[256];
+        private int[] parts = new int[257];
+        private int[] pairRanks = new int[257];
+
+        void ensureBytes(int capacity) {
+            if (bytes.length < capacity) {
+                bytes = new byte[Math.max(capacity, bytes.length * 2)];
+            }
+        }
+
+        void ensureParts(int capacity) {
+            if (parts.length < capacity) {
+                int grown = Math.max(capacity, parts.length * 2);
+                parts = new int[grown];
+                pairRanks = new int[grown];
+            }
+        }
+    }
+}
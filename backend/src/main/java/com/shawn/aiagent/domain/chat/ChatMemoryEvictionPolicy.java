@@ -0,0 +1,162 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 对话记忆淘汰策略
+ * 决定热缓存中哪些会话应当移出内存（丢弃、落盘或依赖持久化存储重新加载由调用方决定）
+ *
+ * 规则：
+ * - 空闲超过 idleTtl 的会话一律淘汰（IDLE）；
+ * - 之后仍超过字节预算或会话数上限时，按最久未访问优先继续淘汰（BUDGET），直到降到上限的 90%，
+ *   留出余量，避免在上限附近每新增一个会话就触发一次淘汰；
+ * - 不可淘汰的会话（如仍有未落库写入）跳过，但其占用仍计入总量。
+ */
+public final class ChatMemoryEvictionPolicy {
+
+    /**
+     * 单条消息的固定开销估算（消息对象、metadata map、列表槽位），按 64 位 JVM 粗略取值
+     */
+    static final long MESSAGE_OVERHEAD_BYTES = 96;
+
+    /**
+     * 会话条目的固定开销估算（缓存节点、会话对象、窗口列表）
+     */
+    static final long CONVERSATION_OVERHEAD_BYTES = 160;
+
+    /**
+     * 超预算后淘汰到的低水位（上限的比例）
+     */
+    static final double LOW_WATERMARK_RATIO = 0.9;
+
+    /**
+     * 热缓存中的一个会话快照
+     */
+    public record Entry(String conversationId, long lastAccessNanos, long bytes, boolean evictable) {
+    }
+
+    /**
+     * 淘汰原因
+     */
+    public enum Reason {
+        /**
+         * 空闲超过 TTL
+         */
+        IDLE,
+        /**
+         * 超过字节预算或会话数上限
+         */
+        BUDGET
+    }
+
+    /**
+     * 一次淘汰决定
+     */
+    public record Eviction(String conversationId, Reason reason) {
+    }
+
+    private final long idleTtlNanos;
+    private final long maxBytes;
+    private final int maxConversations;
+
+    /**
+     * Intent: 创建淘汰策略
+     * Input: idleTtl (空闲上限，null 或 <=0 表示不按空闲淘汰), maxBytes (字节预算，<=0 表示不限),
+     *        maxConversations (会话数上限，<=0 表示不限)
+     * Output: ChatMemoryEvictionPolicy实例
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public ChatMemoryEvictionPolicy(Duration idleTtl, long maxBytes, int maxConversations) {
+        this.idleTtlNanos = idleTtl == null || idleTtl.isNegative() || idleTtl.isZero() ? 0 : idleTtl.toNanos();
+        this.maxBytes = maxBytes;
+        this.maxConversations = maxConversations;
+    }
+
+    /**
+     * Intent: 选出应淘汰的会话
+     * Input: entries (热缓存快照), nowNanos (与 lastAccessNanos 同一时钟的当前时间)
+     * Output: List<Eviction> (按最久未访问优先)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public List<Eviction> select(List<Entry> entries, long nowNanos) {
+        List<Entry> ordered = new ArrayList<>(entries);
+        ordered.sort(Comparator.comparingLong(Entry::lastAccessNanos));
+        long bytes = 0;
+        for (Entry entry : ordered) {
+            bytes += entry.bytes();
+        }
+        long conversations = ordered.size();
+        List<Eviction> evictions = new ArrayList<>();
+        List<Entry> remaining = new ArrayList<>(ordered.size());
+        for (Entry entry : ordered) {
+            if (entry.evictable() && idleTtlNanos > 0 && nowNanos - entry.lastAccessNanos() > idleTtlNanos) {
+                evictions.add(new Eviction(entry.conversationId(), Reason.IDLE));
+                bytes -= entry.bytes();
+                conversations--;
+            } else {
+                remaining.add(entry);
+            }
+        }
+        if (!overBudget(bytes, conversations)) {
+            return evictions;
+        }
+        long targetBytes = (long) (maxBytes * LOW_WATERMARK_RATIO);
+        long targetConversations = (long) (maxConversations * LOW_WATERMARK_RATIO);
+        for (Entry entry : remaining) {
+            boolean overBytes = maxBytes > 0 && bytes > targetBytes;
+            boolean overConversations = maxConversations > 0 && conversations > targetConversations;
+            if (!overBytes && !overConversations) {
+                break;
+            }
+            if (entry.evictable()) {
+                evictions.add(new Eviction(entry.conversationId(), Reason.BUDGET));
+                bytes -= entry.bytes();
+                conversations--;
+            }
+        }
+        return evictions;
+    }
+
+    /**
+     * Intent: 判断当前占用是否超过预算（调用方据此决定是否立即触发一次淘汰，而不等定时清理）
+     * Input: bytes (估算字节数), conversations (会话数)
+     * Output: boolean
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public boolean overBudget(long bytes, long conversations) {
+        return (maxBytes > 0 && bytes > maxBytes) || (maxConversations > 0 && conversations > maxConversations);
+    }
+
+    /**
+     * Intent: 估算一条消息在堆上的占用
+     * Input: text (消息文本，可为 null)
+     * Output: long (字节数；按 UTF-16 每字符 2 字节，不区分 Latin-1 紧凑字符串)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static long estimateMessageBytes(String text) {
+        return MESSAGE_OVERHEAD_BYTES + 2L * (text != null ? text.length() : 0);
+    }
+
+    /**
+     * Intent: 估算一个空会话条目的固定占用
+     * Input: 无
+     * Output: long
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static long conversationOverheadBytes() {
+        return CONVERSATION_OVERHEAD_BYTES;
+    }
+}
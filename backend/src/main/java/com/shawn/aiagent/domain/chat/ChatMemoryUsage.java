@@ -0,0 +1,36 @@
+package com.shawn.aiagent.domain.chat;
+
+/**
+ * 对话记忆占用值对象
+ * 热缓存中的会话数、消息数与估算的堆内存字节数
+ */
+public final class ChatMemoryUsage {
+
+    private final long conversations;
+    private final long messages;
+    private final long estimatedBytes;
+
+    public ChatMemoryUsage(long conversations, long messages, long estimatedBytes) {
+        this.conversations = conversations;
+        this.messages = messages;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public long getConversations() {
+        return conversations;
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ChatMemoryUsage{conversations=" + conversations + ", messages=" + messages
+                + ", estimatedBytes=" + estimatedBytes + "}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.util.Objects;
+
+/**
+ * 流式回复事件值对象
+ * 模型输出按分段标记切分后的事件：DELTA 为增量文本（已去掉标记），SEGMENT 为一个完整段落，DONE 为流结束
+ */
+public final class ChatStreamEvent {
+
+    /**
+     * 事件类型
+     */
+    public enum Type {
+        /**
+         * 增量文本，属于 index 号段落
+         */
+        DELTA,
+        /**
+         * 完整段落（已去掉首尾空白，空白段落不产生该事件）
+         */
+        SEGMENT,
+        /**
+         * 流结束，index 为段落总数
+         */
+        DONE
+    }
+
+    private final Type type;
+    private final int index;
+    private final String text;
+
+    private ChatStreamEvent(Type type, int index, String text) {
+        this.type = Objects.requireNonNull(type, "type");
+        this.index = index;
+        this.text = text != null ? text : "";
+    }
+
+    public static ChatStreamEvent delta(int index, String text) {
+        return new ChatStreamEvent(Type.DELTA, index, text);
+    }
+
+    public static ChatStreamEvent segment(int index, String text) {
+        return new ChatStreamEvent(Type.SEGMENT, index, text);
+    }
+
+    public static ChatStreamEvent done(int segments) {
+        return new ChatStreamEvent(Type.DONE, segments, "");
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChatStreamEvent that = (ChatStreamEvent) o;
+        return index == that.index && type == that.type && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, index, text);
+    }
+
+    @Override
+    public String toString() {
+        return "ChatStreamEvent{type=" + type + ", index=" + index + ", text='" + text + "'}";
+    }
+}
@@ -0,0 +1,136 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分段标记切分器
+ * 模型按提示词用分段标记（如 &lt;chunk&gt;）分隔段落，但标记可能被拆在多个流式片段里（"&lt;ch" + "unk&gt;"）。
+ * 切分器逐字符匹配标记（KMP 状态机），只扣留可能是标记前缀的几个字符，其余文本立即作为增量输出。
+ *
+ * 规则：
+ * - DELTA 为已确定不属于标记的文本，在每个片段末尾与每个完整标记处输出；遇到完整标记时随后产生 SEGMENT；
+ * - 段落首尾空白去掉；空白段落不产生 SEGMENT，也不占用段落编号；
+ * - finish 时扣留的半个标记按普通文本输出，剩余文本作为最后一个段落。
+ *
+ * 非线程安全：每个流一个实例。
+ */
+public final class ChunkMarkerSegmenter {
+
+    private final String marker;
+    private final int[] fallback;
+    private final StringBuilder pending = new StringBuilder();
+    private final StringBuilder segment = new StringBuilder();
+    private int matched;
+    private int segments;
+
+    /**
+     * Intent: 创建切分器
+     * Input: marker (分段标记，非空)
+     * Output: ChunkMarkerSegmenter实例
+     * SideEffects: 无
+     * Failure: marker 为 null 或空时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ChunkMarkerSegmenter(String marker) {
+        if (marker == null || marker.isEmpty()) {
+            throw new IllegalArgumentException("marker must not be empty");
+        }
+        this.marker = marker;
+        this.fallback = new int[marker.length()];
+        for (int i = 1, k = 0; i < marker.length(); i++) {
+            while (k > 0 && marker.charAt(i) != marker.charAt(k)) {
+                k = fallback[k - 1];
+            }
+            if (marker.charAt(i) == marker.charAt(k)) {
+                k++;
+            }
+            fallback[i] = k;
+        }
+    }
+
+    /**
+     * Intent: 输入一个流式片段
+     * Input: token (模型输出片段，可为 null 或空)
+     * Output: List<ChatStreamEvent> (按顺序的 DELTA / SEGMENT 事件，可能为空)
+     * SideEffects: 更新切分状态
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public List<ChatStreamEvent> feed(String token) {
+        List<ChatStreamEvent> events = new ArrayList<>(2);
+        if (token == null) {
+            return events;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            while (matched > 0 && c != marker.charAt(matched)) {
+                // 已匹配的前缀中不能再作为标记开头的部分释放为正文
+                int keep = fallback[matched - 1];
+                append(marker, 0, matched - keep);
+                matched = keep;
+            }
+            if (c == marker.charAt(matched)) {
+                matched++;
+                if (matched == marker.length()) {
+                    matched = 0;
+                    flushDelta(events);
+                    closeSegment(events);
+                }
+            } else {
+                append(c);
+            }
+        }
+        flushDelta(events);
+        return events;
+    }
+
+    /**
+     * Intent: 结束输入，输出扣留的文本与最后一个段落
+     * Input: 无
+     * Output: List<ChatStreamEvent> (可能为空)
+     * SideEffects: 重置切分状态（段落计数保留）
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public List<ChatStreamEvent> finish() {
+        List<ChatStreamEvent> events = new ArrayList<>(2);
+        append(marker, 0, matched);
+        matched = 0;
+        flushDelta(events);
+        closeSegment(events);
+        return events;
+    }
+
+    /**
+     * @return 已产生的段落数
+     */
+    public int segmentCount() {
+        return segments;
+    }
+
+    private void append(char c) {
+        pending.append(c);
+        segment.append(c);
+    }
+
+    private void append(CharSequence text, int start, int end) {
+        pending.append(text, start, end);
+        segment.append(text, start, end);
+    }
+
+    private void flushDelta(List<ChatStreamEvent> events) {
+        if (!pending.isEmpty()) {
+            events.add(ChatStreamEvent.delta(segments, pending.toString()));
+            pending.setLength(0);
+        }
+    }
+
+    private void closeSegment(List<ChatStreamEvent> events) {
+        String text = segment.toString().strip();
+        segment.setLength(0);
+        if (!text.isEmpty()) {
+            events.add(ChatStreamEvent.segment(segments++, text));
+        }
+    }
+}
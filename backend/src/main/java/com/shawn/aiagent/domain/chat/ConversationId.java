@@ -1,6 +1,7 @@
 package com.shawn.aiagent.domain.chat;
 
 import java.util.Objects;
+import java.util.UUID;
 
 /**
  * 会话ID值对象
@@ -30,15 +31,15 @@ public final class ConversationId {
     }
     
     /**
-     * Intent: 获取默认会话ID
+     * Intent: 生成新的会话ID（请求未携带会话ID时由服务端分配，互不相同，不可猜测）
      * Input: 无
-     * Output: ConversationId实例（值为"1"）
+     * Output: ConversationId实例（随机 UUID）
      * SideEffects: 无
      * Failure: 无
-     * Idempotency: 幂等
+     * Idempotency: 非幂等
      */
-    public static ConversationId defaultId() {
-        return new ConversationId("1");
+    public static ConversationId generate() {
+        return new ConversationId(UUID.randomUUID().toString());
     }
     
     public String getValue() {
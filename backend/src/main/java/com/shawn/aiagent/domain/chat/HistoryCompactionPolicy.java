@@ -0,0 +1,74 @@
+package com.shawn.aiagent.domain.chat;
+
+/**
+ * 对话历史压缩策略
+ * 决定一个会话的记忆是否需要摘要，以及把前面多少条消息折叠进摘要
+ *
+ * 规则：
+ * - 历史 token 总数超过 triggerTokens，或消息条数超过 triggerMessages 时触发；
+ * - 保留最新的 keepRecentMessages 条原文，其余折叠；切分点向前对齐到一轮对话的开头（用户消息），
+ *   不把一问一答拆开；
+ * - 开头已有的摘要（pinnedPrefix 条）一并折叠进新摘要（滚动摘要），但只折叠旧摘要本身没有意义，此时不触发。
+ */
+public final class HistoryCompactionPolicy {
+
+    private final int triggerTokens;
+    private final int triggerMessages;
+    private final int keepRecentMessages;
+
+    /**
+     * Intent: 创建历史压缩策略
+     * Input: triggerTokens (token 阈值，<=0 表示不按 token 触发), triggerMessages (条数阈值，<=0 表示不按条数触发),
+     *        keepRecentMessages (保留原文的最新消息数，>=1)
+     * Output: HistoryCompactionPolicy实例
+     * SideEffects: 无
+     * Failure: keepRecentMessages < 1 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public HistoryCompactionPolicy(int triggerTokens, int triggerMessages, int keepRecentMessages) {
+        if (keepRecentMessages < 1) {
+            throw new IllegalArgumentException("keepRecentMessages must be >= 1");
+        }
+        this.triggerTokens = triggerTokens;
+        this.triggerMessages = triggerMessages;
+        this.keepRecentMessages = keepRecentMessages;
+    }
+
+    /**
+     * Intent: 计算应折叠进摘要的前缀长度
+     * Input: tokens (每条消息的 token 数，按时间顺序), turnStart (对应消息是否为一轮对话的开头，即用户消息),
+     *        pinnedPrefix (开头已有的摘要消息数)
+     * Output: int (折叠前 n 条；0 表示不需要压缩)
+     * SideEffects: 无
+     * Failure: 两个数组长度不一致时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public int foldCount(int[] tokens, boolean[] turnStart, int pinnedPrefix) {
+        if (tokens.length != turnStart.length) {
+            throw new IllegalArgumentException("tokens and turnStart must have the same length");
+        }
+        if (!shouldCompact(tokens)) {
+            return 0;
+        }
+        for (int split = tokens.length - keepRecentMessages; split > pinnedPrefix; split--) {
+            if (turnStart[split]) {
+                return split;
+            }
+        }
+        return 0;
+    }
+
+    private boolean shouldCompact(int[] tokens) {
+        if (triggerMessages > 0 && tokens.length > triggerMessages) {
+            return true;
+        }
+        if (triggerTokens <= 0) {
+            return false;
+        }
+        long total = 0;
+        for (int count : tokens) {
+            total += count;
+        }
+        return total > triggerTokens;
+    }
+}
@@ -0,0 +1,112 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 流式事件回放环形缓冲
+ * 按写出顺序为一次回复的事件编号（从 0 开始），只保留最近 capacity 个；断线重连时按最后收到的编号取回漏掉的事件。
+ *
+ * 规则：
+ * - 追加时编号递增，缓冲满后覆盖最旧的事件；
+ * - since(lastSeq) 返回编号大于 lastSeq 的全部事件；需要的事件已被覆盖、或 lastSeq 超出已写出的范围时无法续传，返回 empty。
+ *
+ * 非线程安全：调用方负责串行化。
+ */
+public final class ReplayRingBuffer {
+
+    /**
+     * 对象头、数组槽与编号的估算开销（字节）
+     */
+    private static final long EVENT_OVERHEAD_BYTES = 64;
+
+    /**
+     * 带编号的事件
+     */
+    public record Sequenced(long seq, ChatStreamEvent event) {
+    }
+
+    private final Sequenced[] slots;
+    private long nextSeq;
+    private long bytes;
+
+    /**
+     * Intent: 创建回放缓冲
+     * Input: capacity (最多保留的事件数，>0)
+     * Output: ReplayRingBuffer实例
+     * SideEffects: 无
+     * Failure: capacity<=0 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ReplayRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("回放缓冲容量必须大于 0: " + capacity);
+        }
+        this.slots = new Sequenced[capacity];
+    }
+
+    /**
+     * Intent: 追加一个事件
+     * Input: event
+     * Output: Sequenced (分配了编号的事件)
+     * SideEffects: 缓冲满时覆盖最旧的事件
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public Sequenced append(ChatStreamEvent event) {
+        Sequenced sequenced = new Sequenced(nextSeq, event);
+        int slot = (int) (nextSeq % slots.length);
+        if (slots[slot] != null) {
+            bytes -= estimateBytes(slots[slot].event());
+        }
+        slots[slot] = sequenced;
+        bytes += estimateBytes(event);
+        nextSeq++;
+        return sequenced;
+    }
+
+    /**
+     * Intent: 取回编号大于 lastSeq 的事件
+     * Input: lastSeq (客户端最后收到的编号；-1 表示从头开始)
+     * Output: Optional<List<Sequenced>> (按编号升序；无法续传时为 empty)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public Optional<List<Sequenced>> since(long lastSeq) {
+        if (lastSeq < -1 || lastSeq >= nextSeq || lastSeq + 1 < oldestSeq()) {
+            return Optional.empty();
+        }
+        List<Sequenced> missed = new ArrayList<>((int) (nextSeq - lastSeq - 1));
+        for (long seq = lastSeq + 1; seq < nextSeq; seq++) {
+            missed.add(slots[(int) (seq % slots.length)]);
+        }
+        return Optional.of(missed);
+    }
+
+    /**
+     * @return 缓冲中事件的估算占用字节数
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return 下一个事件的编号（即已追加的事件总数）
+     */
+    public long nextSeq() {
+        return nextSeq;
+    }
+
+    private long oldestSeq() {
+        return Math.max(0, nextSeq - slots.length);
+    }
+
+    /**
+     * 估算一个事件占用的堆内存（UTF-16 文本 + 固定开销）
+     */
+    static long estimateBytes(ChatStreamEvent event) {
+        return EVENT_OVERHEAD_BYTES + 2L * event.getText().length();
+    }
+}
@@ -0,0 +1,131 @@
+package com.shawn.aiagent.domain.chat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式帧合并器
+ * 把同一段落内连续的 DELTA 事件合并为一帧，减少 SSE 写出与 flush 次数；时间窗口由调用方计时，到期后调用 drain。
+ *
+ * 规则：
+ * - DELTA 追加到待发缓冲；待发文本的 UTF-8 字节数达到 maxBytes 时立即成帧；
+ * - SEGMENT / DONE 是段落边界：先把待发 DELTA 成帧，再原样输出该事件；
+ * - 段落编号变化时先把上一段的待发 DELTA 成帧，合并后的 DELTA 不跨段落。
+ *
+ * 非线程安全：每个流一个实例，调用方负责串行化。
+ */
+public final class StreamFrameCoalescer {
+
+    private final int maxBytes;
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingIndex;
+    private int pendingBytes;
+
+    /**
+     * Intent: 创建合并器
+     * Input: maxBytes (待发文本的字节阈值，<=0 表示不按字节成帧)
+     * Output: StreamFrameCoalescer实例
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public StreamFrameCoalescer(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Intent: 输入一个事件
+     * Input: event
+     * Output: List<ChatStreamEvent> (本次应立即发出的帧，可能为空)
+     * SideEffects: 更新待发缓冲
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public List<ChatStreamEvent> accept(ChatStreamEvent event) {
+        List<ChatStreamEvent> frames = new ArrayList<>(2);
+        if (event.getType() != ChatStreamEvent.Type.DELTA) {
+            drainTo(frames);
+            frames.add(event);
+            return frames;
+        }
+        if (!pending.isEmpty() && event.getIndex() != pendingIndex) {
+            drainTo(frames);
+        }
+        pendingIndex = event.getIndex();
+        pending.append(event.getText());
+        pendingBytes += utf8Length(event.getText());
+        if (maxBytes > 0 && pendingBytes >= maxBytes) {
+            drainTo(frames);
+        }
+        return frames;
+    }
+
+    /**
+     * Intent: 时间窗口到期或流结束时取出待发内容
+     * Input: 无
+     * Output: List<ChatStreamEvent> (合并后的 DELTA，没有待发内容时为空)
+     * SideEffects: 清空待发缓冲
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public List<ChatStreamEvent> drain() {
+        List<ChatStreamEvent> frames = new ArrayList<>(1);
+        drainTo(frames);
+        return frames;
+    }
+
+    /**
+     * @return 是否有待发内容
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Intent: 按当前并发流数在 [minWindow, maxWindow] 间线性选取合并窗口：并发越高窗口越长，用打字流畅度换写出次数
+     * Input: minWindow, maxWindow, activeStreams (当前活跃流数), saturationStreams (达到 maxWindow 的并发流数，<=0 时总取 minWindow)
+     * Output: Duration
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static Duration adaptiveWindow(Duration minWindow, Duration maxWindow, int activeStreams, int saturationStreams) {
+        if (saturationStreams <= 0 || maxWindow.compareTo(minWindow) <= 0) {
+            return minWindow;
+        }
+        double load = Math.min(1.0, Math.max(0, activeStreams) / (double) saturationStreams);
+        long span = maxWindow.toNanos() - minWindow.toNanos();
+        return minWindow.plusNanos((long) (span * load));
+    }
+
+    /**
+     * 文本的 UTF-8 字节数（不分配字节数组）
+     */
+    static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isSurrogate(c)) {
+                // 代理对两个 char 共 4 字节
+                bytes += 2;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    private void drainTo(List<ChatStreamEvent> frames) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        frames.add(ChatStreamEvent.delta(pendingIndex, pending.toString()));
+        pending.setLength(0);
+        pendingBytes = 0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.shawn.aiagent.domain.chat;
+
+/**
+ * Token 预算消息窗口策略
+ * 在 token 预算内保留最新的消息，替代只按条数截断的窗口
+ *
+ * 规则：
+ * - 固定消息（系统消息）总是保留，并计入预算；
+ * - 其余消息从最新往前依次纳入，遇到第一条放不下的消息即停止（保留的是连续的最新一段，不跳着挑短消息）；
+ * - 最新一条非固定消息即使单独超出预算也保留（它通常是本轮用户输入）；
+ * - maxMessages > 0 时同时限制非固定消息条数。
+ */
+public final class TokenWindowPolicy {
+
+    private final int maxTokens;
+    private final int maxMessages;
+
+    /**
+     * Intent: 创建 token 预算窗口策略
+     * Input: maxTokens (token 预算，>=1), maxMessages (非固定消息条数上限，<=0 表示不限)
+     * Output: TokenWindowPolicy实例
+     * SideEffects: 无
+     * Failure: maxTokens < 1 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public TokenWindowPolicy(int maxTokens, int maxMessages) {
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException("maxTokens must be >= 1");
+        }
+        this.maxTokens = maxTokens;
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Intent: 计算应保留的消息
+     * Input: tokens (每条消息的 token 数，按时间顺序), pinned (对应消息是否固定保留)
+     * Output: boolean[] (对应消息是否保留)
+     * SideEffects: 无
+     * Failure: 两个数组长度不一致时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public boolean[] keep(int[] tokens, boolean[] pinned) {
+        if (tokens.length != pinned.length) {
+            throw new IllegalArgumentException("tokens and pinned must have the same length");
+        }
+        boolean[] kept = new boolean[tokens.length];
+        long used = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            if (pinned[i]) {
+                kept[i] = true;
+                used += tokens[i];
+            }
+        }
+        int messages = 0;
+        for (int i = tokens.length - 1; i >= 0; i--) {
+            if (pinned[i]) {
+                continue;
+            }
+            boolean first = messages == 0;
+            if (!first && (used + tokens[i] > maxTokens || (maxMessages > 0 && messages >= maxMessages))) {
+                break;
+            }
+            kept[i] = true;
+            used += tokens[i];
+            messages++;
+        }
+        return kept;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+}
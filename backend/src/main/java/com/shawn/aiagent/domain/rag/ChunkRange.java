@@ -0,0 +1,82 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.Objects;
+
+/**
+ * 章节内 chunk 区间值对象
+ * 同一数据源、同一文件、同一章节中 chunk_index_in_chapter 落在 [fromIndex, toIndex]（闭区间）的 chunk
+ */
+public final class ChunkRange {
+
+    private final String source;
+    private final String file;
+    private final String chapterId;
+    private final int fromIndex;
+    private final int toIndex;
+
+    public ChunkRange(String source, String file, String chapterId, int fromIndex, int toIndex) {
+        if (chapterId == null || chapterId.isBlank()) {
+            throw new IllegalArgumentException("chapterId cannot be null or empty");
+        }
+        if (fromIndex < 0 || toIndex < fromIndex) {
+            throw new IllegalArgumentException("Invalid chunk range: " + fromIndex + ".." + toIndex);
+        }
+        this.source = source != null ? source : "";
+        this.file = file != null ? file : "";
+        this.chapterId = chapterId;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 源文件相对路径；没有文件维度的数据源（dreams）为空串
+     */
+    public String getFile() {
+        return file;
+    }
+
+    public String getChapterId() {
+        return chapterId;
+    }
+
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    public int getToIndex() {
+        return toIndex;
+    }
+
+    /**
+     * 是否与另一区间属于同一章节
+     */
+    public boolean sameChapter(ChunkRange other) {
+        return source.equals(other.source) && file.equals(other.file) && chapterId.equals(other.chapterId);
+    }
+
+    public boolean contains(int index) {
+        return index >= fromIndex && index <= toIndex;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ChunkRange that = (ChunkRange) o;
+        return fromIndex == that.fromIndex && toIndex == that.toIndex && sameChapter(that);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(source, file, chapterId, fromIndex, toIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkRange{" + source + ":" + file + "#" + chapterId + ", chunk=" + fromIndex + ".." + toIndex + "}";
+    }
+}
@@ -0,0 +1,41 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 切分结果值对象
+ * 一个 chunk 覆盖的段落区间（闭区间，段落序号相对于输入段落列表）及拼接后的文本
+ */
+public final class ChunkSpan {
+
+    private final int paraStart;
+    private final int paraEnd;
+    private final String text;
+
+    public ChunkSpan(int paraStart, int paraEnd, String text) {
+        if (paraStart < 0 || paraEnd < paraStart) {
+            throw new IllegalArgumentException("Invalid paragraph range: " + paraStart + ".." + paraEnd);
+        }
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Chunk text cannot be null or empty");
+        }
+        this.paraStart = paraStart;
+        this.paraEnd = paraEnd;
+        this.text = text;
+    }
+
+    public int getParaStart() {
+        return paraStart;
+    }
+
+    public int getParaEnd() {
+        return paraEnd;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkSpan{para=" + paraStart + ".." + paraEnd + ", length=" + text.length() + "}";
+    }
+}
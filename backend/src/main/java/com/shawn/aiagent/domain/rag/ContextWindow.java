@@ -0,0 +1,74 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 上下文窗口值对象
+ * 一个或多个命中 chunk 及其同章节前后相邻 chunk，按章节内顺序排列；相互重叠的窗口已合并为一个
+ */
+public final class ContextWindow {
+
+    static final String SEPARATOR = "\n\n";
+
+    private final ChunkRange range;
+    private final List<RetrievalResult> chunks;
+    private final List<String> hitChunkIds;
+    private final double score;
+
+    /**
+     * Intent: 创建上下文窗口
+     * Input: range (章节内区间；命中 chunk 缺少章节位置时为 null), chunks (按章节内顺序), hitChunkIds (窗口内的命中 chunk), score (命中 chunk 的最高相似度)
+     * Output: ContextWindow 实例
+     * SideEffects: 无
+     * Failure: chunks 或 hitChunkIds 为空时抛出 IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ContextWindow(ChunkRange range, List<RetrievalResult> chunks, List<String> hitChunkIds, double score) {
+        if (chunks == null || chunks.isEmpty()) {
+            throw new IllegalArgumentException("chunks cannot be null or empty");
+        }
+        if (hitChunkIds == null || hitChunkIds.isEmpty()) {
+            throw new IllegalArgumentException("hitChunkIds cannot be null or empty");
+        }
+        this.range = range;
+        this.chunks = List.copyOf(chunks);
+        this.hitChunkIds = List.copyOf(hitChunkIds);
+        this.score = score;
+    }
+
+    public ChunkRange getRange() {
+        return range;
+    }
+
+    /**
+     * 窗口内全部 chunk（命中 chunk 带相似度，相邻 chunk 的 score 为 0）
+     */
+    public List<RetrievalResult> getChunks() {
+        return chunks;
+    }
+
+    public List<String> getHitChunkIds() {
+        return hitChunkIds;
+    }
+
+    /**
+     * 窗口内命中 chunk 的最高余弦相似度
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * 按章节内顺序拼接的窗口正文
+     */
+    public String getText() {
+        return chunks.stream().map(RetrievalResult::getText).collect(Collectors.joining(SEPARATOR));
+    }
+
+    @Override
+    public String toString() {
+        return "ContextWindow{range=" + range + ", chunks=" + chunks.size() + ", hits=" + hitChunkIds.size()
+                + ", score=" + score + "}";
+    }
+}
@@ -0,0 +1,167 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 上下文窗口扩展策略
+ * 把命中 chunk 扩展为同章节前后各 radius 个相邻 chunk，供对话 grounding 使用
+ *
+ * 规则：
+ * - 章节位置取自 metadata：source / file（可无）/ chapter-ID / chunk_index_in_chapter；
+ * - 同一章节内重叠或首尾相接的窗口合并为一个，合并后的窗口包含其中全部命中 chunk；
+ * - 缺少章节位置的命中 chunk 单独成窗口，不做扩展；
+ * - 窗口按其中命中 chunk 的最高相似度降序排列。
+ */
+public final class ContextWindowPolicy {
+
+    public static final String SOURCE_METADATA_KEY = "source";
+    public static final String FILE_METADATA_KEY = "file";
+    public static final String CHAPTER_ID_METADATA_KEY = "chapter-ID";
+    public static final String CHUNK_INDEX_IN_CHAPTER_METADATA_KEY = "chunk_index_in_chapter";
+
+    private final int radius;
+
+    /**
+     * Intent: 创建上下文窗口扩展策略
+     * Input: radius (命中 chunk 前后各取的相邻 chunk 数，>=0)
+     * Output: ContextWindowPolicy实例
+     * SideEffects: 无
+     * Failure: radius 为负时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ContextWindowPolicy(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("radius must be >= 0");
+        }
+        this.radius = radius;
+    }
+
+    /**
+     * Intent: 计算需要取回的章节区间（已合并重叠窗口）
+     * Input: hits (命中 chunk)
+     * Output: List<ChunkRange> (按章节分组、章节内按起点排序)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public List<ChunkRange> plan(List<RetrievalResult> hits) {
+        Map<String, List<ChunkRange>> byChapter = new LinkedHashMap<>();
+        for (RetrievalResult hit : hits) {
+            ChunkRange position = positionOf(hit);
+            if (position == null) {
+                continue;
+            }
+            int index = position.getFromIndex();
+            ChunkRange window = new ChunkRange(position.getSource(), position.getFile(), position.getChapterId(),
+                    Math.max(0, index - radius), index + radius);
+            byChapter.computeIfAbsent(chapterKey(window), key -> new ArrayList<>()).add(window);
+        }
+        List<ChunkRange> merged = new ArrayList<>();
+        for (List<ChunkRange> windows : byChapter.values()) {
+            windows.sort(Comparator.comparingInt(ChunkRange::getFromIndex));
+            ChunkRange current = windows.get(0);
+            for (int i = 1; i < windows.size(); i++) {
+                ChunkRange next = windows.get(i);
+                if (next.getFromIndex() <= current.getToIndex() + 1) {
+                    current = new ChunkRange(current.getSource(), current.getFile(), current.getChapterId(),
+                            current.getFromIndex(), Math.max(current.getToIndex(), next.getToIndex()));
+                } else {
+                    merged.add(current);
+                    current = next;
+                }
+            }
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    /**
+     * Intent: 用取回的相邻 chunk 组装上下文窗口
+     * Input: hits (命中 chunk), fetched (按 plan(hits) 的区间取回的 chunk，可包含命中 chunk 本身)
+     * Output: List<ContextWindow> (按最高相似度降序)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public List<ContextWindow> assemble(List<RetrievalResult> hits, List<RetrievalResult> fetched) {
+        List<ContextWindow> windows = new ArrayList<>();
+        for (ChunkRange range : plan(hits)) {
+            // 命中 chunk 优先（保留相似度），即使取回时已被删除也保留在窗口中
+            Map<String, RetrievalResult> members = new LinkedHashMap<>();
+            List<String> hitIds = new ArrayList<>();
+            double score = Double.NEGATIVE_INFINITY;
+            for (RetrievalResult hit : hits) {
+                if (inRange(hit, range) && !members.containsKey(hit.getChunkId())) {
+                    members.put(hit.getChunkId(), hit);
+                    hitIds.add(hit.getChunkId());
+                    score = Math.max(score, hit.getScore());
+                }
+            }
+            for (RetrievalResult chunk : fetched) {
+                if (inRange(chunk, range)) {
+                    members.putIfAbsent(chunk.getChunkId(), chunk);
+                }
+            }
+            List<RetrievalResult> ordered = new ArrayList<>(members.values());
+            ordered.sort(Comparator.comparingInt(chunk -> positionOf(chunk).getFromIndex()));
+            windows.add(new ContextWindow(range, ordered, hitIds, score));
+        }
+        for (RetrievalResult hit : hits) {
+            if (positionOf(hit) == null) {
+                windows.add(new ContextWindow(null, List.of(hit), List.of(hit.getChunkId()), hit.getScore()));
+            }
+        }
+        windows.sort(Comparator.comparingDouble(ContextWindow::getScore).reversed());
+        return windows;
+    }
+
+    private static boolean inRange(RetrievalResult chunk, ChunkRange range) {
+        ChunkRange position = positionOf(chunk);
+        return position != null && position.sameChapter(range) && range.contains(position.getFromIndex());
+    }
+
+    /**
+     * @return chunk 所在位置（from = to = chunk_index_in_chapter）；metadata 缺少章节或序号时返回 null
+     */
+    static ChunkRange positionOf(RetrievalResult chunk) {
+        Map<String, Object> metadata = chunk.getMetadata();
+        Object chapterId = metadata.get(CHAPTER_ID_METADATA_KEY);
+        Integer index = toInt(metadata.get(CHUNK_INDEX_IN_CHAPTER_METADATA_KEY));
+        if (chapterId == null || index == null || index < 0) {
+            return null;
+        }
+        // 章节 ID 原样保留：邻居查询按 metadata->>'chapter-ID' 的文本比对，"03" 与 "3" 是不同章节
+        String chapter = String.valueOf(chapterId);
+        if (chapter.isBlank()) {
+            return null;
+        }
+        return new ChunkRange(asString(metadata.get(SOURCE_METADATA_KEY)), asString(metadata.get(FILE_METADATA_KEY)),
+                chapter, index, index);
+    }
+
+    private static String chapterKey(ChunkRange range) {
+        return range.getSource() + '\u0000' + range.getFile() + '\u0000' + range.getChapterId();
+    }
+
+    private static String asString(Object value) {
+        return value != null ? String.valueOf(value) : "";
+    }
+
+    private static Integer toInt(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
@@ -1,5 +1,9 @@
 package com.shawn.aiagent.domain.rag;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Map;
 import java.util.Objects;
 
@@ -9,12 +13,18 @@ import java.util.Objects;
  */
 public final class DocumentChunk {
     
+    /**
+     * 写入向量表时记录在 metadata 中的内容哈希键，用于预览/增量比对
+     */
+    public static final String CONTENT_HASH_METADATA_KEY = "content_hash";
+    
     private final String id;
     private final String content;
     private final Map<String, Object> metadata;
+    private final String embedText;
     
     /**
-     * Intent: 创建文档块值对象
+     * Intent: 创建文档块值对象（以正文作为向量化文本）
      * Input: id (文档块ID), content (文档内容), metadata (元数据)
      * Output: DocumentChunk实例
      * SideEffects: 无
@@ -22,6 +32,18 @@ public final class DocumentChunk {
      * Idempotency: 幂等
      */
     public DocumentChunk(String id, String content, Map<String, Object> metadata) {
+        this(id, content, metadata, null);
+    }
+    
+    /**
+     * Intent: 创建文档块值对象
+     * Input: id (文档块ID), content (文档内容), metadata (元数据), embedText (送去向量化的文本，为空时取正文)
+     * Output: DocumentChunk实例
+     * SideEffects: 无
+     * Failure: 如果id或content为null或空，抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public DocumentChunk(String id, String content, Map<String, Object> metadata, String embedText) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Document chunk id cannot be null or empty");
         }
@@ -31,6 +53,7 @@ public final class DocumentChunk {
         this.id = id.trim();
         this.content = content.trim();
         this.metadata = metadata != null ? Map.copyOf(metadata) : Map.of();
+        this.embedText = embedText != null && !embedText.isBlank() ? embedText.strip() : this.content;
     }
     
     public String getId() {
@@ -45,6 +68,30 @@ public final class DocumentChunk {
         return metadata;
     }
     
+    /**
+     * 送去 embedding 的文本（由数据源的 EmbedTextTemplate 渲染；未套用模板时即正文）
+     */
+    public String getEmbedText() {
+        return embedText;
+    }
+    
+    /**
+     * Intent: 计算内容哈希（即被向量化的文本的 SHA-256）
+     * Input: 无
+     * Output: String (64 位十六进制小写)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public String contentHash() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(embedText.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,158 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 向量化文本模板值对象
+ * 决定每个数据源的 chunk 以什么文本送去 embedding：{content} 为正文，{key} 为同名 metadata 字段
+ *
+ * 例：{@code {chapter-name}\n{content}} 只把章节名拼在正文前；{@code {content}} 只向量化正文。
+ * 未在模板中出现的 metadata 字段（id、para_start、source…）不参与向量化，只随行存储。
+ * 模板哈希写入每行 metadata；chunk 的内容哈希取自渲染后的文本，模板变化即视为内容变化，触发重新向量化。
+ */
+public final class EmbedTextTemplate {
+
+    /**
+     * 写入向量表时记录在 metadata 中的模板哈希键
+     */
+    public static final String TEMPLATE_HASH_METADATA_KEY = "embed_template_hash";
+
+    /**
+     * 只向量化正文
+     */
+    public static final EmbedTextTemplate CONTENT_ONLY = new EmbedTextTemplate("{content}");
+
+    private static final String CONTENT_PLACEHOLDER = "content";
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([A-Za-z0-9_.-]+)\\}");
+
+    private final String template;
+    private final String hash;
+
+    /**
+     * Intent: 创建向量化文本模板
+     * Input: template (模板文本，必须包含 {content})
+     * Output: EmbedTextTemplate实例
+     * SideEffects: 无
+     * Failure: template 为空或不含 {content} 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public EmbedTextTemplate(String template) {
+        if (template == null || template.isBlank()) {
+            throw new IllegalArgumentException("Embed text template cannot be null or empty");
+        }
+        if (!template.contains("{" + CONTENT_PLACEHOLDER + "}")) {
+            throw new IllegalArgumentException("Embed text template must contain {content}: " + template);
+        }
+        this.template = template;
+        this.hash = sha256(template);
+    }
+
+    /**
+     * Intent: 按配置创建模板，未配置时只向量化正文
+     * Input: template (可为null或空白)
+     * Output: EmbedTextTemplate
+     * SideEffects: 无
+     * Failure: 同构造函数
+     * Idempotency: 幂等
+     */
+    public static EmbedTextTemplate ofNullable(String template) {
+        return template == null || template.isBlank() ? CONTENT_ONLY : new EmbedTextTemplate(template);
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Intent: 渲染向量化文本
+     * Input: content (正文), metadata (元数据)
+     * Output: String (替换占位符并去除首尾空白；缺失或为null的字段替换为空串)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public String render(String content, Map<String, Object> metadata) {
+        Matcher matcher = PLACEHOLDER.matcher(template);
+        StringBuilder builder = new StringBuilder(template.length() + (content != null ? content.length() : 0));
+        while (matcher.find()) {
+            String key = matcher.group(1);
+            Object value = CONTENT_PLACEHOLDER.equals(key) ? content : (metadata != null ? metadata.get(key) : null);
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(value != null ? value.toString() : ""));
+        }
+        matcher.appendTail(builder);
+        return builder.toString().strip();
+    }
+
+    /**
+     * Intent: 为 chunk 套用模板
+     * Input: chunk (加载器产出的文档块)
+     * Output: DocumentChunk (正文不变；向量化文本为渲染结果；metadata 增加模板哈希)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public DocumentChunk apply(DocumentChunk chunk) {
+        Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+        metadata.put(TEMPLATE_HASH_METADATA_KEY, hash);
+        return new DocumentChunk(chunk.getId(), chunk.getContent(), metadata,
+                render(chunk.getContent(), chunk.getMetadata()));
+    }
+
+    /**
+     * Intent: 渲染 Spring AI 默认（MetadataMode.EMBED）会送去向量化的文本，作为估算 token 节省的基线
+     * Input: content (正文), metadata (元数据)
+     * Output: String (每个 metadata 字段一行 "key: value"，空行后接正文)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static String renderAllMetadata(String content, Map<String, Object> metadata) {
+        StringBuilder builder = new StringBuilder();
+        if (metadata != null) {
+            metadata.forEach((key, value) -> {
+                if (!builder.isEmpty()) {
+                    builder.append('\n');
+                }
+                builder.append(key).append(": ").append(value);
+            });
+        }
+        return builder.append("\n\n").append(content).toString().strip();
+    }
+
+    private static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return template.equals(((EmbedTextTemplate) o).template);
+    }
+
+    @Override
+    public int hashCode() {
+        return template.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "EmbedTextTemplate{template='" + template + "', hash='" + hash.substring(0, 12) + "'}";
+    }
+}
@@ -0,0 +1,66 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 向量索引构建进度值对象
+ * 对应 PostgreSQL pg_stat_progress_create_index 的一次采样
+ */
+public final class IndexBuildProgress {
+
+    private final String phase;
+    private final long blocksTotal;
+    private final long blocksDone;
+    private final long tuplesTotal;
+    private final long tuplesDone;
+
+    public IndexBuildProgress(String phase, long blocksTotal, long blocksDone, long tuplesTotal, long tuplesDone) {
+        this.phase = phase != null ? phase : "";
+        this.blocksTotal = Math.max(0, blocksTotal);
+        this.blocksDone = Math.max(0, blocksDone);
+        this.tuplesTotal = Math.max(0, tuplesTotal);
+        this.tuplesDone = Math.max(0, tuplesDone);
+    }
+
+    /**
+     * Intent: 计算当前阶段的完成百分比
+     * Input: 无
+     * Output: double (0~100；优先按 tuple 计数，没有 tuple 计数时按 block 计数，都没有时为0)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public double percent() {
+        if (tuplesTotal > 0) {
+            return Math.min(100d, tuplesDone * 100d / tuplesTotal);
+        }
+        if (blocksTotal > 0) {
+            return Math.min(100d, blocksDone * 100d / blocksTotal);
+        }
+        return 0d;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getBlocksTotal() {
+        return blocksTotal;
+    }
+
+    public long getBlocksDone() {
+        return blocksDone;
+    }
+
+    public long getTuplesTotal() {
+        return tuplesTotal;
+    }
+
+    public long getTuplesDone() {
+        return tuplesDone;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexBuildProgress{phase='" + phase + "', blocks=" + blocksDone + "/" + blocksTotal
+                + ", tuples=" + tuplesDone + "/" + tuplesTotal + "}";
+    }
+}
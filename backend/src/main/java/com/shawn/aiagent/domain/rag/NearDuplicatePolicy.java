@@ -0,0 +1,323 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 近重复 chunk 判定策略
+ * 字符 shingle 上的 MinHash + LSH 分桶：同桶候选再用签名估算 Jaccard 相似度，达到阈值即视为重复
+ *
+ * 规则：
+ * - 文本先归一化（小写、去空白与标点），再取长度为 shingleSize 的字符 shingle；
+ * - 归一化后为空（只有标点或空白）的 chunk 没有可比较的内容，一律保留，也不作为其他 chunk 的代表；
+ * - 按输入顺序处理，先出现的 chunk 为代表（canonical），后续近重复只与代表比较；
+ * - 重复 chunk 不写入向量表，代表的 metadata 记录 duplicate_ids；
+ * - 合并后按章节（source / file / chapter-ID）重排保留 chunk 的 chunk_index_in_chapter，从章节原起始序号开始连续编号，
+ *   上下文窗口扩展依赖该序号连续；
+ * - 由加载器在每个数据源文件切分完成后调用（作用域为单个文件），reindex、预览与增量同步得到相同的 chunk 集合；
+ * - 分桶参数按阈值自动选择：候选阈值 (1/b)^(1/r) 取不高于 (threshold - 0.1) 的最大档，保证召回，精度由签名校验保证。
+ */
+public final class NearDuplicatePolicy {
+
+    /**
+     * 代表 chunk 的 metadata 中记录被合并的重复 chunk id 列表
+     */
+    public static final String DUPLICATE_IDS_METADATA_KEY = "duplicate_ids";
+
+    private static final int NUM_HASHES = 128;
+    private static final int[] ROWS_PER_BAND = {32, 16, 8, 4, 2, 1};
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final NearDuplicatePolicy DISABLED = new NearDuplicatePolicy();
+
+    private final boolean enabled;
+    private final double threshold;
+    private final int shingleSize;
+    private final int rowsPerBand;
+    private final long[] hashSeeds;
+
+    /**
+     * Intent: 创建近重复判定策略
+     * Input: threshold (估算 Jaccard 相似度阈值，(0, 1]), shingleSize (字符 shingle 长度，>=1)
+     * Output: NearDuplicatePolicy实例
+     * SideEffects: 无
+     * Failure: 参数越界时抛出IllegalArgumentException
+     * Idempotency: 幂等（相同参数的实例对相同输入给出相同结果）
+     */
+    public NearDuplicatePolicy(double threshold, int shingleSize) {
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("threshold must be in (0, 1]");
+        }
+        if (shingleSize < 1) {
+            throw new IllegalArgumentException("shingleSize must be >= 1");
+        }
+        this.enabled = true;
+        this.threshold = threshold;
+        this.shingleSize = shingleSize;
+        this.rowsPerBand = chooseRowsPerBand(threshold);
+        SplittableRandom random = new SplittableRandom(SEED);
+        this.hashSeeds = new long[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashSeeds[i] = random.nextLong();
+        }
+    }
+
+    private NearDuplicatePolicy() {
+        this.enabled = false;
+        this.threshold = 1;
+        this.shingleSize = 1;
+        this.rowsPerBand = 1;
+        this.hashSeeds = new long[0];
+    }
+
+    /**
+     * Intent: 获取不做合并的策略（rag.ingestion.dedup-enabled=false 时使用）
+     * Input: 无
+     * Output: NearDuplicatePolicy (deduplicate 原样返回输入)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static NearDuplicatePolicy disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Intent: 合并近重复 chunk
+     * Input: chunks (同一数据源文件按加载顺序排列的文档块)
+     * Output: Result (保留的 chunk，代表已附加 duplicate_ids、章节内序号已重排；以及 重复id → 代表id 的映射)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等（输入顺序相同时结果相同）
+     */
+    public Result deduplicate(List<DocumentChunk> chunks) {
+        if (!enabled) {
+            return Result.unchanged(chunks);
+        }
+        List<int[]> keptSignatures = new ArrayList<>();
+        List<DocumentChunk> kept = new ArrayList<>();
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        Map<Integer, List<String>> duplicatesByKept = new HashMap<>();
+        Map<String, String> canonicalByDuplicate = new LinkedHashMap<>();
+
+        int bands = NUM_HASHES / rowsPerBand;
+        for (DocumentChunk chunk : chunks) {
+            String normalized = normalize(chunk.getContent());
+            if (normalized.isEmpty()) {
+                kept.add(chunk);
+                keptSignatures.add(null);
+                continue;
+            }
+            int[] signature = signature(normalized);
+            int match = -1;
+            for (int band = 0; band < bands && match < 0; band++) {
+                for (int candidate : buckets.getOrDefault(bandKey(signature, band), List.of())) {
+                    if (similarity(signature, keptSignatures.get(candidate)) >= threshold) {
+                        match = candidate;
+                        break;
+                    }
+                }
+            }
+            if (match >= 0) {
+                duplicatesByKept.computeIfAbsent(match, k -> new ArrayList<>()).add(chunk.getId());
+                canonicalByDuplicate.put(chunk.getId(), kept.get(match).getId());
+                continue;
+            }
+            int index = kept.size();
+            kept.add(chunk);
+            keptSignatures.add(signature);
+            for (int band = 0; band < bands; band++) {
+                buckets.computeIfAbsent(bandKey(signature, band), k -> new ArrayList<>(1)).add(index);
+            }
+        }
+        if (canonicalByDuplicate.isEmpty()) {
+            return new Result(kept, canonicalByDuplicate);
+        }
+
+        Map<String, Integer> chapterFirstIndex = new HashMap<>();
+        for (DocumentChunk chunk : chunks) {
+            Integer index = chapterIndex(chunk);
+            if (index != null) {
+                chapterFirstIndex.merge(chapterKey(chunk), index, Math::min);
+            }
+        }
+        Map<String, Integer> chapterNextIndex = new HashMap<>();
+        for (int i = 0; i < kept.size(); i++) {
+            DocumentChunk chunk = kept.get(i);
+            List<String> duplicates = duplicatesByKept.get(i);
+            Integer index = chapterIndex(chunk);
+            Integer renumbered = null;
+            if (index != null) {
+                String chapter = chapterKey(chunk);
+                renumbered = chapterNextIndex.getOrDefault(chapter, chapterFirstIndex.get(chapter));
+                chapterNextIndex.put(chapter, renumbered + 1);
+            }
+            if (duplicates == null && (renumbered == null || renumbered.equals(index))) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+            if (duplicates != null) {
+                metadata.put(DUPLICATE_IDS_METADATA_KEY, List.copyOf(duplicates));
+            }
+            if (renumbered != null) {
+                metadata.put(ContextWindowPolicy.CHUNK_INDEX_IN_CHAPTER_METADATA_KEY, renumbered);
+            }
+            kept.set(i, new DocumentChunk(chunk.getId(), chunk.getContent(), metadata, chunk.getEmbedText()));
+        }
+        return new Result(kept, canonicalByDuplicate);
+    }
+
+    /**
+     * Intent: 估算两段文本的 Jaccard 相似度（MinHash 签名中相同分量的比例）
+     * Input: a, b
+     * Output: double (0~1)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public double similarity(String a, String b) {
+        return similarity(signature(normalize(a)), signature(normalize(b)));
+    }
+
+    private int[] signature(String normalized) {
+        int[] signature = new int[NUM_HASHES];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        int shingles = Math.max(1, normalized.length() - shingleSize + 1);
+        for (int start = 0; start < shingles; start++) {
+            long shingleHash = fnv1a(normalized, start, Math.min(normalized.length(), start + shingleSize));
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = (int) (mix64(shingleHash ^ hashSeeds[i]) >>> 33);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return equal / (double) NUM_HASHES;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long hash = band * 0x9E3779B97F4A7C15L;
+        for (int i = band * rowsPerBand; i < (band + 1) * rowsPerBand; i++) {
+            hash = mix64(hash ^ signature[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * @return chunk_index_in_chapter；metadata 没有章节序号（非整数）时返回 null，此类 chunk 不参与重排
+     */
+    private static Integer chapterIndex(DocumentChunk chunk) {
+        Map<String, Object> metadata = chunk.getMetadata();
+        if (metadata.get(ContextWindowPolicy.CHAPTER_ID_METADATA_KEY) == null
+                || !(metadata.get(ContextWindowPolicy.CHUNK_INDEX_IN_CHAPTER_METADATA_KEY) instanceof Number index)) {
+            return null;
+        }
+        return index.intValue();
+    }
+
+    private static String chapterKey(DocumentChunk chunk) {
+        Map<String, Object> metadata = chunk.getMetadata();
+        return metadata.get(ContextWindowPolicy.SOURCE_METADATA_KEY) + "\u0000"
+                + metadata.get(ContextWindowPolicy.FILE_METADATA_KEY) + "\u0000"
+                + metadata.get(ContextWindowPolicy.CHAPTER_ID_METADATA_KEY);
+    }
+
+    /**
+     * 小写并只保留字母、数字与表意文字，标点和空白差异不影响判定
+     */
+    private static String normalize(String text) {
+        StringBuilder builder = new StringBuilder(text.length());
+        text.toLowerCase(Locale.ROOT).codePoints()
+                .filter(Character::isLetterOrDigit)
+                .forEach(builder::appendCodePoint);
+        return builder.toString();
+    }
+
+    private static int chooseRowsPerBand(double threshold) {
+        double target = threshold - 0.1;
+        for (int rows : ROWS_PER_BAND) {
+            int bands = NUM_HASHES / rows;
+            if (Math.pow(1.0 / bands, 1.0 / rows) <= target) {
+                return rows;
+            }
+        }
+        return 1;
+    }
+
+    private static long fnv1a(String text, int from, int to) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 近重复合并结果
+     */
+    public static final class Result {
+
+        private final List<DocumentChunk> kept;
+        private final Map<String, String> canonicalByDuplicate;
+
+        private Result(List<DocumentChunk> kept, Map<String, String> canonicalByDuplicate) {
+            this.kept = List.copyOf(kept);
+            this.canonicalByDuplicate = Map.copyOf(canonicalByDuplicate);
+        }
+
+        /**
+         * 不做合并的结果（去重关闭时使用）
+         */
+        public static Result unchanged(List<DocumentChunk> chunks) {
+            return new Result(chunks, Map.of());
+        }
+
+        /**
+         * 需要向量化写入的 chunk（保持输入顺序）
+         */
+        public List<DocumentChunk> getKept() {
+            return kept;
+        }
+
+        /**
+         * 重复 chunk id → 代表 chunk id
+         */
+        public Map<String, String> getCanonicalByDuplicate() {
+            return canonicalByDuplicate;
+        }
+
+        /**
+         * 被合并（省去向量化）的 chunk 数
+         */
+        public int getDuplicateCount() {
+            return canonicalByDuplicate.size();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * 段落感知的 token 切分策略
+ *
+ * 规则：
+ * - 按段落顺序贪心装箱，单个 chunk 不超过 maxTokens，段落不会被拆到两个 chunk 中
+ * - 相邻 chunk 之间回退若干个完整段落作为重叠，重叠量不超过 overlapTokens，且保证每次至少前进一个段落、
+ *   下一个 chunk 至少包含一个上一个 chunk 之后的段落
+ * - 分段并行切分时，分段开头携带上一分段末尾的重叠段落，接缝处与整段切分一样带重叠
+ * - 单个段落本身超过 maxTokens 时按句子装箱；单句仍超限时按字符硬切（这些片段之间不做重叠）
+ */
+public final class ParagraphChunkingPolicy {
+
+    private static final String PARAGRAPH_SEPARATOR = "\n\n";
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[。！？；!?;.])");
+
+    private final int maxTokens;
+    private final int overlapTokens;
+    private final TokenEstimationPolicy tokenEstimationPolicy;
+
+    /**
+     * Intent: 创建切分策略
+     * Input: maxTokens (单个 chunk 的 token 上限), overlapTokens (相邻 chunk 的重叠上限), tokenEstimationPolicy
+     * Output: ParagraphChunkingPolicy实例
+     * SideEffects: 无
+     * Failure: maxTokens <= 0、overlapTokens < 0 或 overlapTokens >= maxTokens 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ParagraphChunkingPolicy(int maxTokens, int overlapTokens, TokenEstimationPolicy tokenEstimationPolicy) {
+        if (maxTokens <= 0) {
+            throw new IllegalArgumentException("maxTokens must be positive");
+        }
+        if (overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("overlapTokens must be in [0, maxTokens)");
+        }
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        this.tokenEstimationPolicy = tokenEstimationPolicy;
+    }
+
+    /**
+     * Intent: 将段落序列切分为 chunk
+     * Input: paragraphs (已去除首尾空白的非空段落，按原文顺序)
+     * Output: List<ChunkSpan> (按原文顺序；段落序号相对于输入列表)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等（相同输入得到相同输出）
+     */
+    public List<ChunkSpan> split(List<String> paragraphs) {
+        return split(paragraphs, 0);
+    }
+
+    /**
+     * Intent: 切分一段连续段落中的一个分段，让分段接缝处与整段切分一样带重叠
+     * Input: paragraphs (分段段落，开头可带上一分段末尾、由 overlapBefore 得到的重叠段落),
+     *        trailOut (下一分段会携带的本分段末尾段落数，即下一接缝处 overlapBefore 的结果)
+     * Output: List<ChunkSpan> (段落序号相对于输入列表；第一个 chunk 从序号 0 开始。
+     *         末尾 chunk 完全落在 trailOut 范围内时省略，因为下一分段的第一个 chunk 已完整包含它)
+     * SideEffects: 无
+     * Failure: trailOut 为负或不小于段落数（空列表时不为 0）时抛出IllegalArgumentException
+     * Idempotency: 幂等（相同输入得到相同输出）
+     */
+    public List<ChunkSpan> split(List<String> paragraphs, int trailOut) {
+        int n = paragraphs.size();
+        if (trailOut < 0 || trailOut > Math.max(0, n - 1)) {
+            throw new IllegalArgumentException("trailOut must be in [0, paragraphs.size())");
+        }
+        List<ChunkSpan> chunks = new ArrayList<>();
+        long[] tokens = new long[n];
+        for (int i = 0; i < n; i++) {
+            tokens[i] = tokenEstimationPolicy.estimate(paragraphs.get(i));
+        }
+
+        int start = 0;
+        while (start < n) {
+            if (tokens[start] > maxTokens) {
+                for (String piece : splitOversized(paragraphs.get(start))) {
+                    chunks.add(new ChunkSpan(start, start, piece));
+                }
+                start++;
+                continue;
+            }
+
+            int end = start;
+            long sum = 0;
+            while (end < n && tokens[end] <= maxTokens && sum + tokens[end] <= maxTokens) {
+                sum += tokens[end];
+                end++;
+            }
+            if (end >= n && start > 0 && start >= n - trailOut) {
+                break;
+            }
+            chunks.add(new ChunkSpan(start, end - 1, String.join(PARAGRAPH_SEPARATOR, paragraphs.subList(start, end))));
+            if (end >= n) {
+                break;
+            }
+            start = backOff(i -> tokens[i], start, end);
+        }
+        return chunks;
+    }
+
+    /**
+     * Intent: 计算在 end 处接缝时，下一分段应从上一分段末尾携带的重叠段落数
+     * Input: paragraphs (整段段落), floor (上一分段的起点；重叠不会覆盖到它), end (下一分段的起点)
+     * Output: int (携带的段落数，段落 [end - 返回值, end) 作为下一分段的开头)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public int overlapBefore(List<String> paragraphs, int floor, int end) {
+        if (end <= floor || end >= paragraphs.size()) {
+            return 0;
+        }
+        return end - backOff(i -> tokenEstimationPolicy.estimate(paragraphs.get(i)), floor, end);
+    }
+
+    /**
+     * 从 end 回退完整段落作为重叠，返回下一个 chunk 的起点：
+     * - 起点严格大于 floor（上一个 chunk 的起点），保证每次至少前进一个段落；
+     * - 重叠加上段落 end 仍不超过 maxTokens，保证下一个 chunk 一定装得下 end，不会被上一个 chunk 完整包含
+     */
+    private int backOff(IntToLongFunction tokenAt, int floor, int end) {
+        long endTokens = tokenAt.applyAsLong(end);
+        if (endTokens > maxTokens) {
+            return end;
+        }
+        int next = end;
+        long overlap = 0;
+        while (next - 1 > floor) {
+            long previous = tokenAt.applyAsLong(next - 1);
+            if (overlap + previous > overlapTokens || overlap + previous + endTokens > maxTokens) {
+                break;
+            }
+            overlap += previous;
+            next--;
+        }
+        return next;
+    }
+
+    private List<String> splitOversized(String paragraph) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        long currentTokens = 0;
+        for (String sentence : SENTENCE_BOUNDARY.split(paragraph)) {
+            if (sentence.isBlank()) {
+                continue;
+            }
+            long sentenceTokens = tokenEstimationPolicy.estimate(sentence);
+            if (sentenceTokens > maxTokens) {
+                flush(current, pieces);
+                currentTokens = 0;
+                hardSplit(sentence, pieces);
+                continue;
+            }
+            if (currentTokens + sentenceTokens > maxTokens) {
+                flush(current, pieces);
+                currentTokens = 0;
+            }
+            current.append(sentence);
+            currentTokens += sentenceTokens;
+        }
+        flush(current, pieces);
+        return pieces;
+    }
+
+    /**
+     * 每个字符至多估算为 1 token，按 maxTokens 个字符切分一定不超限
+     */
+    private void hardSplit(String sentence, List<String> pieces) {
+        int[] codePoints = sentence.codePoints().toArray();
+        for (int from = 0; from < codePoints.length; from += maxTokens) {
+            int to = Math.min(from + maxTokens, codePoints.length);
+            String piece = new String(codePoints, from, to - from).trim();
+            if (!piece.isEmpty()) {
+                pieces.add(piece);
+            }
+        }
+    }
+
+    private static void flush(StringBuilder current, List<String> pieces) {
+        String piece = current.toString().trim();
+        if (!piece.isEmpty()) {
+            pieces.add(piece);
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,121 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 查询变体生成策略（多查询检索）
+ * 只用本地规则改写查询，不调用 LLM：
+ *
+ * 规则（按顺序产出，去重后截断到 maxVariants）：
+ * - 原始查询；
+ * - 关键词变体：去掉疑问词、语气词与标点，只保留实义部分（短而模糊的问句在向量空间里更接近正文）；
+ * - 同义词变体：每个命中的同义词组，把查询中出现的词（组内最长命中者）依次替换为组内其他词；
+ * - 扩展变体：关键词变体后附加全部命中组的其他同义词。
+ */
+public final class QueryVariantPolicy {
+
+    /**
+     * 中文疑问/请求用语：只去多字词和句末语气词，单字虚词（的、是…）容易切坏实词，保留
+     */
+    private static final List<String> CHINESE_FILLERS = sortedByLengthDesc(List.of(
+            "请问", "请解释", "请介绍", "解释一下", "介绍一下", "说一说", "谈谈", "讲讲", "关于",
+            "什么是", "是什么", "为什么", "怎么样", "怎么", "如何", "哪些", "哪个", "是否", "有没有", "是不是", "什么"));
+    private static final Pattern TRAILING_PARTICLES = Pattern.compile("[吗呢吧啊呀嘛]+$");
+    private static final Set<String> ENGLISH_STOP_WORDS = Set.of(
+            "what", "is", "are", "the", "a", "an", "of", "how", "why", "does", "do", "to", "in", "about",
+            "please", "explain", "tell", "me", "can", "you");
+    private static final Pattern PUNCTUATION = Pattern.compile("[\\p{P}\\p{S}\\s]+");
+
+    private final List<List<String>> synonymGroups;
+    private final int maxVariants;
+
+    /**
+     * Intent: 创建查询变体生成策略
+     * Input: synonymGroups (同义词组，每组内的词互为同义), maxVariants (变体上限，含原始查询，>=1)
+     * Output: QueryVariantPolicy实例
+     * SideEffects: 无
+     * Failure: maxVariants < 1 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public QueryVariantPolicy(List<List<String>> synonymGroups, int maxVariants) {
+        if (maxVariants < 1) {
+            throw new IllegalArgumentException("maxVariants must be >= 1");
+        }
+        List<List<String>> groups = new ArrayList<>();
+        if (synonymGroups != null) {
+            for (List<String> group : synonymGroups) {
+                List<String> terms = group.stream().map(String::trim).filter(term -> !term.isEmpty()).distinct().toList();
+                if (terms.size() >= 2) {
+                    groups.add(sortedByLengthDesc(terms));
+                }
+            }
+        }
+        this.synonymGroups = List.copyOf(groups);
+        this.maxVariants = maxVariants;
+    }
+
+    /**
+     * Intent: 为查询生成变体
+     * Input: query (已规范化的非空查询)
+     * Output: List<String> (第一个总是原始查询；不含重复，长度不超过 maxVariants)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public List<String> variants(String query) {
+        Set<String> variants = new LinkedHashSet<>();
+        variants.add(query);
+        String keywords = keywords(query);
+        if (!keywords.isEmpty()) {
+            variants.add(keywords);
+        }
+        List<String> expansions = new ArrayList<>();
+        for (List<String> group : synonymGroups) {
+            String matched = group.stream().filter(query::contains).findFirst().orElse(null);
+            if (matched == null) {
+                continue;
+            }
+            for (String synonym : group) {
+                if (!synonym.equals(matched) && !query.contains(synonym)) {
+                    variants.add(query.replace(matched, synonym));
+                    expansions.add(synonym);
+                }
+            }
+        }
+        if (!expansions.isEmpty()) {
+            variants.add(((keywords.isEmpty() ? query : keywords) + " " + String.join(" ", expansions)).trim());
+        }
+        return variants.stream().limit(maxVariants).toList();
+    }
+
+    /**
+     * 去掉疑问用语、句末语气词与标点后的关键词串；全部被去掉时返回空串
+     */
+    static String keywords(String query) {
+        String text = query.trim();
+        text = TRAILING_PARTICLES.matcher(PUNCTUATION.matcher(text).replaceAll(" ").trim()).replaceAll("");
+        for (String filler : CHINESE_FILLERS) {
+            text = text.replace(filler, " ");
+        }
+        List<String> kept = new ArrayList<>();
+        for (String token : PUNCTUATION.split(text)) {
+            String trimmed = TRAILING_PARTICLES.matcher(token.trim()).replaceAll("");
+            if (!trimmed.isEmpty() && !ENGLISH_STOP_WORDS.contains(trimmed.toLowerCase(Locale.ROOT))) {
+                kept.add(trimmed);
+            }
+        }
+        return String.join(" ", kept);
+    }
+
+    private static List<String> sortedByLengthDesc(List<String> terms) {
+        List<String> sorted = new ArrayList<>(terms);
+        sorted.sort(Comparator.comparingInt(String::length).reversed());
+        return List.copyOf(sorted);
+    }
+}
@@ -0,0 +1,68 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒数排名融合（RRF）策略
+ * 多个查询变体各自的检索结果按 Σ 1 / (k + rank) 融合（rank 从 1 开始），只依赖名次，不依赖各列表分数的可比性
+ *
+ * 规则：
+ * - 同一 chunk 在多个列表中出现时累加融合分，因此被多个变体同时召回的 chunk 排在前面；
+ * - 融合分相同时按余弦相似度、再按首次出现顺序排列；
+ * - 返回的 RetrievalResult.score 仍是该 chunk 在各列表中的最高余弦相似度，保持与单查询检索同一含义。
+ */
+public final class ReciprocalRankFusionPolicy {
+
+    private final int k;
+
+    /**
+     * Intent: 创建 RRF 融合策略
+     * Input: k (平滑常数，越大名次差异的影响越小；常用 60，>=1)
+     * Output: ReciprocalRankFusionPolicy实例
+     * SideEffects: 无
+     * Failure: k < 1 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ReciprocalRankFusionPolicy(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be >= 1");
+        }
+        this.k = k;
+    }
+
+    /**
+     * Intent: 融合多个按相似度降序排列的结果列表
+     * Input: rankings (每个变体的检索结果), topK (返回数量)
+     * Output: List<RetrievalResult> (按融合分降序，最多 topK 个)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public List<RetrievalResult> fuse(List<List<RetrievalResult>> rankings, int topK) {
+        Map<String, Fused> fused = new LinkedHashMap<>();
+        for (List<RetrievalResult> ranking : rankings) {
+            for (int i = 0; i < ranking.size(); i++) {
+                RetrievalResult result = ranking.get(i);
+                double contribution = 1.0 / (k + i + 1);
+                fused.merge(result.getChunkId(), new Fused(result, contribution, fused.size()), Fused::combine);
+            }
+        }
+        List<Fused> ordered = new ArrayList<>(fused.values());
+        ordered.sort(Comparator.comparingDouble(Fused::fusionScore).reversed()
+                .thenComparing(Comparator.comparingDouble((Fused f) -> f.best().getScore()).reversed())
+                .thenComparingInt(Fused::firstSeen));
+        return ordered.stream().limit(Math.max(0, topK)).map(Fused::best).toList();
+    }
+
+    private record Fused(RetrievalResult best, double fusionScore, int firstSeen) {
+
+        Fused combine(Fused other) {
+            RetrievalResult better = other.best.getScore() > best.getScore() ? other.best : best;
+            return new Fused(better, fusionScore + other.fusionScore, Math.min(firstSeen, other.firstSeen));
+        }
+    }
+}
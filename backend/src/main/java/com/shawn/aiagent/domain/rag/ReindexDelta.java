@@ -0,0 +1,79 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 重新索引差异值对象
+ * 数据源与线上向量表按 chunk 内容哈希比对的结果，以及一次全量运行的成本估算
+ */
+public final class ReindexDelta {
+
+    private final int addedCount;
+    private final int changedCount;
+    private final int unchangedCount;
+    private final long removedCount;
+    private final long estimatedTokens;
+    private final long deltaEstimatedTokens;
+    private final double projectedSeconds;
+
+    /**
+     * Intent: 创建重新索引差异值对象
+     * Input: addedCount (线上不存在的 chunk), changedCount (内容哈希不同的 chunk), unchangedCount (内容哈希相同的 chunk),
+     *        removedCount (线上存在但数据源已没有的 chunk), estimatedTokens (全量运行的 embedding token 估算),
+     *        deltaEstimatedTokens (仅新增+变更部分的 token 估算), projectedSeconds (按近期吞吐推算的全量耗时；无历史时为 -1)
+     * Output: ReindexDelta实例
+     * SideEffects: 无
+     * Failure: 任一计数小于0时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public ReindexDelta(int addedCount, int changedCount, int unchangedCount, long removedCount,
+                        long estimatedTokens, long deltaEstimatedTokens, double projectedSeconds) {
+        if (addedCount < 0 || changedCount < 0 || unchangedCount < 0 || removedCount < 0
+                || estimatedTokens < 0 || deltaEstimatedTokens < 0) {
+            throw new IllegalArgumentException("Delta counts cannot be negative");
+        }
+        this.addedCount = addedCount;
+        this.changedCount = changedCount;
+        this.unchangedCount = unchangedCount;
+        this.removedCount = removedCount;
+        this.estimatedTokens = estimatedTokens;
+        this.deltaEstimatedTokens = deltaEstimatedTokens;
+        this.projectedSeconds = projectedSeconds;
+    }
+
+    public int getAddedCount() {
+        return addedCount;
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public long getRemovedCount() {
+        return removedCount;
+    }
+
+    public long getEstimatedTokens() {
+        return estimatedTokens;
+    }
+
+    public long getDeltaEstimatedTokens() {
+        return deltaEstimatedTokens;
+    }
+
+    /**
+     * @return 预计全量运行耗时（秒）；没有可参考的历史任务时为 -1
+     */
+    public double getProjectedSeconds() {
+        return projectedSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexDelta{added=" + addedCount + ", changed=" + changedCount + ", unchanged=" + unchangedCount
+                + ", removed=" + removedCount + ", estimatedTokens=" + estimatedTokens
+                + ", deltaEstimatedTokens=" + deltaEstimatedTokens + ", projectedSeconds=" + projectedSeconds + "}";
+    }
+}
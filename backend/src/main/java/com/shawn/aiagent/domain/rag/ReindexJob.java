@@ -0,0 +1,104 @@
+package com.shawn.aiagent.domain.rag;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * 重新索引任务实体
+ * 持久化的 reindex 任务快照：状态、阶段、批次断点与进度
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class ReindexJob {
+
+    private final String id;
+    private final ReindexJobStatus status;
+    private final ReindexJobPhase phase;
+    /**
+     * 创建任务时的重新索引模式（IN_PLACE / BLUE_GREEN），续跑时沿用，不受配置变更影响
+     */
+    private final String mode;
+    private final int batchSize;
+    /**
+     * 数据源 chunk 总数（首次运行时确定；0 表示尚未开始）
+     */
+    private final int totalChunks;
+    /**
+     * 近重复合并掉的 chunk 数（不向量化、不写入）
+     */
+    private final int duplicateChunks;
+    /**
+     * 需要写入的 chunk 按数据源模板渲染后的向量化文本估算 token 数
+     */
+    private final long embedTokens;
+    /**
+     * 相比把全部 metadata 拼进向量化文本（Spring AI 默认 MetadataMode.EMBED）省下的估算 token 数
+     */
+    private final long embedTokensSaved;
+    /**
+     * 已完成（已提交）的批次数，续跑从此处开始
+     */
+    private final int completedBatches;
+    private final int processedChunks;
+    /**
+     * 已启动执行的次数（含重启后的续跑）
+     */
+    private final int attempts;
+    private final boolean cancelRequested;
+    /**
+     * 向量索引构建阶段（pg_stat_progress_create_index.phase；未在建索引时为空）
+     */
+    private final String indexBuildPhase;
+    /**
+     * 向量索引构建阶段内的完成百分比
+     */
+    private final double indexBuildPercent;
+    private final String errorMessage;
+    private final Instant createdAt;
+    private final Instant startedAt;
+    private final Instant updatedAt;
+    private final Instant finishedAt;
+
+    public boolean isTerminal() {
+        return status != null && status.isTerminal();
+    }
+
+    /**
+     * Intent: 计算任务进度百分比
+     * Input: 无
+     * Output: double (0~100；总数未知时为0；分母为去重后需要写入的 chunk 数)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public double progressPercent() {
+        if (status == ReindexJobStatus.SUCCEEDED) {
+            return 100d;
+        }
+        int toWrite = totalChunks - duplicateChunks;
+        if (toWrite <= 0) {
+            return 0d;
+        }
+        return Math.min(100d, processedChunks * 100d / toWrite);
+    }
+
+    /**
+     * Intent: 计算写入吞吐（chunk/秒）
+     * Input: 无
+     * Output: double (自首次启动以来的平均吞吐；未启动时为0)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public double throughputPerSecond() {
+        if (startedAt == null || processedChunks <= 0) {
+            return 0d;
+        }
+        Instant end = finishedAt != null ? finishedAt : (updatedAt != null ? updatedAt : Instant.now());
+        long millis = Duration.between(startedAt, end).toMillis();
+        return millis > 0 ? processedChunks * 1000d / millis : 0d;
+    }
+}
@@ -0,0 +1,24 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 重新索引任务阶段（用于断点续跑）
+ * 每个阶段都是可重放的：重启后从记录的阶段继续执行
+ */
+public enum ReindexJobPhase {
+    /**
+     * 准备影子表（BLUE_GREEN）或删除线上向量索引（IN_PLACE_DEFERRED_INDEX）
+     */
+    PREPARING,
+    /**
+     * 分批向量化并写入，按 completedBatches 断点续跑
+     */
+    WRITING,
+    /**
+     * 写入完成后构建向量索引（BLUE_GREEN 另外校验影子表行数）
+     */
+    INDEXING,
+    /**
+     * 原子切换线上表（仅 BLUE_GREEN）
+     */
+    SWITCHING
+}
@@ -0,0 +1,17 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 重新索引任务状态
+ * PENDING / RUNNING 为中间态；SUCCEEDED / FAILED / CANCELLED 为终态
+ */
+public enum ReindexJobStatus {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+}
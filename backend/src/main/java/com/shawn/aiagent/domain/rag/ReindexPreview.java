@@ -12,16 +12,19 @@ public final class ReindexPreview {
     private final String tableName;
     private final String embeddingModelName;
     private final int embeddingDim;
+    private final ReindexDelta delta;
     
     /**
      * Intent: 创建重新索引预览值对象
-     * Input: chunkCount (chunk数量), tableName (表名), embeddingModelName (模型名), embeddingDim (向量维度)
+     * Input: chunkCount (chunk数量), tableName (表名), embeddingModelName (模型名), embeddingDim (向量维度),
+     *        delta (与线上表的差异及成本估算)
      * Output: ReindexPreview实例
      * SideEffects: 无
-     * Failure: 如果chunkCount或embeddingDim小于0，或tableName/modelName为null，抛出IllegalArgumentException
+     * Failure: 如果chunkCount或embeddingDim小于0，或tableName/modelName/delta为null，抛出IllegalArgumentException
      * Idempotency: 幂等
      */
-    public ReindexPreview(int chunkCount, String tableName, String embeddingModelName, int embeddingDim) {
+    public ReindexPreview(int chunkCount, String tableName, String embeddingModelName, int embeddingDim,
+                          ReindexDelta delta) {
         if (chunkCount < 0) {
             throw new IllegalArgumentException("Chunk count cannot be negative");
         }
@@ -34,10 +37,14 @@ public final class ReindexPreview {
         if (embeddingModelName == null || embeddingModelName.trim().isEmpty()) {
             throw new IllegalArgumentException("Embedding model name cannot be null or empty");
         }
+        if (delta == null) {
+            throw new IllegalArgumentException("Reindex delta cannot be null");
+        }
         this.chunkCount = chunkCount;
         this.tableName = tableName.trim();
         this.embeddingModelName = embeddingModelName.trim();
         this.embeddingDim = embeddingDim;
+        this.delta = delta;
     }
     
     public int getChunkCount() {
@@ -56,6 +63,10 @@ public final class ReindexPreview {
         return embeddingDim;
     }
     
+    public ReindexDelta getDelta() {
+        return delta;
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -77,7 +88,8 @@ public final class ReindexPreview {
         return "ReindexPreview{chunkCount=" + chunkCount + 
                ", tableName='" + tableName + 
                "', embeddingModelName='" + embeddingModelName + 
-               "', embeddingDim=" + embeddingDim + "}";
+               "', embeddingDim=" + embeddingDim + 
+               ", delta=" + delta + "}";
     }
 }
 
@@ -0,0 +1,65 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * 数据源文件变更值对象
+ */
+public final class SourceFileChange {
+
+    private final String relativePath;
+    private final boolean deleted;
+    private final Instant changedAt;
+
+    /**
+     * Intent: 创建文件变更值对象
+     * Input: relativePath (相对数据源根目录，/ 分隔), deleted (文件是否已不存在),
+     *        changedAt (文件最后修改时间；删除时为观察到删除的时间)
+     * Output: SourceFileChange实例
+     * SideEffects: 无
+     * Failure: relativePath 为空或 changedAt 为null时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public SourceFileChange(String relativePath, boolean deleted, Instant changedAt) {
+        if (relativePath == null || relativePath.isBlank()) {
+            throw new IllegalArgumentException("relativePath cannot be null or empty");
+        }
+        if (changedAt == null) {
+            throw new IllegalArgumentException("changedAt cannot be null");
+        }
+        this.relativePath = relativePath;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+    }
+
+    public String getRelativePath() {
+        return relativePath;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SourceFileChange that = (SourceFileChange) o;
+        return deleted == that.deleted && relativePath.equals(that.relativePath) && changedAt.equals(that.changedAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(relativePath, deleted, changedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "SourceFileChange{path='" + relativePath + "', deleted=" + deleted + ", changedAt=" + changedAt + "}";
+    }
+}
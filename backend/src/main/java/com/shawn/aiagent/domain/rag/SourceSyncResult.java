@@ -0,0 +1,59 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * 增量同步结果值对象
+ */
+public final class SourceSyncResult {
+
+    private final int files;
+    private final int upsertedChunks;
+    private final int unchangedChunks;
+    private final int deletedChunks;
+    private final boolean deferred;
+
+    public SourceSyncResult(int files, int upsertedChunks, int unchangedChunks, int deletedChunks, boolean deferred) {
+        this.files = files;
+        this.upsertedChunks = upsertedChunks;
+        this.unchangedChunks = unchangedChunks;
+        this.deletedChunks = deletedChunks;
+        this.deferred = deferred;
+    }
+
+    /**
+     * Intent: 创建"延后处理"的结果（reindex 任务占用集群锁时）
+     * Input: 无
+     * Output: SourceSyncResult实例
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public static SourceSyncResult deferred() {
+        return new SourceSyncResult(0, 0, 0, 0, true);
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public int getUpsertedChunks() {
+        return upsertedChunks;
+    }
+
+    public int getUnchangedChunks() {
+        return unchangedChunks;
+    }
+
+    public int getDeletedChunks() {
+        return deletedChunks;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    @Override
+    public String toString() {
+        return "SourceSyncResult{files=" + files + ", upserted=" + upsertedChunks + ", unchanged=" + unchangedChunks
+                + ", deleted=" + deletedChunks + ", deferred=" + deferred + "}";
+    }
+}
@@ -0,0 +1,51 @@
+package com.shawn.aiagent.domain.rag;
+
+/**
+ * Embedding token 估算策略
+ * 不依赖具体分词器的启发式估算，用于预览阶段的成本量级判断（误差在 ±20% 量级）
+ *
+ * 规则：CJK 字符按 1 token/字；其余非空白字符按 4 字符/token；空白只作为分隔，不计数。
+ */
+public final class TokenEstimationPolicy {
+
+    private static final int LATIN_CHARS_PER_TOKEN = 4;
+
+    /**
+     * Intent: 估算文本的 embedding token 数
+     * Input: text (待向量化文本)
+     * Output: long (估算 token 数；null 或空白文本为0)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public long estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0L;
+        }
+        long cjk = 0;
+        long other = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isWhitespace(codePoint)) {
+                continue;
+            }
+            if (isCjk(codePoint)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + LATIN_CHARS_PER_TOKEN - 1) / LATIN_CHARS_PER_TOKEN;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL
+                || Character.UnicodeBlock.of(codePoint) == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || Character.UnicodeBlock.of(codePoint) == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS;
+    }
+}
@@ -0,0 +1,85 @@
+package com.shawn.aiagent.domain.rag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 向量 L2 归一化策略
+ * 写入与查询前把向量缩放为单位长度：单位向量的内积即余弦相似度，检索可改用更便宜的内积距离
+ *
+ * 规则：
+ * - 全零向量（范数为 0）原样返回，不产生 NaN；
+ * - 截取前缀后需重新归一化（单位向量的前缀不再是单位长度）。
+ */
+public final class VectorNormalizationPolicy {
+
+    /**
+     * Intent: L2 归一化 float 向量
+     * Input: vector (任意长度)
+     * Output: float[] (新数组，单位长度；零向量返回副本)
+     * SideEffects: 无（不修改入参）
+     * Failure: vector 为 null 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public float[] normalize(float[] vector) {
+        if (vector == null) {
+            throw new IllegalArgumentException("vector cannot be null");
+        }
+        double sumOfSquares = 0d;
+        for (float v : vector) {
+            sumOfSquares += (double) v * v;
+        }
+        float[] result = vector.clone();
+        if (sumOfSquares == 0d) {
+            return result;
+        }
+        double scale = 1d / Math.sqrt(sumOfSquares);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (float) (result[i] * scale);
+        }
+        return result;
+    }
+
+    /**
+     * Intent: L2 归一化 double 向量（查询向量）
+     * Input: vector (任意长度)
+     * Output: List<Double> (新列表，单位长度；零向量、空向量原样返回)
+     * SideEffects: 无
+     * Failure: vector 为 null 时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public List<Double> normalize(List<Double> vector) {
+        if (vector == null) {
+            throw new IllegalArgumentException("vector cannot be null");
+        }
+        return vector.isEmpty() ? List.of() : normalizePrefix(vector, vector.size());
+    }
+
+    /**
+     * Intent: 取向量前 dimensions 个分量并 L2 归一化
+     * Input: vector, dimensions (1 ~ vector.size())
+     * Output: List<Double> (新列表，单位长度；零向量原样返回)
+     * SideEffects: 无
+     * Failure: vector 为 null 或 dimensions 越界时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    public List<Double> normalizePrefix(List<Double> vector, int dimensions) {
+        if (vector == null) {
+            throw new IllegalArgumentException("vector cannot be null");
+        }
+        if (dimensions < 1 || dimensions > vector.size()) {
+            throw new IllegalArgumentException("dimensions must be in [1, " + vector.size() + "]");
+        }
+        double sumOfSquares = 0d;
+        for (int i = 0; i < dimensions; i++) {
+            double v = vector.get(i);
+            sumOfSquares += v * v;
+        }
+        double scale = sumOfSquares == 0d ? 1d : 1d / Math.sqrt(sumOfSquares);
+        List<Double> result = new ArrayList<>(dimensions);
+        for (int i = 0; i < dimensions; i++) {
+            result.add(vector.get(i) * scale);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,258 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.ChatMemoryEvictionPolicy;
+import com.shawn.aiagent.domain.chat.ChatMemoryUsage;
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 有界进程内对话记忆仓库（app.chat.memory.store=IN_MEMORY）
+ * 替代 Spring AI 的无界 InMemoryChatMemoryRepository：会话按 ChatMemoryEvictionPolicy 淘汰
+ * （空闲超过 TTL，或超过字节/会话数预算时最久未访问优先），并实时统计会话数、消息数与估算字节数。
+ *
+ * 配置 spill-dir 时被淘汰的会话压缩落盘，再次访问时读回并删除文件；未配置时直接丢弃。
+ * 同一会话的读写、读回与淘汰落盘都持有该会话自己的锁（按会话引用计数，无人持有即移除），
+ * 不在 ConcurrentHashMap.compute 内做 IO，因此落盘 IO 不会锁住同一哈希桶中的其他会话。
+ * 超预算时由当前没有在淘汰的调用方触发淘汰，其余调用方不排队等待别的会话落盘。
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.chat.memory", name = "store", havingValue = "IN_MEMORY")
+@Slf4j
+public class BoundedInMemoryChatMemoryRepository implements ChatMemoryRepository {
+
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<String, ConversationLock> conversationLocks = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLong cachedMessages = new AtomicLong();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final ChatMemoryEvictionPolicy evictionPolicy;
+    private final ChatMemoryMetricsGateway metricsGateway;
+    private final FileChatMemorySpillStore spillStore;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-memory-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BoundedInMemoryChatMemoryRepository(ChatMemoryConfig config, ChatMemoryMetricsGateway metricsGateway) {
+        this.evictionPolicy = new ChatMemoryEvictionPolicy(Duration.ofMinutes(config.getIdleTtlMinutes()),
+                config.getHotCacheMaxBytes(), config.getHotCacheMaxConversations());
+        this.metricsGateway = metricsGateway;
+        String spillDir = config.getSpillDir();
+        this.spillStore = spillDir != null && !spillDir.isBlank() ? new FileChatMemorySpillStore(Path.of(spillDir.trim())) : null;
+        metricsGateway.bindUsage(this::usage);
+        long sweepInterval = Math.max(1, config.getSweepIntervalSeconds());
+        sweeper.scheduleWithFixedDelay(this::evictSafely, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Intent: 进程内当前占用（不含已落盘的会话）
+     * Input: 无
+     * Output: ChatMemoryUsage
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public ChatMemoryUsage usage() {
+        return new ChatMemoryUsage(cache.size(), cachedMessages.get(), cachedBytes.get());
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> ids = new LinkedHashSet<>(cache.keySet());
+        if (spillStore != null) {
+            ids.addAll(spillStore.conversationIds());
+        }
+        return new ArrayList<>(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        List<Message> messages = withConversation(conversationId, () -> {
+            Entry current = cache.get(conversationId);
+            if (current == null) {
+                Optional<List<Message>> restored = spillStore != null ? spillStore.take(conversationId) : Optional.empty();
+                if (restored.isEmpty() || restored.get().isEmpty()) {
+                    return List.of();
+                }
+                current = new Entry();
+                account(current, restored.get());
+                cache.put(conversationId, current);
+            }
+            current.lastAccessNanos = System.nanoTime();
+            return current.messages;
+        });
+        evictIfOverBudget();
+        return messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> updated = List.copyOf(messages);
+        withConversation(conversationId, () -> {
+            Entry current = cache.get(conversationId);
+            if (current == null) {
+                // 落盘的旧窗口已被本次写入取代
+                if (spillStore != null) {
+                    spillStore.delete(conversationId);
+                }
+                if (updated.isEmpty()) {
+                    return null;
+                }
+                current = new Entry();
+                cache.put(conversationId, current);
+            }
+            account(current, updated);
+            if (updated.isEmpty()) {
+                cache.remove(conversationId);
+                return null;
+            }
+            current.lastAccessNanos = System.nanoTime();
+            return null;
+        });
+        evictIfOverBudget();
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        saveAll(conversationId, List.of());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * 持有会话锁执行 action：锁对象按会话引用计数，最后一个持有者退出时从表中移除，表的大小只与并发访问的会话数有关
+     */
+    private <T> T withConversation(String conversationId, Supplier<T> action) {
+        ConversationLock lock = conversationLocks.compute(conversationId, (id, current) -> {
+            ConversationLock held = current != null ? current : new ConversationLock();
+            held.holders++;
+            return held;
+        });
+        try {
+            synchronized (lock) {
+                return action.get();
+            }
+        } finally {
+            conversationLocks.computeIfPresent(conversationId, (id, current) -> --current.holders == 0 ? null : current);
+        }
+    }
+
+    /**
+     * 更新条目的估算占用并同步到全局计数（持有该会话的锁时调用）
+     */
+    private void account(Entry entry, List<Message> messages) {
+        long bytes = messages.isEmpty() ? 0 : ChatMemoryEvictionPolicy.conversationOverheadBytes();
+        for (Message message : messages) {
+            bytes += ChatMemoryEvictionPolicy.estimateMessageBytes(message.getText());
+        }
+        cachedMessages.addAndGet(messages.size() - entry.messages.size());
+        cachedBytes.addAndGet(bytes - entry.bytes);
+        entry.messages = messages;
+        entry.bytes = bytes;
+    }
+
+    /**
+     * 已有其他线程在淘汰时不等待：那一轮结束前的超额由它或下一次访问收回
+     */
+    private void evictIfOverBudget() {
+        if (evictionPolicy.overBudget(cachedBytes.get(), cache.size()) && evictionLock.tryLock()) {
+            try {
+                evict();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void evictSafely() {
+        evictionLock.lock();
+        try {
+            evict();
+        } catch (RuntimeException e) {
+            log.error("对话记忆淘汰扫描失败: {}", e.getMessage(), e);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 按淘汰策略移出会话（持有 evictionLock）；快照之后又被访问过的会话本轮跳过，落盘在该会话的锁内完成
+     */
+    private void evict() {
+        List<ChatMemoryEvictionPolicy.Entry> entries = new ArrayList<>(cache.size());
+        Map<String, Long> snapshotAccess = new HashMap<>();
+        cache.forEach((id, entry) -> {
+            long lastAccess = entry.lastAccessNanos;
+            entries.add(new ChatMemoryEvictionPolicy.Entry(id, lastAccess, entry.bytes, true));
+            snapshotAccess.put(id, lastAccess);
+        });
+        Map<ChatMemoryEvictionPolicy.Reason, Integer> evicted = new EnumMap<>(ChatMemoryEvictionPolicy.Reason.class);
+        Map<ChatMemoryEvictionPolicy.Reason, Integer> spilled = new EnumMap<>(ChatMemoryEvictionPolicy.Reason.class);
+        for (ChatMemoryEvictionPolicy.Eviction eviction : evictionPolicy.select(entries, System.nanoTime())) {
+            String id = eviction.conversationId();
+            Boolean outcome = withConversation(id, () -> {
+                Entry entry = cache.get(id);
+                if (entry == null || entry.lastAccessNanos != snapshotAccess.get(id)) {
+                    return null;
+                }
+                // 先落盘再移出缓存：持有会话锁，同一会话的并发访问要么读到缓存要么读到文件
+                boolean written = spillStore != null && spillStore.write(id, entry.messages);
+                cache.remove(id);
+                account(entry, List.of());
+                return written;
+            });
+            if (outcome != null) {
+                (outcome ? spilled : evicted).merge(eviction.reason(), 1, Integer::sum);
+            }
+        }
+        evicted.forEach((reason, count) -> metricsGateway.recordEvictions(reason, false, count));
+        spilled.forEach((reason, count) -> metricsGateway.recordEvictions(reason, true, count));
+        if (!evicted.isEmpty() || !spilled.isEmpty()) {
+            log.debug("对话记忆淘汰: 丢弃 {}, 落盘 {}, 剩余 {}", evicted, spilled, usage());
+        }
+    }
+
+    /**
+     * 进程内的一个会话；字段只在持有该会话的锁时修改
+     */
+    private static final class Entry {
+        private volatile List<Message> messages = List.of();
+        private volatile long bytes;
+        private volatile long lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * 会话锁；holders 只在 conversationLocks 的 compute 内修改
+     */
+    private static final class ConversationLock {
+        private int holders;
+    }
+}
@@ -0,0 +1,189 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.ConversationId;
+import com.shawn.aiagent.domain.chat.HistoryCompactionPolicy;
+import com.shawn.aiagent.port.chat.ChatHistoryCompactionGateway;
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import com.shawn.aiagent.port.chat.TokenizerGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话历史后台压缩
+ * 实现ChatHistoryCompactionGateway接口：回复流结束后提交检查，在低优先级的单线程上调用摘要模型，
+ * 把较早的轮次折叠成一条摘要，再用 CompactingChatMemory 原子替换。
+ * 摘要存为一条助手消息（以 SUMMARY_PREFIX 开头）而不是系统消息：MessageChatMemoryAdvisor 只把第一条系统消息
+ * 移到最前，记忆里再有系统消息会让模型收到多条系统消息；折叠总在用户轮次处截止，助手摘要后紧跟用户消息，
+ * 角色交替不变。窗口截断经由 SummaryPinningChatMemoryRepository 跳过开头的摘要。
+ *
+ * 请求路径上只有一次入队：下一轮对话不等待摘要；摘要完成前下一轮照常使用未压缩的记忆。
+ * 摘要期间窗口已经滑动（前缀变化）时放弃本次结果，等下一轮结束后重新检查。
+ */
+@Component
+@Slf4j
+public class ChatHistoryCompactor implements ChatHistoryCompactionGateway {
+
+    /**
+     * 摘要消息的前缀，用于识别记忆开头已有的摘要（持久化只保存类型与正文）
+     */
+    static final String SUMMARY_PREFIX = "【早前对话摘要】";
+
+    private static final String SUMMARY_INSTRUCTION = "你负责为一段角色扮演对话做摘要，摘要会替代原文供角色继续对话。"
+            + "保留用户提到的事件、时间、环境、人物关系、感受，以及角色已经提出的判断和用户的反驳；"
+            + "用第三人称陈述，不评论、不续写对话，不超过 %d 字。输入中若有早前摘要，把它与后续对话合并成一份摘要。";
+
+    private final CompactingChatMemory chatMemory;
+    private final ChatClient chatClient;
+    private final TokenizerGateway tokenizerGateway;
+    private final ChatMemoryMetricsGateway metricsGateway;
+    private final HistoryCompactionPolicy compactionPolicy;
+    private final boolean enabled;
+    private final int summaryMaxChars;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+
+    public ChatHistoryCompactor(CompactingChatMemory chatMemory, ChatModel chatModel, TokenizerGateway tokenizerGateway,
+                                ChatMemoryMetricsGateway metricsGateway, ChatMemoryConfig config) {
+        this.chatMemory = chatMemory;
+        this.chatClient = ChatClient.create(chatModel);
+        this.tokenizerGateway = tokenizerGateway;
+        this.metricsGateway = metricsGateway;
+        this.compactionPolicy = new HistoryCompactionPolicy(config.getCompactionTriggerTokens(),
+                config.getCompactionTriggerMessages(), config.getCompactionKeepRecentMessages());
+        this.enabled = config.isCompactionEnabled();
+        this.summaryMaxChars = config.getCompactionSummaryMaxChars();
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, config.getCompactionQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "chat-history-compactor");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void scheduleCompaction(ConversationId conversationId, String systemPrompt) {
+        if (!enabled) {
+            return;
+        }
+        String id = conversationId.getValue();
+        if (!pending.add(id)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    compact(id, systemPrompt);
+                } catch (RuntimeException e) {
+                    metricsGateway.recordCompactionSkipped("error");
+                    log.warn("对话历史压缩失败，保留原记忆: conversationId={}, msg={}", id, e.getMessage(), e);
+                } finally {
+                    pending.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(id);
+            metricsGateway.recordCompactionSkipped("rejected");
+            log.debug("对话历史压缩队列已满，跳过: conversationId={}", id);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void compact(String conversationId, String systemPrompt) {
+        long start = System.nanoTime();
+        List<Message> history = chatMemory.get(conversationId);
+        int[] tokens = new int[history.size()];
+        boolean[] turnStart = new boolean[history.size()];
+        int summaries = 0;
+        for (int i = 0; i < history.size(); i++) {
+            Message message = history.get(i);
+            tokens[i] = tokensOf(message.getText());
+            turnStart[i] = message.getMessageType() == MessageType.USER;
+            if (summaries == i && isSummary(message)) {
+                summaries++;
+            }
+        }
+        int fold = compactionPolicy.foldCount(tokens, turnStart, summaries);
+        if (fold == 0) {
+            return;
+        }
+        List<Message> folded = history.subList(0, fold);
+        String summary = chatClient.prompt()
+                .system(SUMMARY_INSTRUCTION.formatted(summaryMaxChars))
+                .user(transcript(folded))
+                .call()
+                .content();
+        if (summary == null || summary.isBlank()) {
+            metricsGateway.recordCompactionSkipped("error");
+            log.warn("摘要模型返回空内容，保留原记忆: conversationId={}", conversationId);
+            return;
+        }
+        String summaryText = SUMMARY_PREFIX + summary.trim();
+        if (!chatMemory.replacePrefix(conversationId, List.copyOf(folded), new AssistantMessage(summaryText))) {
+            metricsGateway.recordCompactionSkipped("stale");
+            log.debug("摘要期间对话记忆已变化，放弃本次压缩: conversationId={}", conversationId);
+            return;
+        }
+
+        int systemTokens = tokensOf(systemPrompt);
+        int before = systemTokens;
+        int after = systemTokens + tokensOf(summaryText);
+        for (int i = 0; i < tokens.length; i++) {
+            before += tokens[i];
+            if (i >= fold) {
+                after += tokens[i];
+            }
+        }
+        metricsGateway.recordCompaction(before, after, System.nanoTime() - start);
+        log.info("对话历史已压缩: conversationId={}, 折叠 {} 条消息, 提示词 token {} -> {}",
+                conversationId, fold, before, after);
+    }
+
+    private int tokensOf(String text) {
+        return tokenizerGateway.countTokens(text) + tokenizerGateway.perMessageOverhead();
+    }
+
+    static boolean isSummary(Message message) {
+        return message.getMessageType() == MessageType.ASSISTANT
+                && message.getText() != null && message.getText().startsWith(SUMMARY_PREFIX);
+    }
+
+    private static String transcript(List<Message> messages) {
+        StringBuilder transcript = new StringBuilder();
+        for (Message message : messages) {
+            if (message.getMessageType() == MessageType.TOOL) {
+                continue;
+            }
+            String text = message.getText() != null ? message.getText() : "";
+            if (isSummary(message)) {
+                transcript.append("早前摘要：").append(text.substring(SUMMARY_PREFIX.length())).append('\n');
+                continue;
+            }
+            switch (message.getMessageType()) {
+                case USER -> transcript.append("用户：").append(text);
+                default -> transcript.append("角色：").append(text);
+            }
+            transcript.append('\n');
+        }
+        return transcript.toString();
+    }
+}
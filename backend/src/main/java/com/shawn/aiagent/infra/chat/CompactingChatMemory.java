@@ -0,0 +1,84 @@
+package com.shawn.aiagent.infra.chat;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 支持历史压缩的对话记忆
+ * 包装窗口记忆（MessageWindowChatMemory / TokenBudgetChatMemory），让后台压缩的"读-替换-写"
+ * 与对话中的 add/clear 按会话互斥，压缩结果不会覆盖摘要期间新增的消息。
+ *
+ * 窗口记忆经由 SummaryPinningChatMemoryRepository 读写底层仓库，开头的摘要不参与截断；
+ * get 与 replacePrefix 直接读写底层仓库，返回含摘要的完整记忆。
+ *
+ * 锁是分段的（按会话 ID 哈希到固定数量的锁对象），不随会话数增长；持锁区间只有缓存读写，不含摘要模型调用。
+ */
+public class CompactingChatMemory implements ChatMemory {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final ChatMemory delegate;
+    private final ChatMemoryRepository chatMemoryRepository;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public CompactingChatMemory(ChatMemory delegate, ChatMemoryRepository chatMemoryRepository) {
+        this.delegate = delegate;
+        this.chatMemoryRepository = chatMemoryRepository;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        synchronized (lockOf(conversationId)) {
+            delegate.add(conversationId, messages);
+        }
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return chatMemoryRepository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        synchronized (lockOf(conversationId)) {
+            delegate.clear(conversationId);
+        }
+    }
+
+    /**
+     * Intent: 把记忆开头的一段消息替换为一条摘要
+     * Input: conversationId, expectedPrefix (生成摘要时读到的前缀), summary (摘要消息)
+     * Output: boolean (当前记忆已不以 expectedPrefix 开头时返回 false，不做修改)
+     * SideEffects: 改写该会话的记忆
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    public boolean replacePrefix(String conversationId, List<Message> expectedPrefix, Message summary) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        synchronized (lockOf(conversationId)) {
+            List<Message> current = chatMemoryRepository.findByConversationId(conversationId);
+            if (current.size() < expectedPrefix.size()
+                    || !current.subList(0, expectedPrefix.size()).equals(expectedPrefix)) {
+                return false;
+            }
+            List<Message> compacted = new ArrayList<>(current.size() - expectedPrefix.size() + 1);
+            compacted.add(summary);
+            compacted.addAll(current.subList(expectedPrefix.size(), current.size()));
+            chatMemoryRepository.saveAll(conversationId, compacted);
+            return true;
+        }
+    }
+
+    private Object lockOf(String conversationId) {
+        return locks[Math.floorMod(conversationId.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -2,7 +2,10 @@ package com.shawn.aiagent.infra.chat;
 
 import com.shawn.aiagent.domain.chat.ConversationId;
 import com.shawn.aiagent.domain.chat.Message;
+import com.shawn.aiagent.port.chat.ChatGroundingMetricsGateway;
 import com.shawn.aiagent.port.chat.ChatModelGateway;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.port.chat.TokenizerGateway;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.advisor.MessageChatMemoryAdvisor;
@@ -10,42 +13,69 @@ import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import static org.springframework.ai.chat.memory.ChatMemory.CONVERSATION_ID;
 
 /**
  * DashScope聊天模型适配器
  * 实现ChatModelGateway接口，使用Spring AI DashScope
+ * Advisor 顺序：对话记忆（加载历史、保存用户消息）→ 检索增强（等待已在进行中的检索，注入资料）
+ *
+ * 取消：下游取消订阅（客户端断开 SSE）沿 Advisor 链传到 DashScope 的 WebClient 流，上游 HTTP 连接随即关闭，
+ * 不会把剩余输出读完。记忆 Advisor 只在回复流完整结束时保存助手消息，被取消的半截回复不进入记忆
+ * （本轮的用户消息已在请求前保存，保留）。
  */
 @Component
 @Slf4j
 public class DashScopeChatModelAdapter implements ChatModelGateway {
     
     private final ChatClient chatClient;
+    private final TokenizerGateway tokenizerGateway;
+    private final ChatStreamMetricsGateway streamMetricsGateway;
     
     public DashScopeChatModelAdapter(
             ChatModel chatModel,
-            ChatMemory chatMemory) {
+            ChatMemory chatMemory,
+            ChatGroundingMetricsGateway groundingMetricsGateway,
+            TokenizerGateway tokenizerGateway,
+            ChatStreamMetricsGateway streamMetricsGateway) {
+        this.tokenizerGateway = tokenizerGateway;
+        this.streamMetricsGateway = streamMetricsGateway;
         // 构建ChatClient，配置默认Advisor
         this.chatClient = ChatClient.builder(chatModel)
                 .defaultAdvisors(
-                        MessageChatMemoryAdvisor.builder(chatMemory).build()
+                        MessageChatMemoryAdvisor.builder(chatMemory).build(),
+                        new RetrievalGroundingAdvisor(groundingMetricsGateway)
                 )
                 .build();
     }
     
     @Override
-    public Flux<String> streamChat(Message message, ConversationId conversationId, String systemPrompt) {
+    public Flux<String> streamChat(Message message, ConversationId conversationId, String systemPrompt,
+                                   Mono<String> grounding) {
         log.debug("开始流式聊天，会话ID: {}, 消息长度: {}", conversationId.getValue(), message.getContent().length());
         
         try {
-            Flux<String> response = chatClient
-                    .prompt()
-                    .system(systemPrompt != null ? systemPrompt : "")
-                    .user(message.getContent())
-                    .advisors(spec -> spec.param(CONVERSATION_ID, conversationId.getValue()))
-                    .stream()
-                    .content();
+            Flux<String> response = Flux.defer(() -> {
+                // 本次订阅已从上游收到的输出 token 数（按片段累计）
+                int[] generated = {0};
+                return chatClient
+                        .prompt()
+                        .system(systemPrompt != null ? systemPrompt : "")
+                        .user(message.getContent())
+                        .advisors(spec -> spec.param(CONVERSATION_ID, conversationId.getValue())
+                                .param(RetrievalGroundingAdvisor.GROUNDING, grounding != null ? grounding : Mono.empty()))
+                        .stream()
+                        .content()
+                        .doOnNext(chunk -> generated[0] += tokenizerGateway.countTokens(chunk))
+                        .doOnComplete(() -> streamMetricsGateway.recordGenerated(generated[0]))
+                        .doOnCancel(() -> {
+                            log.info("客户端已断开，取消上游生成，会话ID: {}, 已生成 token: {}",
+                                    conversationId.getValue(), generated[0]);
+                            streamMetricsGateway.recordCancelled(generated[0]);
+                        });
+            });
             
             log.debug("流式聊天请求已发送，会话ID: {}", conversationId.getValue());
             return response;
@@ -0,0 +1,167 @@
+package com.shawn.aiagent.infra.chat;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 对话记忆落盘存储（IN_MEMORY 存储的溢出区）
+ * 每个被淘汰的会话一个文件：文件名为会话 ID 的 URL 安全 Base64，内容为 deflate 压缩的
+ * [消息数][类型 1 字节][UTF-8 长度][UTF-8 正文]...，写临时文件后原子改名。
+ *
+ * 落盘内容与进程内存储一样不跨重启保留：启动时清空目录。
+ */
+@Slf4j
+final class FileChatMemorySpillStore {
+
+    private static final String SUFFIX = ".mem";
+    /**
+     * 文件名长度上限内可编码的会话 ID 长度（Base64 膨胀 4/3）
+     */
+    private static final int MAX_ID_BYTES = 180;
+
+    private final Path directory;
+
+    FileChatMemorySpillStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法初始化对话记忆落盘目录: " + directory, e);
+        }
+        log.info("对话记忆落盘目录已就绪: {}", directory);
+    }
+
+    /**
+     * @return 是否写入成功；会话 ID 过长无法作为文件名时返回 false（调用方按丢弃处理）
+     */
+    boolean write(String conversationId, List<Message> messages) {
+        Path target = fileOf(conversationId);
+        if (target == null) {
+            return false;
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp))))) {
+            List<Message> persistable = messages.stream()
+                    .filter(message -> message.getMessageType() != MessageType.TOOL)
+                    .toList();
+            out.writeInt(persistable.size());
+            for (Message message : persistable) {
+                byte[] text = (message.getText() != null ? message.getText() : "").getBytes(StandardCharsets.UTF_8);
+                out.writeByte(message.getMessageType().ordinal());
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        } catch (IOException e) {
+            log.error("对话记忆落盘失败: conversationId={}, msg={}", conversationId, e.getMessage(), e);
+            return false;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            log.error("对话记忆落盘改名失败: conversationId={}, msg={}", conversationId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 读回并删除落盘的会话；不存在时返回 empty
+     */
+    Optional<List<Message>> take(String conversationId) {
+        Path file = fileOf(conversationId);
+        if (file == null) {
+            return Optional.empty();
+        }
+        List<Message> messages;
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new BufferedInputStream(Files.newInputStream(file))))) {
+            int count = in.readInt();
+            messages = new ArrayList<>(count);
+            MessageType[] types = MessageType.values();
+            for (int i = 0; i < count; i++) {
+                MessageType type = types[in.readUnsignedByte()];
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                messages.add(toMessage(type, new String(text, StandardCharsets.UTF_8)));
+            }
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            log.error("对话记忆落盘文件读取失败，按空会话处理: conversationId={}, msg={}", conversationId, e.getMessage(), e);
+            delete(conversationId);
+            return Optional.empty();
+        }
+        delete(conversationId);
+        return Optional.of(messages);
+    }
+
+    void delete(String conversationId) {
+        Path file = fileOf(conversationId);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除对话记忆落盘文件失败: {}, msg={}", file, e.getMessage());
+        }
+    }
+
+    List<String> conversationIds() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> new String(Base64.getUrlDecoder().decode(
+                            name.substring(0, name.length() - SUFFIX.length())), StandardCharsets.UTF_8))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法列出对话记忆落盘目录: " + directory, e);
+        }
+    }
+
+    private Path fileOf(String conversationId) {
+        byte[] id = conversationId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            return null;
+        }
+        return directory.resolve(Base64.getUrlEncoder().withoutPadding().encodeToString(id) + SUFFIX);
+    }
+
+    private static Message toMessage(MessageType type, String content) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            case TOOL -> throw new IllegalStateException("不支持的对话记忆消息类型: " + type);
+        };
+    }
+}
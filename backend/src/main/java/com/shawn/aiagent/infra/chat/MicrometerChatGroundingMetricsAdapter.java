@@ -0,0 +1,51 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.port.chat.ChatGroundingMetricsGateway;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer 对话检索增强指标适配器
+ * 实现ChatGroundingMetricsGateway接口，通过 /actuator/metrics 暴露：
+ * - chat.grounding.retrievals{outcome=hit|low_score|miss|timeout|error}：对话检索结果计数
+ * - chat.grounding.retrieval：请求到达到检索得出结果的耗时（含 p50/p95/p99）
+ * - chat.grounding.wait：模型调用因等待检索而推迟的时长，即检索对首 token 延迟的实际影响
+ */
+@Component
+public class MicrometerChatGroundingMetricsAdapter implements ChatGroundingMetricsGateway {
+
+    private final MeterRegistry meterRegistry;
+    private final Timer retrievalTimer;
+    private final Timer waitTimer;
+
+    public MicrometerChatGroundingMetricsAdapter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.retrievalTimer = Timer.builder("chat.grounding.retrieval")
+                .description("请求到达到对话检索得出结果的耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("chat.grounding.wait")
+                .description("模型调用因等待对话检索而推迟的时长")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordRetrieval(String outcome, long durationNanos) {
+        Counter.builder("chat.grounding.retrievals")
+                .description("对话检索结果计数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+        retrievalTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordWait(long waitNanos) {
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+}
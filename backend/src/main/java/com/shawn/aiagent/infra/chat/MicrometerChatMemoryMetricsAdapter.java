@@ -0,0 +1,89 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.ChatMemoryEvictionPolicy;
+import com.shawn.aiagent.domain.chat.ChatMemoryUsage;
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer 对话记忆指标适配器
+ * 实现ChatMemoryMetricsGateway接口，通过 /actuator/metrics 暴露：
+ * - chat.memory.conversations / chat.memory.messages / chat.memory.bytes：热缓存实时占用（字节为估算值）
+ * - chat.memory.evictions{reason=idle|budget, recoverable=true|false}：被淘汰的会话数（recoverable 表示之后仍可从持久化或落盘存储恢复）
+ * - chat.prompt.tokens{phase=before_compaction|after_compaction}：历史压缩前后的提示词 token 数（系统提示词 + 记忆）
+ * - chat.memory.compaction：历史压缩耗时；chat.memory.compaction.skipped{reason}：未生效的压缩次数
+ */
+@Component
+public class MicrometerChatMemoryMetricsAdapter implements ChatMemoryMetricsGateway {
+
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerChatMemoryMetricsAdapter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void bindUsage(Supplier<ChatMemoryUsage> usage) {
+        gauge("chat.memory.conversations", "热缓存中的会话数", usage, ChatMemoryUsage::getConversations);
+        gauge("chat.memory.messages", "热缓存中的消息数", usage, ChatMemoryUsage::getMessages);
+        gauge("chat.memory.bytes", "热缓存估算占用的堆内存字节数", usage, ChatMemoryUsage::getEstimatedBytes);
+    }
+
+    @Override
+    public void recordEvictions(ChatMemoryEvictionPolicy.Reason reason, boolean recoverable, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder("chat.memory.evictions")
+                .description("从热缓存淘汰的会话数")
+                .tag("reason", reason.name().toLowerCase())
+                .tag("recoverable", String.valueOf(recoverable))
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    @Override
+    public void recordCompaction(int promptTokensBefore, int promptTokensAfter, long durationNanos) {
+        promptTokens("before_compaction").record(promptTokensBefore);
+        promptTokens("after_compaction").record(promptTokensAfter);
+        Timer.builder("chat.memory.compaction")
+                .description("对话历史压缩耗时（含摘要模型调用）")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCompactionSkipped(String reason) {
+        Counter.builder("chat.memory.compaction.skipped")
+                .description("未生效的对话历史压缩次数")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private DistributionSummary promptTokens(String phase) {
+        return DistributionSummary.builder("chat.prompt.tokens")
+                .description("提示词 token 数（系统提示词 + 对话记忆）")
+                .baseUnit("tokens")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+
+    private void gauge(String name, String description, Supplier<ChatMemoryUsage> usage,
+                       ToDoubleFunction<ChatMemoryUsage> reading) {
+        // 调用方通常传入方法引用，没有其他强引用，Gauge 默认的弱引用会被回收
+        Gauge.builder(name, usage, supplier -> reading.applyAsDouble(supplier.get()))
+                .strongReference(true)
+                .description(description)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,172 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Micrometer 流式回复指标适配器
+ * 实现ChatStreamMetricsGateway接口，通过 /actuator/metrics 暴露：
+ * - chat.stream.first.delta：首个增量文本的延迟
+ * - chat.stream.segment{position=first|rest}：段落产出延迟（从请求开始计；first 即用户看到第一个气泡的时间）
+ * - chat.stream.duration / chat.stream.segments：完整回复的总耗时与段落数
+ * - chat.stream.events / chat.stream.frames：合并前的事件数与实际写出的 SSE 帧数（两者之比即合并率）
+ * - chat.stream.active：当前活跃流数（决定合并窗口）
+ * - chat.turn.wait：同一会话的前一轮未结束时，本轮的排队时间
+ * - chat.stream.cancelled：客户端断开而取消的上游生成次数
+ * - chat.stream.tokens{outcome=completed|cancelled}：上游已生成的输出 token 数
+ * - chat.stream.resumes{outcome=replayed|expired|gap}：断线重连的结果
+ * - chat.stream.replay.bytes / chat.stream.replay.messages：回放缓冲的估算占用与回复数
+ * - chat.stream.tokens.saved：取消省下的输出 token 数（估算：完整回复的平均长度减去取消前已生成的部分）
+ */
+@Component
+public class MicrometerChatStreamMetricsAdapter implements ChatStreamMetricsGateway {
+
+    private final Timer firstDelta;
+    private final Timer firstSegment;
+    private final Timer restSegment;
+    private final Timer duration;
+    private final DistributionSummary segments;
+    private final Counter events;
+    private final Counter frames;
+    private final Timer turnWait;
+    private final Counter cancelled;
+    private final Counter completedTokens;
+    private final Counter cancelledTokens;
+    private final Counter savedTokens;
+    /**
+     * 完整回复输出 token 数的指数移动平均；尚无完整回复时为 0（不估算节省）
+     */
+    private double meanCompletedTokens;
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerChatStreamMetricsAdapter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.firstDelta = Timer.builder("chat.stream.first.delta")
+                .description("首个增量文本的延迟")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.firstSegment = segmentTimer(meterRegistry, "first");
+        this.restSegment = segmentTimer(meterRegistry, "rest");
+        this.duration = Timer.builder("chat.stream.duration")
+                .description("流式回复总耗时")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.segments = DistributionSummary.builder("chat.stream.segments")
+                .description("每次回复的段落数")
+                .register(meterRegistry);
+        this.events = Counter.builder("chat.stream.events")
+                .description("合并前的流式事件数")
+                .register(meterRegistry);
+        this.frames = Counter.builder("chat.stream.frames")
+                .description("写出的 SSE 帧数")
+                .register(meterRegistry);
+        this.turnWait = Timer.builder("chat.turn.wait")
+                .description("同一会话内排队等待前一轮结束的时间")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.cancelled = Counter.builder("chat.stream.cancelled")
+                .description("客户端断开而取消的上游生成次数")
+                .register(meterRegistry);
+        this.completedTokens = tokenCounter(meterRegistry, "completed");
+        this.cancelledTokens = tokenCounter(meterRegistry, "cancelled");
+        this.savedTokens = Counter.builder("chat.stream.tokens.saved")
+                .description("取消上游生成省下的输出 token 数（估算）")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordFirstDelta(long sinceStartNanos) {
+        firstDelta.record(sinceStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordSegment(int index, long sinceStartNanos) {
+        (index == 0 ? firstSegment : restSegment).record(sinceStartNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCompleted(int segmentCount, long durationNanos) {
+        duration.record(durationNanos, TimeUnit.NANOSECONDS);
+        segments.record(segmentCount);
+    }
+
+    @Override
+    public void recordFrames(int eventCount, int frameCount) {
+        events.increment(eventCount);
+        frames.increment(frameCount);
+    }
+
+    @Override
+    public void recordTurnWait(long waitNanos) {
+        turnWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordGenerated(int outputTokens) {
+        completedTokens.increment(outputTokens);
+        synchronized (this) {
+            meanCompletedTokens = meanCompletedTokens == 0 ? outputTokens : meanCompletedTokens * 0.9 + outputTokens * 0.1;
+        }
+    }
+
+    @Override
+    public void recordCancelled(int generatedTokens) {
+        cancelled.increment();
+        cancelledTokens.increment(generatedTokens);
+        double expected;
+        synchronized (this) {
+            expected = meanCompletedTokens;
+        }
+        savedTokens.increment(Math.max(0, expected - generatedTokens));
+    }
+
+    @Override
+    public void recordResume(String outcome) {
+        Counter.builder("chat.stream.resumes")
+                .description("断线重连次数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @Override
+    public void bindReplayBuffer(LongSupplier bytes, IntSupplier messages) {
+        Gauge.builder("chat.stream.replay.bytes", bytes::getAsLong)
+                .description("回放缓冲估算占用的堆内存字节数")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.replay.messages", messages::getAsInt)
+                .description("回放缓冲中的回复数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void bindActiveStreams(IntSupplier activeStreams) {
+        Gauge.builder("chat.stream.active", activeStreams::getAsInt)
+                .description("当前活跃的流式回复数")
+                .register(meterRegistry);
+    }
+
+    private static Counter tokenCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("chat.stream.tokens")
+                .description("上游已生成的输出 token 数")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer segmentTimer(MeterRegistry meterRegistry, String position) {
+        return Timer.builder("chat.stream.segment")
+                .description("段落产出延迟（从请求开始计）")
+                .tag("position", position)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+}
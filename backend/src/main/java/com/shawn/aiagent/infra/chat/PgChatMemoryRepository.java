@@ -0,0 +1,557 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.ChatMemoryEvictionPolicy;
+import com.shawn.aiagent.domain.chat.ChatMemoryUsage;
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL 对话记忆仓库
+ * 实现 Spring AI ChatMemoryRepository：热会话在进程内缓存，写入经 write-behind 队列异步落库
+ *
+ * 每条消息一行 (conversation_id, seq)，seq 在会话内单调递增。MessageWindowChatMemory 每次 saveAll 传入整个窗口，
+ * 这里与缓存中的旧窗口比对，只把"新追加的消息"和"窗口前端被挤出的 seq 水位"记入该会话的待落库状态，不重写整个窗口。
+ * 待落库状态按会话合并：会话在队列中至多出现一次，落库前的多次 saveAll 合并为一次写入，已被挤出窗口的消息不再插入。
+ * 后台单线程把队列中多个会话的写入合并为一个事务：一次批量 INSERT，再按会话批量 DELETE 水位以下的行。
+ *
+ * - 读：命中缓存直接返回；未命中（包括重启后首次访问）才按主键范围从库中加载该会话
+ * - 写：saveAll 更新缓存并合并待落库状态，从不等待数据库或队列空位（调用方可能是 reactor-netty 事件循环线程）。
+ *   队列满时会话留在"待入队"状态（计数 chat.memory.write.deferred），由刷写线程腾出空位后或定时扫描时补入队列，
+ *   写入不会丢失。同一会话的落库按 seq 顺序进行，水位不会被较早的写入回退
+ * - 淘汰：按 ChatMemoryEvictionPolicy 淘汰空闲超时或超出字节/会话数预算的会话（定时扫描 + 超预算时立即触发）；
+ *   仍有未落库写入的会话不淘汰，因此重新加载总能读到最新窗口；正在被读写的会话（pins > 0）也不淘汰，
+ *   单个会话超出预算或会话数上限为 1 时，调用方不会反复加载-被淘汰-重试
+ * - 进程崩溃会丢失最近一个刷写间隔内未落库的消息；正常关闭时先刷完队列
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.chat.memory", name = "store", havingValue = "POSTGRES", matchIfMissing = true)
+@Slf4j
+public class PgChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+    private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatMemoryConfig config;
+    private final String table;
+    private final Map<String, HotConversation> cache = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final AtomicLong cachedMessages = new AtomicLong();
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final ChatMemoryEvictionPolicy evictionPolicy;
+    private final ChatMemoryMetricsGateway metricsGateway;
+    private final BlockingQueue<HotConversation> writeQueue;
+    private final Counter deferredWrites;
+    private final Thread flusher;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-memory-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+    private volatile boolean schemaReady = false;
+    private volatile boolean hasDeferred = false;
+
+    public PgChatMemoryRepository(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            ChatMemoryConfig config,
+            ChatMemoryMetricsGateway metricsGateway,
+            MeterRegistry meterRegistry) {
+        String tableName = config.getTableName();
+        if (tableName == null || !IDENTIFIER.matcher(tableName.trim()).matches()) {
+            throw new IllegalArgumentException("非法的对话记忆表名: " + tableName);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        this.table = tableName.trim();
+        this.metricsGateway = metricsGateway;
+        this.evictionPolicy = new ChatMemoryEvictionPolicy(Duration.ofMinutes(config.getIdleTtlMinutes()),
+                config.getHotCacheMaxBytes(), config.getHotCacheMaxConversations());
+        metricsGateway.bindUsage(this::usage);
+        this.writeQueue = new ArrayBlockingQueue<>(Math.max(1, config.getWriteQueueCapacity()));
+        Gauge.builder("chat.memory.write.queue", writeQueue, BlockingQueue::size)
+                .description("等待落库的对话记忆写入数")
+                .register(meterRegistry);
+        this.deferredWrites = Counter.builder("chat.memory.write.deferred")
+                .description("因 write-behind 队列已满而推迟入队的写入数（稍后补入队列，不丢失）")
+                .register(meterRegistry);
+        this.flusher = new Thread(this::flushLoop, "chat-memory-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        long sweepInterval = Math.max(1, config.getSweepIntervalSeconds());
+        sweeper.scheduleWithFixedDelay(this::evictSafely, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Intent: 热缓存当前占用
+     * Input: 无
+     * Output: ChatMemoryUsage
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    public ChatMemoryUsage usage() {
+        return new ChatMemoryUsage(cache.size(), cachedMessages.get(), cachedBytes.get());
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        ensureSchema();
+        Set<String> ids = new LinkedHashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT conversation_id FROM " + table, String.class));
+        // 缓存比库新：未落库的新会话要补上，已清空但未落库的会话要去掉
+        cache.forEach((id, conversation) -> {
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    return;
+                }
+                if (conversation.messages.isEmpty()) {
+                    ids.remove(id);
+                } else {
+                    ids.add(id);
+                }
+            }
+        });
+        return new ArrayList<>(ids);
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        HotConversation conversation = acquire(conversationId);
+        try {
+            synchronized (conversation) {
+                return conversation.messages;
+            }
+        } finally {
+            release(conversation);
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        List<Message> updated = List.copyOf(messages);
+        HotConversation conversation = acquire(conversationId);
+        try {
+            synchronized (conversation) {
+                List<Message> old = conversation.messages;
+                int dropped = droppedFromFront(old, updated);
+                List<Message> appended = updated.subList(old.size() - dropped, updated.size());
+                if (dropped > 0 || !appended.isEmpty()) {
+                    conversation.merge(appended, conversation.firstSeq + dropped);
+                    enqueue(conversation);
+                }
+                conversation.messages = updated;
+                account(conversation, updated);
+                conversation.firstSeq += dropped;
+                conversation.nextSeq += appended.size();
+            }
+        } finally {
+            release(conversation);
+        }
+        evictIfOverBudget();
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        // 清空窗口即把水位推到 nextSeq；缓存保留空会话，避免落库前的重新加载读到旧消息
+        saveAll(conversationId, List.of());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        running = false;
+        flusher.interrupt();
+        try {
+            flusher.join(SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!writeQueue.isEmpty()) {
+            log.warn("关闭时仍有 {} 个对话记忆写入未落库", writeQueue.size());
+        }
+    }
+
+    /**
+     * 旧窗口的后缀与新窗口的前缀重合时，旧窗口前端被挤出的消息数；完全不重合时为旧窗口大小（整体替换）
+     */
+    static int droppedFromFront(List<Message> old, List<Message> updated) {
+        for (int dropped = 0; dropped < old.size(); dropped++) {
+            int kept = old.size() - dropped;
+            if (kept <= updated.size() && old.subList(dropped, old.size()).equals(updated.subList(0, kept))) {
+                return dropped;
+            }
+        }
+        return old.size();
+    }
+
+    /**
+     * 取得（必要时加载）并钉住会话：钉住期间不会被淘汰，调用方用完后必须 release
+     * 只有在 computeIfAbsent 与加锁之间恰好被淘汰时才重试一次，拿到的是新建的会话对象
+     */
+    private HotConversation acquire(String conversationId) {
+        while (true) {
+            HotConversation conversation = cache.computeIfAbsent(conversationId, HotConversation::new);
+            synchronized (conversation) {
+                if (conversation.evicted) {
+                    continue;
+                }
+                if (!conversation.loaded) {
+                    load(conversationId, conversation);
+                }
+                conversation.lastAccessNanos = System.nanoTime();
+                conversation.pins++;
+            }
+            evictIfOverBudget();
+            return conversation;
+        }
+    }
+
+    private void release(HotConversation conversation) {
+        synchronized (conversation) {
+            conversation.pins--;
+        }
+    }
+
+    /**
+     * 懒加载：只在会话首次被访问时读库（持有该会话的锁，同一会话的并发访问等待同一次加载）
+     */
+    private void load(String conversationId, HotConversation conversation) {
+        ensureSchema();
+        List<Long> seqs = new ArrayList<>();
+        List<Message> messages = new ArrayList<>();
+        jdbcTemplate.query("SELECT seq, message_type, content FROM " + table
+                        + " WHERE conversation_id = ? ORDER BY seq",
+                rs -> {
+                    seqs.add(rs.getLong("seq"));
+                    messages.add(toMessage(MessageType.valueOf(rs.getString("message_type")), rs.getString("content")));
+                },
+                conversationId);
+        conversation.messages = List.copyOf(messages);
+        account(conversation, conversation.messages);
+        conversation.firstSeq = seqs.isEmpty() ? 0 : seqs.get(0);
+        conversation.nextSeq = seqs.isEmpty() ? 0 : seqs.get(seqs.size() - 1) + 1;
+        conversation.loaded = true;
+        log.debug("对话记忆已从库中加载: conversationId={}, messages={}", conversationId, messages.size());
+    }
+
+    /**
+     * 更新会话的估算占用并同步到全局计数（持有该会话的锁）
+     */
+    private void account(HotConversation conversation, List<Message> messages) {
+        long bytes = ChatMemoryEvictionPolicy.conversationOverheadBytes();
+        for (Message message : messages) {
+            bytes += ChatMemoryEvictionPolicy.estimateMessageBytes(message.getText());
+        }
+        cachedMessages.addAndGet(messages.size() - conversation.accountedMessages);
+        cachedBytes.addAndGet(bytes - conversation.bytes);
+        conversation.accountedMessages = messages.size();
+        conversation.bytes = bytes;
+    }
+
+    private void evictIfOverBudget() {
+        if (evictionPolicy.overBudget(cachedBytes.get(), cache.size())) {
+            evict();
+        }
+    }
+
+    private void evictSafely() {
+        try {
+            if (hasDeferred) {
+                requeueDeferred();
+            }
+            evict();
+        } catch (RuntimeException e) {
+            log.error("对话记忆淘汰扫描失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按淘汰策略移出会话；正被读写、快照之后又被访问过或有了未落库写入的会话本轮跳过
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            List<ChatMemoryEvictionPolicy.Entry> entries = new ArrayList<>(cache.size());
+            cache.forEach((id, conversation) -> entries.add(new ChatMemoryEvictionPolicy.Entry(
+                    id, conversation.lastAccessNanos, conversation.bytes,
+                    !conversation.hasUnflushedWrites() && conversation.pins == 0)));
+            Map<String, Long> snapshotAccess = new LinkedHashMap<>();
+            entries.forEach(entry -> snapshotAccess.put(entry.conversationId(), entry.lastAccessNanos()));
+            Map<ChatMemoryEvictionPolicy.Reason, Integer> evicted = new EnumMap<>(ChatMemoryEvictionPolicy.Reason.class);
+            for (ChatMemoryEvictionPolicy.Eviction eviction : evictionPolicy.select(entries, System.nanoTime())) {
+                HotConversation conversation = cache.get(eviction.conversationId());
+                if (conversation == null) {
+                    continue;
+                }
+                synchronized (conversation) {
+                    if (!conversation.loaded || conversation.hasUnflushedWrites() || conversation.pins > 0 || conversation.evicted
+                            || conversation.lastAccessNanos != snapshotAccess.get(eviction.conversationId())) {
+                        continue;
+                    }
+                    conversation.evicted = true;
+                    cache.remove(eviction.conversationId(), conversation);
+                    cachedMessages.addAndGet(-conversation.accountedMessages);
+                    cachedBytes.addAndGet(-conversation.bytes);
+                }
+                evicted.merge(eviction.reason(), 1, Integer::sum);
+            }
+            // 会话已落库，淘汰后仍可按需重新加载
+            evicted.forEach((reason, count) -> metricsGateway.recordEvictions(reason, true, count));
+            if (!evicted.isEmpty()) {
+                log.debug("对话记忆热缓存淘汰: {}, 剩余 {}", evicted, usage());
+            }
+        }
+    }
+
+    /**
+     * 会话有待落库内容且不在队列中时入队（持有该会话的锁）；队列满时不等待，记为推迟，由刷写线程或定时扫描补入
+     */
+    private void enqueue(HotConversation conversation) {
+        if (conversation.queued) {
+            return;
+        }
+        conversation.queued = writeQueue.offer(conversation);
+        if (!conversation.queued) {
+            hasDeferred = true;
+            deferredWrites.increment();
+            log.debug("对话记忆写入队列已满（{}），推迟入队: conversationId={}", writeQueue.size(), conversation.id);
+        }
+    }
+
+    /**
+     * 把因队列满而推迟的会话补入队列；仍放不下的留待下一次
+     */
+    private void requeueDeferred() {
+        hasDeferred = false;
+        for (HotConversation conversation : cache.values()) {
+            synchronized (conversation) {
+                if (conversation.dirty && !conversation.evicted) {
+                    enqueue(conversation);
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        long interval = Math.max(1, config.getFlushIntervalMillis());
+        int batchSize = Math.max(1, config.getFlushBatchSize());
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        List<HotConversation> drained = new ArrayList<>(batchSize);
+        while (running || !writeQueue.isEmpty() || hasDeferred) {
+            try {
+                if (batch.isEmpty()) {
+                    if (hasDeferred && writeQueue.remainingCapacity() > 0) {
+                        requeueDeferred();
+                    }
+                    HotConversation first = running ? writeQueue.poll(interval, TimeUnit.MILLISECONDS) : writeQueue.poll();
+                    if (first == null) {
+                        continue;
+                    }
+                    drained.add(first);
+                    writeQueue.drainTo(drained, batchSize - 1);
+                    for (HotConversation conversation : drained) {
+                        synchronized (conversation) {
+                            batch.add(conversation.takePending());
+                        }
+                    }
+                    drained.clear();
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // 关闭信号：running 已为 false，继续把队列刷完
+                if (running) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            } catch (RuntimeException e) {
+                log.error("对话记忆落库失败，{} 个写入将重试: {}", batch.size(), e.getMessage(), e);
+                if (!running) {
+                    return;
+                }
+                try {
+                    Thread.sleep(Math.max(1, config.getRetryDelayMillis()));
+                } catch (InterruptedException ignored) {
+                    // 关闭期间直接进入下一轮重试
+                }
+            }
+        }
+    }
+
+    /**
+     * 一个事务：先插入全部新消息，再按会话删除水位以下的行（水位单调，先插后删不会留下应删的行）
+     */
+    private void flush(List<PendingWrite> batch) {
+        ensureSchema();
+        List<Object[]> inserts = new ArrayList<>();
+        Map<String, Long> trims = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            long seq = write.seqStart();
+            for (Message message : write.messages()) {
+                long current = seq++;
+                // 未注册工具，TOOL 消息不会出现在窗口中；只持久化可还原的文本消息
+                if (message.getMessageType() == MessageType.TOOL) {
+                    continue;
+                }
+                inserts.add(new Object[]{write.conversationId(), current,
+                        message.getMessageType().name(), message.getText() != null ? message.getText() : ""});
+            }
+            if (write.trimBefore() > 0) {
+                trims.merge(write.conversationId(), write.trimBefore(), Math::max);
+            }
+        }
+        List<Object[]> deletes = new ArrayList<>(trims.size());
+        trims.forEach((conversationId, trimBefore) -> deletes.add(new Object[]{conversationId, trimBefore}));
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate("INSERT INTO " + table + " (conversation_id, seq, message_type, content)"
+                        + " VALUES (?, ?, ?, ?) ON CONFLICT (conversation_id, seq) DO NOTHING", inserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE conversation_id = ? AND seq < ?", deletes);
+            }
+        });
+        for (PendingWrite write : batch) {
+            synchronized (write.conversation()) {
+                write.conversation().inFlight--;
+            }
+        }
+        log.debug("对话记忆落库: 写入 {}, 会话 {}, 插入 {} 行", batch.size(), trims.size(), inserts.size());
+    }
+
+    private static Message toMessage(MessageType type, String content) {
+        return switch (type) {
+            case USER -> new UserMessage(content);
+            case ASSISTANT -> new AssistantMessage(content);
+            case SYSTEM -> new SystemMessage(content);
+            case TOOL -> throw new IllegalStateException("不支持的对话记忆消息类型: " + type);
+        };
+    }
+
+    /**
+     * 懒建表：应用启动时数据库不一定可用，首次访问时再建
+     */
+    private void ensureSchema() {
+        if (schemaReady) {
+            return;
+        }
+        synchronized (this) {
+            if (schemaReady) {
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "conversation_id text NOT NULL, "
+                    + "seq bigint NOT NULL, "
+                    + "message_type varchar(16) NOT NULL, "
+                    + "content text NOT NULL, "
+                    + "created_at timestamptz NOT NULL DEFAULT now(), "
+                    + "PRIMARY KEY (conversation_id, seq))");
+            schemaReady = true;
+            log.info("对话记忆表已就绪: {}", table);
+        }
+    }
+
+    /**
+     * 热缓存中的一个会话；字段由该对象的锁保护
+     * 待落库状态：unflushed 为 seq 从 unflushedSeqStart 起连续追加、尚未交给刷写线程的消息，trimBefore 为待删除的水位（0 表示无）
+     */
+    private static final class HotConversation {
+        private final String id;
+        private List<Message> messages = List.of();
+        private long firstSeq;
+        private long nextSeq;
+        private final List<Message> unflushed = new ArrayList<>();
+        private long unflushedSeqStart;
+        private long trimBefore;
+        private boolean dirty;
+        private boolean queued;
+        private int inFlight;
+        private int pins;
+        private int accountedMessages;
+        private volatile long bytes;
+        private boolean loaded;
+        private boolean evicted;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private HotConversation(String id) {
+            this.id = id;
+        }
+
+        /**
+         * 并入一次 saveAll 的变化：appended 从当前 nextSeq 起追加，窗口起点推进到 newFirstSeq；
+         * 尚未落库又已被挤出窗口的消息直接丢弃，不再插入
+         */
+        private void merge(List<Message> appended, long newFirstSeq) {
+            if (!dirty) {
+                unflushedSeqStart = nextSeq;
+                dirty = true;
+            }
+            unflushed.addAll(appended);
+            if (newFirstSeq > firstSeq) {
+                trimBefore = Math.max(trimBefore, newFirstSeq);
+            }
+            int skipped = (int) Math.min(unflushed.size(), Math.max(0, newFirstSeq - unflushedSeqStart));
+            unflushed.subList(0, skipped).clear();
+            unflushedSeqStart += skipped;
+        }
+
+        /**
+         * 刷写线程取走待落库状态；落库完成前 inFlight > 0，会话不会被淘汰
+         */
+        private PendingWrite takePending() {
+            PendingWrite write = new PendingWrite(this, id, unflushedSeqStart, List.copyOf(unflushed), trimBefore);
+            unflushed.clear();
+            trimBefore = 0;
+            dirty = false;
+            queued = false;
+            inFlight++;
+            return write;
+        }
+
+        private boolean hasUnflushedWrites() {
+            return dirty || inFlight > 0;
+        }
+    }
+
+    /**
+     * 一次落库：从 seqStart 起追加 messages，并删除 seq < trimBefore 的行（trimBefore 为 0 时不删除）
+     */
+    private record PendingWrite(HotConversation conversation, String conversationId, long seqStart,
+                                List<Message> messages, long trimBefore) {
+    }
+}
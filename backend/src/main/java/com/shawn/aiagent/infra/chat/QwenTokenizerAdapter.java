@@ -0,0 +1,61 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.BytePairEncoder;
+import com.shawn.aiagent.domain.rag.TokenEstimationPolicy;
+import com.shawn.aiagent.port.chat.TokenizerGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Qwen 本地分词器适配器
+ * 从 app.chat.memory.tokenizer-vocab 加载 qwen.tiktoken 词表，用 BytePairEncoder 在进程内计数，不调用远端接口。
+ * 未配置词表时退化为 TokenEstimationPolicy 的启发式估算（CJK 1 token/字，其余 4 字符/token）。
+ */
+@Component
+@Slf4j
+public class QwenTokenizerAdapter implements TokenizerGateway {
+
+    /**
+     * Qwen 对话模板每条消息的开销：<|im_start|> role \n ... <|im_end|> \n
+     */
+    private static final int CHAT_TEMPLATE_TOKENS_PER_MESSAGE = 5;
+
+    private final BytePairEncoder encoder;
+    private final TokenEstimationPolicy estimationPolicy = new TokenEstimationPolicy();
+
+    public QwenTokenizerAdapter(ChatMemoryConfig config) {
+        String vocab = config.getTokenizerVocab();
+        if (vocab == null || vocab.isBlank()) {
+            log.warn("未配置 app.chat.memory.tokenizer-vocab，对话记忆按启发式估算 token 数");
+            this.encoder = null;
+            return;
+        }
+        Path path = Path.of(vocab.trim());
+        try {
+            this.encoder = BytePairEncoder.fromTiktoken(Files.readAllLines(path, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取分词器词表: " + path, e);
+        }
+        log.info("Qwen 分词器词表已加载: {}, 词表大小 {}", path, encoder.vocabularySize());
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (encoder != null) {
+            return encoder.count(text);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, estimationPolicy.estimate(text));
+    }
+
+    @Override
+    public int perMessageOverhead() {
+        return CHAT_TEMPLATE_TOKENS_PER_MESSAGE;
+    }
+}
@@ -0,0 +1,70 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.port.chat.ChatGroundingMetricsGateway;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.Advisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAdvisorChain;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 检索增强 Advisor
+ * 排在对话记忆 Advisor 之后：检索在请求到达时已经开始（由调用方通过 GROUNDING 参数传入进行中的结果），
+ * 这里只等待剩余部分，把资料附加到本轮用户消息后交给模型。
+ *
+ * 附加发生在记忆 Advisor 保存用户消息之后，资料只进入本轮提示词，不写入对话记忆。
+ * 传入的结果须自带延迟预算（超时即为空串），本 Advisor 不再另设超时。
+ */
+public class RetrievalGroundingAdvisor implements StreamAdvisor {
+
+    /**
+     * Advisor 参数名：值为 Mono&lt;String&gt;，完成时给出待注入的资料（空串表示本轮不注入）
+     */
+    public static final String GROUNDING = "chat_grounding";
+
+    private static final String CONTEXT_TEMPLATE = "%s\n\n"
+            + "（以下资料与这句话可能相关，仅供你自然地参考，不要提及资料的存在）\n"
+            + "---\n%s\n---";
+
+    private final ChatGroundingMetricsGateway metricsGateway;
+
+    public RetrievalGroundingAdvisor(ChatGroundingMetricsGateway metricsGateway) {
+        this.metricsGateway = metricsGateway;
+    }
+
+    @Override
+    public Flux<ChatClientResponse> adviseStream(ChatClientRequest request, StreamAdvisorChain chain) {
+        if (!(request.context().get(GROUNDING) instanceof Mono<?> grounding)) {
+            return chain.nextStream(request);
+        }
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return grounding.ofType(String.class)
+                            .defaultIfEmpty("")
+                            .doOnNext(context -> metricsGateway.recordWait(System.nanoTime() - start));
+                })
+                .map(context -> context.isBlank() ? request : augment(request, context))
+                .flatMapMany(chain::nextStream);
+    }
+
+    @Override
+    public String getName() {
+        return RetrievalGroundingAdvisor.class.getSimpleName();
+    }
+
+    @Override
+    public int getOrder() {
+        // 记忆 Advisor 先加载历史并保存原始用户消息
+        return Advisor.DEFAULT_CHAT_MEMORY_PRECEDENCE_ORDER + 100;
+    }
+
+    private static ChatClientRequest augment(ChatClientRequest request, String context) {
+        Prompt prompt = request.prompt().augmentUserMessage(userMessage -> userMessage.mutate()
+                .text(CONTEXT_TEMPLATE.formatted(userMessage.getText(), context))
+                .build());
+        return request.mutate().prompt(prompt).build();
+    }
+}
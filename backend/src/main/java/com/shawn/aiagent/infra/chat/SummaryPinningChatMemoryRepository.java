@@ -0,0 +1,58 @@
+package com.shawn.aiagent.infra.chat;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把历史摘要排除在窗口截断之外的仓库视图
+ * 摘要以普通的助手消息存放在记忆开头（见 ChatHistoryCompactor），窗口记忆（MessageWindowChatMemory /
+ * TokenBudgetChatMemory）只固定系统消息，会把它当作最早的一轮截掉。窗口记忆经由本视图读写：
+ * 读时去掉开头的摘要，写时把仓库中现有的摘要放回开头，摘要因此不计入 max-messages / max-tokens，
+ * 其长度由 compaction-summary-max-chars 限制。
+ *
+ * 完整记忆（含摘要）仍从底层仓库读取：CompactingChatMemory.get 与 replacePrefix 直接访问底层仓库。
+ */
+public class SummaryPinningChatMemoryRepository implements ChatMemoryRepository {
+
+    private final ChatMemoryRepository delegate;
+
+    public SummaryPinningChatMemoryRepository(ChatMemoryRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return delegate.findConversationIds();
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        List<Message> messages = delegate.findByConversationId(conversationId);
+        return leadingSummary(messages) != null ? messages.subList(1, messages.size()) : messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Message summary = leadingSummary(delegate.findByConversationId(conversationId));
+        if (summary == null || messages.isEmpty()) {
+            delegate.saveAll(conversationId, messages);
+            return;
+        }
+        List<Message> pinned = new ArrayList<>(messages.size() + 1);
+        pinned.add(summary);
+        pinned.addAll(messages);
+        delegate.saveAll(conversationId, pinned);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        delegate.deleteByConversationId(conversationId);
+    }
+
+    private static Message leadingSummary(List<Message> messages) {
+        return !messages.isEmpty() && ChatHistoryCompactor.isSummary(messages.get(0)) ? messages.get(0) : null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.TokenWindowPolicy;
+import com.shawn.aiagent.port.chat.TokenizerGateway;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 按 token 预算截断的对话记忆
+ * 与 MessageWindowChatMemory 的区别只在截断规则：保留能放进 token 预算的最新一段消息（见 TokenWindowPolicy），
+ * 而不是固定条数。系统消息的处理与 MessageWindowChatMemory 一致：新的系统消息替换旧的，且总是保留。
+ *
+ * 每条消息的 token 数按消息实例缓存（弱引用键，随仓库热缓存中的消息一起回收），同一会话每轮只对新消息分词。
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private final ChatMemoryRepository chatMemoryRepository;
+    private final TokenizerGateway tokenizerGateway;
+    private final TokenWindowPolicy windowPolicy;
+    private final Map<Message, Integer> tokenCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public TokenBudgetChatMemory(ChatMemoryRepository chatMemoryRepository, TokenizerGateway tokenizerGateway,
+                                 TokenWindowPolicy windowPolicy) {
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.tokenizerGateway = tokenizerGateway;
+        this.windowPolicy = windowPolicy;
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        List<Message> memoryMessages = chatMemoryRepository.findByConversationId(conversationId);
+        chatMemoryRepository.saveAll(conversationId, process(memoryMessages, messages));
+    }
+
+    @Override
+    public List<Message> get(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return chatMemoryRepository.findByConversationId(conversationId);
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        chatMemoryRepository.deleteByConversationId(conversationId);
+    }
+
+    private List<Message> process(List<Message> memoryMessages, List<Message> newMessages) {
+        boolean hasNewSystemMessage = newMessages.stream()
+                .filter(SystemMessage.class::isInstance)
+                .anyMatch(message -> !memoryMessages.contains(message));
+        List<Message> merged = new ArrayList<>(memoryMessages.size() + newMessages.size());
+        for (Message message : memoryMessages) {
+            if (!hasNewSystemMessage || !(message instanceof SystemMessage)) {
+                merged.add(message);
+            }
+        }
+        merged.addAll(newMessages);
+
+        int[] tokens = new int[merged.size()];
+        boolean[] pinned = new boolean[merged.size()];
+        for (int i = 0; i < merged.size(); i++) {
+            Message message = merged.get(i);
+            tokens[i] = tokensOf(message);
+            pinned[i] = message instanceof SystemMessage;
+        }
+        boolean[] kept = windowPolicy.keep(tokens, pinned);
+        List<Message> window = new ArrayList<>(merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            if (kept[i]) {
+                window.add(merged.get(i));
+            }
+        }
+        return window;
+    }
+
+    private int tokensOf(Message message) {
+        Integer cached = tokenCache.get(message);
+        if (cached != null) {
+            return cached;
+        }
+        int tokens = tokenizerGateway.countTokens(message.getText()) + tokenizerGateway.perMessageOverhead();
+        tokenCache.put(message, tokens);
+        return tokens;
+    }
+}
@@ -1,5 +1,11 @@
 package com.shawn.aiagent.infra.chat.config;
 
+import com.shawn.aiagent.domain.chat.TokenWindowPolicy;
+import com.shawn.aiagent.infra.chat.CompactingChatMemory;
+import com.shawn.aiagent.infra.chat.SummaryPinningChatMemoryRepository;
+import com.shawn.aiagent.infra.chat.TokenBudgetChatMemory;
+import com.shawn.aiagent.port.chat.TokenizerGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
 import org.springframework.ai.chat.memory.MessageWindowChatMemory;
@@ -8,17 +14,29 @@ import org.springframework.context.annotation.Configuration;
 
 /**
  * 消息窗口配置
- * 配置对话记忆的消息窗口大小
+ * max-tokens > 0 时按 token 预算截断（TokenBudgetChatMemory，条数上限仍为 max-messages），否则只按条数截断；
+ * 窗口记忆经由 SummaryPinningChatMemoryRepository 访问仓库，历史摘要不参与截断；
+ * 外层包一层 CompactingChatMemory，供后台历史压缩与对话中的写入互斥；
+ * 仓库由 app.chat.memory.store 决定
+ * （POSTGRES 为 PgChatMemoryRepository，IN_MEMORY 为有界的 BoundedInMemoryChatMemoryRepository）
  */
 @Configuration
 public class MessageWindowConfig {
 
     @Bean
-    public ChatMemory chatMemory(ChatMemoryRepository chatMemoryRepository){
-        return MessageWindowChatMemory.builder()
-                .chatMemoryRepository(chatMemoryRepository)
-                .maxMessages(10)
-                .build();
+    public CompactingChatMemory chatMemory(ChatMemoryRepository chatMemoryRepository, ChatMemoryConfig chatMemoryConfig,
+                                           TokenizerGateway tokenizerGateway){
+        ChatMemoryRepository windowRepository = new SummaryPinningChatMemoryRepository(chatMemoryRepository);
+        ChatMemory window;
+        if (chatMemoryConfig.getMaxTokens() > 0) {
+            window = new TokenBudgetChatMemory(windowRepository, tokenizerGateway,
+                    new TokenWindowPolicy(chatMemoryConfig.getMaxTokens(), chatMemoryConfig.getMaxMessages()));
+        } else {
+            window = MessageWindowChatMemory.builder()
+                    .chatMemoryRepository(windowRepository)
+                    .maxMessages(chatMemoryConfig.getMaxMessages())
+                    .build();
+        }
+        return new CompactingChatMemory(window, chatMemoryRepository);
     }
 }
-
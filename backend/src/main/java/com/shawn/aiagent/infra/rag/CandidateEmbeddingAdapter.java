@@ -0,0 +1,38 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.port.rag.CandidateEmbeddingGateway;
+import com.shawn.aiagent.port.rag.EmbeddingGateway;
+
+import java.util.List;
+
+/**
+ * 候选模型查询向量化适配器
+ * 委托给绑定候选模型的 DashScopeEmbeddingAdapter；单独成类而不直接暴露 DashScopeEmbeddingAdapter，
+ * 避免候选 bean 同时匹配 SlaEmbeddingGateway / ReindexEmbeddingGateway 注入点
+ */
+public class CandidateEmbeddingAdapter implements CandidateEmbeddingGateway {
+
+    private final EmbeddingGateway delegate;
+
+    public CandidateEmbeddingAdapter(EmbeddingGateway delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int getDimensions() {
+        return delegate.getDimensions();
+    }
+
+    @Override
+    public List<Double> embed(String text) {
+        return delegate.embed(text);
+    }
+
+    @Override
+    public List<List<Double>> embedAll(List<String> texts) {
+        return delegate.embedAll(texts);
+    }
+}
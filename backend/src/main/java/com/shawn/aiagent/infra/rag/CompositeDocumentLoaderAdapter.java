@@ -0,0 +1,40 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 组合文档加载器适配器
+ * 按注册顺序依次读取各数据源，对上层表现为单一的DocumentLoaderGateway
+ */
+public class CompositeDocumentLoaderAdapter implements DocumentLoaderGateway {
+
+    private final List<DocumentLoaderGateway> delegates;
+
+    public CompositeDocumentLoaderAdapter(List<DocumentLoaderGateway> delegates) {
+        if (delegates == null || delegates.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个文档数据源");
+        }
+        this.delegates = List.copyOf(delegates);
+    }
+
+    @Override
+    public List<DocumentChunk> loadDocuments() {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        for (DocumentLoaderGateway delegate : delegates) {
+            chunks.addAll(delegate.loadDocuments());
+        }
+        return chunks;
+    }
+
+    @Override
+    public void streamDocuments(int batchSize, Consumer<List<DocumentChunk>> batchConsumer) {
+        for (DocumentLoaderGateway delegate : delegates) {
+            delegate.streamDocuments(batchSize, batchConsumer);
+        }
+    }
+}
@@ -64,6 +64,42 @@ public class DashScopeEmbeddingAdapter implements SlaEmbeddingGateway, ReindexEm
         }
     }
 
+    @Override
+    public List<List<Double>> embedAll(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            throw new IllegalArgumentException("texts cannot be empty");
+        }
+        List<String> normalized = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            if (text == null || text.trim().isEmpty()) {
+                throw new IllegalArgumentException("text cannot be empty");
+            }
+            normalized.add(text.trim());
+            logQueryPreview(text.trim());
+        }
+
+        try {
+            // EmbeddingModel.embed(List) 以单个 EmbeddingRequest 发出，DashScope 一次请求返回全部向量
+            List<float[]> vectors = embeddingModel.embed(normalized);
+            if (vectors == null || vectors.size() != normalized.size()) {
+                throw new RuntimeException("embedding result size mismatch: expected " + normalized.size()
+                        + " actual " + (vectors == null ? 0 : vectors.size()));
+            }
+            List<List<Double>> results = new ArrayList<>(vectors.size());
+            for (float[] vector : vectors) {
+                List<Double> result = new ArrayList<>(vector.length);
+                for (float v : vector) {
+                    result.add((double) v);
+                }
+                results.add(result);
+            }
+            return results;
+        } catch (RuntimeException e) {
+            log.error("批量向量化失败: size={}, type={}, msg={}", normalized.size(), e.getClass().getName(), e.getMessage(), e);
+            throw e;
+        }
+    }
+
     private void logQueryPreview(String text) {
         try {
             int configuredLen = retrievalConfig != null ? retrievalConfig.getLogQueryPreviewLength() : 128;
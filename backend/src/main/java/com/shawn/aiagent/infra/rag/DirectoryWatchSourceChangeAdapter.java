@@ -0,0 +1,292 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.SourceFileChange;
+import com.shawn.aiagent.port.rag.SourceChangeGateway;
+import com.shawn.aiagent.port.rag.SourceFileLoaderGateway;
+import com.shawn.aiagent.support.config.TextSourceConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 数据源目录监听适配器
+ * 实现SourceChangeGateway接口：WatchService 递归监听，不可用时退化为定时轮询
+ *
+ * 两种模式共用同一套"脏路径 + 快照"：
+ * - 事件（或轮询对比快照）只把路径标记为脏，并记录最后一次事件时间；
+ * - 去抖线程发现某路径静默超过 debounce-ms 后再 stat 文件，据此产出"修改"或"删除"，并更新快照；
+ * - 目录被删除时 WatchService 通常不会为子文件单独发事件，按快照把其下所有文件标脏；
+ * - OVERFLOW（事件丢失）时整目录重扫一次，与快照对比补齐。
+ * 应用停机期间的修改不会被补发，需要时执行一次全量 reindex。
+ */
+@Slf4j
+public class DirectoryWatchSourceChangeAdapter implements SourceChangeGateway {
+
+    private final SourceFileLoaderGateway sourceFileLoader;
+    private final TextSourceConfig.Watch config;
+
+    /**
+     * 相对路径 → 最后修改时间（毫秒），代表"已通知过的"文件状态
+     */
+    private final Map<String, Long> snapshot = new ConcurrentHashMap<>();
+
+    /**
+     * 相对路径 → 最后一次观察到变化的时间（毫秒），去抖用
+     */
+    private final Map<String, Long> dirty = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "source-watch-debounce");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile WatchService watchService;
+    private volatile Thread watchThread;
+    private volatile Path root;
+
+    public DirectoryWatchSourceChangeAdapter(SourceFileLoaderGateway sourceFileLoader, TextSourceConfig.Watch config) {
+        this.sourceFileLoader = sourceFileLoader;
+        this.config = config;
+    }
+
+    @Override
+    public void start(Consumer<List<SourceFileChange>> listener) {
+        root = Paths.get(sourceFileLoader.sourceRoot());
+        if (!Files.isDirectory(root)) {
+            throw new IllegalStateException("数据源目录不存在: " + root);
+        }
+        snapshot.clear();
+        snapshot.putAll(scan());
+
+        boolean watching = !config.isForcePolling() && startWatching();
+        if (!watching) {
+            long interval = Math.max(1, config.getPollIntervalSeconds());
+            scheduler.scheduleWithFixedDelay(this::rescan, interval, interval, TimeUnit.SECONDS);
+        }
+        long tick = Math.max(50, config.getDebounceMs() / 2);
+        scheduler.scheduleWithFixedDelay(() -> flush(listener), tick, tick, TimeUnit.MILLISECONDS);
+        log.info("开始监听数据源目录: {}, 模式: {}, 已有文件: {}, 去抖: {} ms",
+                root, watching ? "WatchService" : "轮询(" + config.getPollIntervalSeconds() + "s)",
+                snapshot.size(), config.getDebounceMs());
+    }
+
+    @Override
+    public void stop() {
+        scheduler.shutdownNow();
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.warn("关闭 WatchService 失败: {}", e.getMessage());
+            }
+        }
+        Thread thread = watchThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private boolean startWatching() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            registerRecursively(root);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("WatchService 不可用，退化为轮询: {}", e.getMessage());
+            closeQuietly();
+            return false;
+        }
+        watchThread = new Thread(this::watchLoop, "source-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        return true;
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    log.warn("监听事件溢出，重新扫描目录: {}", root);
+                    rescan();
+                    continue;
+                }
+                try {
+                    onEvent(dir.resolve((Path) event.context()), event.kind());
+                } catch (RuntimeException e) {
+                    log.warn("处理监听事件失败: {}, 错误: {}", event.context(), e.getMessage());
+                }
+            }
+            if (!key.reset()) {
+                // 目录已被删除或不可访问，子文件由 onEvent 的目录删除分支处理
+                log.debug("监听键失效: {}", dir);
+            }
+        }
+    }
+
+    private void onEvent(Path path, WatchEvent.Kind<?> kind) {
+        long now = System.currentTimeMillis();
+        if (kind == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+            // 新目录：注册监听，并把注册前已写入的文件一起标脏
+            try {
+                registerRecursively(path);
+            } catch (IOException e) {
+                log.warn("注册新目录监听失败: {}, 错误: {}", path, e.getMessage());
+            }
+            scan(path).keySet().forEach(file -> dirty.put(file, now));
+            return;
+        }
+        String relative = relativePath(path);
+        if (sourceFileLoader.isSourceFile(relative)) {
+            dirty.put(relative, now);
+        } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            // 可能是目录被删除：快照中其下的文件全部标脏
+            String prefix = relative + "/";
+            snapshot.keySet().stream().filter(file -> file.startsWith(prefix)).forEach(file -> dirty.put(file, now));
+        }
+    }
+
+    /**
+     * 整目录扫描与快照对比（轮询模式的周期任务，也用于 OVERFLOW 补偿）
+     */
+    private void rescan() {
+        try {
+            long now = System.currentTimeMillis();
+            Map<String, Long> current = scan();
+            current.forEach((file, modified) -> {
+                if (!modified.equals(snapshot.get(file))) {
+                    dirty.putIfAbsent(file, now);
+                }
+            });
+            snapshot.keySet().stream().filter(file -> !current.containsKey(file)).forEach(file -> dirty.putIfAbsent(file, now));
+        } catch (RuntimeException e) {
+            log.warn("扫描数据源目录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 取出静默超过去抖时间的脏路径，确定其最终状态后批量回调
+     */
+    private void flush(Consumer<List<SourceFileChange>> listener) {
+        long quietBefore = System.currentTimeMillis() - config.getDebounceMs();
+        List<SourceFileChange> changes = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : dirty.entrySet()) {
+            if (entry.getValue() > quietBefore || !dirty.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            SourceFileChange change = resolve(entry.getKey(), entry.getValue());
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        log.info("检测到数据源变更 {} 个文件", changes.size());
+        try {
+            listener.accept(changes);
+        } catch (RuntimeException e) {
+            log.error("处理数据源变更回调失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private SourceFileChange resolve(String relative, long observedAt) {
+        Path file = root.resolve(relative);
+        if (Files.isRegularFile(file)) {
+            long modified;
+            try {
+                modified = Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                log.warn("读取文件修改时间失败: {}, 错误: {}", file, e.getMessage());
+                return null;
+            }
+            Long previous = snapshot.put(relative, modified);
+            if (previous != null && previous == modified) {
+                // 仅 touch / 属性变化
+                return null;
+            }
+            return new SourceFileChange(relative, false, Instant.ofEpochMilli(modified));
+        }
+        if (snapshot.remove(relative) == null) {
+            // 创建后又在去抖窗口内删除，没有写入过任何 chunk
+            return null;
+        }
+        return new SourceFileChange(relative, true, Instant.ofEpochMilli(observedAt));
+    }
+
+    private void registerRecursively(Path dir) throws IOException {
+        try (Stream<Path> dirs = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) dirs.filter(Files::isDirectory)::iterator) {
+                path.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        }
+    }
+
+    private Map<String, Long> scan() {
+        return scan(root);
+    }
+
+    private Map<String, Long> scan(Path dir) {
+        Map<String, Long> files = new HashMap<>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(path -> sourceFileLoader.isSourceFile(relativePath(path)))
+                    .forEach(path -> {
+                        try {
+                            files.put(relativePath(path), Files.getLastModifiedTime(path).toMillis());
+                        } catch (IOException e) {
+                            // 扫描期间被删除，下一轮再处理
+                            log.debug("读取文件修改时间失败: {}", path);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new RuntimeException("扫描数据源目录失败: " + dir + ", " + e.getMessage(), e);
+        }
+        return files;
+    }
+
+    private String relativePath(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    private void closeQuietly() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException ignored) {
+                // 已退化为轮询，无需处理
+            }
+            watchService = null;
+        }
+    }
+}
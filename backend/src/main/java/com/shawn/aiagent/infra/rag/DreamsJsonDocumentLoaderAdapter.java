@@ -1,84 +1,153 @@
 package com.shawn.aiagent.infra.rag;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.EmbedTextTemplate;
+import com.shawn.aiagent.domain.rag.NearDuplicatePolicy;
 import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ClassPathResource;
-import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Dreams JSON文档加载器适配器
  * 实现DocumentLoaderGateway接口，从JSON文件加载文档
+ *
+ * 使用 Jackson 流式解析逐个读取数组元素，不把整个文件反序列化到内存。
+ * 开启近重复合并（rag.ingestion.dedup-enabled）时合并需要看到整个文件，先读完全部 chunk 再分批回调。
+ * 向量化文本由 rag.ingestion.embed-templates.dreams 决定。
  */
-@Component
 @Slf4j
 public class DreamsJsonDocumentLoaderAdapter implements DocumentLoaderGateway {
     
+    private static final TypeReference<Map<String, Object>> RAW_CHUNK_TYPE = new TypeReference<>() {};
+    
     private final ObjectMapper objectMapper;
+    private final EmbedTextTemplate embedTextTemplate;
+    private final NearDuplicatePolicy nearDuplicatePolicy;
     
-    public DreamsJsonDocumentLoaderAdapter(ObjectMapper objectMapper) {
+    public DreamsJsonDocumentLoaderAdapter(ObjectMapper objectMapper, EmbedTextTemplate embedTextTemplate,
+                                           NearDuplicatePolicy nearDuplicatePolicy) {
         this.objectMapper = objectMapper;
+        this.embedTextTemplate = embedTextTemplate;
+        this.nearDuplicatePolicy = nearDuplicatePolicy;
     }
     
     @Override
     public List<DocumentChunk> loadDocuments() {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        streamDocuments(500, chunks::addAll);
+        log.info("成功加载 {} 个文档块", chunks.size());
+        return chunks;
+    }
+    
+    @Override
+    public void streamDocuments(int batchSize, Consumer<List<DocumentChunk>> batchConsumer) {
         log.info("开始加载dreams_chunks.json文档");
+        int size = Math.max(1, batchSize);
         
-        try {
-            var resource = new ClassPathResource("rag/dreams_chunks.json");
-            List<Map<String, Object>> rawChunks = objectMapper.readValue(
-                    resource.getInputStream(),
-                    new TypeReference<List<Map<String, Object>>>() {}
-            );
-            
-            List<DocumentChunk> chunks = new ArrayList<>();
-            
-            for (Map<String, Object> chunk : rawChunks) {
-                // text 字段 = Document 的 content
-                String content = (String) chunk.get("text");
-                if (content == null || content.trim().isEmpty()) {
-                    log.warn("跳过空内容的chunk: {}", chunk);
-                    continue;
-                }
-                
-                // 构造一个 id（chunk_index 为必填字段）
-                Object idxObj = chunk.get("chunk_index");
-                if (idxObj == null) {
-                    log.error("Missing chunk_index in dreams chunk: {}", chunk);
-                    throw new IllegalArgumentException("chunk_index is required for dreams chunk");
-                }
-                
-                // 原始 ID（用于调试和查询）
-                String originalId = "dreams-chunk-" + idxObj;
-                
-                // pgvector 要求使用 UUID 格式的 ID，使用 UUID v5（基于命名空间和原始 ID）保持可预测性
-                UUID namespace = UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8");
-                String id = UUID.nameUUIDFromBytes((namespace.toString() + originalId).getBytes()).toString();
-                
-                // metadata = 除了 text 以外的所有字段
-                Map<String, Object> metadata = new HashMap<>(chunk);
-                metadata.remove("text");
-                
-                // 把原始 id 也放 metadata 里，方便检索时看到
-                metadata.put("originalId", originalId);
-                metadata.put("id", originalId);
-                metadata.put("source", "dreams");
-                
-                DocumentChunk documentChunk = new DocumentChunk(id, content, metadata);
-                chunks.add(documentChunk);
+        var resource = new ClassPathResource("rag/dreams_chunks.json");
+        try (InputStream in = resource.getInputStream();
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("dreams_chunks.json 顶层必须是数组");
             }
             
-            log.info("成功加载 {} 个文档块", chunks.size());
-            return chunks;
+            BatchEmitter emitter = new BatchEmitter(size, batchConsumer);
+            if (nearDuplicatePolicy.isEnabled()) {
+                List<DocumentChunk> chunks = new ArrayList<>();
+                readChunks(parser, chunks::add);
+                nearDuplicatePolicy.deduplicate(chunks).getKept().forEach(emitter::add);
+            } else {
+                readChunks(parser, emitter::add);
+            }
+            emitter.flush();
         } catch (IOException e) {
             log.error("加载dreams_chunks.json失败", e);
             throw new RuntimeException("加载dreams_chunks.json失败: " + e.getMessage(), e);
         }
     }
+    
+    private void readChunks(JsonParser parser, Consumer<DocumentChunk> consumer) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            Map<String, Object> chunk = objectMapper.readValue(parser, RAW_CHUNK_TYPE);
+            DocumentChunk documentChunk = toDocumentChunk(chunk);
+            if (documentChunk != null) {
+                consumer.accept(documentChunk);
+            }
+        }
+    }
+    
+    /**
+     * @return 转换后的文档块（尚未套用向量化模板）；空内容返回 null（跳过）
+     */
+    private DocumentChunk toDocumentChunk(Map<String, Object> chunk) {
+        // text 字段 = Document 的 content
+        String content = (String) chunk.get("text");
+        if (content == null || content.trim().isEmpty()) {
+            log.warn("跳过空内容的chunk: {}", chunk);
+            return null;
+        }
+        
+        // 构造一个 id（chunk_index 为必填字段）
+        Object idxObj = chunk.get("chunk_index");
+        if (idxObj == null) {
+            log.error("Missing chunk_index in dreams chunk: {}", chunk);
+            throw new IllegalArgumentException("chunk_index is required for dreams chunk");
+        }
+        
+        // 原始 ID（用于调试和查询）
+        String originalId = "dreams-chunk-" + idxObj;
+        
+        // pgvector 要求使用 UUID 格式的 ID，使用 UUID v5（基于命名空间和原始 ID）保持可预测性
+        UUID namespace = UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8");
+        String id = UUID.nameUUIDFromBytes((namespace.toString() + originalId).getBytes()).toString();
+        
+        // metadata = 除了 text 以外的所有字段
+        Map<String, Object> metadata = new HashMap<>(chunk);
+        metadata.remove("text");
+        
+        // 把原始 id 也放 metadata 里，方便检索时看到
+        metadata.put("originalId", originalId);
+        metadata.put("id", originalId);
+        metadata.put("source", "dreams");
+        
+        return new DocumentChunk(id, content, metadata);
+    }
+    
+    /**
+     * 套用向量化模板后按批回调（只在调用线程内使用）
+     */
+    private final class BatchEmitter {
+        private final int size;
+        private final Consumer<List<DocumentChunk>> batchConsumer;
+        private List<DocumentChunk> batch;
+        
+        private BatchEmitter(int size, Consumer<List<DocumentChunk>> batchConsumer) {
+            this.size = size;
+            this.batchConsumer = batchConsumer;
+            this.batch = new ArrayList<>(size);
+        }
+        
+        private void add(DocumentChunk chunk) {
+            batch.add(embedTextTemplate.apply(chunk));
+            if (batch.size() >= size) {
+                flush();
+            }
+        }
+        
+        private void flush() {
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+                batch = new ArrayList<>(size);
+            }
+        }
+    }
 }
-
@@ -0,0 +1,33 @@
+package com.shawn.aiagent.infra.rag;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按 EMBED 格式化内容分批的 BatchingStrategy
+ * Spring AI 批量向量化（EmbeddingModel#embed(List, EmbeddingOptions, BatchingStrategy)）默认只取 Document#getText，
+ * 不经过 PgVectorStoreAdapter.toSpringAiDocument 设置的 ContentFormatter；这里在分批前把每个 Document
+ * 换成以其 EMBED 格式化内容（chunk 的向量化文本）为正文的副本，id 与顺序不变，
+ * 入库的 content / metadata 仍取自原始 Document。
+ *
+ * 线上表（Spring AI 自动装配的 PgVectorStore 以本 bean 替换默认分批策略）、影子表与候选表共用同一实例。
+ */
+@Component
+public class EmbedTextBatchingStrategy implements BatchingStrategy {
+
+    private final BatchingStrategy delegate = new TokenCountBatchingStrategy();
+
+    @Override
+    public List<List<Document>> batch(List<Document> documents) {
+        List<Document> embedDocuments = documents.stream()
+                .map(document -> new Document(document.getId(), document.getFormattedContent(MetadataMode.EMBED), Map.of()))
+                .toList();
+        return delegate.batch(embedDocuments);
+    }
+}
@@ -0,0 +1,64 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.SourceSyncResult;
+import com.shawn.aiagent.port.rag.IngestionMetricsGateway;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Micrometer 摄取指标适配器
+ * 实现IngestionMetricsGateway接口，通过 /actuator/metrics 暴露：
+ * - rag.ingestion.lag：文件保存 → 可被检索的延迟（含 p50/p95/p99）
+ * - rag.ingestion.chunks{result=upserted|unchanged|deleted}：增量同步处理的 chunk 数
+ * - rag.ingestion.sync.deferred：因 reindex 任务占锁而延后的同步次数
+ */
+@Component
+public class MicrometerIngestionMetricsAdapter implements IngestionMetricsGateway {
+
+    private final Timer lagTimer;
+    private final Counter upsertedChunks;
+    private final Counter unchangedChunks;
+    private final Counter deletedChunks;
+    private final Counter deferredSyncs;
+
+    public MicrometerIngestionMetricsAdapter(MeterRegistry meterRegistry) {
+        this.lagTimer = Timer.builder("rag.ingestion.lag")
+                .description("文件最后修改时间到变更写入向量库的延迟")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.upsertedChunks = chunkCounter(meterRegistry, "upserted");
+        this.unchangedChunks = chunkCounter(meterRegistry, "unchanged");
+        this.deletedChunks = chunkCounter(meterRegistry, "deleted");
+        this.deferredSyncs = Counter.builder("rag.ingestion.sync.deferred")
+                .description("因 reindex 任务占锁而延后的增量同步次数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void recordIngestionLag(Duration lag) {
+        // 文件时间戳可能略超前于本机时钟（挂载卷、时钟漂移），负值按 0 记录
+        lagTimer.record(lag.isNegative() ? Duration.ZERO : lag);
+    }
+
+    @Override
+    public void recordSourceSync(SourceSyncResult result) {
+        if (result.isDeferred()) {
+            deferredSyncs.increment();
+            return;
+        }
+        upsertedChunks.increment(result.getUpsertedChunks());
+        unchangedChunks.increment(result.getUnchangedChunks());
+        deletedChunks.increment(result.getDeletedChunks());
+    }
+
+    private static Counter chunkCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rag.ingestion.chunks")
+                .description("增量同步处理的 chunk 数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,46 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.port.rag.ModelMigrationMetricsGateway;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Micrometer 模型迁移指标适配器
+ * 实现ModelMigrationMetricsGateway接口，通过 /actuator/metrics 暴露：
+ * - rag.migration.latency{generation=current|candidate, role=served|shadow}：被抽样请求的向量化 + 检索耗时（含 p50/p95/p99）
+ * - rag.migration.shadow.reads{result=agree|disagree|error|dropped}：影子查询 top-1 是否与线上结果一致
+ */
+@Component
+public class MicrometerModelMigrationMetricsAdapter implements ModelMigrationMetricsGateway {
+
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerModelMigrationMetricsAdapter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void recordLatency(String generation, boolean shadow, Duration latency) {
+        // 标签组合只有 4 种，按需注册即可（MeterRegistry 对同名同标签返回同一实例）
+        Timer.builder("rag.migration.latency")
+                .description("模型迁移期间被抽样请求的向量化 + 检索耗时")
+                .tag("generation", generation)
+                .tag("role", shadow ? "shadow" : "served")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(latency);
+    }
+
+    @Override
+    public void recordShadowRead(String result) {
+        Counter.builder("rag.migration.shadow.reads")
+                .description("影子查询次数，按 top-1 是否与线上一致分类")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,61 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.VectorNormalizationPolicy;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * 写入前 L2 归一化的 EmbeddingModel 装饰器
+ * 包装 reindex 使用的 EmbeddingModel：Spring AI VectorStore 写入时在这里拿到向量，库里存的即为单位向量，
+ * 内积检索（rag.retrieval.distance-mode=INNER_PRODUCT）无需在每次比较时再做归一化。
+ * 余弦检索对向量长度不敏感，归一化不改变结果，因此无论距离模式都启用。
+ * 只做归一化：向量化哪段文本由 Document 侧决定（见 EmbedTextBatchingStrategy）。
+ */
+public class NormalizingEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final VectorNormalizationPolicy normalizationPolicy = new VectorNormalizationPolicy();
+
+    public NormalizingEmbeddingModel(EmbeddingModel delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate cannot be null");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        EmbeddingResponse response = delegate.call(request);
+        List<Embedding> normalized = response.getResults().stream()
+                .map(embedding -> new Embedding(
+                        normalizationPolicy.normalize(embedding.getOutput()),
+                        embedding.getIndex(),
+                        embedding.getMetadata()))
+                .toList();
+        return new EmbeddingResponse(normalized, response.getMetadata());
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return normalizationPolicy.normalize(delegate.embed(document));
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        return delegate.embed(documents, options, batchingStrategy).stream()
+                .map(normalizationPolicy::normalize)
+                .toList();
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
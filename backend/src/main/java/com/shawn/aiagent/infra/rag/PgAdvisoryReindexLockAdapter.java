@@ -0,0 +1,107 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.port.rag.ReindexLockGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * PostgreSQL advisory lock 适配器
+ * 实现ReindexLockGateway接口：以向量表名为键的会话级 advisory lock
+ *
+ * 会话级锁绑定在物理连接上，因此锁句柄独占一个连接直到 close；
+ * 连接归还连接池前必须显式 unlock，否则锁会随池化连接"泄漏"给下一个借用者。
+ * 持有节点崩溃时连接断开，锁由数据库自动释放，其他节点即可接手。
+ */
+@Component
+@Slf4j
+public class PgAdvisoryReindexLockAdapter implements ReindexLockGateway {
+
+    private final DataSource dataSource;
+    private final String lockKey;
+
+    public PgAdvisoryReindexLockAdapter(
+            DataSource dataSource,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName) {
+        this.dataSource = dataSource;
+        this.lockKey = "rag_reindex:" + tableName.trim();
+    }
+
+    @Override
+    public Optional<ReindexLock> tryAcquire() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            connection.setAutoCommit(true);
+            if (!lockCall(connection, "SELECT pg_try_advisory_lock(hashtext(?))")) {
+                connection.close();
+                log.debug("reindex 锁已被其他会话持有: {}", lockKey);
+                return Optional.empty();
+            }
+            log.info("获取 reindex 锁: {}", lockKey);
+            return Optional.of(new AdvisoryLock(connection));
+        } catch (SQLException e) {
+            closeQuietly(connection);
+            throw new RuntimeException("获取 reindex 锁失败: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean lockCall(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, lockKey);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // 连接已不可用，锁随会话结束自动释放
+        }
+    }
+
+    private final class AdvisoryLock implements ReindexLock {
+
+        private final Connection connection;
+        private boolean released = false;
+
+        private AdvisoryLock(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                lockCall(connection, "SELECT pg_advisory_unlock(hashtext(?))");
+                log.info("释放 reindex 锁: {}", lockKey);
+            } catch (SQLException e) {
+                // 不能把仍持锁的连接还回连接池：直接中止物理连接，让数据库释放会话锁
+                log.warn("释放 reindex 锁失败，中止连接以释放: {}", e.getMessage());
+                try {
+                    connection.abort(Runnable::run);
+                } catch (SQLException ignored) {
+                    // 连接已不可用
+                }
+            } finally {
+                closeQuietly(connection);
+            }
+        }
+    }
+}
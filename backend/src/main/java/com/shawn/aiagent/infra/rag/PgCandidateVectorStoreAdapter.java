@@ -0,0 +1,110 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.CandidateVectorStoreGateway;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL pgvector 候选模型向量表适配器
+ * 实现CandidateVectorStoreGateway接口：写入与检索复用 PgVectorStoreAdapter（绑定候选表 + 候选模型），
+ * 建表与建索引复用 PgHnswIndexBuilder（按候选维度建列），结构与线上表一致。
+ *
+ * 由 ModelMigrationWiringConfig 在 rag.migration.enabled=true 时创建，不是 Spring 组件：
+ * 内部的 PgVectorStoreAdapter 不能作为第二个 VectorStoreGateway bean 暴露，否则线上注入点出现歧义。
+ */
+@Slf4j
+public class PgCandidateVectorStoreAdapter implements CandidateVectorStoreGateway {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PgHnswIndexBuilder indexBuilder;
+    private final PgVectorStoreAdapter store;
+    private final String model;
+    private final String table;
+    private final int dimensions;
+
+    public PgCandidateVectorStoreAdapter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            PgHnswIndexBuilder indexBuilder,
+            RetrievalConfig retrievalConfig,
+            ObjectMapper objectMapper,
+            EmbeddingModel candidateEmbeddingModel,
+            EmbedTextBatchingStrategy batchingStrategy,
+            String model,
+            String table,
+            int dimensions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexBuilder = indexBuilder;
+        this.model = model;
+        this.table = table;
+        this.dimensions = dimensions;
+        // 与影子表一致：表与索引由 PgHnswIndexBuilder 管理，Spring AI 只负责向量化 + upsert
+        PgVectorStore vectorStore = PgVectorStore.builder(jdbcTemplate, candidateEmbeddingModel)
+                .vectorTableName(table)
+                .dimensions(dimensions)
+                .indexType(PgVectorStore.PgIndexType.NONE)
+                .initializeSchema(false)
+                .batchingStrategy(batchingStrategy)
+                .build();
+        this.store = new PgVectorStoreAdapter(
+                vectorStore, jdbcTemplate, transactionTemplate, retrievalConfig, objectMapper, table);
+    }
+
+    @Override
+    public String describe() {
+        return model + "@" + table;
+    }
+
+    @Override
+    public void prepare() {
+        indexBuilder.createTableIfNotExists(table, dimensions);
+        log.info("候选向量表已就绪: {}", describe());
+    }
+
+    @Override
+    public void addDocuments(List<DocumentChunk> chunks) {
+        store.addDocuments(chunks);
+    }
+
+    @Override
+    public void deleteDocuments(List<String> documentIds) {
+        store.deleteDocuments(documentIds);
+    }
+
+    @Override
+    public long retainOnly(List<String> documentIds) {
+        int deleted = jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE NOT (id = ANY(?))");
+            Array ids = connection.createArrayOf("uuid", documentIds.toArray());
+            ps.setArray(1, ids);
+            return ps;
+        });
+        if (deleted > 0) {
+            log.info("候选表删除数据源中已不存在的 chunk {} 个: {}", deleted, table);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void buildIndex(Consumer<IndexBuildProgress> progressListener) {
+        indexBuilder.buildIndex(table, progressListener);
+    }
+
+    @Override
+    public List<RetrievalResult> similaritySearch(String query, List<Double> embedding, int topK) {
+        return store.similaritySearch(query, embedding, topK);
+    }
+}
@@ -0,0 +1,245 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.port.rag.ChunkNeighborGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * PostgreSQL chunk 近邻图适配器
+ * 实现ChunkNeighborGateway接口：近邻表 {线上表}_neighbors，每个 chunk 一行（uuid[] 近邻 + real[] 相似度）
+ *
+ * 近邻由库内批量检索得到：每条 SQL 对一批 chunk 做 LATERAL 子查询，子查询按线上表自身的 HNSW 索引取 top-N，
+ * 一次往返算完一批，不调用 embedding。两阶段前缀检索开启时同样先在前缀索引上召回候选再用全量向量精排。
+ * 读取时按主键取一行并与线上表按 id 关联，已删除的近邻自然被跳过。
+ */
+@Component
+@Slf4j
+public class PgChunkNeighborAdapter implements ChunkNeighborGateway {
+
+    private static final int DEFAULT_EF_SEARCH = 40;
+    private static final int MAX_EF_SEARCH = 1000;
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() { };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RetrievalConfig retrievalConfig;
+    private final IngestionConfig ingestionConfig;
+    private final ObjectMapper objectMapper;
+    private final String tableName;
+    private final String neighborTable;
+    private volatile boolean schemaReady = false;
+
+    public PgChunkNeighborAdapter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            RetrievalConfig retrievalConfig,
+            IngestionConfig ingestionConfig,
+            ObjectMapper objectMapper,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retrievalConfig = retrievalConfig;
+        this.ingestionConfig = ingestionConfig;
+        this.objectMapper = objectMapper;
+        this.tableName = tableName.trim();
+        this.neighborTable = this.tableName + "_neighbors";
+    }
+
+    @Override
+    public long recomputeAll() {
+        ensureSchema();
+        long start = System.currentTimeMillis();
+        List<String> ids = jdbcTemplate.queryForList("SELECT id::text FROM " + tableName, String.class);
+        recomputeInBatches(ids);
+        int removed = jdbcTemplate.update("DELETE FROM " + neighborTable + " g WHERE NOT EXISTS "
+                + "(SELECT 1 FROM " + tableName + " t WHERE t.id = g.chunk_id)");
+        log.info("近邻图全量计算完成: {}, chunk {} 个, 清理 {} 行, 耗时 {} ms",
+                neighborTable, ids.size(), removed, System.currentTimeMillis() - start);
+        return ids.size();
+    }
+
+    @Override
+    public long recompute(Collection<String> changedIds, Collection<String> deletedIds) {
+        if (changedIds.isEmpty() && deletedIds.isEmpty()) {
+            return 0;
+        }
+        ensureSchema();
+        if (!deletedIds.isEmpty()) {
+            updateWithIds("DELETE FROM " + neighborTable + " WHERE chunk_id = ANY(?)", deletedIds);
+        }
+        // 先算变化的 chunk：它们的新近邻就是最可能把它们排进自己 top-N 的 chunk（近邻关系近似对称）
+        recomputeInBatches(new ArrayList<>(changedIds));
+
+        Set<String> touched = new LinkedHashSet<>(changedIds);
+        touched.addAll(deletedIds);
+        Set<String> affected = new LinkedHashSet<>(queryWithIds(
+                "SELECT chunk_id::text FROM " + neighborTable + " WHERE neighbor_ids && ?", touched));
+        if (!changedIds.isEmpty()) {
+            affected.addAll(queryWithIds("SELECT DISTINCT unnest(neighbor_ids)::text FROM " + neighborTable
+                    + " WHERE chunk_id = ANY(?)", changedIds));
+        }
+        affected.removeAll(changedIds);
+        affected.removeAll(deletedIds);
+        recomputeInBatches(new ArrayList<>(affected));
+        log.info("近邻图增量计算完成: 变化 {}, 删除 {}, 受影响 {}", changedIds.size(), deletedIds.size(), affected.size());
+        return changedIds.size() + affected.size();
+    }
+
+    @Override
+    public Optional<List<RetrievalResult>> findRelated(String chunkId, int limit) {
+        ensureSchema();
+        String sql = "SELECT t.id::text AS id, t.content, t.metadata::text AS metadata, n.score"
+                + " FROM " + neighborTable + " g"
+                + " CROSS JOIN LATERAL unnest(g.neighbor_ids, g.scores) WITH ORDINALITY AS n(id, score, ord)"
+                + " JOIN " + tableName + " t ON t.id = n.id"
+                + " WHERE g.chunk_id = ?::uuid ORDER BY n.ord LIMIT ?";
+        List<RetrievalResult> related = jdbcTemplate.query(sql, this::mapRetrievalResult, chunkId, limit);
+        if (!related.isEmpty()) {
+            return Optional.of(related);
+        }
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + neighborTable + " WHERE chunk_id = ?::uuid)", Boolean.class, chunkId);
+        return Boolean.TRUE.equals(exists) ? Optional.of(List.of()) : Optional.empty();
+    }
+
+    private void recomputeInBatches(List<String> ids) {
+        int neighborCount = ingestionConfig.getNeighborCount();
+        if (ids.isEmpty() || neighborCount <= 0) {
+            return;
+        }
+        int prefixDimension = retrievalConfig.getPrefixDimension();
+        int candidates = Math.min(MAX_EF_SEARCH, Math.max(neighborCount + 1, retrievalConfig.getPrefixCandidates()));
+        // 排除自身后仍要凑满 N 个，HNSW 候选队列至少 N + 1
+        int efSearch = Math.min(MAX_EF_SEARCH, Math.max(DEFAULT_EF_SEARCH, prefixDimension > 0 ? candidates : neighborCount + 1));
+        String sql = upsertSql(prefixDimension > 0);
+        int batchSize = Math.max(1, ingestionConfig.getNeighborBatchSize());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<String> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class,
+                        String.valueOf(efSearch));
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement ps = connection.prepareStatement(sql);
+                    int index = 1;
+                    if (prefixDimension > 0) {
+                        ps.setInt(index++, candidates);
+                    }
+                    ps.setInt(index++, neighborCount);
+                    ps.setArray(index, connection.createArrayOf("uuid", batch.toArray()));
+                    return ps;
+                });
+            });
+        }
+    }
+
+    /**
+     * 每个 chunk 的近邻子查询走线上表的向量索引；LEFT JOIN 保证只有一个 chunk 的表也写入空近邻行
+     */
+    private String upsertSql(boolean prefixSearch) {
+        RetrievalConfig.DistanceMode mode = retrievalConfig.getDistanceMode();
+        String operator = mode.operator();
+        String score = mode == RetrievalConfig.DistanceMode.INNER_PRODUCT
+                ? "((t.embedding <#> c.embedding) * -1)::real"
+                : "(1 - (t.embedding <=> c.embedding))::real";
+        String neighbors = prefixSearch
+                ? "SELECT t.id, " + score + " AS score FROM (SELECT p.id, p.embedding FROM " + tableName + " p"
+                        + " WHERE p.id <> c.id ORDER BY p.embedding_prefix " + operator + " c.embedding_prefix LIMIT ?) t"
+                        + " ORDER BY t.embedding " + operator + " c.embedding LIMIT ?"
+                : "SELECT t.id, " + score + " AS score FROM " + tableName + " t"
+                        + " WHERE t.id <> c.id ORDER BY t.embedding " + operator + " c.embedding LIMIT ?";
+        return "INSERT INTO " + neighborTable + " (chunk_id, neighbor_ids, scores, computed_at)"
+                + " SELECT c.id,"
+                + " COALESCE(array_agg(n.id ORDER BY n.score DESC) FILTER (WHERE n.id IS NOT NULL), '{}'),"
+                + " COALESCE(array_agg(n.score ORDER BY n.score DESC) FILTER (WHERE n.id IS NOT NULL), '{}'),"
+                + " now()"
+                + " FROM " + tableName + " c LEFT JOIN LATERAL (" + neighbors + ") n ON true"
+                + " WHERE c.id = ANY(?)"
+                + " GROUP BY c.id"
+                + " ON CONFLICT (chunk_id) DO UPDATE SET neighbor_ids = EXCLUDED.neighbor_ids,"
+                + " scores = EXCLUDED.scores, computed_at = EXCLUDED.computed_at";
+    }
+
+    private void updateWithIds(String sql, Collection<String> ids) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf("uuid", ids.toArray());
+            ps.setArray(1, array);
+            return ps;
+        });
+    }
+
+    private List<String> queryWithIds(String sql, Collection<String> ids) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            Array array = connection.createArrayOf("uuid", ids.toArray());
+            ps.setArray(1, array);
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+
+    /**
+     * 懒建表：应用启动时数据库不一定可用，首次访问时再建
+     */
+    private void ensureSchema() {
+        if (schemaReady) {
+            return;
+        }
+        synchronized (this) {
+            if (schemaReady) {
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + neighborTable + " ("
+                    + "chunk_id uuid PRIMARY KEY, "
+                    + "neighbor_ids uuid[] NOT NULL, "
+                    + "scores real[] NOT NULL, "
+                    + "computed_at timestamptz NOT NULL)");
+            // 增量重算时按"近邻列表包含变化 chunk"反查受影响的行
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + neighborTable + "_neighbor_ids_idx ON "
+                    + neighborTable + " USING gin (neighbor_ids)");
+            schemaReady = true;
+            log.info("近邻表已就绪: {}", neighborTable);
+        }
+    }
+
+    private RetrievalResult mapRetrievalResult(ResultSet rs, int rowNum) throws SQLException {
+        String text = rs.getString("content");
+        return new RetrievalResult(
+                rs.getString("id"),
+                text != null ? text : "",
+                rs.getDouble("score"),
+                parseMetadata(rs.getString("metadata")));
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("metadata 解析失败: " + e.getMessage(), e);
+        }
+    }
+}
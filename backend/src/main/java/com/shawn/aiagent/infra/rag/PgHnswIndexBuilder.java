@@ -0,0 +1,356 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * pgvector 表与 HNSW 索引的 DDL
+ * 线上表、影子表共用同一份建表/建索引语句，保证切换前后结构一致
+ *
+ * 建索引在同一连接上临时调高 maintenance_work_mem / max_parallel_maintenance_workers，
+ * 结束后 RESET，避免调优参数随池化连接泄漏到业务查询；
+ * 构建期间另起线程按间隔采样 pg_stat_progress_create_index 上报进度。
+ *
+ * 配置 rag.retrieval.prefix-dimension 时，表上额外有一列由 embedding 截取前缀生成的 embedding_prefix，
+ * HNSW 索引改建在该列上（两阶段检索只走前缀索引，全量向量仅用于候选精排）。
+ * 前缀列存储重新 L2 归一化后的前缀，余弦与内积两种距离模式下都可直接比较。
+ * 索引操作符类由向量列实际类型与 rag.retrieval.distance-mode 共同决定，已有索引的操作符类不一致时重建。
+ * INNER_PRODUCT 模式新建索引前先把范数偏离 1 的存量行原地 L2 归一化（归一化写入上线前的行），内积排序才等价于余弦。
+ */
+@Component
+@Slf4j
+public class PgHnswIndexBuilder {
+
+    private static final Pattern MEMORY_SETTING = Pattern.compile("^\\d+\\s*(kB|MB|GB|TB)$");
+
+    /**
+     * 范数偏离 1 超过该值的行视为未归一化；halfvec 存储的单位向量范数误差约 1e-3，阈值需高于该误差，否则每次都会重写
+     */
+    private static final double UNIT_NORM_TOLERANCE = 1e-2;
+
+    static final String EMBEDDING_COLUMN = "embedding";
+    static final String PREFIX_COLUMN = "embedding_prefix";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestionConfig ingestionConfig;
+    private final RetrievalConfig retrievalConfig;
+    private final int dimensions;
+    private final int prefixDimension;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+
+    private final ScheduledExecutorService progressPoller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "index-build-progress");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PgHnswIndexBuilder(
+            JdbcTemplate jdbcTemplate,
+            IngestionConfig ingestionConfig,
+            RetrievalConfig retrievalConfig,
+            @Value("${spring.ai.vectorstore.pgvector.embedding-dimension}") int dimensions,
+            @Value("${spring.ai.vectorstore.pgvector.hnsw.m:16}") int hnswM,
+            @Value("${spring.ai.vectorstore.pgvector.hnsw.ef-construction:64}") int hnswEfConstruction) {
+        int prefixDimension = retrievalConfig.getPrefixDimension();
+        if (prefixDimension < 0 || (prefixDimension > 0 && prefixDimension >= dimensions)) {
+            throw new IllegalArgumentException("rag.retrieval.prefix-dimension 必须为 0 或小于向量维度 "
+                    + dimensions + "，当前为 " + prefixDimension);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.ingestionConfig = ingestionConfig;
+        this.retrievalConfig = retrievalConfig;
+        this.dimensions = dimensions;
+        this.prefixDimension = prefixDimension;
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+    }
+
+    /**
+     * 与 Spring AI PgVectorStore 的建表语句保持一致，写入路径无需任何改动；
+     * 额外的 metadata->>'file' 表达式索引供增量同步按源文件查找 chunk。
+     * 新表的向量列按 rag.ingestion.vector-type 建列；Spring AI 以 vector 参数写入，halfvec 列由赋值转换接收。
+     * 前缀列是 STORED 生成列，类型跟随表上实际的向量列类型，Spring AI upsert embedding 时由数据库同步计算；
+     * 已有表的向量列维度与配置不一致时拒绝继续，避免写入或检索时才报错
+     */
+    public void createTableIfNotExists(String table) {
+        createTableIfNotExists(table, dimensions);
+    }
+
+    /**
+     * 按指定维度建表（模型迁移的候选表与线上表维度可以不同）
+     */
+    public void createTableIfNotExists(String table, int tableDimensions) {
+        if (prefixDimension > 0 && prefixDimension >= tableDimensions) {
+            throw new IllegalArgumentException("rag.retrieval.prefix-dimension " + prefixDimension
+                    + " 必须小于表 " + table + " 的向量维度 " + tableDimensions);
+        }
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s (id uuid PRIMARY KEY, content text, metadata json, embedding %s(%d))",
+                table, ingestionConfig.getVectorType().sqlType(), tableDimensions));
+        if (prefixDimension > 0) {
+            // 已有数据的表加生成列会重写整表，大表建议改用 BLUE_GREEN reindex 在影子表上完成
+            addPrefixColumn(table, storedType(table));
+        }
+        jdbcTemplate.execute(String.format(
+                "CREATE INDEX IF NOT EXISTS %s ON %s ((metadata->>'file'))", fileIndexName(table), table));
+        // 上下文扩展按 (source, chapter-ID, chunk_index_in_chapter) 区间取相邻 chunk
+        jdbcTemplate.execute(String.format(
+                "CREATE INDEX IF NOT EXISTS %s ON %s ((metadata->>'source'), (metadata->>'chapter-ID'), "
+                        + "((metadata->>'chunk_index_in_chapter')::int))", chapterIndexName(table), table));
+        verifyDimensions(table, tableDimensions);
+    }
+
+    /**
+     * 表上向量列的实际存储类型（与配置可能不一致：改配置后尚未迁移的表）
+     */
+    public IngestionConfig.VectorType storedType(String table) {
+        String type = jdbcTemplate.queryForObject(
+                "SELECT atttypid::regtype::text FROM pg_attribute "
+                        + "WHERE attrelid = to_regclass(?) AND attname = ? AND NOT attisdropped",
+                String.class, table, EMBEDDING_COLUMN);
+        return IngestionConfig.VectorType.fromSqlType(type);
+    }
+
+    /**
+     * 原地把向量列转换为配置的存储类型：先删向量索引与依赖该列的前缀生成列，ALTER TYPE 重写整表后补回前缀列。
+     * 调用方负责放在同一事务内（任一步失败整体回滚），并在提交后重建向量索引
+     */
+    public void convertStoredType(String table) {
+        IngestionConfig.VectorType target = ingestionConfig.getVectorType();
+        dropIndex(table);
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN IF EXISTS " + PREFIX_COLUMN);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ALTER COLUMN %s TYPE %s(%d) USING %s::%s(%d)",
+                table, EMBEDDING_COLUMN, target.sqlType(), dimensions, EMBEDDING_COLUMN, target.sqlType(), dimensions));
+        if (prefixDimension > 0) {
+            addPrefixColumn(table, target);
+        }
+        log.info("向量列已转换为 {}: {}", target.sqlType(), table);
+    }
+
+    private void addPrefixColumn(String table, IngestionConfig.VectorType type) {
+        jdbcTemplate.execute(String.format(
+                "ALTER TABLE %s ADD COLUMN IF NOT EXISTS %s %s(%d) "
+                        + "GENERATED ALWAYS AS (l2_normalize(subvector(%s, 1, %d))::%s(%d)) STORED",
+                table, PREFIX_COLUMN, type.sqlType(), prefixDimension,
+                EMBEDDING_COLUMN, prefixDimension, type.sqlType(), prefixDimension));
+    }
+
+    /**
+     * 当前配置所需的向量索引是否存在（操作符类与距离模式不一致的索引视为不存在）
+     */
+    public boolean indexExists(String table) {
+        return expectedOpsClass(table).equals(indexOpsClass(activeIndexName(table)));
+    }
+
+    /**
+     * 全量列与前缀列的索引都删除：切换检索配置后遗留的另一份索引也不应在批量写入时被维护
+     */
+    public void dropIndex(String table) {
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + indexName(table));
+        jdbcTemplate.execute("DROP INDEX IF EXISTS " + prefixIndexName(table));
+        log.info("已删除向量索引: {}, {}", indexName(table), prefixIndexName(table));
+    }
+
+    /**
+     * 以调优后的会话参数构建 HNSW 索引（已存在则跳过），构建期间按间隔回调进度
+     */
+    public void buildIndex(String table, Consumer<IndexBuildProgress> progressListener) {
+        String workMem = ingestionConfig.getIndexBuildMaintenanceWorkMem().trim();
+        if (!MEMORY_SETTING.matcher(workMem).matches()) {
+            throw new IllegalArgumentException("非法的 maintenance_work_mem 配置: " + workMem);
+        }
+        int workers = Math.max(0, ingestionConfig.getIndexBuildParallelWorkers());
+        long pollSeconds = Math.max(1, ingestionConfig.getIndexBuildProgressPollSeconds());
+        String column = prefixDimension > 0 ? PREFIX_COLUMN : EMBEDDING_COLUMN;
+        // 操作符类按表上实际类型选择：配置已改为 halfvec 但尚未迁移的表仍按 vector 建索引
+        String opsClass = expectedOpsClass(table);
+        String existing = indexOpsClass(activeIndexName(table));
+        if (existing != null && !existing.equals(opsClass)) {
+            log.info("向量索引操作符类 {} 与配置 {} 不一致，删除后重建: {}", existing, opsClass, activeIndexName(table));
+            jdbcTemplate.execute("DROP INDEX IF EXISTS " + activeIndexName(table));
+        }
+        if (retrievalConfig.getDistanceMode() == RetrievalConfig.DistanceMode.INNER_PRODUCT
+                && !opsClass.equals(existing)) {
+            normalizeStoredRows(table);
+        }
+        String ddl = String.format(
+                "CREATE INDEX IF NOT EXISTS %s ON %s USING hnsw (%s %s) WITH (m = %d, ef_construction = %d)",
+                activeIndexName(table), table, column, opsClass, hnswM, hnswEfConstruction);
+
+        long start = System.currentTimeMillis();
+        log.info("开始构建 HNSW 索引: table={}, column={}, opclass={}, maintenance_work_mem={}, max_parallel_maintenance_workers={}",
+                table, column, opsClass, workMem, workers);
+        ScheduledFuture<?> polling = progressPoller.scheduleWithFixedDelay(
+                () -> pollProgress(table, progressListener), pollSeconds, pollSeconds, TimeUnit.SECONDS);
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SET maintenance_work_mem = '" + workMem + "'");
+                    statement.execute("SET max_parallel_maintenance_workers = " + workers);
+                    try {
+                        statement.execute(ddl);
+                    } finally {
+                        statement.execute("RESET maintenance_work_mem");
+                        statement.execute("RESET max_parallel_maintenance_workers");
+                    }
+                }
+                return null;
+            });
+        } finally {
+            polling.cancel(false);
+        }
+        log.info("HNSW 索引构建完成: table={}, column={}, 耗时 {} ms, 索引大小 {}",
+                table, column, System.currentTimeMillis() - start, indexSize(activeIndexName(table)));
+    }
+
+    /**
+     * 内积模式要求全量向量为单位长度（前缀列由生成表达式归一化，随 UPDATE 重新计算）；
+     * 新写入的行已在应用侧归一化，这里只会改到归一化写入上线前的存量行，重复执行不再更新任何行
+     */
+    private void normalizeStoredRows(String table) {
+        long start = System.currentTimeMillis();
+        int updated = jdbcTemplate.update(String.format(
+                "UPDATE %s SET %s = l2_normalize(%s) WHERE vector_norm(%s::vector) > 0 "
+                        + "AND abs(vector_norm(%s::vector) - 1) > %s",
+                table, EMBEDDING_COLUMN, EMBEDDING_COLUMN, EMBEDDING_COLUMN, EMBEDDING_COLUMN, UNIT_NORM_TOLERANCE));
+        if (updated > 0) {
+            log.info("INNER_PRODUCT 建索引前已归一化存量向量: table={}, 行数 {}, 耗时 {} ms",
+                    table, updated, System.currentTimeMillis() - start);
+        }
+    }
+
+    private void verifyDimensions(String table, int tableDimensions) {
+        Map<String, Integer> expected = prefixDimension > 0
+                ? Map.of(EMBEDDING_COLUMN, tableDimensions, PREFIX_COLUMN, prefixDimension)
+                : Map.of(EMBEDDING_COLUMN, tableDimensions);
+        // vector / halfvec 类型的 atttypmod 即声明的维度
+        jdbcTemplate.query(
+                "SELECT attname, atttypmod FROM pg_attribute "
+                        + "WHERE attrelid = to_regclass(?) AND attname IN (?, ?) AND NOT attisdropped",
+                rs -> {
+                    String column = rs.getString("attname");
+                    int actual = rs.getInt("atttypmod");
+                    Integer want = expected.get(column);
+                    if (want != null && actual != want) {
+                        throw new IllegalStateException(String.format(
+                                "向量列维度与配置不一致: %s.%s 为 %d，配置为 %d；请删除该列或执行 BLUE_GREEN reindex 重建表",
+                                table, column, actual, want));
+                    }
+                },
+                table, EMBEDDING_COLUMN, PREFIX_COLUMN);
+        if (prefixDimension > 0 && retrievalConfig.getDistanceMode() == RetrievalConfig.DistanceMode.INNER_PRODUCT) {
+            String expression = jdbcTemplate.queryForList(
+                    "SELECT pg_get_expr(d.adbin, d.adrelid) FROM pg_attrdef d "
+                            + "JOIN pg_attribute a ON a.attrelid = d.adrelid AND a.attnum = d.adnum "
+                            + "WHERE d.adrelid = to_regclass(?) AND a.attname = ?",
+                    String.class, table, PREFIX_COLUMN).stream().findFirst().orElse("");
+            if (!expression.contains("l2_normalize")) {
+                // 未归一化的前缀做内积排序会偏向范数大的前缀，召回结果错误
+                throw new IllegalStateException(String.format(
+                        "前缀列 %s.%s 未归一化，不能用于 INNER_PRODUCT；请删除该列后重启或执行 BLUE_GREEN reindex",
+                        table, PREFIX_COLUMN));
+            }
+        }
+        IngestionConfig.VectorType stored = storedType(table);
+        if (stored != ingestionConfig.getVectorType()) {
+            // 不阻止启动：检索与建索引都按实际类型工作，迁移前后均可用
+            log.warn("向量列类型与配置不一致: {}.{} 为 {}，配置为 {}；请执行 POST /rag/vector-storage/migrate",
+                    table, EMBEDDING_COLUMN, stored.sqlType(), ingestionConfig.getVectorType().sqlType());
+        }
+    }
+
+    private String expectedOpsClass(String table) {
+        return retrievalConfig.getDistanceMode().opsClass(storedType(table).sqlType());
+    }
+
+    /**
+     * @return 索引首列的操作符类名；索引不存在时为 null
+     */
+    private String indexOpsClass(String index) {
+        List<String> opsClasses = jdbcTemplate.queryForList(
+                "SELECT opc.opcname FROM pg_index i JOIN pg_opclass opc ON opc.oid = i.indclass[0] "
+                        + "WHERE i.indexrelid = to_regclass(?)",
+                String.class, index);
+        return opsClasses.isEmpty() ? null : opsClasses.get(0);
+    }
+
+    private String indexSize(String index) {
+        try {
+            return jdbcTemplate.queryForObject(
+                    "SELECT pg_size_pretty(pg_relation_size(to_regclass(?)))", String.class, index);
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+
+    private void pollProgress(String table, Consumer<IndexBuildProgress> progressListener) {
+        try {
+            List<IndexBuildProgress> samples = jdbcTemplate.query(
+                    "SELECT phase, blocks_total, blocks_done, tuples_total, tuples_done "
+                            + "FROM pg_stat_progress_create_index WHERE relid = to_regclass(?)",
+                    (rs, rowNum) -> new IndexBuildProgress(
+                            rs.getString("phase"),
+                            rs.getLong("blocks_total"),
+                            rs.getLong("blocks_done"),
+                            rs.getLong("tuples_total"),
+                            rs.getLong("tuples_done")),
+                    table);
+            if (samples.isEmpty()) {
+                return;
+            }
+            IndexBuildProgress progress = samples.get(0);
+            log.info("HNSW 索引构建进度: table={}, {}, {}%", table, progress,
+                    String.format("%.1f", progress.percent()));
+            progressListener.accept(progress);
+        } catch (Exception e) {
+            // 进度只是观测信息，采样失败不能影响建索引本身
+            log.warn("采样索引构建进度失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        progressPoller.shutdownNow();
+    }
+
+    static String indexName(String table) {
+        return table + "_index";
+    }
+
+    static String prefixIndexName(String table) {
+        return table + "_prefix_index";
+    }
+
+    /**
+     * 当前检索配置实际使用的向量索引
+     */
+    private String activeIndexName(String table) {
+        return prefixDimension > 0 ? prefixIndexName(table) : indexName(table);
+    }
+
+    static String fileIndexName(String table) {
+        return table + "_file_idx";
+    }
+
+    static String chapterIndexName(String table) {
+        return table + "_chapter_idx";
+    }
+}
@@ -0,0 +1,210 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.domain.rag.ReindexJobPhase;
+import com.shawn.aiagent.domain.rag.ReindexJobStatus;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * PostgreSQL 重新索引任务适配器
+ * 实现ReindexJobGateway接口：任务表 rag_reindex_job 的读写
+ *
+ * "至多一个活动任务"由部分唯一索引保证：(true) WHERE status IN ('PENDING','RUNNING')，
+ * 并发创建时只有一条 INSERT 成功，其余命中 ON CONFLICT DO NOTHING。
+ */
+@Component
+@Slf4j
+public class PgReindexJobAdapter implements ReindexJobGateway {
+
+    private static final String TABLE = "rag_reindex_job";
+    private static final String ACTIVE_CONDITION = "status IN ('PENDING', 'RUNNING')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean schemaReady = false;
+
+    public PgReindexJobAdapter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<ReindexJob> createIfNoneActive(String mode, int batchSize, ReindexJobPhase initialPhase) {
+        ensureSchema();
+        String id = UUID.randomUUID().toString();
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO " + TABLE + " (id, status, phase, mode, batch_size, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, now(), now()) ON CONFLICT DO NOTHING",
+                id, ReindexJobStatus.PENDING.name(), initialPhase.name(), mode, batchSize);
+        if (inserted == 0) {
+            log.info("已存在活动的 reindex 任务，跳过创建");
+            return Optional.empty();
+        }
+        log.info("创建 reindex 任务: id={}, mode={}, batchSize={}", id, mode, batchSize);
+        return findById(id);
+    }
+
+    @Override
+    public Optional<ReindexJob> findById(String jobId) {
+        ensureSchema();
+        return jdbcTemplate.query("SELECT * FROM " + TABLE + " WHERE id = ?", JOB_ROW_MAPPER, jobId)
+                .stream().findFirst();
+    }
+
+    @Override
+    public Optional<ReindexJob> findActive() {
+        ensureSchema();
+        return jdbcTemplate.query("SELECT * FROM " + TABLE + " WHERE " + ACTIVE_CONDITION, JOB_ROW_MAPPER)
+                .stream().findFirst();
+    }
+
+    @Override
+    public List<ReindexJob> findRecentSucceeded(int limit) {
+        ensureSchema();
+        return jdbcTemplate.query(
+                "SELECT * FROM " + TABLE + " WHERE status = ? ORDER BY finished_at DESC LIMIT ?",
+                JOB_ROW_MAPPER, ReindexJobStatus.SUCCEEDED.name(), limit);
+    }
+
+    @Override
+    public ReindexJob markRunning(String jobId, int totalChunks, int duplicateChunks) {
+        ensureSchema();
+        int updated = jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET status = ?, total_chunks = ?, duplicate_chunks = ?, attempts = attempts + 1, "
+                        + "started_at = COALESCE(started_at, now()), updated_at = now() WHERE id = ?",
+                ReindexJobStatus.RUNNING.name(), totalChunks, duplicateChunks, jobId);
+        if (updated == 0) {
+            throw new IllegalStateException("reindex 任务不存在: " + jobId);
+        }
+        return findById(jobId).orElseThrow(() -> new IllegalStateException("reindex 任务不存在: " + jobId));
+    }
+
+    @Override
+    public void recordEmbedTokens(String jobId, long embedTokens, long embedTokensSaved) {
+        ensureSchema();
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET embed_tokens = ?, embed_tokens_saved = ?, updated_at = now() WHERE id = ?",
+                embedTokens, embedTokensSaved, jobId);
+    }
+
+    @Override
+    public void checkpoint(String jobId, ReindexJobPhase phase, int completedBatches, int processedChunks) {
+        ensureSchema();
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET phase = ?, completed_batches = ?, processed_chunks = ?, updated_at = now() WHERE id = ?",
+                phase.name(), completedBatches, processedChunks, jobId);
+    }
+
+    @Override
+    public void recordIndexProgress(String jobId, IndexBuildProgress progress) {
+        ensureSchema();
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET index_build_phase = ?, index_build_percent = ?, updated_at = now() WHERE id = ?",
+                progress.getPhase(), progress.percent(), jobId);
+    }
+
+    @Override
+    public void markFinished(String jobId, ReindexJobStatus status, String errorMessage) {
+        if (!status.isTerminal()) {
+            throw new IllegalArgumentException("非终态不能用于结束任务: " + status);
+        }
+        ensureSchema();
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET status = ?, error_message = ?, finished_at = now(), updated_at = now() "
+                        + "WHERE id = ? AND " + ACTIVE_CONDITION,
+                status.name(), errorMessage, jobId);
+        log.info("reindex 任务结束: id={}, status={}", jobId, status);
+    }
+
+    @Override
+    public Optional<ReindexJob> requestCancel(String jobId) {
+        ensureSchema();
+        // PENDING 尚未被任何节点领取，直接取消；RUNNING 只打标记，由执行方在批次间响应
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET status = ?, cancel_requested = true, finished_at = now(), updated_at = now() "
+                        + "WHERE id = ? AND status = ?",
+                ReindexJobStatus.CANCELLED.name(), jobId, ReindexJobStatus.PENDING.name());
+        jdbcTemplate.update(
+                "UPDATE " + TABLE + " SET cancel_requested = true, updated_at = now() WHERE id = ? AND status = ?",
+                jobId, ReindexJobStatus.RUNNING.name());
+        return findById(jobId);
+    }
+
+    /**
+     * 懒建表：应用启动时数据库不一定可用，首次访问时再建
+     */
+    private void ensureSchema() {
+        if (schemaReady) {
+            return;
+        }
+        synchronized (this) {
+            if (schemaReady) {
+                return;
+            }
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                    + "id varchar(36) PRIMARY KEY, "
+                    + "status varchar(16) NOT NULL, "
+                    + "phase varchar(16) NOT NULL, "
+                    + "mode varchar(32) NOT NULL, "
+                    + "batch_size int NOT NULL, "
+                    + "total_chunks int NOT NULL DEFAULT 0, "
+                    + "duplicate_chunks int NOT NULL DEFAULT 0, "
+                    + "embed_tokens bigint NOT NULL DEFAULT 0, "
+                    + "embed_tokens_saved bigint NOT NULL DEFAULT 0, "
+                    + "completed_batches int NOT NULL DEFAULT 0, "
+                    + "processed_chunks int NOT NULL DEFAULT 0, "
+                    + "attempts int NOT NULL DEFAULT 0, "
+                    + "cancel_requested boolean NOT NULL DEFAULT false, "
+                    + "index_build_phase text, "
+                    + "index_build_percent double precision NOT NULL DEFAULT 0, "
+                    + "error_message text, "
+                    + "created_at timestamptz NOT NULL, "
+                    + "started_at timestamptz, "
+                    + "updated_at timestamptz NOT NULL, "
+                    + "finished_at timestamptz)");
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + TABLE + "_single_active ON "
+                    + TABLE + " ((true)) WHERE " + ACTIVE_CONDITION);
+            schemaReady = true;
+            log.info("reindex 任务表已就绪: {}", TABLE);
+        }
+    }
+
+    private static final RowMapper<ReindexJob> JOB_ROW_MAPPER = (ResultSet rs, int rowNum) -> ReindexJob.builder()
+            .id(rs.getString("id"))
+            .status(ReindexJobStatus.valueOf(rs.getString("status")))
+            .phase(ReindexJobPhase.valueOf(rs.getString("phase")))
+            .mode(rs.getString("mode"))
+            .batchSize(rs.getInt("batch_size"))
+            .totalChunks(rs.getInt("total_chunks"))
+            .duplicateChunks(rs.getInt("duplicate_chunks"))
+            .embedTokens(rs.getLong("embed_tokens"))
+            .embedTokensSaved(rs.getLong("embed_tokens_saved"))
+            .completedBatches(rs.getInt("completed_batches"))
+            .processedChunks(rs.getInt("processed_chunks"))
+            .attempts(rs.getInt("attempts"))
+            .cancelRequested(rs.getBoolean("cancel_requested"))
+            .indexBuildPhase(rs.getString("index_build_phase"))
+            .indexBuildPercent(rs.getDouble("index_build_percent"))
+            .errorMessage(rs.getString("error_message"))
+            .createdAt(toInstant(rs, "created_at"))
+            .startedAt(toInstant(rs, "started_at"))
+            .updatedAt(toInstant(rs, "updated_at"))
+            .finishedAt(toInstant(rs, "finished_at"))
+            .build();
+
+    private static Instant toInstant(ResultSet rs, String column) throws SQLException {
+        Timestamp ts = rs.getTimestamp(column);
+        return ts != null ? ts.toInstant() : null;
+    }
+}
@@ -0,0 +1,185 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.port.rag.VectorGenerationGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL pgvector 代际（blue/green）适配器
+ * 实现VectorGenerationGateway接口：影子表构建、延迟建索引、重命名原子切换
+ * 建表与建索引语句委托给 PgHnswIndexBuilder，与线上表保持一致
+ *
+ * 表命名：live = {table}，shadow = {table}_shadow，previous = {table}_prev；
+ * 索引命名沿用 Spring AI PgVectorStore 的 "{table}_index" 约定，切换时随表一起重命名。
+ */
+@Component
+@Slf4j
+public class PgVectorGenerationAdapter implements VectorGenerationGateway {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PgHnswIndexBuilder indexBuilder;
+    private final PgVectorStore shadowStore;
+    private final String liveTable;
+    private final String shadowTable;
+    private final String previousTable;
+    private final String cutoverLockTimeout;
+
+    public PgVectorGenerationAdapter(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            PgHnswIndexBuilder indexBuilder,
+            @Qualifier("reindexEmbeddingModel") EmbeddingModel embeddingModel,
+            EmbedTextBatchingStrategy batchingStrategy,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName,
+            @Value("${spring.ai.vectorstore.pgvector.embedding-dimension}") int dimensions,
+            @Value("${rag.ingestion.cutover-lock-timeout:5s}") String cutoverLockTimeout) {
+        if (tableName == null || !IDENTIFIER.matcher(tableName.trim()).matches()) {
+            throw new IllegalArgumentException("非法的向量表名: " + tableName);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.indexBuilder = indexBuilder;
+        this.liveTable = tableName.trim();
+        this.shadowTable = liveTable + "_shadow";
+        this.previousTable = liveTable + "_prev";
+        this.cutoverLockTimeout = cutoverLockTimeout;
+        // 影子表由本适配器建表，Spring AI 只负责向量化 + upsert，不做任何 schema 初始化
+        this.shadowStore = PgVectorStore.builder(jdbcTemplate, embeddingModel)
+                .vectorTableName(shadowTable)
+                .dimensions(dimensions)
+                .indexType(PgVectorStore.PgIndexType.NONE)
+                .initializeSchema(false)
+                .batchingStrategy(batchingStrategy)
+                .build();
+    }
+
+    @Override
+    public void prepareShadow() {
+        log.info("准备影子表: {}", shadowTable);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + shadowTable);
+        indexBuilder.createTableIfNotExists(shadowTable);
+        log.info("影子表已就绪（未建向量索引）: {}", shadowTable);
+    }
+
+    @Override
+    public void addDocumentsToShadow(List<DocumentChunk> chunks) {
+        if (chunks == null || chunks.isEmpty()) {
+            log.debug("文档块列表为空，跳过写入影子表");
+            return;
+        }
+        try {
+            List<Document> documents = chunks.stream()
+                    .map(PgVectorStoreAdapter::toSpringAiDocument)
+                    .toList();
+            shadowStore.add(documents);
+            log.debug("写入影子表 {} 个文档块", chunks.size());
+        } catch (Exception e) {
+            log.error("写入影子表失败，数量: {}, 错误: {}", chunks.size(), e.getMessage(), e);
+            throw new RuntimeException("写入影子表失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long copyLiveToShadow() {
+        long start = System.currentTimeMillis();
+        // 前缀列是生成列，不能显式写入，由影子表按自身列类型重新计算
+        int rows = jdbcTemplate.update("INSERT INTO " + shadowTable + " (id, content, metadata, embedding) "
+                + "SELECT id, content, metadata, embedding FROM " + liveTable);
+        log.info("已复制 {} 行到影子表 {}，耗时 {} ms", rows, shadowTable, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    @Override
+    public void buildShadowIndex(Consumer<IndexBuildProgress> progressListener) {
+        indexBuilder.buildIndex(shadowTable, progressListener);
+    }
+
+    @Override
+    public long countShadowRows() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + shadowTable, Long.class);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public boolean shadowExists() {
+        return tableExists(shadowTable);
+    }
+
+    @Override
+    public void cutover() {
+        log.info("开始切换: {} -> {}，原 {} 保留为 {}", shadowTable, liveTable, liveTable, previousTable);
+        transactionTemplate.executeWithoutResult(status -> {
+            // 影子表缺失时绝不能继续：否则会把 live 改名成 previous 而没有新表补位
+            if (!tableExists(shadowTable)) {
+                throw new IllegalStateException("影子表不存在，拒绝切换: " + shadowTable);
+            }
+            applyLockTimeout();
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + previousTable);
+            renameGeneration(liveTable, previousTable);
+            renameGeneration(shadowTable, liveTable);
+        });
+        log.info("切换完成，当前 live: {}", liveTable);
+    }
+
+    @Override
+    public long rollback() {
+        if (!tableExists(previousTable)) {
+            throw new IllegalStateException("不存在可回滚的上一代索引: " + previousTable);
+        }
+        String parked = liveTable + "_rollback";
+        log.info("开始回滚: {} <-> {}", previousTable, liveTable);
+        transactionTemplate.executeWithoutResult(status -> {
+            applyLockTimeout();
+            renameGeneration(liveTable, parked);
+            renameGeneration(previousTable, liveTable);
+            renameGeneration(parked, previousTable);
+        });
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + liveTable, Long.class);
+        log.info("回滚完成，当前 live: {}, 行数: {}", liveTable, count);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * 重命名一代表：表、向量索引（全量/前缀）、源文件索引、章节索引、主键索引一起改名，避免下一代建表时索引名冲突
+     */
+    private void renameGeneration(String from, String to) {
+        jdbcTemplate.execute("ALTER TABLE IF EXISTS " + from + " RENAME TO " + to);
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + PgHnswIndexBuilder.indexName(from)
+                + " RENAME TO " + PgHnswIndexBuilder.indexName(to));
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + PgHnswIndexBuilder.prefixIndexName(from)
+                + " RENAME TO " + PgHnswIndexBuilder.prefixIndexName(to));
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + PgHnswIndexBuilder.fileIndexName(from)
+                + " RENAME TO " + PgHnswIndexBuilder.fileIndexName(to));
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + PgHnswIndexBuilder.chapterIndexName(from)
+                + " RENAME TO " + PgHnswIndexBuilder.chapterIndexName(to));
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + from + "_pkey RENAME TO " + to + "_pkey");
+    }
+
+    /**
+     * 切换需要 ACCESS EXCLUSIVE 锁；限制等锁时间，避免长查询导致切换无限排队阻塞读请求
+     */
+    private void applyLockTimeout() {
+        jdbcTemplate.queryForObject("SELECT set_config('lock_timeout', ?, true)", String.class, cutoverLockTimeout);
+    }
+
+    private boolean tableExists(String table) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+        return Boolean.TRUE.equals(exists);
+    }
+}
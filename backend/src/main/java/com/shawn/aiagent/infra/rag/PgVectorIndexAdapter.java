@@ -0,0 +1,50 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.port.rag.VectorIndexGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+
+/**
+ * PostgreSQL pgvector 线上表索引适配器
+ * 实现VectorIndexGateway接口
+ */
+@Component
+public class PgVectorIndexAdapter implements VectorIndexGateway {
+
+    private final PgHnswIndexBuilder indexBuilder;
+    private final TransactionTemplate transactionTemplate;
+    private final String liveTable;
+
+    public PgVectorIndexAdapter(
+            PgHnswIndexBuilder indexBuilder,
+            TransactionTemplate transactionTemplate,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName) {
+        this.indexBuilder = indexBuilder;
+        this.transactionTemplate = transactionTemplate;
+        this.liveTable = tableName.trim();
+    }
+
+    @Override
+    public void dropIndex() {
+        indexBuilder.dropIndex(liveTable);
+    }
+
+    @Override
+    public void buildIndex(Consumer<IndexBuildProgress> progressListener) {
+        indexBuilder.buildIndex(liveTable, progressListener);
+    }
+
+    @Override
+    public String storedType() {
+        return indexBuilder.storedType(liveTable).sqlType();
+    }
+
+    @Override
+    public void convertStoredType() {
+        transactionTemplate.executeWithoutResult(status -> indexBuilder.convertStoredType(liveTable));
+    }
+}
@@ -0,0 +1,66 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * pgvector 线上表结构初始化
+ * 取代 Spring AI 的 initialize-schema：Spring AI 每次启动都会 CREATE INDEX IF NOT EXISTS，
+ * 若在 IN_PLACE_DEFERRED_INDEX 任务写入期间重启，会把刚删掉的 HNSW 索引建回来，
+ * 剩余批次重新承担逐行的图维护。这里在存在该类活动任务时跳过建索引，交由任务在写入完成后构建。
+ */
+@Component
+@Slf4j
+public class PgVectorSchemaInitializer implements CommandLineRunner {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PgHnswIndexBuilder indexBuilder;
+    private final ReindexJobGateway reindexJobGateway;
+    private final IngestionConfig ingestionConfig;
+    private final String liveTable;
+
+    public PgVectorSchemaInitializer(
+            JdbcTemplate jdbcTemplate,
+            PgHnswIndexBuilder indexBuilder,
+            ReindexJobGateway reindexJobGateway,
+            IngestionConfig ingestionConfig,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexBuilder = indexBuilder;
+        this.reindexJobGateway = reindexJobGateway;
+        this.ingestionConfig = ingestionConfig;
+        this.liveTable = tableName.trim();
+    }
+
+    @Override
+    public void run(String... args) {
+        if (!ingestionConfig.isInitializeSchema()) {
+            log.info("rag.ingestion.initialize-schema=false，跳过向量表初始化");
+            return;
+        }
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            indexBuilder.createTableIfNotExists(liveTable);
+            if (indexBuilder.indexExists(liveTable)) {
+                log.info("向量表已就绪: {}", liveTable);
+                return;
+            }
+            boolean deferredLoadActive = reindexJobGateway.findActive()
+                    .map(job -> IngestionConfig.ReindexMode.IN_PLACE_DEFERRED_INDEX.name().equals(job.getMode()))
+                    .orElse(false);
+            if (deferredLoadActive) {
+                log.info("存在延迟建索引的 reindex 任务，跳过构建向量索引: {}", liveTable);
+                return;
+            }
+            indexBuilder.buildIndex(liveTable, progress -> { });
+        } catch (Exception e) {
+            // 与 PostgresConnectivityCheck 一致：数据库不可用时不阻止应用启动
+            log.error("初始化向量表失败: {}; {}", liveTable, e.getMessage(), e);
+        }
+    }
+}
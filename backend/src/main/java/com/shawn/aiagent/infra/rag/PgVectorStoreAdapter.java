@@ -1,29 +1,83 @@
 package com.shawn.aiagent.infra.rag;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shawn.aiagent.domain.rag.ChunkRange;
+import com.shawn.aiagent.domain.rag.ContextWindowPolicy;
 import com.shawn.aiagent.domain.rag.DocumentChunk;
 import com.shawn.aiagent.domain.rag.RetrievalResult;
+import com.shawn.aiagent.domain.rag.VectorNormalizationPolicy;
 import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.RetrievalConfig;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.ContentFormatter;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import jakarta.annotation.Resource;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
  * PostgreSQL pgvector向量存储适配器
- * 实现VectorStoreGateway接口，使用Spring AI VectorStore
+ * 实现VectorStoreGateway接口：写入使用Spring AI VectorStore，检索直接用调用方给出的查询向量执行SQL
+ *
+ * 配置 rag.retrieval.prefix-dimension 时走两阶段检索：先在前缀列 embedding_prefix 的 HNSW 索引上
+ * 召回 prefix-candidates 个候选，再用全量向量精确计算余弦相似度重排取 topK。
+ * 查询向量以未声明类型的参数传入，由数据库按列类型（vector / halfvec）推断，存储类型迁移前后无需改 SQL。
+ * 查询向量先 L2 归一化；rag.retrieval.distance-mode=INNER_PRODUCT 时按 <#> 排序，分数换算回余弦相似度。
  */
 @Component
 @Slf4j
 public class PgVectorStoreAdapter implements VectorStoreGateway {
     
-    @Resource
-    private VectorStore vectorStore;
+    /**
+     * pgvector hnsw.ef_search 的默认值与上限
+     */
+    private static final int DEFAULT_EF_SEARCH = 40;
+    private static final int MAX_EF_SEARCH = 1000;
+    
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() { };
+    
+    private final VectorNormalizationPolicy normalizationPolicy = new VectorNormalizationPolicy();
+    
+    private final VectorStore vectorStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RetrievalConfig retrievalConfig;
+    private final ObjectMapper objectMapper;
+    private final String tableName;
+    
+    /**
+     * 线上表由 Spring 装配；模型迁移的候选表复用同一实现，传入绑定候选表与候选模型的 VectorStore
+     */
+    public PgVectorStoreAdapter(
+            VectorStore vectorStore,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            RetrievalConfig retrievalConfig,
+            ObjectMapper objectMapper,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String tableName) {
+        this.vectorStore = vectorStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retrievalConfig = retrievalConfig;
+        this.objectMapper = objectMapper;
+        this.tableName = tableName;
+    }
     
     @Override
     public void addDocuments(List<DocumentChunk> chunks) {
@@ -37,7 +91,7 @@ public class PgVectorStoreAdapter implements VectorStoreGateway {
         try {
             // 将领域对象DocumentChunk转换为Spring AI的Document
             List<Document> documents = chunks.stream()
-                    .map(this::toSpringAiDocument)
+                    .map(PgVectorStoreAdapter::toSpringAiDocument)
                     .collect(Collectors.toList());
             
             // 使用Spring AI VectorStore添加文档（会自动进行向量化）
@@ -82,20 +136,14 @@ public class PgVectorStoreAdapter implements VectorStoreGateway {
         log.info("开始向量检索，topK={}, query.length={}", k, normalizedQuery.length());
 
         try {
-            SearchRequest searchRequest = SearchRequest.builder()
-                    .query(normalizedQuery)
-                    .topK(k)
-                    .build();
-
-            List<Document> docs = vectorStore.similaritySearch(searchRequest);
-            if (docs == null || docs.isEmpty()) {
+            int prefixDimension = retrievalConfig.getPrefixDimension();
+            List<RetrievalResult> results = prefixDimension > 0
+                    ? prefixSearch(embedding, prefixDimension, k)
+                    : fullSearch(embedding, k);
+            if (results.isEmpty()) {
                 log.warn("向量检索结果为空，query.length={}", normalizedQuery.length());
-                return List.of();
             }
-
-            return docs.stream()
-                    .map(this::toRetrievalResult)
-                    .toList();
+            return results;
         } catch (RuntimeException e) {
             log.error("向量检索失败: {}", e.getMessage(), e);
             throw e;
@@ -105,23 +153,167 @@ public class PgVectorStoreAdapter implements VectorStoreGateway {
         }
     }
     
+    private List<RetrievalResult> fullSearch(List<Double> embedding, int k) {
+        RetrievalConfig.DistanceMode mode = retrievalConfig.getDistanceMode();
+        SqlParameterValue vector = vectorParameter(normalizationPolicy.normalize(embedding));
+        String sql = "SELECT id::text AS id, content, metadata::text AS metadata, " + scoreExpression(mode) + " AS score"
+                + " FROM " + tableName.trim() + " ORDER BY embedding " + mode.operator() + " ? LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRetrievalResult, vector, vector, k);
+    }
+    
+    /**
+     * 两阶段检索：ef_search 至少要覆盖候选数，否则 HNSW 返回的候选不足，只在本事务内生效；
+     * 前缀列存储的是重新归一化的前缀，查询前缀同样重新归一化
+     */
+    private List<RetrievalResult> prefixSearch(List<Double> embedding, int prefixDimension, int k) {
+        if (embedding.size() <= prefixDimension) {
+            throw new IllegalArgumentException("embedding 维度 " + embedding.size()
+                    + " 不大于前缀维度 " + prefixDimension);
+        }
+        RetrievalConfig.DistanceMode mode = retrievalConfig.getDistanceMode();
+        int candidates = Math.min(MAX_EF_SEARCH, Math.max(k, retrievalConfig.getPrefixCandidates()));
+        SqlParameterValue vector = vectorParameter(normalizationPolicy.normalize(embedding));
+        SqlParameterValue prefix = vectorParameter(normalizationPolicy.normalizePrefix(embedding, prefixDimension));
+        String sql = "SELECT id::text AS id, content, metadata::text AS metadata, " + scoreExpression(mode) + " AS score"
+                + " FROM (SELECT id, content, metadata, embedding FROM " + tableName.trim()
+                + " ORDER BY embedding_prefix " + mode.operator() + " ? LIMIT ?) candidates"
+                + " ORDER BY score DESC LIMIT ?";
+        List<RetrievalResult> results = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class,
+                    String.valueOf(Math.max(DEFAULT_EF_SEARCH, candidates)));
+            return jdbcTemplate.query(sql, this::mapRetrievalResult, vector, prefix, candidates, k);
+        });
+        return results != null ? results : List.of();
+    }
+    
+    /**
+     * 换算为 RetrievalResult.score 约定的余弦相似度：
+     * 余弦距离取 1 - d；<#> 返回负内积，单位向量的内积即余弦相似度，取反即可
+     */
+    private static String scoreExpression(RetrievalConfig.DistanceMode mode) {
+        return mode == RetrievalConfig.DistanceMode.INNER_PRODUCT
+                ? "(embedding <#> ?) * -1"
+                : "1 - (embedding <=> ?)";
+    }
+    
+    /**
+     * 区间列表以并列数组传入，unnest 展开后与线上表关联；命中 (source, chapter-ID, chunk_index_in_chapter) 表达式索引
+     */
+    @Override
+    public List<RetrievalResult> findChunksInRanges(List<ChunkRange> ranges) {
+        if (ranges == null || ranges.isEmpty()) {
+            return List.of();
+        }
+        String sql = "SELECT t.id::text AS id, t.content, t.metadata::text AS metadata, 0 AS score"
+                + " FROM unnest(?, ?, ?, ?, ?) AS r(source, file, chapter, lo, hi)"
+                + " JOIN " + tableName.trim() + " t"
+                + " ON t.metadata->>'" + ContextWindowPolicy.SOURCE_METADATA_KEY + "' = r.source"
+                + " AND t.metadata->>'" + ContextWindowPolicy.CHAPTER_ID_METADATA_KEY + "' = r.chapter"
+                + " AND (t.metadata->>'" + ContextWindowPolicy.CHUNK_INDEX_IN_CHAPTER_METADATA_KEY + "')::int BETWEEN r.lo AND r.hi"
+                + " AND COALESCE(t.metadata->>'" + ContextWindowPolicy.FILE_METADATA_KEY + "', '') = r.file";
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("text", ranges.stream().map(ChunkRange::getSource).toArray()));
+            ps.setArray(2, connection.createArrayOf("text", ranges.stream().map(ChunkRange::getFile).toArray()));
+            ps.setArray(3, connection.createArrayOf("text", ranges.stream().map(ChunkRange::getChapterId).toArray()));
+            ps.setArray(4, connection.createArrayOf("int4", ranges.stream().map(ChunkRange::getFromIndex).toArray()));
+            ps.setArray(5, connection.createArrayOf("int4", ranges.stream().map(ChunkRange::getToIndex).toArray()));
+            return ps;
+        }, this::mapRetrievalResult);
+    }
+
+    @Override
+    public Map<String, String> findContentHashes(List<String> documentIds) {
+        if (documentIds == null || documentIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> hashes = new HashMap<>(documentIds.size() * 2);
+        String sql = "SELECT id::text, metadata->>'" + DocumentChunk.CONTENT_HASH_METADATA_KEY + "' FROM "
+                + tableName.trim() + " WHERE id = ANY(?)";
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            Array ids = connection.createArrayOf("uuid", documentIds.toArray());
+            ps.setArray(1, ids);
+            return ps;
+        }, rs -> {
+            // 早于内容哈希写入的行没有该键，记为空串，比对时视为"已变更"
+            String hash = rs.getString(2);
+            hashes.put(rs.getString(1), hash != null ? hash : "");
+        });
+        return hashes;
+    }
+    
+    @Override
+    public List<String> findDocumentIdsBySourceFile(String file) {
+        return jdbcTemplate.queryForList(
+                "SELECT id::text FROM " + tableName.trim() + " WHERE metadata->>'file' = ?", String.class, file);
+    }
+    
+    @Override
+    public long countDocuments() {
+        Long count = jdbcTemplate.queryForObject("SELECT count(*) FROM " + tableName.trim(), Long.class);
+        return count != null ? count : 0L;
+    }
+    
     /**
      * 将领域对象DocumentChunk转换为Spring AI的Document
+     * metadata 额外记录内容哈希，供预览/增量比对使用；
+     * EMBED 模式下的格式化内容固定为 chunk 的向量化文本，不再由 Spring AI 把全部 metadata 拼进去
      */
-    private Document toSpringAiDocument(DocumentChunk chunk) {
-        return new Document(
+    static Document toSpringAiDocument(DocumentChunk chunk) {
+        Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+        metadata.put(DocumentChunk.CONTENT_HASH_METADATA_KEY, chunk.contentHash());
+        Document document = new Document(
                 chunk.getId(),
                 chunk.getContent(),
-                chunk.getMetadata()
+                metadata
         );
+        ContentFormatter defaults = document.getContentFormatter();
+        String embedText = chunk.getEmbedText();
+        document.setContentFormatter((doc, mode) -> mode == MetadataMode.EMBED ? embedText : defaults.format(doc, mode));
+        return document;
     }
 
-    private RetrievalResult toRetrievalResult(Document document) {
-        String id = document.getId();
-        String text = document.getText();
-        Map<String, Object> metadata = document.getMetadata();
-        double score = document.getScore() != null ? document.getScore() : 0d;
-        return new RetrievalResult(id, text != null ? text : "", score, metadata);
+    /**
+     * Types.OTHER 使驱动以未指定类型发送参数，由 {@code <=>} 另一侧的列类型决定解析为 vector 或 halfvec
+     */
+    private static SqlParameterValue vectorParameter(List<Double> embedding) {
+        return new SqlParameterValue(Types.OTHER, toVectorLiteral(embedding));
+    }
+
+    /**
+     * 格式化为 pgvector 文本字面量
+     */
+    static String toVectorLiteral(List<Double> embedding) {
+        StringBuilder builder = new StringBuilder(embedding.size() * 12);
+        builder.append('[');
+        for (int i = 0; i < embedding.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(embedding.get(i).floatValue());
+        }
+        return builder.append(']').toString();
+    }
+
+    private RetrievalResult mapRetrievalResult(ResultSet rs, int rowNum) throws SQLException {
+        String text = rs.getString("content");
+        return new RetrievalResult(
+                rs.getString("id"),
+                text != null ? text : "",
+                rs.getDouble("score"),
+                parseMetadata(rs.getString("metadata")));
+    }
+
+    private Map<String, Object> parseMetadata(String json) {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("metadata 解析失败: " + e.getMessage(), e);
+        }
     }
 }
 
@@ -0,0 +1,359 @@
+package com.shawn.aiagent.infra.rag;
+
+import com.shawn.aiagent.domain.rag.ChunkSpan;
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.EmbedTextTemplate;
+import com.shawn.aiagent.domain.rag.NearDuplicatePolicy;
+import com.shawn.aiagent.domain.rag.ParagraphChunkingPolicy;
+import com.shawn.aiagent.domain.rag.TokenEstimationPolicy;
+import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
+import com.shawn.aiagent.port.rag.SourceFileLoaderGateway;
+import com.shawn.aiagent.support.config.TextSourceConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 原始文本目录文档加载器适配器
+ * 实现DocumentLoaderGateway / SourceFileLoaderGateway接口，从目录递归读取 .txt / .md 文件并按段落切分
+ *
+ * - Markdown 按标题（# ~ ######）划分章节，纯文本整个文件为一章，章节名取标题或文件名
+ * - 解析与切分在独立的 ForkJoinPool 上并行：文件之间并行，超大章节再按段落数拆成多个切分任务
+ * - 按文件窗口推进，内存中同时只保留一个窗口的解析结果
+ * - metadata 与 dreams 加载器保持同一形状（chunk_index / chapter-ID / chapter-name / para_start / para_end），
+ *   另外记录 file（相对路径）。所有序号都以文件为作用域（与 dreams 单文件语义一致），
+ *   因此单独重载一个文件得到的 chunk 与全量加载完全相同，其他文件变化也不影响本文件的 id
+ * - 每个文件切分完成后做近重复合并（rag.ingestion.dedup-enabled），reindex、预览与增量同步共用这一步，
+ *   得到相同的 chunk 集合；合并后章节内序号保持连续
+ * - 向量化文本由 rag.ingestion.embed-templates.text 决定
+ */
+@Slf4j
+public class TextDirectoryDocumentLoaderAdapter implements DocumentLoaderGateway, SourceFileLoaderGateway, AutoCloseable {
+
+    private static final UUID NAMESPACE = UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8");
+    private static final Pattern MARKDOWN_HEADING = Pattern.compile("^#{1,6}\\s+(.+?)\\s*#*\\s*$");
+
+    private final TextSourceConfig config;
+    private final ParagraphChunkingPolicy chunkingPolicy;
+    private final ForkJoinPool pool;
+    private final EmbedTextTemplate embedTextTemplate;
+    private final NearDuplicatePolicy nearDuplicatePolicy;
+
+    public TextDirectoryDocumentLoaderAdapter(TextSourceConfig config, EmbedTextTemplate embedTextTemplate,
+                                              NearDuplicatePolicy nearDuplicatePolicy) {
+        this.config = config;
+        this.embedTextTemplate = embedTextTemplate;
+        this.nearDuplicatePolicy = nearDuplicatePolicy;
+        this.chunkingPolicy = new ParagraphChunkingPolicy(
+                config.getMaxChunkTokens(), config.getOverlapTokens(), new TokenEstimationPolicy());
+        int parallelism = config.getParallelism() > 0
+                ? config.getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    @Override
+    public List<DocumentChunk> loadDocuments() {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        streamDocuments(500, chunks::addAll);
+        log.info("成功从文本目录加载 {} 个文档块", chunks.size());
+        return chunks;
+    }
+
+    @Override
+    public void streamDocuments(int batchSize, Consumer<List<DocumentChunk>> batchConsumer) {
+        Path root = root();
+        List<Path> files = listFiles(root);
+        log.info("开始加载文本目录: {}, 文件数: {}, 并行度: {}", root, files.size(), pool.getParallelism());
+
+        int size = Math.max(1, batchSize);
+        int window = Math.max(1, pool.getParallelism() * 2);
+        Cursor cursor = new Cursor();
+        List<DocumentChunk> batch = new ArrayList<>(size);
+        long start = System.currentTimeMillis();
+        int total = 0;
+
+        for (int from = 0; from < files.size(); from += window) {
+            List<Path> windowFiles = files.subList(from, Math.min(from + window, files.size()));
+            List<ParsedFile> parsed = inPool(() -> windowFiles.parallelStream()
+                    .map(file -> parse(root, file))
+                    .toList());
+            List<Section> sections = toSections(parsed);
+            List<List<ChunkSpan>> spans = inPool(() -> sections.parallelStream()
+                    .map(section -> chunkingPolicy.split(section.paragraphs(), section.trailOut()))
+                    .toList());
+
+            for (DocumentChunk chunk : assemble(sections, spans, cursor)) {
+                batch.add(chunk);
+                total++;
+                if (batch.size() >= size) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(size);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        log.info("文本目录加载完成: 文件 {} 个, chunk {} 个, 耗时 {} ms",
+                files.size(), total, System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public List<DocumentChunk> loadFile(String relativePath) {
+        Path root = root();
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("文件不在数据源目录内: " + relativePath);
+        }
+        if (!Files.isRegularFile(file) || !isSourceFile(file)) {
+            return List.of();
+        }
+        List<Section> sections = toSections(List.of(parse(root, file)));
+        List<List<ChunkSpan>> spans = inPool(() -> sections.parallelStream()
+                .map(section -> chunkingPolicy.split(section.paragraphs(), section.trailOut()))
+                .toList());
+        return assemble(sections, spans, new Cursor());
+    }
+
+    @Override
+    public String sourceRoot() {
+        return root().toString();
+    }
+
+    @Override
+    public boolean isSourceFile(String relativePath) {
+        return isSourceFile(Paths.get(relativePath));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private List<Path> listFiles(Path root) {
+        if (!Files.isDirectory(root)) {
+            log.warn("文本数据源目录不存在: {}", root);
+            return List.of();
+        }
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(this::isSourceFile)
+                    // 固定顺序，保证 chapter-ID / chunk_index 在多次运行间一致
+                    .sorted((a, b) -> relativePath(root, a).compareTo(relativePath(root, b)))
+                    .toList();
+        } catch (IOException e) {
+            throw new RuntimeException("扫描文本数据源目录失败: " + e.getMessage(), e);
+        }
+    }
+
+    private boolean isSourceFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        return config.getExtensions().stream()
+                .anyMatch(ext -> name.endsWith("." + ext.toLowerCase(Locale.ROOT)));
+    }
+
+    private Path root() {
+        return Paths.get(config.getDirectory()).toAbsolutePath().normalize();
+    }
+
+    private ParsedFile parse(Path root, Path file) {
+        String relativePath = relativePath(root, file);
+        String text;
+        try {
+            text = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("读取文本文件失败: " + relativePath + ", " + e.getMessage(), e);
+        }
+        if (!text.isEmpty() && text.charAt(0) == '\uFEFF') {
+            text = text.substring(1);
+        }
+        boolean markdown = relativePath.toLowerCase(Locale.ROOT).endsWith(".md");
+        String fileName = file.getFileName().toString();
+        String defaultChapter = fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+
+        List<Chapter> chapters = new ArrayList<>();
+        String chapterName = defaultChapter;
+        List<String> paragraphs = new ArrayList<>();
+        StringBuilder paragraph = new StringBuilder();
+        int paraIndex = 0;
+        int chapterFirstPara = 0;
+
+        for (String line : text.split("\\R", -1)) {
+            Matcher heading = markdown ? MARKDOWN_HEADING.matcher(line) : null;
+            if (heading != null && heading.matches()) {
+                paraIndex += flushParagraph(paragraph, paragraphs);
+                if (!paragraphs.isEmpty()) {
+                    chapters.add(new Chapter(chapterName, chapterFirstPara, paragraphs));
+                }
+                chapterName = heading.group(1).trim();
+                paragraphs = new ArrayList<>();
+                chapterFirstPara = paraIndex;
+            } else if (line.isBlank()) {
+                paraIndex += flushParagraph(paragraph, paragraphs);
+            } else {
+                if (paragraph.length() > 0) {
+                    paragraph.append('\n');
+                }
+                paragraph.append(line.strip());
+            }
+        }
+        flushParagraph(paragraph, paragraphs);
+        if (!paragraphs.isEmpty()) {
+            chapters.add(new Chapter(chapterName, chapterFirstPara, paragraphs));
+        }
+        return new ParsedFile(relativePath, chapters);
+    }
+
+    /**
+     * @return 新增的段落数（0 或 1）
+     */
+    private static int flushParagraph(StringBuilder paragraph, List<String> paragraphs) {
+        String value = paragraph.toString().trim();
+        paragraph.setLength(0);
+        if (value.isEmpty()) {
+            return 0;
+        }
+        paragraphs.add(value);
+        return 1;
+    }
+
+    /**
+     * 把章节拆成切分任务；超大章节按段落数分段，使单个大文件也能利用多核
+     */
+    private List<Section> toSections(List<ParsedFile> files) {
+        int perTask = Math.max(1, config.getParagraphsPerTask());
+        List<Section> sections = new ArrayList<>();
+        for (ParsedFile file : files) {
+            for (Chapter chapter : file.chapters()) {
+                List<String> paragraphs = chapter.paragraphs();
+                // 分段开头携带上一分段末尾的重叠段落，接缝处与整章切分一样带重叠
+                int leadIn = 0;
+                for (int from = 0; from < paragraphs.size(); from += perTask) {
+                    int to = Math.min(from + perTask, paragraphs.size());
+                    int trailOut = chunkingPolicy.overlapBefore(paragraphs, from, to);
+                    sections.add(new Section(file.relativePath(), chapter, from == 0,
+                            chapter.firstParaIndex() + from - leadIn, paragraphs.subList(from - leadIn, to), trailOut));
+                    leadIn = trailOut;
+                }
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * 按文件组装 chunk：编号 → 文件内近重复合并 → 套用向量化模板（模板可能引用合并后重排的序号）
+     */
+    private List<DocumentChunk> assemble(List<Section> sections, List<List<ChunkSpan>> spans, Cursor cursor) {
+        List<DocumentChunk> chunks = new ArrayList<>();
+        List<DocumentChunk> fileChunks = new ArrayList<>();
+        for (int i = 0; i < sections.size(); i++) {
+            if (i > 0 && !sections.get(i).relativePath().equals(sections.get(i - 1).relativePath())) {
+                flushFile(fileChunks, chunks);
+            }
+            cursor.enter(sections.get(i));
+            for (ChunkSpan span : spans.get(i)) {
+                fileChunks.add(toDocumentChunk(sections.get(i), span, cursor));
+            }
+        }
+        flushFile(fileChunks, chunks);
+        return chunks;
+    }
+
+    private void flushFile(List<DocumentChunk> fileChunks, List<DocumentChunk> chunks) {
+        for (DocumentChunk chunk : nearDuplicatePolicy.deduplicate(fileChunks).getKept()) {
+            chunks.add(embedTextTemplate.apply(chunk));
+        }
+        fileChunks.clear();
+    }
+
+    private DocumentChunk toDocumentChunk(Section section, ChunkSpan span, Cursor cursor) {
+        String originalId = "text:" + section.relativePath() + "#" + cursor.chunkIndexInFile;
+        String id = UUID.nameUUIDFromBytes((NAMESPACE.toString() + originalId).getBytes(StandardCharsets.UTF_8)).toString();
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("chunk_index", cursor.chunkIndexInFile);
+        metadata.put("chunk_index_in_chapter", cursor.chunkIndexInChapter);
+        metadata.put("chapter-ID", cursor.chapterId);
+        metadata.put("chapter-name", section.chapter().name());
+        metadata.put("para_start", section.firstParaIndex() + span.getParaStart());
+        metadata.put("para_end", section.firstParaIndex() + span.getParaEnd());
+        metadata.put("originalId", originalId);
+        metadata.put("id", originalId);
+        metadata.put("source", "text");
+        metadata.put("file", section.relativePath());
+
+        cursor.chunkIndexInFile++;
+        cursor.chunkIndexInChapter++;
+        return new DocumentChunk(id, span.getText(), metadata);
+    }
+
+    private <T> T inPool(Callable<T> task) {
+        try {
+            // 在专用池内执行 parallelStream，避免占用公共 ForkJoinPool
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("文本切分被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException("文本切分失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static String relativePath(Path root, Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private record Chapter(String name, int firstParaIndex, List<String> paragraphs) {
+    }
+
+    private record ParsedFile(String relativePath, List<Chapter> chapters) {
+    }
+
+    private record Section(String relativePath, Chapter chapter, boolean chapterStart,
+                           int firstParaIndex, List<String> paragraphs, int trailOut) {
+    }
+
+    /**
+     * 文件内序号游标（只在调用线程中按顺序推进）
+     */
+    private static final class Cursor {
+        private String file;
+        private int chunkIndexInFile;
+        private int chapterId = -1;
+        private int chunkIndexInChapter;
+
+        private void enter(Section section) {
+            if (!section.relativePath().equals(file)) {
+                file = section.relativePath();
+                chunkIndexInFile = 0;
+                chapterId = -1;
+            }
+            if (section.chapterStart()) {
+                chapterId++;
+                chunkIndexInChapter = 0;
+            }
+        }
+    }
+}
@@ -5,10 +5,13 @@ import com.alibaba.cloud.ai.dashscope.api.DashScopeApi;
 import com.alibaba.cloud.ai.dashscope.common.DashScopeApiConstants;
 import com.alibaba.cloud.ai.dashscope.embedding.DashScopeEmbeddingModel;
 import com.alibaba.cloud.ai.dashscope.embedding.DashScopeEmbeddingOptions;
+import com.shawn.aiagent.infra.rag.NormalizingEmbeddingModel;
+import com.shawn.aiagent.support.config.ModelMigrationConfig;
 import org.springframework.ai.document.MetadataMode;
 import org.springframework.ai.embedding.EmbeddingModel;
 import org.springframework.ai.retry.RetryUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -20,6 +23,7 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * DashScope Embedding 多实例配置，按场景（SLA / Reindex）拆分。
+ * 模型迁移（rag.migration.enabled=true）时另有候选模型的一对实例，共用同一组 HTTP 客户端。
  */
 @Configuration
 @EnableConfigurationProperties(DashScopeEmbeddingProperties.class)
@@ -33,7 +37,9 @@ public class DashScopeEmbeddingConfig {
             @Qualifier("reindexRestClientBuilder") RestClient.Builder restClientBuilder) {
 
         DashScopeApi api = buildDashScopeApi(props, restClientBuilder, reindexWebClientBuilder);
-        return new DashScopeEmbeddingModel(api, resolveMetadataMode(props), resolveOptions(props));
+        // 写入向量库的向量统一归一化，供内积检索使用；查询向量由 PgVectorStoreAdapter 归一化
+        return new NormalizingEmbeddingModel(
+                new DashScopeEmbeddingModel(api, resolveMetadataMode(props), resolveOptions(props)));
     }
 
     @Bean(name = "slaEmbeddingModel")
@@ -46,6 +52,32 @@ public class DashScopeEmbeddingConfig {
         return new DashScopeEmbeddingModel(api, resolveMetadataMode(props), resolveOptions(props));
     }
 
+    @Bean(name = "candidateReindexEmbeddingModel")
+    @ConditionalOnProperty(prefix = "rag.migration", name = "enabled", havingValue = "true")
+    public EmbeddingModel candidateReindexEmbeddingModel(
+            DashScopeEmbeddingProperties props,
+            ModelMigrationConfig migrationConfig,
+            @Qualifier("reindexWebClientBuilder") WebClient.Builder reindexWebClientBuilder,
+            @Qualifier("reindexRestClientBuilder") RestClient.Builder restClientBuilder) {
+
+        DashScopeApi api = buildDashScopeApi(props, restClientBuilder, reindexWebClientBuilder);
+        return new NormalizingEmbeddingModel(new DashScopeEmbeddingModel(
+                api, resolveMetadataMode(props), resolveCandidateOptions(props, migrationConfig)));
+    }
+
+    @Bean(name = "candidateSlaEmbeddingModel")
+    @ConditionalOnProperty(prefix = "rag.migration", name = "enabled", havingValue = "true")
+    public EmbeddingModel candidateSlaEmbeddingModel(
+            DashScopeEmbeddingProperties props,
+            ModelMigrationConfig migrationConfig,
+            @Qualifier("slaWebClientBuilder") WebClient.Builder slaWebClientBuilder,
+            @Qualifier("slaRestClientBuilder") RestClient.Builder restClientBuilder) {
+
+        DashScopeApi api = buildDashScopeApi(props, restClientBuilder, slaWebClientBuilder);
+        return new DashScopeEmbeddingModel(
+                api, resolveMetadataMode(props), resolveCandidateOptions(props, migrationConfig));
+    }
+
     private DashScopeApi buildDashScopeApi(DashScopeEmbeddingProperties props,
                                            RestClient.Builder restClientBuilder,
                                            WebClient.Builder webClientBuilder) {
@@ -77,6 +109,22 @@ public class DashScopeEmbeddingConfig {
         return props.getMetadataMode() != null ? props.getMetadataMode() : MetadataMode.EMBED;
     }
 
+    /**
+     * 候选模型沿用当前配置的 text-type，只替换模型名与输出维度
+     */
+    private DashScopeEmbeddingOptions resolveCandidateOptions(DashScopeEmbeddingProperties props,
+                                                              ModelMigrationConfig migrationConfig) {
+        if (!StringUtils.hasText(migrationConfig.getCandidateModel())) {
+            throw new IllegalStateException("rag.migration.candidate-model 不能为空");
+        }
+        DashScopeEmbeddingOptions base = resolveOptions(props);
+        return DashScopeEmbeddingOptions.builder()
+                .withModel(migrationConfig.getCandidateModel().trim())
+                .withTextType(base.getTextType())
+                .withDimensions(migrationConfig.getCandidateDimension())
+                .build();
+    }
+
     private DashScopeEmbeddingOptions resolveOptions(DashScopeEmbeddingProperties props) {
         return props.getOptions() != null
                 ? props.getOptions()
@@ -0,0 +1,88 @@
+package com.shawn.aiagent.infra.rag.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shawn.aiagent.domain.rag.EmbedTextTemplate;
+import com.shawn.aiagent.domain.rag.NearDuplicatePolicy;
+import com.shawn.aiagent.infra.rag.CompositeDocumentLoaderAdapter;
+import com.shawn.aiagent.infra.rag.DirectoryWatchSourceChangeAdapter;
+import com.shawn.aiagent.infra.rag.DreamsJsonDocumentLoaderAdapter;
+import com.shawn.aiagent.infra.rag.TextDirectoryDocumentLoaderAdapter;
+import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
+import com.shawn.aiagent.port.rag.SourceChangeGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import com.shawn.aiagent.support.config.TextSourceConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wiring config: compose all document sources behind a single DocumentLoaderGateway.
+ *
+ * Notes:
+ * - Individual loaders are not Spring components; they are registered here so that
+ *   the use cases keep depending on exactly one DocumentLoaderGateway.
+ * - The raw text source is opt-in (rag.sources.text.enabled=true).
+ * - Directory watching (rag.sources.text.watch.enabled=true) requires the raw text source;
+ *   the text loader doubles as the single-file loader for incremental sync.
+ * - Each loader gets the embed-text template of its source (rag.ingestion.embed-templates.{source});
+ *   sources without an entry embed the chunk content only.
+ * - Near-duplicate collapsing (rag.ingestion.dedup-enabled, off by default) runs inside each loader per source file,
+ *   so reindex, preview and incremental sync all see the same chunk set.
+ */
+@Configuration
+public class DocumentLoaderWiringConfig {
+
+    @Bean
+    public DreamsJsonDocumentLoaderAdapter dreamsJsonDocumentLoader(ObjectMapper objectMapper,
+                                                                    IngestionConfig ingestionConfig) {
+        return new DreamsJsonDocumentLoaderAdapter(objectMapper, embedTextTemplate(ingestionConfig, "dreams"),
+                nearDuplicatePolicy(ingestionConfig));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "rag.sources.text", name = "enabled", havingValue = "true")
+    public TextDirectoryDocumentLoaderAdapter textDirectoryDocumentLoader(TextSourceConfig textSourceConfig,
+                                                                          IngestionConfig ingestionConfig) {
+        return new TextDirectoryDocumentLoaderAdapter(textSourceConfig, embedTextTemplate(ingestionConfig, "text"),
+                nearDuplicatePolicy(ingestionConfig));
+    }
+
+    @Bean
+    @Primary
+    public DocumentLoaderGateway documentLoaderGateway(
+            DreamsJsonDocumentLoaderAdapter dreamsJsonDocumentLoader,
+            ObjectProvider<TextDirectoryDocumentLoaderAdapter> textDirectoryDocumentLoader) {
+        List<DocumentLoaderGateway> sources = new ArrayList<>();
+        sources.add(dreamsJsonDocumentLoader);
+        textDirectoryDocumentLoader.ifAvailable(sources::add);
+        return new CompositeDocumentLoaderAdapter(sources);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "rag.sources.text.watch", name = "enabled", havingValue = "true")
+    public SourceChangeGateway sourceChangeGateway(
+            ObjectProvider<TextDirectoryDocumentLoaderAdapter> textDirectoryDocumentLoader,
+            TextSourceConfig textSourceConfig) {
+        TextDirectoryDocumentLoaderAdapter loader = textDirectoryDocumentLoader.getIfAvailable();
+        if (loader == null) {
+            throw new IllegalStateException("rag.sources.text.watch.enabled=true requires rag.sources.text.enabled=true");
+        }
+        return new DirectoryWatchSourceChangeAdapter(loader, textSourceConfig.getWatch());
+    }
+
+    private static EmbedTextTemplate embedTextTemplate(IngestionConfig ingestionConfig, String source) {
+        return EmbedTextTemplate.ofNullable(ingestionConfig.getEmbedTemplates().get(source));
+    }
+
+    private static NearDuplicatePolicy nearDuplicatePolicy(IngestionConfig ingestionConfig) {
+        if (!ingestionConfig.isDedupEnabled()) {
+            return NearDuplicatePolicy.disabled();
+        }
+        return new NearDuplicatePolicy(ingestionConfig.getDedupSimilarityThreshold(), ingestionConfig.getDedupShingleSize());
+    }
+}
@@ -0,0 +1,73 @@
+package com.shawn.aiagent.infra.rag.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shawn.aiagent.infra.rag.CandidateEmbeddingAdapter;
+import com.shawn.aiagent.infra.rag.DashScopeEmbeddingAdapter;
+import com.shawn.aiagent.infra.rag.EmbedTextBatchingStrategy;
+import com.shawn.aiagent.infra.rag.PgCandidateVectorStoreAdapter;
+import com.shawn.aiagent.infra.rag.PgHnswIndexBuilder;
+import com.shawn.aiagent.port.rag.CandidateEmbeddingGateway;
+import com.shawn.aiagent.port.rag.CandidateVectorStoreGateway;
+import com.shawn.aiagent.support.config.ModelMigrationConfig;
+import com.shawn.aiagent.support.config.RetrievalConfig;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.regex.Pattern;
+
+/**
+ * Wiring config: bind the candidate embedding model and its table to the candidate Port types
+ * while an embedding model migration is in progress (rag.migration.enabled=true).
+ *
+ * Notes:
+ * - Candidate adapters are exposed only as Candidate* ports so that existing injection points
+ *   (SlaEmbeddingGateway, ReindexEmbeddingGateway, VectorStoreGateway) stay unambiguous.
+ * - The candidate table must differ from the live table: blue/green reindex renames the live table,
+ *   while the candidate table is always upserted in place.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "rag.migration", name = "enabled", havingValue = "true")
+public class ModelMigrationWiringConfig {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("^[A-Za-z_][A-Za-z0-9_]*$");
+
+    @Bean
+    public CandidateVectorStoreGateway candidateVectorStoreGateway(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            PgHnswIndexBuilder indexBuilder,
+            RetrievalConfig retrievalConfig,
+            ObjectMapper objectMapper,
+            ModelMigrationConfig migrationConfig,
+            @Qualifier("candidateReindexEmbeddingModel") EmbeddingModel candidateReindexEmbeddingModel,
+            EmbedTextBatchingStrategy batchingStrategy,
+            @Value("${spring.ai.vectorstore.pgvector.table-name}") String liveTable) {
+        String table = migrationConfig.getCandidateTable() == null ? "" : migrationConfig.getCandidateTable().trim();
+        if (!IDENTIFIER.matcher(table).matches()) {
+            throw new IllegalStateException("rag.migration.candidate-table 不是合法表名: " + table);
+        }
+        if (table.equalsIgnoreCase(liveTable) || table.equalsIgnoreCase(liveTable + "_shadow")
+                || table.equalsIgnoreCase(liveTable + "_prev")) {
+            throw new IllegalStateException("rag.migration.candidate-table 不能与线上表及其影子表 / 备份表相同: " + table);
+        }
+        if (migrationConfig.getCandidateDimension() <= 0) {
+            throw new IllegalStateException("rag.migration.candidate-dimension 必须为正数");
+        }
+        return new PgCandidateVectorStoreAdapter(jdbcTemplate, transactionTemplate, indexBuilder, retrievalConfig,
+                objectMapper, candidateReindexEmbeddingModel, batchingStrategy, migrationConfig.getCandidateModel().trim(), table,
+                migrationConfig.getCandidateDimension());
+    }
+
+    @Bean
+    public CandidateEmbeddingGateway candidateEmbeddingGateway(
+            @Qualifier("candidateSlaEmbeddingModel") EmbeddingModel candidateSlaEmbeddingModel,
+            RetrievalConfig retrievalConfig) {
+        return new CandidateEmbeddingAdapter(new DashScopeEmbeddingAdapter(candidateSlaEmbeddingModel, retrievalConfig));
+    }
+}
@@ -0,0 +1,28 @@
+package com.shawn.aiagent.port.chat;
+
+/**
+ * 对话检索增强指标网关接口
+ */
+public interface ChatGroundingMetricsGateway {
+
+    /**
+     * Intent: 记录一次对话检索的结果
+     * Input: outcome (hit: 已注入 / low_score: 相似度不足 / miss: 无结果 / timeout: 超出预算 / error: 检索失败),
+     *        durationNanos (从请求到达到得出结果的时长)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordRetrieval(String outcome, long durationNanos);
+
+    /**
+     * Intent: 记录模型调用因等待检索结果而推迟的时长（对话记忆加载完成之后仍需等待的部分）
+     * Input: waitNanos
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordWait(long waitNanos);
+}
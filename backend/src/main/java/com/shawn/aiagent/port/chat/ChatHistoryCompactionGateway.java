@@ -0,0 +1,20 @@
+package com.shawn.aiagent.port.chat;
+
+import com.shawn.aiagent.domain.chat.ConversationId;
+
+/**
+ * 对话历史压缩网关接口
+ * 把会话记忆中较早的轮次替换为一条摘要，缩短后续每轮的提示词
+ */
+public interface ChatHistoryCompactionGateway {
+
+    /**
+     * Intent: 提交一次后台压缩检查（未超过阈值时什么都不做）
+     * Input: conversationId (会话ID), systemPrompt (每轮附加的系统提示词，只用于统计提示词 token 数)
+     * Output: 无（立即返回，不等待摘要生成）
+     * SideEffects: 后台线程可能改写该会话的记忆
+     * Failure: 无（后台失败只记日志与指标，记忆保持原样）
+     * Idempotency: 同一会话已有压缩在排队或执行时忽略本次提交
+     */
+    void scheduleCompaction(ConversationId conversationId, String systemPrompt);
+}
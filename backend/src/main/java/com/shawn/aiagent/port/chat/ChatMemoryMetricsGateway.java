@@ -0,0 +1,52 @@
+package com.shawn.aiagent.port.chat;
+
+import com.shawn.aiagent.domain.chat.ChatMemoryEvictionPolicy;
+import com.shawn.aiagent.domain.chat.ChatMemoryUsage;
+
+import java.util.function.Supplier;
+
+/**
+ * 对话记忆指标网关接口
+ */
+public interface ChatMemoryMetricsGateway {
+
+    /**
+     * Intent: 登记热缓存占用的实时读数（会话数、消息数、估算字节数）
+     * Input: usage (每次采集时调用，须为廉价读取)
+     * Output: 无
+     * SideEffects: 注册指标
+     * Failure: 无
+     * Idempotency: 同一进程只应调用一次
+     */
+    void bindUsage(Supplier<ChatMemoryUsage> usage);
+
+    /**
+     * Intent: 记录被淘汰的会话数
+     * Input: reason (IDLE / BUDGET), recoverable (被淘汰的会话之后能否从持久化/落盘存储恢复), count
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordEvictions(ChatMemoryEvictionPolicy.Reason reason, boolean recoverable, int count);
+
+    /**
+     * Intent: 记录一次完成的历史压缩
+     * Input: promptTokensBefore / promptTokensAfter (系统提示词 + 记忆的 token 数), durationNanos (含摘要模型调用的耗时)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordCompaction(int promptTokensBefore, int promptTokensAfter, long durationNanos);
+
+    /**
+     * Intent: 记录一次未生效的历史压缩
+     * Input: reason (rejected: 队列已满 / stale: 摘要期间窗口已滑动 / error: 摘要调用失败)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordCompactionSkipped(String reason);
+}
@@ -3,6 +3,7 @@ package com.shawn.aiagent.port.chat;
 import com.shawn.aiagent.domain.chat.ConversationId;
 import com.shawn.aiagent.domain.chat.Message;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * 聊天模型网关接口
@@ -18,6 +19,19 @@ public interface ChatModelGateway {
      * Failure: 如果LLM调用失败，抛出RuntimeException
      * Idempotency: 非幂等（相同输入可能产生不同输出）
      */
-    Flux<String> streamChat(Message message, ConversationId conversationId, String systemPrompt);
+    default Flux<String> streamChat(Message message, ConversationId conversationId, String systemPrompt) {
+        return streamChat(message, conversationId, systemPrompt, Mono.empty());
+    }
+
+    /**
+     * Intent: 流式调用LLM进行对话，并把检索到的资料注入本轮提示词
+     * Input: message, conversationId, systemPrompt,
+     *        grounding (进行中的检索结果，须已在请求到达时开始并自带延迟预算；完成时给出资料文本，空串或空 Mono 表示不注入)
+     * Output: Flux<String> (AI回复流)
+     * SideEffects: 可能更新对话记忆（由实现决定）；资料不写入对话记忆
+     * Failure: 如果LLM调用失败，抛出RuntimeException；grounding 不应以错误结束
+     * Idempotency: 非幂等
+     */
+    Flux<String> streamChat(Message message, ConversationId conversationId, String systemPrompt, Mono<String> grounding);
 }
 
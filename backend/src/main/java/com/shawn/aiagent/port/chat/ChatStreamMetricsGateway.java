@@ -0,0 +1,110 @@
+package com.shawn.aiagent.port.chat;
+
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * 流式回复指标网关接口
+ */
+public interface ChatStreamMetricsGateway {
+
+    /**
+     * Intent: 记录首个增量文本的延迟（用户可见的首 token 延迟，分段标记不计入）
+     * Input: sinceStartNanos (从开始处理请求起)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordFirstDelta(long sinceStartNanos);
+
+    /**
+     * Intent: 记录一个完整段落的产出延迟
+     * Input: index (段落序号，从 0 开始), sinceStartNanos (从开始处理请求起)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordSegment(int index, long sinceStartNanos);
+
+    /**
+     * Intent: 记录一次完整结束的流式回复
+     * Input: segments (段落数), durationNanos (总耗时)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordCompleted(int segments, long durationNanos);
+
+    /**
+     * Intent: 记录一次回复合并前的事件数与实际写出的帧数
+     * Input: events (合并前的事件数), frames (写出的 SSE 帧数)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordFrames(int events, int frames);
+
+    /**
+     * Intent: 记录一次完整生成的回复的输出 token 数（用于估算取消节省的 token）
+     * Input: outputTokens
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordGenerated(int outputTokens);
+
+    /**
+     * Intent: 记录一次因客户端断开而取消的上游生成
+     * Input: generatedTokens (取消前已生成的输出 token 数)
+     * Output: 无
+     * SideEffects: 更新指标（取消次数、已生成与估算节省的 token 数）
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordCancelled(int generatedTokens);
+
+    /**
+     * Intent: 记录一轮对话因同一会话的前一轮未结束而排队的时间
+     * Input: waitNanos
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordTurnWait(long waitNanos);
+
+    /**
+     * Intent: 注册当前活跃流数的来源（供指标按需读取）
+     * Input: activeStreams
+     * Output: 无
+     * SideEffects: 注册指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void bindActiveStreams(IntSupplier activeStreams);
+
+    /**
+     * Intent: 记录一次断线重连的结果
+     * Input: outcome (replayed: 已补发并接上；expired: 回复不存在或已过期；gap: 需要的帧已被覆盖)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordResume(String outcome);
+
+    /**
+     * Intent: 注册回放缓冲占用的来源（供指标按需读取）
+     * Input: bytes (估算字节数), messages (缓冲中的回复数)
+     * Output: 无
+     * SideEffects: 注册指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void bindReplayBuffer(LongSupplier bytes, IntSupplier messages);
+}
@@ -0,0 +1,28 @@
+package com.shawn.aiagent.port.chat;
+
+/**
+ * 分词器网关接口
+ * 为提示词预算提供与对话模型一致的 token 计数
+ */
+public interface TokenizerGateway {
+
+    /**
+     * Intent: 计算文本的 token 数（不含对话模板的特殊 token）
+     * Input: text (可为 null)
+     * Output: int (null 或空串为 0)
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    int countTokens(String text);
+
+    /**
+     * Intent: 对话模板中每条消息的固定 token 开销（如 Qwen 的 <|im_start|>role\n ... <|im_end|>\n）
+     * Input: 无
+     * Output: int
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    int perMessageOverhead();
+}
@@ -0,0 +1,6 @@
+package com.shawn.aiagent.port.rag;
+
+/**
+ * 候选 embedding 模型的查询向量化网关（模型迁移期间存在）
+ */
+public interface CandidateEmbeddingGateway extends EmbeddingGateway {}
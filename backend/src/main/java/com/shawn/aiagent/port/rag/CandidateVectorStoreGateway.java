@@ -0,0 +1,85 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 候选模型向量表网关接口（模型迁移期间存在）
+ * 定义双写与影子查询所需的抽象契约：候选表始终原地 upsert，不参与 blue/green 代际切换
+ */
+public interface CandidateVectorStoreGateway {
+
+    /**
+     * Intent: 描述候选一代（用于日志）
+     * Input: 无
+     * Output: String (如 "text-embedding-v5@dreams_chunks_text_embedding_v5")
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    String describe();
+
+    /**
+     * Intent: 确保候选表存在
+     * Input: 无
+     * Output: 无
+     * SideEffects: 表不存在时建表（不建向量索引）
+     * Failure: 数据库不可用、已有表维度与候选配置不一致时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    void prepare();
+
+    /**
+     * Intent: 用候选模型向量化并写入候选表
+     * Input: chunks (文档块列表)
+     * Output: 无
+     * SideEffects: 调用候选 embedding 模型（计费），upsert 候选表
+     * Failure: 向量化或写入失败时抛出RuntimeException
+     * Idempotency: 幂等（按 id upsert）
+     */
+    void addDocuments(List<DocumentChunk> chunks);
+
+    /**
+     * Intent: 从候选表删除文档
+     * Input: documentIds
+     * Output: 无
+     * SideEffects: 删除候选表中的行
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    void deleteDocuments(List<String> documentIds);
+
+    /**
+     * Intent: 删除候选表中不在给定集合内的行（全量 reindex 结束时清理数据源已不存在的 chunk）
+     * Input: documentIds (应保留的 id)
+     * Output: long (删除的行数)
+     * SideEffects: 删除候选表中的行
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    long retainOnly(List<String> documentIds);
+
+    /**
+     * Intent: 构建候选表的向量索引（已存在则跳过）
+     * Input: progressListener (构建进度回调)
+     * Output: 无
+     * SideEffects: CREATE INDEX
+     * Failure: DDL 失败时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    void buildIndex(Consumer<IndexBuildProgress> progressListener);
+
+    /**
+     * Intent: 在候选表上检索
+     * Input: query, embedding (候选模型产出的查询向量), topK
+     * Output: List<RetrievalResult> (按相似度降序)
+     * SideEffects: 只读查询
+     * Failure: 同 VectorStoreGateway.similaritySearch
+     * Idempotency: 幂等
+     */
+    List<RetrievalResult> similaritySearch(String query, List<Double> embedding, int topK);
+}
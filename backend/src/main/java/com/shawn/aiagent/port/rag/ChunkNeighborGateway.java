@@ -0,0 +1,44 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.RetrievalResult;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * chunk 近邻图网关接口
+ * 定义"相关 chunk"预计算结果的维护与读取契约：每个 chunk 一行，保存 top-N 近邻 id 与相似度
+ */
+public interface ChunkNeighborGateway {
+
+    /**
+     * Intent: 为线上表全部 chunk 重新计算近邻，并删除已不存在的 chunk 的行
+     * Input: 无
+     * Output: long (计算的 chunk 数)
+     * SideEffects: 批量向量检索（不调用 embedding），覆盖写近邻表
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    long recomputeAll();
+
+    /**
+     * Intent: 增量重算受影响 chunk 的近邻：变化的 chunk 本身、近邻列表引用了变化/删除 chunk 的 chunk、变化 chunk 的新近邻
+     * Input: changedIds (新增或内容变化的 chunk), deletedIds (已删除的 chunk)
+     * Output: long (重算的 chunk 数)
+     * SideEffects: 批量向量检索，覆盖写近邻表，删除已删除 chunk 的行
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    long recompute(Collection<String> changedIds, Collection<String> deletedIds);
+
+    /**
+     * Intent: 读取 chunk 的预计算近邻
+     * Input: chunkId, limit (返回前 limit 个)
+     * Output: Optional<List<RetrievalResult>> (按相似度降序；chunk 不在近邻表中时为空；近邻已被删除的自动跳过)
+     * SideEffects: 只读查询
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    Optional<List<RetrievalResult>> findRelated(String chunkId, int limit);
+}
@@ -3,6 +3,7 @@ package com.shawn.aiagent.port.rag;
 import com.shawn.aiagent.domain.rag.DocumentChunk;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 文档加载网关接口
@@ -19,5 +20,15 @@ public interface DocumentLoaderGateway {
      * Idempotency: 幂等（相同数据源返回相同结果）
      */
     List<DocumentChunk> loadDocuments();
+
+    /**
+     * Intent: 以流式方式分批读取文档块，内存中同时只保留一个批次
+     * Input: batchSize (每批最多块数), batchConsumer (批次回调，按数据源顺序调用)
+     * Output: 无
+     * SideEffects: 可能读取文件系统、数据库或HTTP资源
+     * Failure: 如果数据源不可访问或数据格式错误，抛出RuntimeException（已回调的批次不会撤销）
+     * Idempotency: 幂等（相同数据源产生相同的批次序列）
+     */
+    void streamDocuments(int batchSize, Consumer<List<DocumentChunk>> batchConsumer);
 }
 
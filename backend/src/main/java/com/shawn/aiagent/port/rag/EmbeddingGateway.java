@@ -25,5 +25,15 @@ public interface EmbeddingGateway {
      * Idempotency: 幂等（同输入理论上返回同向量，但不承诺结果级幂等/计费幂等）
      */
     java.util.List<Double> embed(String text);
+
+    /**
+     * Intent: 在一次远端请求中把多条文本转换为向量（多查询检索的查询变体）
+     * Input: texts (非空列表，每条去除首尾空白后非空；条数不应超过模型单次批量上限)
+     * Output: List<List<Double>> (与输入一一对应)
+     * SideEffects: 调用外部 EmbeddingModel API 一次，按总 token 计费
+     * Failure: 同 embed
+     * Idempotency: 同 embed
+     */
+    java.util.List<java.util.List<Double>> embedAll(java.util.List<String> texts);
 }
 
@@ -0,0 +1,31 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.SourceSyncResult;
+
+import java.time.Duration;
+
+/**
+ * 摄取指标网关接口
+ */
+public interface IngestionMetricsGateway {
+
+    /**
+     * Intent: 记录"文件保存 → 可被检索"的延迟
+     * Input: lag (从文件最后修改时间到写入向量库完成的时长)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无（指标失败不影响摄取）
+     * Idempotency: 非幂等（每次调用记录一个样本）
+     */
+    void recordIngestionLag(Duration lag);
+
+    /**
+     * Intent: 记录一次增量同步的结果计数
+     * Input: result
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordSourceSync(SourceSyncResult result);
+}
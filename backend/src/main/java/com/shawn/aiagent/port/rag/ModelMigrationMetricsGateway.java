@@ -0,0 +1,29 @@
+package com.shawn.aiagent.port.rag;
+
+import java.time.Duration;
+
+/**
+ * 模型迁移指标网关接口
+ */
+public interface ModelMigrationMetricsGateway {
+
+    /**
+     * Intent: 记录一次被抽样请求的检索延迟（线上一代与影子一代各记一次，便于同口径对比）
+     * Input: generation (current / candidate), shadow (是否为影子查询), latency (向量化 + 检索耗时)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordLatency(String generation, boolean shadow, Duration latency);
+
+    /**
+     * Intent: 记录影子查询结果
+     * Input: result (agree / disagree / error / dropped)
+     * Output: 无
+     * SideEffects: 更新指标
+     * Failure: 无
+     * Idempotency: 非幂等
+     */
+    void recordShadowRead(String result);
+}
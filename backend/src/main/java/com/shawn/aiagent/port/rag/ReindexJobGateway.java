@@ -0,0 +1,116 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.domain.rag.ReindexJobPhase;
+import com.shawn.aiagent.domain.rag.ReindexJobStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 重新索引任务持久化网关接口
+ * 定义 reindex 任务的创建、断点记录与状态流转的抽象契约
+ */
+public interface ReindexJobGateway {
+
+    /**
+     * Intent: 在不存在活动任务（PENDING/RUNNING）时创建新任务
+     * Input: mode (重新索引模式), batchSize (批大小), initialPhase (起始阶段)
+     * Output: Optional<ReindexJob> (新建的 PENDING 任务；已存在活动任务时为空)
+     * SideEffects: 写入任务表
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 集群内至多一个活动任务（由数据库唯一约束保证，并发创建只会有一个成功）
+     */
+    Optional<ReindexJob> createIfNoneActive(String mode, int batchSize, ReindexJobPhase initialPhase);
+
+    /**
+     * Intent: 按ID查询任务
+     * Input: jobId
+     * Output: Optional<ReindexJob>
+     * SideEffects: 只读查询
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    Optional<ReindexJob> findById(String jobId);
+
+    /**
+     * Intent: 查询当前活动任务（PENDING/RUNNING）
+     * Input: 无
+     * Output: Optional<ReindexJob>
+     * SideEffects: 只读查询
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    Optional<ReindexJob> findActive();
+
+    /**
+     * Intent: 查询最近成功的任务（用于估算吞吐）
+     * Input: limit (最多返回条数)
+     * Output: List<ReindexJob> (按完成时间倒序)
+     * SideEffects: 只读查询
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    List<ReindexJob> findRecentSucceeded(int limit);
+
+    /**
+     * Intent: 标记任务开始（或续跑）执行
+     * Input: jobId, totalChunks (数据源 chunk 总数), duplicateChunks (近重复合并掉的 chunk 数)
+     * Output: ReindexJob (更新后的快照)
+     * SideEffects: status=RUNNING，attempts+1，首次执行时记录 startedAt
+     * Failure: 任务不存在时抛出IllegalStateException
+     * Idempotency: 非幂等（attempts 递增，用于限制重试次数）
+     */
+    ReindexJob markRunning(String jobId, int totalChunks, int duplicateChunks);
+
+    /**
+     * Intent: 记录本次需要向量化的估算 token 数及模板带来的节省
+     * Input: jobId, embedTokens (向量化文本估算 token 数), embedTokensSaved (相比全部 metadata 拼接省下的 token 数)
+     * Output: 无
+     * SideEffects: 更新任务表
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    void recordEmbedTokens(String jobId, long embedTokens, long embedTokensSaved);
+
+    /**
+     * Intent: 记录断点（阶段 + 已完成批次）
+     * Input: jobId, phase, completedBatches, processedChunks
+     * Output: 无
+     * SideEffects: 更新任务表
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等（相同断点重复写入结果一致）
+     */
+    void checkpoint(String jobId, ReindexJobPhase phase, int completedBatches, int processedChunks);
+
+    /**
+     * Intent: 记录向量索引构建进度
+     * Input: jobId, progress (pg_stat_progress_create_index 采样)
+     * Output: 无
+     * SideEffects: 更新任务表
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    void recordIndexProgress(String jobId, IndexBuildProgress progress);
+
+    /**
+     * Intent: 将任务置为终态
+     * Input: jobId, status (SUCCEEDED/FAILED/CANCELLED), errorMessage (可选)
+     * Output: 无
+     * SideEffects: 更新任务表，记录 finishedAt
+     * Failure: status 非终态时抛出IllegalArgumentException
+     * Idempotency: 幂等
+     */
+    void markFinished(String jobId, ReindexJobStatus status, String errorMessage);
+
+    /**
+     * Intent: 请求取消任务
+     * Input: jobId
+     * Output: Optional<ReindexJob> (更新后的快照；任务不存在时为空)
+     * SideEffects: RUNNING 任务设置取消标记（由执行方在批次间响应）；PENDING 任务直接置为 CANCELLED
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等（终态任务保持不变）
+     */
+    Optional<ReindexJob> requestCancel(String jobId);
+}
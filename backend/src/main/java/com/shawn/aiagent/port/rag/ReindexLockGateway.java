@@ -0,0 +1,28 @@
+package com.shawn.aiagent.port.rag;
+
+import java.util.Optional;
+
+/**
+ * 重新索引集群锁网关接口
+ * 保证集群内同一时刻只有一个节点在修改向量索引（执行 reindex 任务或回滚）
+ */
+public interface ReindexLockGateway {
+
+    /**
+     * Intent: 尝试获取集群级 reindex 锁（不阻塞）
+     * Input: 无
+     * Output: Optional<ReindexLock> (获取成功时返回锁句柄；已被其他持有者占用时为空)
+     * SideEffects: 占用一个数据库连接直到锁释放
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 非幂等（每次成功调用都产生一个需要关闭的句柄）
+     */
+    Optional<ReindexLock> tryAcquire();
+
+    /**
+     * 锁句柄；close 释放锁。持有进程崩溃时锁随连接断开自动释放。
+     */
+    interface ReindexLock extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.SourceFileChange;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 数据源变更监听网关接口
+ * 定义"监听目录 → 去抖 → 批量通知变更文件"的抽象契约
+ */
+public interface SourceChangeGateway {
+
+    /**
+     * Intent: 开始监听数据源目录
+     * Input: listener (去抖后的变更批次回调；同一文件在一个批次中至多出现一次)
+     * Output: 无
+     * SideEffects: 启动后台监听线程；优先使用文件系统事件，不可用时退化为定时轮询
+     * Failure: 目录不存在时抛出IllegalStateException
+     * Idempotency: 非幂等（重复调用会重复启动监听）
+     */
+    void start(Consumer<List<SourceFileChange>> listener);
+
+    /**
+     * Intent: 停止监听
+     * Input: 无
+     * Output: 无
+     * SideEffects: 停止后台线程并释放 WatchService
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    void stop();
+}
@@ -0,0 +1,42 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+
+import java.util.List;
+
+/**
+ * 单文件数据源加载网关接口
+ * 定义按文件重新切分的抽象契约（用于增量摄取）
+ */
+public interface SourceFileLoaderGateway {
+
+    /**
+     * Intent: 重新读取并切分单个源文件
+     * Input: relativePath (相对于数据源根目录的路径，使用 / 分隔)
+     * Output: List<DocumentChunk> (与全量加载时该文件产生的 chunk 完全一致；文件不存在或不是受支持的类型时为空)
+     * SideEffects: 读取文件系统
+     * Failure: 路径越出数据源根目录时抛出IllegalArgumentException；读取失败时抛出RuntimeException
+     * Idempotency: 幂等（文件内容不变时结果相同）
+     */
+    List<DocumentChunk> loadFile(String relativePath);
+
+    /**
+     * Intent: 返回数据源根目录的绝对路径
+     * Input: 无
+     * Output: String
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    String sourceRoot();
+
+    /**
+     * Intent: 判断路径是否为受支持的源文件类型（按扩展名）
+     * Input: relativePath
+     * Output: boolean
+     * SideEffects: 无
+     * Failure: 无
+     * Idempotency: 幂等
+     */
+    boolean isSourceFile(String relativePath);
+}
@@ -0,0 +1,99 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 向量索引代际（blue/green）网关接口
+ * 定义"影子表构建 → 校验 → 原子切换 → 回滚"的抽象契约
+ *
+ * 代际约定：
+ * - live：线上读取的表（查询只访问它）
+ * - shadow：正在构建的新一代表
+ * - previous：上一代表，保留用于快速回滚
+ */
+public interface VectorGenerationGateway {
+
+    /**
+     * Intent: 准备一张空的影子表（不建向量索引）
+     * Input: 无
+     * Output: 无
+     * SideEffects: 删除残留的影子表并重新建表；不影响 live / previous
+     * Failure: 数据库不可用或 DDL 失败时抛出RuntimeException
+     * Idempotency: 幂等（重复调用总是得到一张空的影子表）
+     */
+    void prepareShadow();
+
+    /**
+     * Intent: 批量向量化并写入影子表
+     * Input: chunks (文档块列表)
+     * Output: 无
+     * SideEffects: 调用 EmbeddingModel（可能计费），向影子表 upsert
+     * Failure: 向量化或写入失败时抛出RuntimeException
+     * Idempotency: 幂等（按 chunk id upsert，重复写入不会产生重复行）
+     */
+    void addDocumentsToShadow(List<DocumentChunk> chunks);
+
+    /**
+     * Intent: 把 live 表的全部行（含已有向量）复制到影子表，向量按影子表的列类型转换
+     * Input: 无
+     * Output: long (复制的行数)
+     * SideEffects: 写入影子表；不调用 EmbeddingModel，不修改 live
+     * Failure: 影子表不存在或写入失败时抛出RuntimeException
+     * Idempotency: 非幂等（影子表已有相同 id 时主键冲突失败，应先 prepareShadow）
+     */
+    long copyLiveToShadow();
+
+    /**
+     * Intent: 在批量写入完成后为影子表构建向量索引
+     * Input: progressListener (构建期间按间隔回调的进度采样)
+     * Output: 无
+     * SideEffects: 在影子表上创建 HNSW 索引（会话级调高 maintenance_work_mem / 并行度，结束后恢复）
+     * Failure: 影子表不存在或建索引失败时抛出RuntimeException
+     * Idempotency: 幂等（索引已存在则跳过）
+     */
+    void buildShadowIndex(Consumer<IndexBuildProgress> progressListener);
+
+    /**
+     * Intent: 统计影子表行数，用于切换前校验
+     * Input: 无
+     * Output: long (影子表行数)
+     * SideEffects: 只读查询
+     * Failure: 影子表不存在时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    long countShadowRows();
+
+    /**
+     * Intent: 判断影子表是否存在（续跑切换阶段时用于识别"已切换但未记录"的情况）
+     * Input: 无
+     * Output: boolean
+     * SideEffects: 只读查询
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    boolean shadowExists();
+
+    /**
+     * Intent: 原子切换：影子表成为 live，原 live 成为 previous
+     * Input: 无
+     * Output: 无
+     * SideEffects: 单事务内重命名表与索引；丢弃更早的 previous
+     * Failure: 影子表不存在时抛出IllegalStateException（不做任何改名）；拿锁超时时抛出RuntimeException，事务回滚，live 保持不变
+     * Idempotency: 非幂等（每次调用推进一代）
+     */
+    void cutover();
+
+    /**
+     * Intent: 回滚：previous 与 live 互换
+     * Input: 无
+     * Output: long (回滚后 live 表行数)
+     * SideEffects: 单事务内重命名表与索引
+     * Failure: 不存在 previous 时抛出IllegalStateException；拿锁超时时抛出RuntimeException，live 保持不变
+     * Idempotency: 非幂等（再次调用会切回）
+     */
+    long rollback();
+}
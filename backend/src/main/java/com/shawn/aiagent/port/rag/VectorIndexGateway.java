@@ -0,0 +1,53 @@
+package com.shawn.aiagent.port.rag;
+
+import com.shawn.aiagent.domain.rag.IndexBuildProgress;
+
+import java.util.function.Consumer;
+
+/**
+ * 线上向量表索引网关接口
+ * 定义"删除索引 → 批量写入 → 重建索引"的延迟建索引契约（IN_PLACE_DEFERRED_INDEX），
+ * 以及向量列存储类型（vector / halfvec）的原地转换
+ */
+public interface VectorIndexGateway {
+
+    /**
+     * Intent: 删除线上表的向量索引，使后续批量写入不再承担 HNSW 增量图维护
+     * Input: 无
+     * Output: 无
+     * SideEffects: 删除索引；在重建完成前线上查询退化为顺序扫描
+     * Failure: 数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等（索引不存在时跳过）
+     */
+    void dropIndex();
+
+    /**
+     * Intent: 为线上表构建向量索引
+     * Input: progressListener (构建期间按间隔回调的进度采样)
+     * Output: 无
+     * SideEffects: 创建 HNSW 索引（会话级调高 maintenance_work_mem / 并行度，结束后恢复）；构建期间阻塞对该表的写入
+     * Failure: 建索引失败时抛出RuntimeException（非 CONCURRENTLY 构建失败会整体回滚，不留下无效索引）
+     * Idempotency: 幂等（索引已存在则跳过）
+     */
+    void buildIndex(Consumer<IndexBuildProgress> progressListener);
+
+    /**
+     * Intent: 查询线上表向量列的实际存储类型
+     * Input: 无
+     * Output: String (pgvector 类型名：vector 或 halfvec)
+     * SideEffects: 只读查询
+     * Failure: 线上表不存在或数据库不可用时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    String storedType();
+
+    /**
+     * Intent: 原地把线上表向量列转换为配置的存储类型（rag.ingestion.vector-type）
+     * Input: 无
+     * Output: 无
+     * SideEffects: 单事务内删除向量索引与前缀列、ALTER TYPE 重写整表（期间阻塞读写）；不重建索引，调用方随后调用 buildIndex
+     * Failure: 任一步失败时抛出RuntimeException，事务回滚，表结构与数据保持不变
+     * Idempotency: 结果幂等（已是目标类型时数据不变，但仍会重写整表，调用方应先比对 storedType）
+     */
+    void convertStoredType();
+}
@@ -3,6 +3,7 @@ package com.shawn.aiagent.port.rag;
 import com.shawn.aiagent.domain.rag.DocumentChunk;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 向量存储网关接口
@@ -30,6 +31,36 @@ public interface VectorStoreGateway {
      */
     void deleteDocuments(List<String> documentIds);
 
+    /**
+     * Intent: 批量查询线上表中指定 chunk 的内容哈希
+     * Input: documentIds (文档ID列表)
+     * Output: Map<String, String> (id -> 内容哈希；不存在的 id 不出现在结果中，未记录哈希的行为空串)
+     * SideEffects: 只读查询
+     * Failure: 数据库查询失败时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    Map<String, String> findContentHashes(List<String> documentIds);
+
+    /**
+     * Intent: 查询来自指定源文件的全部 chunk id（metadata.file）
+     * Input: file (源文件相对路径)
+     * Output: List<String> (chunk id；没有时为空)
+     * SideEffects: 只读查询
+     * Failure: 数据库查询失败时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    List<String> findDocumentIdsBySourceFile(String file);
+
+    /**
+     * Intent: 统计线上表文档数量
+     * Input: 无
+     * Output: long
+     * SideEffects: 只读查询
+     * Failure: 数据库查询失败时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    long countDocuments();
+
     /**
      * Intent: 使用向量进行相似度检索
      * Input: query (原始查询文本), embedding (向量), topK (返回前K个结果)
@@ -39,5 +70,15 @@ public interface VectorStoreGateway {
      * Idempotency: 幂等（相同输入下结果受底层索引/近似检索影响，不承诺完全一致）
      */
     List<com.shawn.aiagent.domain.rag.RetrievalResult> similaritySearch(String query, List<Double> embedding, int topK);
+
+    /**
+     * Intent: 一次查询取回多个章节区间内的全部 chunk（上下文窗口扩展）
+     * Input: ranges (章节区间列表)
+     * Output: List<RetrievalResult> (score 为 0，顺序不保证)
+     * SideEffects: 只读查询
+     * Failure: 数据库查询失败时抛出RuntimeException
+     * Idempotency: 幂等
+     */
+    List<com.shawn.aiagent.domain.rag.RetrievalResult> findChunksInRanges(List<com.shawn.aiagent.domain.rag.ChunkRange> ranges);
 }
 
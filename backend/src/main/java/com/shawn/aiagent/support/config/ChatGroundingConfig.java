@@ -0,0 +1,80 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话检索增强配置
+ *
+ * 请求到达即开始检索（embedding + 向量检索 + 上下文窗口扩展），与加载对话记忆并行；
+ * 在 budget-millis 内拿到的资料注入本轮提示词，超出预算则本轮不带资料，不推迟首 token。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.chat.grounding")
+public class ChatGroundingConfig {
+
+    /**
+     * 是否为对话检索资料
+     */
+    private boolean enabled = true;
+
+    /**
+     * 检索延迟预算（毫秒，从请求到达开始计）
+     */
+    private long budgetMillis = 300;
+
+    /**
+     * 命中 chunk 同章节前后各带的相邻 chunk 数
+     */
+    private int contextRadius = 1;
+
+    /**
+     * 命中 chunk 的最低相似度；低于该值视为与本轮无关，不注入
+     */
+    private double minScore = 0.5;
+
+    /**
+     * 注入资料的最大字符数（超出截断）
+     */
+    private int maxContextChars = 1200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    public void setBudgetMillis(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+    }
+
+    public int getContextRadius() {
+        return contextRadius;
+    }
+
+    public void setContextRadius(int contextRadius) {
+        this.contextRadius = contextRadius;
+    }
+
+    public double getMinScore() {
+        return minScore;
+    }
+
+    public void setMinScore(double minScore) {
+        this.minScore = minScore;
+    }
+
+    public int getMaxContextChars() {
+        return maxContextChars;
+    }
+
+    public void setMaxContextChars(int maxContextChars) {
+        this.maxContextChars = maxContextChars;
+    }
+}
@@ -0,0 +1,290 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话记忆配置
+ *
+ * POSTGRES 存储下，热会话留在进程内缓存，新消息经 write-behind 队列跨会话批量写入 Postgres；
+ * 重启后会话在首次访问时才从库中加载。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.chat.memory")
+public class ChatMemoryConfig {
+
+    /**
+     * 记忆存储：POSTGRES（持久化）或 IN_MEMORY（进程内，重启丢失）
+     */
+    private Store store = Store.POSTGRES;
+
+    /**
+     * 每个会话保留的消息窗口大小
+     */
+    private int maxMessages = 10;
+
+    /**
+     * 每个会话历史消息的 token 预算（含对话模板开销；每轮请求附加的系统提示词不在记忆中，不计入）；
+     * >0 时按 token 截断，<=0 时只按 max-messages 截断
+     */
+    private int maxTokens = 3000;
+
+    /**
+     * Qwen tiktoken 词表文件路径（qwen.tiktoken）；为空时按启发式估算 token 数
+     */
+    private String tokenizerVocab = "";
+
+    /**
+     * 消息表名
+     */
+    private String tableName = "chat_memory_message";
+
+    /**
+     * write-behind 刷写间隔（毫秒）：队列空闲时最多等待这么久再刷写已积累的写入
+     */
+    private long flushIntervalMillis = 200;
+
+    /**
+     * 单次刷写最多合并的写入操作数（跨会话）
+     */
+    private int flushBatchSize = 500;
+
+    /**
+     * write-behind 队列容量（按会话计，同一会话在队列中至多一项）；队列满时写入不等待，会话推迟到有空位时再入队
+     */
+    private int writeQueueCapacity = 10000;
+
+    /**
+     * 刷写失败后的重试间隔（毫秒）
+     */
+    private long retryDelayMillis = 1000;
+
+    /**
+     * 热缓存最多保留的会话数；超过时淘汰最久未访问且已刷写完成的会话
+     */
+    private int hotCacheMaxConversations = 10000;
+
+    /**
+     * 热缓存字节预算（估算值）；超过时按最久未访问淘汰，<=0 表示不限
+     */
+    private long hotCacheMaxBytes = 256L * 1024 * 1024;
+
+    /**
+     * 会话空闲超过该分钟数即移出热缓存；0 表示不按空闲淘汰
+     */
+    private long idleTtlMinutes = 60;
+
+    /**
+     * 空闲淘汰的扫描间隔（秒）
+     */
+    private long sweepIntervalSeconds = 30;
+
+    /**
+     * IN_MEMORY 存储的落盘目录：非空时被淘汰的会话压缩写入该目录，再次访问时读回；为空时直接丢弃
+     */
+    private String spillDir = "";
+
+    /**
+     * 是否在回复流结束后于后台压缩较早的历史
+     */
+    private boolean compactionEnabled = true;
+
+    /**
+     * 记忆的 token 数超过该值时压缩；应小于 max-tokens，在窗口截断之前把早期内容折叠进摘要；<=0 表示不按 token 触发
+     */
+    private int compactionTriggerTokens = 1500;
+
+    /**
+     * 记忆的消息数超过该值时压缩；应小于 max-messages；<=0 表示不按条数触发
+     */
+    private int compactionTriggerMessages = 8;
+
+    /**
+     * 压缩时保留原文的最新消息数（向前对齐到一轮对话的开头）
+     */
+    private int compactionKeepRecentMessages = 4;
+
+    /**
+     * 摘要长度上限（字），写入摘要提示词
+     */
+    private int compactionSummaryMaxChars = 400;
+
+    /**
+     * 后台压缩队列容量；队列满时跳过本次压缩，下一轮结束后重新检查
+     */
+    private int compactionQueueCapacity = 1000;
+
+    public Store getStore() {
+        return store;
+    }
+
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public void setMaxMessages(int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public void setMaxTokens(int maxTokens) {
+        this.maxTokens = maxTokens;
+    }
+
+    public String getTokenizerVocab() {
+        return tokenizerVocab;
+    }
+
+    public void setTokenizerVocab(String tokenizerVocab) {
+        this.tokenizerVocab = tokenizerVocab;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    public long getFlushIntervalMillis() {
+        return flushIntervalMillis;
+    }
+
+    public void setFlushIntervalMillis(long flushIntervalMillis) {
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    public int getFlushBatchSize() {
+        return flushBatchSize;
+    }
+
+    public void setFlushBatchSize(int flushBatchSize) {
+        this.flushBatchSize = flushBatchSize;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public void setWriteQueueCapacity(int writeQueueCapacity) {
+        this.writeQueueCapacity = writeQueueCapacity;
+    }
+
+    public long getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public void setRetryDelayMillis(long retryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public int getHotCacheMaxConversations() {
+        return hotCacheMaxConversations;
+    }
+
+    public void setHotCacheMaxConversations(int hotCacheMaxConversations) {
+        this.hotCacheMaxConversations = hotCacheMaxConversations;
+    }
+
+    public long getHotCacheMaxBytes() {
+        return hotCacheMaxBytes;
+    }
+
+    public void setHotCacheMaxBytes(long hotCacheMaxBytes) {
+        this.hotCacheMaxBytes = hotCacheMaxBytes;
+    }
+
+    public long getIdleTtlMinutes() {
+        return idleTtlMinutes;
+    }
+
+    public void setIdleTtlMinutes(long idleTtlMinutes) {
+        this.idleTtlMinutes = idleTtlMinutes;
+    }
+
+    public long getSweepIntervalSeconds() {
+        return sweepIntervalSeconds;
+    }
+
+    public void setSweepIntervalSeconds(long sweepIntervalSeconds) {
+        this.sweepIntervalSeconds = sweepIntervalSeconds;
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    public void setSpillDir(String spillDir) {
+        this.spillDir = spillDir;
+    }
+
+    public boolean isCompactionEnabled() {
+        return compactionEnabled;
+    }
+
+    public void setCompactionEnabled(boolean compactionEnabled) {
+        this.compactionEnabled = compactionEnabled;
+    }
+
+    public int getCompactionTriggerTokens() {
+        return compactionTriggerTokens;
+    }
+
+    public void setCompactionTriggerTokens(int compactionTriggerTokens) {
+        this.compactionTriggerTokens = compactionTriggerTokens;
+    }
+
+    public int getCompactionTriggerMessages() {
+        return compactionTriggerMessages;
+    }
+
+    public void setCompactionTriggerMessages(int compactionTriggerMessages) {
+        this.compactionTriggerMessages = compactionTriggerMessages;
+    }
+
+    public int getCompactionKeepRecentMessages() {
+        return compactionKeepRecentMessages;
+    }
+
+    public void setCompactionKeepRecentMessages(int compactionKeepRecentMessages) {
+        this.compactionKeepRecentMessages = compactionKeepRecentMessages;
+    }
+
+    public int getCompactionSummaryMaxChars() {
+        return compactionSummaryMaxChars;
+    }
+
+    public void setCompactionSummaryMaxChars(int compactionSummaryMaxChars) {
+        this.compactionSummaryMaxChars = compactionSummaryMaxChars;
+    }
+
+    public int getCompactionQueueCapacity() {
+        return compactionQueueCapacity;
+    }
+
+    public void setCompactionQueueCapacity(int compactionQueueCapacity) {
+        this.compactionQueueCapacity = compactionQueueCapacity;
+    }
+
+    /**
+     * 对话记忆存储
+     */
+    public enum Store {
+        /**
+         * Postgres 持久化（热缓存 + write-behind）
+         */
+        POSTGRES,
+        /**
+         * 进程内存储（有界：空闲与预算淘汰，可选落盘），重启丢失
+         */
+        IN_MEMORY
+    }
+}
@@ -0,0 +1,125 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 流式回复配置
+ *
+ * 同一段落内的增量文本先在每个流的缓冲里合并，时间窗口到期、字节数达到阈值或遇到段落边界时（先到者为准）
+ * 才写出一个 SSE 帧。窗口在 [coalesce-min-window-millis, coalesce-max-window-millis] 间随并发流数线性放大：
+ * 低负载时更接近逐 token 的打字效果，高负载时用更少的帧换 CPU 与网络开销。
+ *
+ * 写出的帧同时进入按回复编号的回放缓冲：连接中断后客户端带 Last-Event-ID 重连，补发漏掉的帧并接上仍在进行的生成。
+ * 默认最后一个客户端断开即取消上游生成，此时只有已结束的回复可以续传（缓冲保留 replay-ttl-seconds）；
+ * 需要在生成中途续传时显式设置 resume-grace-millis > 0：断开后生成再保留这么久等待重连，期间上游照常消耗 token。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.chat.stream")
+public class ChatStreamConfig {
+
+    /**
+     * 合并窗口下限（毫秒）；<=0 表示关闭合并，每个增量单独成帧
+     */
+    private long coalesceMinWindowMillis = 20;
+
+    /**
+     * 合并窗口上限（毫秒）；并发流数达到 coalesce-saturation-streams 时取该值
+     */
+    private long coalesceMaxWindowMillis = 50;
+
+    /**
+     * 待发文本达到该 UTF-8 字节数时立即成帧，不等窗口到期；<=0 表示不按字节成帧
+     */
+    private int coalesceMaxBytes = 512;
+
+    /**
+     * 窗口放大到上限时的并发流数；<=0 表示窗口固定为下限
+     */
+    private int coalesceSaturationStreams = 500;
+
+    /**
+     * 每个回复最多保留用于回放的帧数（合并后的帧）；超过后最旧的帧被覆盖，需要它们的重连无法续传
+     */
+    private int replayCapacityPerMessage = 1024;
+
+    /**
+     * 回复结束后回放缓冲的保留时间（秒）
+     */
+    private long replayTtlSeconds = 60;
+
+    /**
+     * 全部回放缓冲的估算字节软上限；超过时从最早结束的回复开始淘汰。
+     * 进行中的回复计入总量但不淘汰，总量最多超出并发回复数 × replay-capacity-per-message 帧
+     */
+    private long replayMaxBytes = 32L * 1024 * 1024;
+
+    /**
+     * 最后一个客户端断开后，生成继续等待重连的时间（毫秒）；默认 0，客户端断开即取消上游生成
+     */
+    private long resumeGraceMillis = 0;
+
+    public long getCoalesceMinWindowMillis() {
+        return coalesceMinWindowMillis;
+    }
+
+    public void setCoalesceMinWindowMillis(long coalesceMinWindowMillis) {
+        this.coalesceMinWindowMillis = coalesceMinWindowMillis;
+    }
+
+    public long getCoalesceMaxWindowMillis() {
+        return coalesceMaxWindowMillis;
+    }
+
+    public void setCoalesceMaxWindowMillis(long coalesceMaxWindowMillis) {
+        this.coalesceMaxWindowMillis = coalesceMaxWindowMillis;
+    }
+
+    public int getCoalesceMaxBytes() {
+        return coalesceMaxBytes;
+    }
+
+    public void setCoalesceMaxBytes(int coalesceMaxBytes) {
+        this.coalesceMaxBytes = coalesceMaxBytes;
+    }
+
+    public int getCoalesceSaturationStreams() {
+        return coalesceSaturationStreams;
+    }
+
+    public void setCoalesceSaturationStreams(int coalesceSaturationStreams) {
+        this.coalesceSaturationStreams = coalesceSaturationStreams;
+    }
+
+    public int getReplayCapacityPerMessage() {
+        return replayCapacityPerMessage;
+    }
+
+    public void setReplayCapacityPerMessage(int replayCapacityPerMessage) {
+        this.replayCapacityPerMessage = replayCapacityPerMessage;
+    }
+
+    public long getReplayTtlSeconds() {
+        return replayTtlSeconds;
+    }
+
+    public void setReplayTtlSeconds(long replayTtlSeconds) {
+        this.replayTtlSeconds = replayTtlSeconds;
+    }
+
+    public long getReplayMaxBytes() {
+        return replayMaxBytes;
+    }
+
+    public void setReplayMaxBytes(long replayMaxBytes) {
+        this.replayMaxBytes = replayMaxBytes;
+    }
+
+    public long getResumeGraceMillis() {
+        return resumeGraceMillis;
+    }
+
+    public void setResumeGraceMillis(long resumeGraceMillis) {
+        this.resumeGraceMillis = resumeGraceMillis;
+    }
+}
@@ -0,0 +1,275 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * RAG 数据摄取（reindex）相关配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.ingestion")
+public class IngestionConfig {
+
+    /**
+     * 写入向量存储时每批处理的文档块数量
+     */
+    private int batchSize = 100;
+
+    /**
+     * 每批写入的超时时间（秒）
+     */
+    private int batchTimeoutSeconds = 300;
+
+    /**
+     * 重新索引模式
+     */
+    private ReindexMode reindexMode = ReindexMode.BLUE_GREEN;
+
+    /**
+     * 向量列的存储类型（新建的表、影子表按该类型建列；已有表用迁移命令转换）
+     */
+    private VectorType vectorType = VectorType.VECTOR;
+
+    /**
+     * 启动时初始化 vector 扩展、向量表与 HNSW 索引（取代 Spring AI 的 initialize-schema）
+     */
+    private boolean initializeSchema = true;
+
+    /**
+     * 构建向量索引时会话级 maintenance_work_mem（HNSW 图能完整放进内存时构建最快）
+     */
+    private String indexBuildMaintenanceWorkMem = "1GB";
+
+    /**
+     * 构建向量索引时会话级 max_parallel_maintenance_workers（pgvector 0.6+ 支持并行构建 HNSW）
+     */
+    private int indexBuildParallelWorkers = 4;
+
+    /**
+     * 索引构建进度（pg_stat_progress_create_index）采样间隔（秒）
+     */
+    private int indexBuildProgressPollSeconds = 5;
+
+    /**
+     * 单个 reindex 任务最多启动执行的次数（含重启后的续跑），超过则置为失败，避免崩溃循环
+     */
+    private int jobMaxAttempts = 3;
+
+    /**
+     * 扫描待续跑任务的间隔（秒），用于接手崩溃节点遗留的任务
+     */
+    private int jobResumeScanIntervalSeconds = 60;
+
+    /**
+     * 加载时按文件合并近重复 chunk（译本、转载等），重复 chunk 不向量化；默认关闭
+     */
+    private boolean dedupEnabled = false;
+
+    /**
+     * 近重复判定阈值：字符 shingle 的估算 Jaccard 相似度 >= 该值即合并
+     */
+    private double dedupSimilarityThreshold = 0.9;
+
+    /**
+     * 近重复判定的字符 shingle 长度
+     */
+    private int dedupShingleSize = 5;
+
+    /**
+     * 各数据源的向量化文本模板（key 为 metadata.source，如 dreams / text）：{content} 为正文，{key} 为同名 metadata 字段；
+     * 未配置的数据源只向量化正文
+     */
+    private Map<String, String> embedTemplates = new HashMap<>();
+
+    /**
+     * 每个 chunk 预计算的近邻数（相关 chunk 图），0 = 不维护
+     */
+    private int neighborCount = 10;
+
+    /**
+     * 计算近邻时每条 SQL 处理的 chunk 数
+     */
+    private int neighborBatchSize = 200;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchTimeoutSeconds() {
+        return batchTimeoutSeconds;
+    }
+
+    public void setBatchTimeoutSeconds(int batchTimeoutSeconds) {
+        this.batchTimeoutSeconds = batchTimeoutSeconds;
+    }
+
+    public ReindexMode getReindexMode() {
+        return reindexMode;
+    }
+
+    public void setReindexMode(ReindexMode reindexMode) {
+        this.reindexMode = reindexMode;
+    }
+
+    public VectorType getVectorType() {
+        return vectorType;
+    }
+
+    public void setVectorType(VectorType vectorType) {
+        this.vectorType = vectorType;
+    }
+
+    public boolean isInitializeSchema() {
+        return initializeSchema;
+    }
+
+    public void setInitializeSchema(boolean initializeSchema) {
+        this.initializeSchema = initializeSchema;
+    }
+
+    public String getIndexBuildMaintenanceWorkMem() {
+        return indexBuildMaintenanceWorkMem;
+    }
+
+    public void setIndexBuildMaintenanceWorkMem(String indexBuildMaintenanceWorkMem) {
+        this.indexBuildMaintenanceWorkMem = indexBuildMaintenanceWorkMem;
+    }
+
+    public int getIndexBuildParallelWorkers() {
+        return indexBuildParallelWorkers;
+    }
+
+    public void setIndexBuildParallelWorkers(int indexBuildParallelWorkers) {
+        this.indexBuildParallelWorkers = indexBuildParallelWorkers;
+    }
+
+    public int getIndexBuildProgressPollSeconds() {
+        return indexBuildProgressPollSeconds;
+    }
+
+    public void setIndexBuildProgressPollSeconds(int indexBuildProgressPollSeconds) {
+        this.indexBuildProgressPollSeconds = indexBuildProgressPollSeconds;
+    }
+
+    public int getJobMaxAttempts() {
+        return jobMaxAttempts;
+    }
+
+    public void setJobMaxAttempts(int jobMaxAttempts) {
+        this.jobMaxAttempts = jobMaxAttempts;
+    }
+
+    public int getJobResumeScanIntervalSeconds() {
+        return jobResumeScanIntervalSeconds;
+    }
+
+    public void setJobResumeScanIntervalSeconds(int jobResumeScanIntervalSeconds) {
+        this.jobResumeScanIntervalSeconds = jobResumeScanIntervalSeconds;
+    }
+
+    public boolean isDedupEnabled() {
+        return dedupEnabled;
+    }
+
+    public void setDedupEnabled(boolean dedupEnabled) {
+        this.dedupEnabled = dedupEnabled;
+    }
+
+    public double getDedupSimilarityThreshold() {
+        return dedupSimilarityThreshold;
+    }
+
+    public void setDedupSimilarityThreshold(double dedupSimilarityThreshold) {
+        this.dedupSimilarityThreshold = dedupSimilarityThreshold;
+    }
+
+    public int getDedupShingleSize() {
+        return dedupShingleSize;
+    }
+
+    public void setDedupShingleSize(int dedupShingleSize) {
+        this.dedupShingleSize = dedupShingleSize;
+    }
+
+    public Map<String, String> getEmbedTemplates() {
+        return embedTemplates;
+    }
+
+    public void setEmbedTemplates(Map<String, String> embedTemplates) {
+        this.embedTemplates = embedTemplates;
+    }
+
+    public int getNeighborCount() {
+        return neighborCount;
+    }
+
+    public void setNeighborCount(int neighborCount) {
+        this.neighborCount = neighborCount;
+    }
+
+    public int getNeighborBatchSize() {
+        return neighborBatchSize;
+    }
+
+    public void setNeighborBatchSize(int neighborBatchSize) {
+        this.neighborBatchSize = neighborBatchSize;
+    }
+
+    /**
+     * 重新索引模式
+     */
+    public enum ReindexMode {
+        /**
+         * 直接写入线上表（写入期间查询可见半成品数据）
+         */
+        IN_PLACE,
+        /**
+         * 直接写入线上表，但写入前删除向量索引、写完后一次性重建（写入期间查询走顺序扫描）
+         */
+        IN_PLACE_DEFERRED_INDEX,
+        /**
+         * 写入影子表，校验后原子切换（线上表在构建期间不受影响）
+         */
+        BLUE_GREEN
+    }
+
+    /**
+     * 向量列存储类型
+     */
+    public enum VectorType {
+        /**
+         * float32（pgvector vector），每维 4 字节
+         */
+        VECTOR("vector"),
+        /**
+         * float16（pgvector halfvec，0.7+），每维 2 字节，表与 HNSW 索引约减半
+         */
+        HALFVEC("halfvec");
+
+        private final String sqlType;
+
+        VectorType(String sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        public String sqlType() {
+            return sqlType;
+        }
+
+        public static VectorType fromSqlType(String sqlType) {
+            for (VectorType type : values()) {
+                if (type.sqlType.equals(sqlType)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("不支持的向量列类型: " + sqlType);
+        }
+    }
+}
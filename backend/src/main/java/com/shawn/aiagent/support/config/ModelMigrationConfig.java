@@ -0,0 +1,121 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Embedding 模型迁移配置
+ *
+ * 迁移期间存在两代向量：current（spring.ai.dashscope.embedding.* + spring.ai.vectorstore.pgvector.table-name）
+ * 与 candidate（本配置的模型与表）。reindex / 增量同步同时写入两代；read-from 决定线上检索读哪一代，
+ * 另一代按 shadow-read-rate 抽样做影子查询，对比延迟与 top-1 一致率。
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.migration")
+public class ModelMigrationConfig {
+
+    /**
+     * 是否启用迁移模式（双写 + 影子读）
+     */
+    private boolean enabled = false;
+
+    /**
+     * 候选 embedding 模型名（DashScope）
+     */
+    private String candidateModel = "";
+
+    /**
+     * 候选模型输出维度（即候选表向量列维度）
+     */
+    private int candidateDimension = 1024;
+
+    /**
+     * 候选模型的向量表（"一个模型一个表"，不能与线上表相同）
+     */
+    private String candidateTable = "";
+
+    /**
+     * 线上检索读取的一代：CURRENT 或 CANDIDATE（切换即 cutover，切回即回滚）
+     */
+    private ReadSource readFrom = ReadSource.CURRENT;
+
+    /**
+     * 线上检索中抽样到另一代做影子查询的比例（0~1）
+     */
+    private double shadowReadRate = 0.05;
+
+    /**
+     * 同时进行的影子查询上限，超过则丢弃该次抽样，不排队
+     */
+    private int shadowReadMaxInFlight = 4;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCandidateModel() {
+        return candidateModel;
+    }
+
+    public void setCandidateModel(String candidateModel) {
+        this.candidateModel = candidateModel;
+    }
+
+    public int getCandidateDimension() {
+        return candidateDimension;
+    }
+
+    public void setCandidateDimension(int candidateDimension) {
+        this.candidateDimension = candidateDimension;
+    }
+
+    public String getCandidateTable() {
+        return candidateTable;
+    }
+
+    public void setCandidateTable(String candidateTable) {
+        this.candidateTable = candidateTable;
+    }
+
+    public ReadSource getReadFrom() {
+        return readFrom;
+    }
+
+    public void setReadFrom(ReadSource readFrom) {
+        this.readFrom = readFrom;
+    }
+
+    public double getShadowReadRate() {
+        return shadowReadRate;
+    }
+
+    public void setShadowReadRate(double shadowReadRate) {
+        this.shadowReadRate = shadowReadRate;
+    }
+
+    public int getShadowReadMaxInFlight() {
+        return shadowReadMaxInFlight;
+    }
+
+    public void setShadowReadMaxInFlight(int shadowReadMaxInFlight) {
+        this.shadowReadMaxInFlight = shadowReadMaxInFlight;
+    }
+
+    /**
+     * 线上检索读取的一代
+     */
+    public enum ReadSource {
+        /**
+         * 当前模型与线上表
+         */
+        CURRENT,
+        /**
+         * 候选模型与候选表
+         */
+        CANDIDATE
+    }
+}
@@ -3,6 +3,9 @@ package com.shawn.aiagent.support.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 检索相关配置
  */
@@ -35,6 +38,51 @@ public class RetrievalConfig {
      */
     private int logQueryPreviewLength = 128;
 
+    /**
+     * 两阶段检索的前缀向量维度（Matryoshka 截断）；0 表示只用全量向量检索
+     */
+    private int prefixDimension = 0;
+
+    /**
+     * 两阶段检索第一阶段在前缀向量上召回的候选数，再用全量向量精排
+     */
+    private int prefixCandidates = 100;
+
+    /**
+     * 向量距离：COSINE（<=>）或 INNER_PRODUCT（<#>，要求向量已归一化）；决定 HNSW 操作符类与检索操作符
+     */
+    private DistanceMode distanceMode = DistanceMode.COSINE;
+
+    /**
+     * 上下文窗口扩展：命中 chunk 同章节前后各取的相邻 chunk 数（默认值）
+     */
+    private int contextWindowRadius = 1;
+
+    /**
+     * 上下文窗口扩展允许请求的最大半径
+     */
+    private int contextWindowMaxRadius = 5;
+
+    /**
+     * 多查询检索：每个请求最多生成的查询变体数（含原始查询）
+     */
+    private int multiQueryMaxVariants = 4;
+
+    /**
+     * 多查询检索：每个变体召回的 chunk 数，也是融合后默认返回的数量
+     */
+    private int multiQueryTopK = 5;
+
+    /**
+     * 多查询检索：倒数排名融合平滑常数 k
+     */
+    private int multiQueryRrfK = 60;
+
+    /**
+     * 多查询检索：同义词组，每项为逗号分隔的一组同义词
+     */
+    private List<String> multiQuerySynonymGroups = new ArrayList<>();
+
     public int getMaxQueryLength() {
         return maxQueryLength;
     }
@@ -74,6 +122,112 @@ public class RetrievalConfig {
     public void setLogQueryPreviewLength(int logQueryPreviewLength) {
         this.logQueryPreviewLength = logQueryPreviewLength;
     }
-}
 
+    public int getPrefixDimension() {
+        return prefixDimension;
+    }
+
+    public void setPrefixDimension(int prefixDimension) {
+        this.prefixDimension = prefixDimension;
+    }
+
+    public int getPrefixCandidates() {
+        return prefixCandidates;
+    }
+
+    public void setPrefixCandidates(int prefixCandidates) {
+        this.prefixCandidates = prefixCandidates;
+    }
+
+    public int getContextWindowRadius() {
+        return contextWindowRadius;
+    }
+
+    public void setContextWindowRadius(int contextWindowRadius) {
+        this.contextWindowRadius = contextWindowRadius;
+    }
+
+    public int getContextWindowMaxRadius() {
+        return contextWindowMaxRadius;
+    }
+
+    public void setContextWindowMaxRadius(int contextWindowMaxRadius) {
+        this.contextWindowMaxRadius = contextWindowMaxRadius;
+    }
+
+    public int getMultiQueryMaxVariants() {
+        return multiQueryMaxVariants;
+    }
+
+    public void setMultiQueryMaxVariants(int multiQueryMaxVariants) {
+        this.multiQueryMaxVariants = multiQueryMaxVariants;
+    }
+
+    public int getMultiQueryTopK() {
+        return multiQueryTopK;
+    }
+
+    public void setMultiQueryTopK(int multiQueryTopK) {
+        this.multiQueryTopK = multiQueryTopK;
+    }
+
+    public int getMultiQueryRrfK() {
+        return multiQueryRrfK;
+    }
+
+    public void setMultiQueryRrfK(int multiQueryRrfK) {
+        this.multiQueryRrfK = multiQueryRrfK;
+    }
+
+    public List<String> getMultiQuerySynonymGroups() {
+        return multiQuerySynonymGroups;
+    }
+
+    public void setMultiQuerySynonymGroups(List<String> multiQuerySynonymGroups) {
+        this.multiQuerySynonymGroups = multiQuerySynonymGroups;
+    }
 
+    public DistanceMode getDistanceMode() {
+        return distanceMode;
+    }
+
+    public void setDistanceMode(DistanceMode distanceMode) {
+        this.distanceMode = distanceMode;
+    }
+
+    /**
+     * 向量距离模式
+     */
+    public enum DistanceMode {
+        /**
+         * 余弦距离：每次比较都要计算两侧范数
+         */
+        COSINE("<=>", "cosine_ops"),
+        /**
+         * 负内积：写入与查询向量均已 L2 归一化时与余弦等价，单次比较更便宜
+         */
+        INNER_PRODUCT("<#>", "ip_ops");
+
+        private final String operator;
+        private final String opsClassSuffix;
+
+        DistanceMode(String operator, String opsClassSuffix) {
+            this.operator = operator;
+            this.opsClassSuffix = opsClassSuffix;
+        }
+
+        /**
+         * pgvector 距离操作符（值越小越相似）
+         */
+        public String operator() {
+            return operator;
+        }
+
+        /**
+         * HNSW 操作符类，如 vector_cosine_ops / halfvec_ip_ops
+         */
+        public String opsClass(String vectorSqlType) {
+            return vectorSqlType + "_" + opsClassSuffix;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.shawn.aiagent.support.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * 原始文本（.txt / .md）数据源配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rag.sources.text")
+public class TextSourceConfig {
+
+    /**
+     * 是否启用原始文本数据源
+     */
+    private boolean enabled = false;
+
+    /**
+     * 文本文件所在目录（递归扫描）
+     */
+    private String directory = "";
+
+    /**
+     * 参与加载的文件扩展名
+     */
+    private List<String> extensions = List.of("txt", "md");
+
+    /**
+     * 单个 chunk 的 token 上限
+     */
+    private int maxChunkTokens = 512;
+
+    /**
+     * 相邻 chunk 的重叠 token 上限（以完整段落为单位回退）
+     */
+    private int overlapTokens = 64;
+
+    /**
+     * 切分并行度；0 表示使用 CPU 核数
+     */
+    private int parallelism = 0;
+
+    /**
+     * 超大章节按该段落数拆成独立的切分任务，让单个大文件也能并行（任务边界处携带上一任务末尾的重叠段落）
+     */
+    private int paragraphsPerTask = 2000;
+
+    /**
+     * 目录监听（增量摄取）配置
+     */
+    private Watch watch = new Watch();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public List<String> getExtensions() {
+        return extensions;
+    }
+
+    public void setExtensions(List<String> extensions) {
+        this.extensions = extensions;
+    }
+
+    public int getMaxChunkTokens() {
+        return maxChunkTokens;
+    }
+
+    public void setMaxChunkTokens(int maxChunkTokens) {
+        this.maxChunkTokens = maxChunkTokens;
+    }
+
+    public int getOverlapTokens() {
+        return overlapTokens;
+    }
+
+    public void setOverlapTokens(int overlapTokens) {
+        this.overlapTokens = overlapTokens;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getParagraphsPerTask() {
+        return paragraphsPerTask;
+    }
+
+    public void setParagraphsPerTask(int paragraphsPerTask) {
+        this.paragraphsPerTask = paragraphsPerTask;
+    }
+
+    public Watch getWatch() {
+        return watch;
+    }
+
+    public void setWatch(Watch watch) {
+        this.watch = watch;
+    }
+
+    /**
+     * 目录监听配置：文件保存后只重新切分该文件，并只写入内容变化的 chunk
+     */
+    public static class Watch {
+
+        /**
+         * 是否启用目录监听（需同时启用 rag.sources.text.enabled）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 去抖时间（毫秒）：同一文件在该时间内没有新事件才触发同步，合并编辑器的连续写入
+         */
+        private long debounceMs = 500;
+
+        /**
+         * 轮询间隔（秒）：WatchService 不可用或强制轮询时按该间隔扫描目录
+         */
+        private int pollIntervalSeconds = 5;
+
+        /**
+         * 强制使用轮询（网络文件系统、部分容器挂载卷上 WatchService 收不到事件）
+         */
+        private boolean forcePolling = false;
+
+        /**
+         * 同步失败或被 reindex 任务占锁时的重试间隔（秒）
+         */
+        private int retryDelaySeconds = 10;
+
+        /**
+         * 同一批变更因失败最多重试的次数（被 reindex 占锁延后不计入）
+         */
+        private int maxRetries = 3;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getDebounceMs() {
+            return debounceMs;
+        }
+
+        public void setDebounceMs(long debounceMs) {
+            this.debounceMs = debounceMs;
+        }
+
+        public int getPollIntervalSeconds() {
+            return pollIntervalSeconds;
+        }
+
+        public void setPollIntervalSeconds(int pollIntervalSeconds) {
+            this.pollIntervalSeconds = pollIntervalSeconds;
+        }
+
+        public boolean isForcePolling() {
+            return forcePolling;
+        }
+
+        public void setForcePolling(boolean forcePolling) {
+            this.forcePolling = forcePolling;
+        }
+
+        public int getRetryDelaySeconds() {
+            return retryDelaySeconds;
+        }
+
+        public void setRetryDelaySeconds(int retryDelaySeconds) {
+            this.retryDelaySeconds = retryDelaySeconds;
+        }
+
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+    }
+}
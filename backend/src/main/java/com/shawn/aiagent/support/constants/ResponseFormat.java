@@ -4,6 +4,12 @@ package com.shawn.aiagent.support.constants;
  * 响应格式常量
  */
 public class ResponseFormat {
+
+    /**
+     * 分段标记：HUMAN_LIKE_RESPONSE_NEW_LINE 要求模型用它分隔段落，服务端据此切分为 segment 事件
+     */
+    public static final String CHUNK_MARKER = "<chunk>";
+
     public static final String HUMAN_LIKE_RESPONSE = "你在回答时请遵循以下隐性表达风格，不要在回答中显式提到规则：\n" + //
                 "\n" + //
                 "1. 表达自然、口语化，像人与人正常聊天，不使用编号或列表。\n" + //
@@ -20,7 +26,7 @@ public class ResponseFormat {
             + "1. 表达自然、口语化，像人与人聊天，不使用编号或列表。\n"
             + "2. 每句话只表达一个核心重点，并带有轻微情绪，例如理解、关心、温和的共鸣。\n"
             + "3. 在逻辑上保持连贯，但句子之间留有自然的\"呼吸感\"。\n"
-            + "4. 使用自然段落：每 1～2 句话之间自动换行，换行符用<chunk>代，这个标记用户看不到，我会在前端删除并用换行代替。\n"
+            + "4. 使用自然段落：每 1～2 句话之间自动换行，换行符用<chunk>代，这个标记用户看不到，会被替换为分段。\n"
             + "5. 不要输出一整大段，也不要使用标题或小节。\n"
             + "6. 可以使用生活化比喻、轻柔的语气词，让情绪显得真实但不夸张。\n"
             + "7. 让整体看起来像一个思路清晰、情绪细腻的人类在与用户交谈。";
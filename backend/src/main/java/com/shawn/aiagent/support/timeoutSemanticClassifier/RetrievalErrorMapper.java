@@ -0,0 +1,101 @@
+package com.shawn.aiagent.support.timeoutSemanticClassifier;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+
+import java.util.function.Function;
+
+/**
+ * 检索链路的错误映射：把向量化 / 向量检索 / 总超时三个阶段抛出的异常统一映射为 BusinessException。
+ * 单查询与多查询检索共用同一套映射，保证同类故障得到同一错误码。
+ *
+ * 规则（各阶段一致）：
+ * - 已是 BusinessException 的原样透传（内层阶段已分类）；
+ * - 具备超时语义（TimeoutSemanticClassifier）的映射为该阶段的超时错误码；
+ * - 向量化与向量检索阶段，cause 链中含 IllegalArgumentException 的映射为 INVALID_QUERY；
+ * - 其余映射为该阶段的失败错误码，消息取 cause 链上第一条非空消息。
+ */
+@Component
+public class RetrievalErrorMapper {
+
+    private final TimeoutSemanticClassifier timeoutSemanticClassifier;
+
+    public RetrievalErrorMapper(TimeoutSemanticClassifier timeoutSemanticClassifier) {
+        this.timeoutSemanticClassifier = timeoutSemanticClassifier;
+    }
+
+    /**
+     * Intent: 向量化阶段的错误映射，供 onErrorMap 使用
+     * Input: 无
+     * Output: 异常映射函数（EMBEDDING_TIMEOUT / INVALID_QUERY / EMBEDDING_API_ERROR）
+     * SideEffects: 无
+     * Failure: 不抛出异常
+     * Idempotency: 幂等
+     */
+    public Function<Throwable, Throwable> embedding() {
+        return e -> map(e, ErrorCode.EMBEDDING_TIMEOUT, "向量化超时", ErrorCode.EMBEDDING_API_ERROR, "向量化失败: ", true);
+    }
+
+    /**
+     * Intent: 向量检索阶段的错误映射，供 onErrorMap 使用
+     * Input: 无
+     * Output: 异常映射函数（VECTOR_SEARCH_TIMEOUT / INVALID_QUERY / VECTOR_STORE_ERROR）
+     * SideEffects: 无
+     * Failure: 不抛出异常
+     * Idempotency: 幂等
+     */
+    public Function<Throwable, Throwable> vectorSearch() {
+        return e -> map(e, ErrorCode.VECTOR_SEARCH_TIMEOUT, "向量检索超时", ErrorCode.VECTOR_STORE_ERROR, "向量检索失败: ", true);
+    }
+
+    /**
+     * Intent: 整条检索链路（含总超时）的错误映射，供 onErrorMap 使用
+     * Input: 无
+     * Output: 异常映射函数（TOTAL_TIMEOUT / SYSTEM_ERROR）
+     * SideEffects: 无
+     * Failure: 不抛出异常
+     * Idempotency: 幂等
+     */
+    public Function<Throwable, Throwable> total() {
+        return e -> map(e, ErrorCode.TOTAL_TIMEOUT, "检索总超时", ErrorCode.SYSTEM_ERROR, "检索失败: ", false);
+    }
+
+    private Throwable map(Throwable e, ErrorCode timeoutCode, String timeoutMessage,
+                          ErrorCode failureCode, String failurePrefix, boolean invalidArgumentAsQuery) {
+        if (e instanceof BusinessException) {
+            return e;
+        }
+        if (timeoutSemanticClassifier.isTimeout(e)) {
+            return new BusinessException(timeoutCode, timeoutMessage);
+        }
+        if (invalidArgumentAsQuery && hasCause(e, IllegalArgumentException.class)) {
+            return new BusinessException(ErrorCode.INVALID_QUERY, bestMessage(e));
+        }
+        return new BusinessException(failureCode, failurePrefix + bestMessage(e));
+    }
+
+    private static boolean hasCause(Throwable e, Class<?> type) {
+        Throwable t = Exceptions.unwrap(e);
+        while (t != null) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+            t = t.getCause();
+        }
+        return false;
+    }
+
+    private static String bestMessage(Throwable e) {
+        Throwable t = Exceptions.unwrap(e);
+        while (t != null) {
+            String msg = t.getMessage();
+            if (msg != null && !msg.isBlank()) {
+                return msg;
+            }
+            t = t.getCause();
+        }
+        return String.valueOf(e);
+    }
+}
@@ -0,0 +1,61 @@
+package com.shawn.aiagent.app.chat;
+
+import com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCase;
+import com.shawn.aiagent.domain.chat.ConversationId;
+import com.shawn.aiagent.domain.chat.Message;
+import com.shawn.aiagent.domain.rag.ContextWindow;
+import com.shawn.aiagent.port.chat.ChatGroundingMetricsGateway;
+import com.shawn.aiagent.port.chat.ChatModelGateway;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatGroundingConfig;
+import com.shawn.aiagent.support.config.ChatStreamConfig;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatWithPsychiatristUseCaseImplTest {
+
+    private final ChatModelGateway chatModelGateway = mock(ChatModelGateway.class);
+    private final RetrieveTop1ChunkByQueryUseCase retrieveUseCase = mock(RetrieveTop1ChunkByQueryUseCase.class);
+    private final ChatStreamMetricsGateway streamMetricsGateway = mock(ChatStreamMetricsGateway.class);
+    private final CountDownLatch retrievalCancelled = new CountDownLatch(1);
+
+    @Test
+    void shouldCancelInFlightGroundingWhenTurnIsCancelled() throws InterruptedException {
+        ChatGroundingConfig groundingConfig = new ChatGroundingConfig();
+        groundingConfig.setEnabled(true);
+        groundingConfig.setBudgetMillis(60_000);
+        ChatWithPsychiatristUseCaseImpl useCase = new ChatWithPsychiatristUseCaseImpl(
+                chatModelGateway,
+                (conversationId, systemPrompt) -> { },
+                retrieveUseCase,
+                groundingConfig,
+                mock(ChatGroundingMetricsGateway.class),
+                streamMetricsGateway,
+                new ChatStreamCoalescer(new ChatStreamConfig(), streamMetricsGateway),
+                new ConversationTurnSequencer(streamMetricsGateway),
+                "你是测试助手");
+        when(retrieveUseCase.executeWithContext(anyString(), anyString(), anyInt()))
+                .thenReturn(Mono.<ContextWindow>never().doOnCancel(retrievalCancelled::countDown));
+        // 模型仍在生成：本轮既未完成也未出错
+        when(chatModelGateway.streamChat(any(), any(), any(), any())).thenReturn(Flux.never());
+
+        Disposable client = useCase.streamChat(Message.of("我最近睡不好"), ConversationId.of("c1")).subscribe();
+        // 检索已随本轮开始，客户端断开后不再继续
+        assertThat(retrievalCancelled.await(100, TimeUnit.MILLISECONDS)).isFalse();
+        client.dispose();
+
+        assertThat(retrievalCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+}
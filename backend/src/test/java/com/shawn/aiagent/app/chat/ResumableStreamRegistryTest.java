@@ -0,0 +1,137 @@
+package com.shawn.aiagent.app.chat;
+
+import com.shawn.aiagent.domain.chat.ChatStreamEvent;
+import com.shawn.aiagent.domain.chat.ReplayRingBuffer;
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatStreamConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ResumableStreamRegistryTest {
+
+    private final ChatStreamConfig config = new ChatStreamConfig();
+    private final ChatStreamMetricsGateway metricsGateway = mock(ChatStreamMetricsGateway.class);
+    private final ResumableStreamRegistry registry = new ResumableStreamRegistry(config, metricsGateway);
+    private final Sinks.Many<ChatStreamEvent> generation = Sinks.many().unicast().onBackpressureBuffer();
+    private final CountDownLatch upstreamCancelled = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldReplayMissedFramesAndContinueLiveWhenResumedMidGeneration() throws InterruptedException {
+        config.setResumeGraceMillis(100);
+        List<ReplayRingBuffer.Sequenced> first = new CopyOnWriteArrayList<>();
+        Disposable client = registry.publish("m", upstream()).subscribe(first::add);
+        emit("a");
+        emit("b");
+        client.dispose();
+        emit("c");
+
+        List<ReplayRingBuffer.Sequenced> resumed = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        registry.resume("m", 0).subscribe(resumed::add, error -> { }, completed::countDown);
+        // 重连发生在宽限期内：宽限期过后上游仍未取消
+        assertThat(upstreamCancelled.await(300, TimeUnit.MILLISECONDS)).isFalse();
+        emit("d");
+        generation.tryEmitComplete();
+
+        assertThat(first).extracting(ReplayRingBuffer.Sequenced::seq).containsExactly(0L, 1L);
+        assertThat(resumed).extracting(ReplayRingBuffer.Sequenced::seq).containsExactly(1L, 2L, 3L);
+        assertThat(resumed).extracting(sequenced -> sequenced.event().getText()).containsExactly("b", "c", "d");
+        assertThat(completed.await(1, TimeUnit.SECONDS)).isTrue();
+        verify(metricsGateway).recordResume("replayed");
+    }
+
+    @Test
+    void shouldReplayRemainingFramesAndCompleteWhenResumedAfterFinish() {
+        StepVerifier.create(registry.publish("m", Flux.just(delta("a"), delta("b"), ChatStreamEvent.done(0))))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        StepVerifier.create(registry.resume("m", 0))
+                .assertNext(sequenced -> assertThat(sequenced.event().getText()).isEqualTo("b"))
+                .assertNext(sequenced -> assertThat(sequenced.event().getType()).isEqualTo(ChatStreamEvent.Type.DONE))
+                .verifyComplete();
+        StepVerifier.create(registry.resume("m", 2))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectResumeOfUnknownOrExpiredReply() {
+        assertNotFound("missing", 0);
+        verify(metricsGateway).recordResume("expired");
+    }
+
+    @Test
+    void shouldRejectResumeWhenNeededFramesWereOverwritten() {
+        config.setReplayCapacityPerMessage(2);
+        StepVerifier.create(registry.publish("m", Flux.just(delta("a"), delta("b"), delta("c"), delta("d"))))
+                .expectNextCount(4)
+                .verifyComplete();
+
+        // 只剩编号 2、3：从 0 续传缺少编号 1；编号超出已写出范围同样无法续传
+        assertNotFound("m", 0);
+        assertNotFound("m", 7);
+        StepVerifier.create(registry.resume("m", 1))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldCancelUpstreamWhenNoClientResumesWithinGrace() throws InterruptedException {
+        config.setResumeGraceMillis(50);
+        Disposable client = registry.publish("m", upstream()).subscribe();
+        emit("a");
+        client.dispose();
+
+        assertThat(upstreamCancelled.await(2, TimeUnit.SECONDS)).isTrue();
+        assertNotFound("m", 0);
+    }
+
+    @Test
+    void shouldCancelUpstreamImmediatelyOnDisconnectByDefault() {
+        Disposable client = registry.publish("m", upstream()).subscribe();
+        emit("a");
+        client.dispose();
+
+        assertThat(upstreamCancelled.getCount()).isZero();
+        assertNotFound("m", 0);
+    }
+
+    private Flux<ChatStreamEvent> upstream() {
+        return generation.asFlux().doOnCancel(upstreamCancelled::countDown);
+    }
+
+    private void emit(String text) {
+        generation.tryEmitNext(delta(text)).orThrow();
+    }
+
+    private static ChatStreamEvent delta(String text) {
+        return ChatStreamEvent.delta(0, text);
+    }
+
+    private void assertNotFound(String messageId, long lastSeq) {
+        assertThatThrownBy(() -> registry.resume(messageId, lastSeq))
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getCode()).isEqualTo(ErrorCode.NOT_FOUND_ERROR.getCode()));
+    }
+}
@@ -0,0 +1,142 @@
+package com.shawn.aiagent.app.rag;
+
+import com.shawn.aiagent.domain.rag.DocumentChunk;
+import com.shawn.aiagent.domain.rag.ReindexJob;
+import com.shawn.aiagent.domain.rag.ReindexJobPhase;
+import com.shawn.aiagent.domain.rag.ReindexJobStatus;
+import com.shawn.aiagent.port.rag.CandidateVectorStoreGateway;
+import com.shawn.aiagent.port.rag.ChunkNeighborGateway;
+import com.shawn.aiagent.port.rag.DocumentLoaderGateway;
+import com.shawn.aiagent.port.rag.ReindexJobGateway;
+import com.shawn.aiagent.port.rag.ReindexLockGateway;
+import com.shawn.aiagent.port.rag.VectorGenerationGateway;
+import com.shawn.aiagent.port.rag.VectorIndexGateway;
+import com.shawn.aiagent.port.rag.VectorStoreGateway;
+import com.shawn.aiagent.support.config.IngestionConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReindexJobRunnerTest {
+
+    @Mock
+    private DocumentLoaderGateway documentLoaderGateway;
+    @Mock
+    private VectorStoreGateway vectorStoreGateway;
+    @Mock
+    private VectorGenerationGateway vectorGenerationGateway;
+    @Mock
+    private VectorIndexGateway vectorIndexGateway;
+    @Mock
+    private ReindexJobGateway reindexJobGateway;
+    @Mock
+    private ReindexLockGateway reindexLockGateway;
+    @Mock
+    private ReindexLockGateway.ReindexLock reindexLock;
+    @Mock
+    private ObjectProvider<CandidateVectorStoreGateway> candidateVectorStoreGateway;
+    @Mock
+    private ChunkNeighborGateway chunkNeighborGateway;
+
+    private ReindexJobRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        when(reindexLockGateway.tryAcquire()).thenReturn(Optional.of(reindexLock));
+        lenient().when(documentLoaderGateway.loadDocuments()).thenReturn(List.of(
+                new DocumentChunk("c1", "第一段", Map.of()),
+                new DocumentChunk("c2", "第二段", Map.of())));
+        runner = new ReindexJobRunner(documentLoaderGateway, vectorStoreGateway, vectorGenerationGateway,
+                vectorIndexGateway, reindexJobGateway, reindexLockGateway, new IngestionConfig(),
+                candidateVectorStoreGateway, chunkNeighborGateway);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    void shouldRebuildIndexWhenEmbeddingFailsAfterDrop() {
+        ReindexJob job = deferredIndexJob(ReindexJobPhase.PREPARING, false);
+        givenActive(job);
+        when(reindexJobGateway.markRunning(eq("job-1"), anyInt(), anyInt())).thenReturn(job);
+        // 删索引前已记下 WRITING 断点
+        when(reindexJobGateway.findById("job-1")).thenReturn(Optional.of(job.toBuilder().phase(ReindexJobPhase.WRITING).build()));
+        doThrow(new IllegalStateException("向量化失败")).when(vectorStoreGateway).addDocuments(any());
+
+        runner.submit();
+
+        verify(reindexJobGateway, timeout(2000)).markFinished("job-1", ReindexJobStatus.FAILED, "向量化失败");
+        InOrder order = inOrder(reindexJobGateway, vectorIndexGateway);
+        order.verify(reindexJobGateway).checkpoint("job-1", ReindexJobPhase.WRITING, 0, 0);
+        order.verify(vectorIndexGateway).dropIndex();
+        order.verify(vectorIndexGateway).buildIndex(any());
+        order.verify(reindexJobGateway).markFinished("job-1", ReindexJobStatus.FAILED, "向量化失败");
+    }
+
+    @Test
+    void shouldRebuildIndexWhenCancelledJobIsResumedAfterDrop() {
+        ReindexJob job = deferredIndexJob(ReindexJobPhase.WRITING, true);
+        givenActive(job);
+        when(reindexJobGateway.findById("job-1")).thenReturn(Optional.of(job));
+
+        runner.submit();
+
+        verify(reindexJobGateway, timeout(2000)).markFinished("job-1", ReindexJobStatus.CANCELLED, null);
+        InOrder order = inOrder(reindexJobGateway, vectorIndexGateway);
+        order.verify(vectorIndexGateway).buildIndex(any());
+        order.verify(reindexJobGateway).markFinished("job-1", ReindexJobStatus.CANCELLED, null);
+    }
+
+    @Test
+    void shouldNotBuildIndexWhenCancelledBeforeDrop() {
+        ReindexJob job = deferredIndexJob(ReindexJobPhase.PREPARING, true);
+        givenActive(job);
+        when(reindexJobGateway.findById("job-1")).thenReturn(Optional.of(job));
+
+        runner.submit();
+
+        verify(reindexJobGateway, timeout(2000)).markFinished("job-1", ReindexJobStatus.CANCELLED, null);
+        verify(vectorIndexGateway, after(100).never()).buildIndex(any());
+        verify(vectorIndexGateway, never()).dropIndex();
+    }
+
+    private void givenActive(ReindexJob job) {
+        when(reindexJobGateway.findActive()).thenReturn(Optional.of(job));
+    }
+
+    private static ReindexJob deferredIndexJob(ReindexJobPhase phase, boolean cancelRequested) {
+        return ReindexJob.builder()
+                .id("job-1")
+                .status(ReindexJobStatus.RUNNING)
+                .phase(phase)
+                .mode(IngestionConfig.ReindexMode.IN_PLACE_DEFERRED_INDEX.name())
+                .batchSize(1)
+                .attempts(1)
+                .cancelRequested(cancelRequested)
+                .build();
+    }
+}
@@ -1,13 +1,16 @@
 package com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCaseImplTest;
 
-import com.shawn.aiagent.api.error.ErrorCode;
-import com.shawn.aiagent.api.exception.BusinessException;
+import com.shawn.aiagent.app.rag.ExpandContextWindowUseCase;
+import com.shawn.aiagent.app.rag.ModelMigrationRouter;
 import com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCaseImpl;
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
 import com.shawn.aiagent.domain.rag.RetrievalResult;
 import com.shawn.aiagent.port.rag.EmbeddingGateway;
 import com.shawn.aiagent.port.rag.VectorStoreGateway;
 import com.shawn.aiagent.support.config.RetrievalConfig;
-import com.shawn.aiagent.support.timeoutSemanticClassifier.TimeoutSemanticClassifier;
+import com.shawn.aiagent.support.timeoutSemanticClassifier.RetrievalErrorMapper;
+import com.shawn.aiagent.support.timeoutSemanticClassifier.TimeoutSemanticClassifierImpl;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -26,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -41,15 +45,25 @@ class RetrieveTop1ChunkByQueryUseCaseImplTest {
     private VectorStoreGateway vectorStoreGateway;
 
     @Mock
-    private TimeoutSemanticClassifier timeoutSemanticClassifier;
+    private ModelMigrationRouter modelMigrationRouter;
+
+    @Mock
+    private ExpandContextWindowUseCase expandContextWindowUseCase;
+
+    private final RetrievalErrorMapper retrievalErrorMapper = new RetrievalErrorMapper(new TimeoutSemanticClassifierImpl());
+
+    private final RetrievalConfig retrievalConfig = new RetrievalConfig();
 
     private RetrieveTop1ChunkByQueryUseCaseImpl newUseCase(int maxLen, int embeddingTimeoutSec, int vectorTimeoutSec, int totalTimeoutSec) {
-        RetrievalConfig config = new RetrievalConfig();
-        config.setMaxQueryLength(maxLen);
-        config.setTimeoutEmbeddingSeconds(embeddingTimeoutSec);
-        config.setTimeoutVectorSearchSeconds(vectorTimeoutSec);
-        config.setTimeoutTotalSeconds(totalTimeoutSec);
-        return new RetrieveTop1ChunkByQueryUseCaseImpl(embeddingGateway, vectorStoreGateway, config, timeoutSemanticClassifier);
+        retrievalConfig.setMaxQueryLength(maxLen);
+        retrievalConfig.setTimeoutEmbeddingSeconds(embeddingTimeoutSec);
+        retrievalConfig.setTimeoutVectorSearchSeconds(vectorTimeoutSec);
+        retrievalConfig.setTimeoutTotalSeconds(totalTimeoutSec);
+        // 未启用迁移：路由只提供当前一代（线上 embedding + 线上表检索）
+        lenient().when(modelMigrationRouter.serving()).thenReturn(
+                new ModelMigrationRouter.Generation("current", embeddingGateway, vectorStoreGateway::similaritySearch));
+        return new RetrieveTop1ChunkByQueryUseCaseImpl(
+                modelMigrationRouter, expandContextWindowUseCase, retrievalConfig, retrievalErrorMapper);
     }
 
     private List<Double> sampleEmbedding() {
@@ -180,9 +194,25 @@ class RetrieveTop1ChunkByQueryUseCaseImplTest {
 
         assertThat(topKCaptor.getValue()).isEqualTo(1);
         verify(vectorStoreGateway).similaritySearch("q", embedding, 1);
+        verify(modelMigrationRouter).shadowRead(eq("q"), any(), eq(first), any());
         // TODO: 集成测试版本：使用真实 VectorStore 实例验证 top-1 与字段映射
     }
 
+    @Test
+    void givenPrefixDimensionNotShorterThanEmbeddingWhenExecuteThenModelConfigError() {
+        RetrieveTop1ChunkByQueryUseCaseImpl useCase = newUseCase(50, 5, 5, 5);
+        List<Double> embedding = sampleEmbedding();
+        retrievalConfig.setPrefixDimension(embedding.size());
+        when(embeddingGateway.getDimensions()).thenReturn(embedding.size());
+        when(embeddingGateway.embed(eq("query"))).thenReturn(embedding);
+
+        StepVerifier.create(useCase.execute("query", "req-prefix-dim"))
+                .expectErrorSatisfies(e -> assertBusinessException(e, ErrorCode.MODEL_CONFIG_ERROR))
+                .verify();
+
+        verifyNoInteractions(vectorStoreGateway);
+    }
+
     @Test
     void givenVectorReturnsEmptyWhenExecuteThenNotFound() {
         RetrieveTop1ChunkByQueryUseCaseImpl useCase = newUseCase(50, 5, 5, 5);
@@ -209,5 +239,6 @@ class RetrieveTop1ChunkByQueryUseCaseImplTest {
 
         verify(embeddingGateway).embed("query");
         verify(vectorStoreGateway, never()).similaritySearch(any(), any(), anyInt());
+        verify(modelMigrationRouter, never()).shadowRead(any(), any(), any(), any());
     }
 } 
@@ -0,0 +1,75 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BytePairEncoderTest {
+
+    /**
+     * 256 个单字节 + 少量合并：ab(256) abab(257) 梦(258) " b"(259)
+     */
+    private static final BytePairEncoder ENCODER = BytePairEncoder.fromTiktoken(vocabulary(true));
+
+    @Test
+    void shouldCountWholePieceInVocabularyAsOneToken() {
+        assertThat(ENCODER.count("abab")).isEqualTo(1);
+        assertThat(ENCODER.count("梦")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMergeLowestRankPairsFirst() {
+        // ab ab ab -> abab ab
+        assertThat(ENCODER.count("ababab")).isEqualTo(2);
+        assertThat(ENCODER.count("abc")).isEqualTo(2);
+        assertThat(ENCODER.count("aab")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPreTokenizeOnWhitespaceBoundaries() {
+        // "a" + " b"
+        assertThat(ENCODER.count("a b")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFallBackToBytesWithoutMerges() {
+        // 梦境 没有任何两字节合并，按 6 个 UTF-8 字节计
+        assertThat(ENCODER.count("梦境")).isEqualTo(6);
+        assertThat(ENCODER.count("😀")).isEqualTo(4);
+    }
+
+    @Test
+    void shouldCountNullAndEmptyAsZero() {
+        assertThat(ENCODER.count(null)).isZero();
+        assertThat(ENCODER.count("")).isZero();
+        assertThat(ENCODER.vocabularySize()).isEqualTo(260);
+    }
+
+    @Test
+    void shouldRejectVocabularyWithoutAllSingleBytes() {
+        assertThatThrownBy(() -> BytePairEncoder.fromTiktoken(vocabulary(false)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<String> vocabulary(boolean complete) {
+        List<String> lines = new ArrayList<>();
+        for (int b = complete ? 0 : 1; b < 256; b++) {
+            lines.add(line(new byte[]{(byte) b}, b));
+        }
+        lines.add(line("ab".getBytes(StandardCharsets.UTF_8), 256));
+        lines.add(line("abab".getBytes(StandardCharsets.UTF_8), 257));
+        lines.add(line("梦".getBytes(StandardCharsets.UTF_8), 258));
+        lines.add(line(" b".getBytes(StandardCharsets.UTF_8), 259));
+        return lines;
+    }
+
+    private static String line(byte[] token, int rank) {
+        return Base64.getEncoder().encodeToString(token) + " " + rank;
+    }
+}
@@ -0,0 +1,97 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatMemoryEvictionPolicyTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void shouldEvictIdleConversations() {
+        ChatMemoryEvictionPolicy policy = new ChatMemoryEvictionPolicy(Duration.ofSeconds(60), 0, 0);
+
+        List<ChatMemoryEvictionPolicy.Eviction> evictions = policy.select(List.of(
+                entry("old", 0, 100, true),
+                entry("fresh", 50 * SECOND, 100, true)), 100 * SECOND);
+
+        assertThat(evictions).containsExactly(new ChatMemoryEvictionPolicy.Eviction("old", ChatMemoryEvictionPolicy.Reason.IDLE));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedDownToLowWatermarkWhenOverBytes() {
+        ChatMemoryEvictionPolicy policy = new ChatMemoryEvictionPolicy(null, 1000, 0);
+
+        List<ChatMemoryEvictionPolicy.Eviction> evictions = policy.select(List.of(
+                entry("c", 3, 300, true),
+                entry("a", 1, 300, true),
+                entry("b", 2, 300, true),
+                entry("d", 4, 300, true)), 5);
+
+        // 1200 > 1000，淘汰到 900 以内
+        assertThat(evictions).extracting(ChatMemoryEvictionPolicy.Eviction::conversationId).containsExactly("a");
+        assertThat(evictions).allMatch(e -> e.reason() == ChatMemoryEvictionPolicy.Reason.BUDGET);
+    }
+
+    @Test
+    void shouldNotEvictWithinBudget() {
+        ChatMemoryEvictionPolicy policy = new ChatMemoryEvictionPolicy(Duration.ofHours(1), 1000, 10);
+
+        assertThat(policy.select(List.of(entry("a", 1, 950, true)), 2)).isEmpty();
+    }
+
+    @Test
+    void shouldSkipPinnedConversationsButCountTheirBytes() {
+        ChatMemoryEvictionPolicy policy = new ChatMemoryEvictionPolicy(Duration.ofSeconds(1), 0, 2);
+
+        List<ChatMemoryEvictionPolicy.Eviction> evictions = policy.select(List.of(
+                entry("pinned", 0, 10, false),
+                entry("a", 5 * SECOND, 10, true),
+                entry("b", 6 * SECOND, 10, true)), 6 * SECOND);
+
+        // 3 > 2 个会话，低水位为 1 个；pinned 不可淘汰，只能淘汰其余两个
+        assertThat(evictions).extracting(ChatMemoryEvictionPolicy.Eviction::conversationId).containsExactly("a", "b");
+    }
+
+    @Test
+    void shouldKeepRetainedBytesBoundedUnderConversationChurn() {
+        long budget = 100_000;
+        ChatMemoryEvictionPolicy policy = new ChatMemoryEvictionPolicy(Duration.ofMinutes(10), budget, 0);
+        List<ChatMemoryEvictionPolicy.Entry> live = new ArrayList<>();
+        long maxRetained = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long bytes = ChatMemoryEvictionPolicy.conversationOverheadBytes()
+                    + 10 * ChatMemoryEvictionPolicy.estimateMessageBytes("x".repeat(200));
+            live.add(entry("c" + i, i * SECOND / 100, bytes, true));
+            long total = live.stream().mapToLong(ChatMemoryEvictionPolicy.Entry::bytes).sum();
+            if (policy.overBudget(total, live.size())) {
+                Set<String> evicted = new HashSet<>();
+                policy.select(live, i * SECOND / 100).forEach(e -> evicted.add(e.conversationId()));
+                live.removeIf(e -> evicted.contains(e.conversationId()));
+            }
+            maxRetained = Math.max(maxRetained, live.stream().mapToLong(ChatMemoryEvictionPolicy.Entry::bytes).sum());
+        }
+
+        assertThat(maxRetained).isLessThanOrEqualTo(budget + ChatMemoryEvictionPolicy.conversationOverheadBytes()
+                + 10 * ChatMemoryEvictionPolicy.estimateMessageBytes("x".repeat(200)));
+        assertThat(live).isNotEmpty();
+    }
+
+    @Test
+    void shouldEstimateMessageBytesFromTextLength() {
+        assertThat(ChatMemoryEvictionPolicy.estimateMessageBytes("abcd"))
+                .isEqualTo(ChatMemoryEvictionPolicy.estimateMessageBytes("") + 8);
+        assertThat(ChatMemoryEvictionPolicy.estimateMessageBytes(null)).isEqualTo(ChatMemoryEvictionPolicy.estimateMessageBytes(""));
+    }
+
+    private static ChatMemoryEvictionPolicy.Entry entry(String id, long lastAccessNanos, long bytes, boolean evictable) {
+        return new ChatMemoryEvictionPolicy.Entry(id, lastAccessNanos, bytes, evictable);
+    }
+}
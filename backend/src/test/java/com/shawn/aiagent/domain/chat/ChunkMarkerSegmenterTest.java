@@ -0,0 +1,97 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkMarkerSegmenterTest {
+
+    private static List<ChatStreamEvent> run(ChunkMarkerSegmenter segmenter, String... tokens) {
+        List<ChatStreamEvent> events = new ArrayList<>();
+        for (String token : tokens) {
+            events.addAll(segmenter.feed(token));
+        }
+        events.addAll(segmenter.finish());
+        return events;
+    }
+
+    private static List<String> segments(List<ChatStreamEvent> events) {
+        return events.stream()
+                .filter(e -> e.getType() == ChatStreamEvent.Type.SEGMENT)
+                .map(ChatStreamEvent::getText)
+                .toList();
+    }
+
+    private static String deltas(List<ChatStreamEvent> events) {
+        StringBuilder text = new StringBuilder();
+        events.stream().filter(e -> e.getType() == ChatStreamEvent.Type.DELTA).forEach(e -> text.append(e.getText()));
+        return text.toString();
+    }
+
+    @Test
+    void shouldSplitOnMarkerWithinOneToken() {
+        List<ChatStreamEvent> events = run(new ChunkMarkerSegmenter("<chunk>"), "你好呀<chunk>最近怎么样？");
+
+        assertThat(events).containsExactly(
+                ChatStreamEvent.delta(0, "你好呀"),
+                ChatStreamEvent.segment(0, "你好呀"),
+                ChatStreamEvent.delta(1, "最近怎么样？"),
+                ChatStreamEvent.segment(1, "最近怎么样？"));
+    }
+
+    @Test
+    void shouldDetectMarkerSplitAcrossTokens() {
+        ChunkMarkerSegmenter segmenter = new ChunkMarkerSegmenter("<chunk>");
+
+        // "<ch" 可能是标记开头，先扣留
+        assertThat(segmenter.feed("第一段<ch")).containsExactly(ChatStreamEvent.delta(0, "第一段"));
+        assertThat(segmenter.feed("un")).isEmpty();
+        assertThat(segmenter.feed("k>第二")).containsExactly(
+                ChatStreamEvent.segment(0, "第一段"),
+                ChatStreamEvent.delta(1, "第二"));
+        assertThat(segmenter.finish()).containsExactly(ChatStreamEvent.segment(1, "第二"));
+        assertThat(segmenter.segmentCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReleaseHeldPrefixThatTurnsOutNotToBeMarker() {
+        List<ChatStreamEvent> events = run(new ChunkMarkerSegmenter("<chunk>"), "a <c", "h> b <<chunk>c");
+
+        assertThat(segments(events)).containsExactly("a <ch> b <", "c");
+        assertThat(deltas(events)).isEqualTo("a <ch> b <c");
+    }
+
+    @Test
+    void shouldHandleSelfOverlappingMarker() {
+        // 匹配到 "aba" 后遇到 'a' 失配，回退到已匹配 "a" 继续，而不是从头开始
+        List<ChatStreamEvent> events = run(new ChunkMarkerSegmenter("abab"), "xab", "aab", "aby");
+
+        assertThat(segments(events)).containsExactly("xaba", "y");
+    }
+
+    @Test
+    void shouldSkipBlankSegmentsWithoutConsumingIndex() {
+        List<ChatStreamEvent> events = run(new ChunkMarkerSegmenter("<chunk>"), "一<chunk>\n<chunk>二\n");
+
+        assertThat(events).filteredOn(e -> e.getType() == ChatStreamEvent.Type.SEGMENT).containsExactly(
+                ChatStreamEvent.segment(0, "一"),
+                ChatStreamEvent.segment(1, "二"));
+    }
+
+    @Test
+    void shouldFlushDanglingPartialMarkerOnFinish() {
+        List<ChatStreamEvent> events = run(new ChunkMarkerSegmenter("<chunk>"), "结尾<chu");
+
+        assertThat(segments(events)).containsExactly("结尾<chu");
+        assertThat(deltas(events)).isEqualTo("结尾<chu");
+    }
+
+    @Test
+    void shouldRejectEmptyMarker() {
+        assertThatThrownBy(() -> new ChunkMarkerSegmenter("")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,67 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCompactionPolicyTest {
+
+    /**
+     * 用户/助手交替，从用户消息开始
+     */
+    private static boolean[] alternating(int n) {
+        boolean[] turnStart = new boolean[n];
+        for (int i = 0; i < n; i += 2) {
+            turnStart[i] = true;
+        }
+        return turnStart;
+    }
+
+    @Test
+    void shouldNotCompactBelowThresholds() {
+        HistoryCompactionPolicy policy = new HistoryCompactionPolicy(1000, 8, 4);
+
+        assertThat(policy.foldCount(new int[]{100, 100, 100, 100, 100, 100}, alternating(6), 0)).isZero();
+    }
+
+    @Test
+    void shouldFoldAllButRecentMessagesWhenOverTokens() {
+        HistoryCompactionPolicy policy = new HistoryCompactionPolicy(500, 0, 4);
+
+        assertThat(policy.foldCount(new int[]{100, 100, 100, 100, 100, 100}, alternating(6), 0)).isEqualTo(2);
+    }
+
+    @Test
+    void shouldFoldWhenOverMessageCount() {
+        HistoryCompactionPolicy policy = new HistoryCompactionPolicy(0, 8, 4);
+
+        assertThat(policy.foldCount(new int[10], alternating(10), 0)).isEqualTo(6);
+    }
+
+    @Test
+    void shouldAlignSplitToTurnStart() {
+        HistoryCompactionPolicy policy = new HistoryCompactionPolicy(0, 4, 3);
+
+        // 长度 8，保留 3 条时切分点 5 是助手消息，向前对齐到 4
+        assertThat(policy.foldCount(new int[8], alternating(8), 0)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldFoldPreviousSummaryButNotOnlyIt() {
+        HistoryCompactionPolicy policy = new HistoryCompactionPolicy(0, 4, 4);
+        boolean[] withSummary = {false, true, false, true, false, true, false};
+
+        // 摘要 + 3 轮：折叠摘要与第一轮
+        assertThat(policy.foldCount(new int[7], withSummary, 1)).isEqualTo(3);
+        // 摘要 + 2 轮：只剩旧摘要可折叠，不触发
+        assertThat(policy.foldCount(new int[5], new boolean[]{false, true, false, true, false}, 1)).isZero();
+    }
+
+    @Test
+    void shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> new HistoryCompactionPolicy(100, 8, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HistoryCompactionPolicy(100, 8, 2).foldCount(new int[2], new boolean[3], 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
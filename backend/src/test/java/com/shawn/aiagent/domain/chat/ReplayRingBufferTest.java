@@ -0,0 +1,69 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayRingBufferTest {
+
+    @Test
+    void shouldNumberEventsInOrder() {
+        ReplayRingBuffer buffer = new ReplayRingBuffer(4);
+
+        assertThat(buffer.append(ChatStreamEvent.delta(0, "a")).seq()).isZero();
+        assertThat(buffer.append(ChatStreamEvent.delta(0, "b")).seq()).isEqualTo(1);
+        assertThat(buffer.nextSeq()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReplayEventsAfterLastSeq() {
+        ReplayRingBuffer buffer = new ReplayRingBuffer(4);
+        buffer.append(ChatStreamEvent.delta(0, "a"));
+        buffer.append(ChatStreamEvent.delta(0, "b"));
+        buffer.append(ChatStreamEvent.segment(0, "ab"));
+
+        assertThat(buffer.since(0)).hasValueSatisfying(missed -> assertThat(missed)
+                .extracting(ReplayRingBuffer.Sequenced::event)
+                .containsExactly(ChatStreamEvent.delta(0, "b"), ChatStreamEvent.segment(0, "ab")));
+        assertThat(buffer.since(-1)).hasValueSatisfying(missed -> assertThat(missed).hasSize(3));
+        assertThat(buffer.since(2)).hasValueSatisfying(missed -> assertThat(missed).isEmpty());
+    }
+
+    @Test
+    void shouldRefuseReplayWhenEventsWereOverwritten() {
+        ReplayRingBuffer buffer = new ReplayRingBuffer(2);
+        buffer.append(ChatStreamEvent.delta(0, "a"));
+        buffer.append(ChatStreamEvent.delta(0, "b"));
+        buffer.append(ChatStreamEvent.delta(0, "c"));
+
+        assertThat(buffer.since(-1)).isEmpty();
+        assertThat(buffer.since(0)).hasValueSatisfying(missed -> assertThat(missed)
+                .extracting(ReplayRingBuffer.Sequenced::seq)
+                .containsExactly(1L, 2L));
+    }
+
+    @Test
+    void shouldRefuseUnknownLastSeq() {
+        ReplayRingBuffer buffer = new ReplayRingBuffer(2);
+        buffer.append(ChatStreamEvent.delta(0, "a"));
+
+        assertThat(buffer.since(1)).isEmpty();
+        assertThat(buffer.since(-2)).isEmpty();
+    }
+
+    @Test
+    void shouldTrackRetainedBytes() {
+        ReplayRingBuffer buffer = new ReplayRingBuffer(1);
+        buffer.append(ChatStreamEvent.delta(0, "ab"));
+        long one = buffer.bytes();
+        buffer.append(ChatStreamEvent.delta(0, "abcd"));
+
+        assertThat(buffer.bytes()).isEqualTo(one + 4);
+    }
+
+    @Test
+    void shouldRejectNonPositiveCapacity() {
+        assertThatThrownBy(() -> new ReplayRingBuffer(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,71 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StreamFrameCoalescerTest {
+
+    @Test
+    void shouldHoldDeltasUntilDrained() {
+        StreamFrameCoalescer coalescer = new StreamFrameCoalescer(0);
+
+        assertThat(coalescer.accept(ChatStreamEvent.delta(0, "你"))).isEmpty();
+        assertThat(coalescer.accept(ChatStreamEvent.delta(0, "好"))).isEmpty();
+        assertThat(coalescer.hasPending()).isTrue();
+        assertThat(coalescer.drain()).containsExactly(ChatStreamEvent.delta(0, "你好"));
+        assertThat(coalescer.hasPending()).isFalse();
+        assertThat(coalescer.drain()).isEmpty();
+    }
+
+    @Test
+    void shouldFlushWhenByteThresholdReached() {
+        StreamFrameCoalescer coalescer = new StreamFrameCoalescer(6);
+
+        assertThat(coalescer.accept(ChatStreamEvent.delta(0, "ab"))).isEmpty();
+        // "ab" + "梦境" = 2 + 6 字节
+        assertThat(coalescer.accept(ChatStreamEvent.delta(0, "梦境"))).containsExactly(ChatStreamEvent.delta(0, "ab梦境"));
+        assertThat(coalescer.hasPending()).isFalse();
+    }
+
+    @Test
+    void shouldFlushBeforeSegmentBoundary() {
+        StreamFrameCoalescer coalescer = new StreamFrameCoalescer(0);
+        coalescer.accept(ChatStreamEvent.delta(0, "一段"));
+
+        assertThat(coalescer.accept(ChatStreamEvent.segment(0, "一段"))).containsExactly(
+                ChatStreamEvent.delta(0, "一段"),
+                ChatStreamEvent.segment(0, "一段"));
+        assertThat(coalescer.accept(ChatStreamEvent.done(1))).containsExactly(ChatStreamEvent.done(1));
+    }
+
+    @Test
+    void shouldNotMergeDeltasAcrossSegments() {
+        StreamFrameCoalescer coalescer = new StreamFrameCoalescer(0);
+        coalescer.accept(ChatStreamEvent.delta(0, "\n"));
+
+        assertThat(coalescer.accept(ChatStreamEvent.delta(1, "二"))).containsExactly(ChatStreamEvent.delta(0, "\n"));
+        assertThat(coalescer.drain()).containsExactly(ChatStreamEvent.delta(1, "二"));
+    }
+
+    @Test
+    void shouldWidenWindowWithConcurrency() {
+        Duration min = Duration.ofMillis(20);
+        Duration max = Duration.ofMillis(50);
+
+        assertThat(StreamFrameCoalescer.adaptiveWindow(min, max, 0, 1000)).isEqualTo(min);
+        assertThat(StreamFrameCoalescer.adaptiveWindow(min, max, 500, 1000)).isEqualTo(Duration.ofMillis(35));
+        assertThat(StreamFrameCoalescer.adaptiveWindow(min, max, 5000, 1000)).isEqualTo(max);
+        assertThat(StreamFrameCoalescer.adaptiveWindow(min, max, 500, 0)).isEqualTo(min);
+    }
+
+    @Test
+    void shouldCountUtf8Bytes() {
+        assertThat(StreamFrameCoalescer.utf8Length("a")).isEqualTo(1);
+        assertThat(StreamFrameCoalescer.utf8Length("é")).isEqualTo(2);
+        assertThat(StreamFrameCoalescer.utf8Length("梦")).isEqualTo(3);
+        assertThat(StreamFrameCoalescer.utf8Length("😀")).isEqualTo(4);
+    }
+}
@@ -0,0 +1,53 @@
+package com.shawn.aiagent.domain.chat;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenWindowPolicyTest {
+
+    @Test
+    void shouldKeepNewestContiguousMessagesWithinBudget() {
+        TokenWindowPolicy policy = new TokenWindowPolicy(100, 0);
+
+        boolean[] kept = policy.keep(new int[]{10, 60, 30, 40}, new boolean[4]);
+
+        // 40 + 30 = 70，再加 60 超出；之前更短的 10 也不再纳入
+        assertThat(kept).containsExactly(false, false, true, true);
+    }
+
+    @Test
+    void shouldAlwaysKeepPinnedMessagesAndCountThem() {
+        TokenWindowPolicy policy = new TokenWindowPolicy(100, 0);
+
+        boolean[] kept = policy.keep(new int[]{50, 30, 30, 30}, new boolean[]{true, false, false, false});
+
+        assertThat(kept).containsExactly(true, false, false, true);
+    }
+
+    @Test
+    void shouldKeepNewestMessageEvenWhenOverBudget() {
+        TokenWindowPolicy policy = new TokenWindowPolicy(100, 0);
+
+        boolean[] kept = policy.keep(new int[]{10, 500}, new boolean[2]);
+
+        assertThat(kept).containsExactly(false, true);
+    }
+
+    @Test
+    void shouldAlsoCapMessageCount() {
+        TokenWindowPolicy policy = new TokenWindowPolicy(1000, 2);
+
+        boolean[] kept = policy.keep(new int[]{1, 1, 1, 1}, new boolean[]{true, false, false, false});
+
+        assertThat(kept).containsExactly(true, false, true, true);
+    }
+
+    @Test
+    void shouldRejectInvalidArguments() {
+        assertThatThrownBy(() -> new TokenWindowPolicy(0, 0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenWindowPolicy(10, 0).keep(new int[1], new boolean[2]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
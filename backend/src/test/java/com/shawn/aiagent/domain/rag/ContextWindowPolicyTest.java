@@ -0,0 +1,113 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextWindowPolicyTest {
+
+    @Test
+    void shouldExpandHitToNeighboursWithinChapter() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(2);
+
+        List<ChunkRange> ranges = policy.plan(List.of(chunk("h", 3, 5, 0.9)));
+
+        assertThat(ranges).containsExactly(new ChunkRange("dreams", "", "3", 3, 7));
+    }
+
+    @Test
+    void shouldClampWindowAtChapterStart() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(2);
+
+        List<ChunkRange> ranges = policy.plan(List.of(chunk("h", 3, 1, 0.9)));
+
+        assertThat(ranges).containsExactly(new ChunkRange("dreams", "", "3", 0, 3));
+    }
+
+    @Test
+    void shouldMergeOverlappingAndTouchingWindows() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(1);
+
+        List<ChunkRange> ranges = policy.plan(List.of(
+                chunk("a", 3, 10, 0.9),
+                chunk("b", 3, 2, 0.8),
+                chunk("c", 3, 4, 0.7),
+                chunk("d", 4, 2, 0.6)));
+
+        assertThat(ranges).containsExactly(
+                new ChunkRange("dreams", "", "3", 1, 5),
+                new ChunkRange("dreams", "", "3", 9, 11),
+                new ChunkRange("dreams", "", "4", 1, 3));
+    }
+
+    @Test
+    void shouldNotMergeAcrossFilesWithSameChapterId() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(1);
+
+        List<ChunkRange> ranges = policy.plan(List.of(
+                textChunk("a", "a.md", 0, 1),
+                textChunk("b", "b.md", 0, 1)));
+
+        assertThat(ranges).hasSize(2);
+    }
+
+    @Test
+    void shouldAssembleWindowsInChapterOrderAndRankByBestHit() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(1);
+        List<RetrievalResult> hits = List.of(chunk("far", 5, 0, 0.5), chunk("h2", 3, 4, 0.7), chunk("h1", 3, 2, 0.9));
+        List<RetrievalResult> fetched = List.of(
+                chunk("n5", 3, 5, 0), chunk("n1", 3, 1, 0), chunk("n3", 3, 3, 0), chunk("h1", 3, 2, 0),
+                chunk("f1", 5, 1, 0));
+
+        List<ContextWindow> windows = policy.assemble(hits, fetched);
+
+        assertThat(windows).hasSize(2);
+        ContextWindow best = windows.get(0);
+        assertThat(best.getChunks()).extracting(RetrievalResult::getChunkId)
+                .containsExactly("n1", "h1", "n3", "h2", "n5");
+        assertThat(best.getHitChunkIds()).containsExactly("h2", "h1");
+        assertThat(best.getScore()).isEqualTo(0.9);
+        assertThat(best.getChunks().get(1).getScore()).isEqualTo(0.9);
+        assertThat(best.getText()).isEqualTo("n1\n\nh1\n\nn3\n\nh2\n\nn5");
+        assertThat(windows.get(1).getChunks()).extracting(RetrievalResult::getChunkId).containsExactly("far", "f1");
+    }
+
+    @Test
+    void shouldKeepHitWithoutChapterPositionAsSingleWindow() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(2);
+        RetrievalResult orphan = new RetrievalResult("orphan", "orphan", 0.4, Map.of("source", "dreams"));
+
+        List<ContextWindow> windows = policy.assemble(List.of(orphan), List.of());
+
+        assertThat(policy.plan(List.of(orphan))).isEmpty();
+        assertThat(windows).hasSize(1);
+        assertThat(windows.get(0).getRange()).isNull();
+        assertThat(windows.get(0).getChunks()).containsExactly(orphan);
+    }
+
+    @Test
+    void shouldKeepChapterIdAsStored() {
+        ContextWindowPolicy policy = new ContextWindowPolicy(1);
+        RetrievalResult padded = new RetrievalResult("h", "h", 0.9, Map.of(
+                "source", "text", "file", "a.md", "chapter-ID", "03", "chunk_index_in_chapter", "2"));
+
+        List<ChunkRange> ranges = policy.plan(List.of(padded, textChunk("o", "a.md", 3, 2)));
+
+        assertThat(ranges).containsExactlyInAnyOrder(
+                new ChunkRange("text", "a.md", "03", 1, 3),
+                new ChunkRange("text", "a.md", "3", 1, 3));
+    }
+
+    private static RetrievalResult chunk(String id, int chapterId, int index, double score) {
+        return new RetrievalResult(id, id, score, Map.of(
+                "source", "dreams", "chapter-ID", chapterId, "chunk_index_in_chapter", index));
+    }
+
+    private static RetrievalResult textChunk(String id, String file, int chapterId, int index) {
+        return new RetrievalResult(id, id, 0.5, Map.of(
+                "source", "text", "file", file, "chapter-ID", chapterId, "chunk_index_in_chapter", index));
+    }
+}
@@ -0,0 +1,65 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbedTextTemplateTest {
+
+    private static final Map<String, Object> METADATA = Map.of(
+            "chapter-name", "梦的工作",
+            "para_start", 3,
+            "source", "dreams");
+
+    @Test
+    void shouldRenderOnlySelectedMetadataFields() {
+        EmbedTextTemplate template = new EmbedTextTemplate("{chapter-name}\n{content}");
+
+        assertThat(template.render("正文", METADATA)).isEqualTo("梦的工作\n正文");
+    }
+
+    @Test
+    void shouldRenderMissingFieldAsEmptyAndStripWhitespace() {
+        EmbedTextTemplate template = new EmbedTextTemplate("{file}\n{content}");
+
+        assertThat(template.render("正文", METADATA)).isEqualTo("正文");
+    }
+
+    @Test
+    void shouldKeepContentAndChangeHashWhenApplied() {
+        DocumentChunk chunk = new DocumentChunk("id-1", "正文", METADATA);
+
+        DocumentChunk contentOnly = EmbedTextTemplate.CONTENT_ONLY.apply(chunk);
+        DocumentChunk withChapter = new EmbedTextTemplate("{chapter-name}\n{content}").apply(chunk);
+
+        assertThat(contentOnly.getContent()).isEqualTo("正文");
+        assertThat(contentOnly.getEmbedText()).isEqualTo("正文");
+        // 默认模板不改变内容哈希，已入库的行不会因为升级而被判定为变更
+        assertThat(contentOnly.contentHash()).isEqualTo(chunk.contentHash());
+        assertThat(withChapter.getContent()).isEqualTo("正文");
+        assertThat(withChapter.contentHash()).isNotEqualTo(chunk.contentHash());
+        assertThat(withChapter.getMetadata())
+                .containsEntry(EmbedTextTemplate.TEMPLATE_HASH_METADATA_KEY, new EmbedTextTemplate("{chapter-name}\n{content}").getHash());
+    }
+
+    @Test
+    void shouldRenderAllMetadataLikeSpringAiDefault() {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("chapter-name", "梦的工作");
+        metadata.put("source", "dreams");
+
+        assertThat(EmbedTextTemplate.renderAllMetadata("正文", metadata))
+                .isEqualTo("chapter-name: 梦的工作\nsource: dreams\n\n正文");
+    }
+
+    @Test
+    void shouldRejectTemplateWithoutContent() {
+        assertThatThrownBy(() -> new EmbedTextTemplate("{chapter-name}"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(EmbedTextTemplate.ofNullable(" ")).isSameAs(EmbedTextTemplate.CONTENT_ONLY);
+    }
+}
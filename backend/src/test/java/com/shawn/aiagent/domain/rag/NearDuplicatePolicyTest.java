@@ -0,0 +1,127 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NearDuplicatePolicyTest {
+
+    private static final String ORIGINAL = "梦是愿望的达成。每一个梦都可以被解释为一个被压抑的愿望经过伪装后的满足，"
+            + "而梦的显意与隐意之间，隔着凝缩、移置与象征化等一系列梦的工作。";
+
+    private final NearDuplicatePolicy policy = new NearDuplicatePolicy(0.8, 5);
+
+    @Test
+    void shouldCollapseReprintWithPunctuationAndWhitespaceDifferences() {
+        String reprint = "梦是愿望的达成 每一个梦都可以被解释为一个被压抑的愿望经过伪装后的满足，\n"
+                + "而梦的显意与隐意之间隔着凝缩、移置与象征化等一系列梦的工作！";
+
+        NearDuplicatePolicy.Result result = policy.deduplicate(List.of(
+                chunk("a", ORIGINAL), chunk("b", reprint)));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a");
+        assertThat(result.getCanonicalByDuplicate()).containsExactlyEntriesOf(Map.of("b", "a"));
+        assertThat(result.getKept().get(0).getMetadata())
+                .containsEntry(NearDuplicatePolicy.DUPLICATE_IDS_METADATA_KEY, List.of("b"))
+                .containsEntry("source", "test");
+        assertThat(result.getDuplicateCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCollapseSmallEditsAboveThreshold() {
+        String edited = ORIGINAL.replace("一系列", "一连串");
+
+        assertThat(policy.similarity(ORIGINAL, edited)).isGreaterThanOrEqualTo(0.8);
+        assertThat(policy.deduplicate(List.of(chunk("a", ORIGINAL), chunk("b", edited))).getKept()).hasSize(1);
+    }
+
+    @Test
+    void shouldKeepDistinctChunks() {
+        String other = "自由联想要求患者放弃对浮现念头的批判，把脑中出现的一切如实说出，无论它看起来多么琐碎或无关。";
+
+        NearDuplicatePolicy.Result result = policy.deduplicate(List.of(chunk("a", ORIGINAL), chunk("b", other)));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a", "b");
+        assertThat(result.getKept().get(0).getMetadata()).doesNotContainKey(NearDuplicatePolicy.DUPLICATE_IDS_METADATA_KEY);
+        assertThat(result.getDuplicateCount()).isZero();
+    }
+
+    @Test
+    void shouldKeepFirstOccurrenceAsCanonicalForAllCopies() {
+        NearDuplicatePolicy.Result result = policy.deduplicate(List.of(
+                chunk("a", ORIGINAL), chunk("b", ORIGINAL), chunk("c", ORIGINAL + "。")));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a");
+        assertThat(result.getKept().get(0).getMetadata())
+                .containsEntry(NearDuplicatePolicy.DUPLICATE_IDS_METADATA_KEY, List.of("b", "c"));
+    }
+
+    @Test
+    void shouldOnlyCollapseExactCopiesAtThresholdOne() {
+        NearDuplicatePolicy strict = new NearDuplicatePolicy(1.0, 5);
+        String edited = ORIGINAL.replace("一系列", "一连串");
+
+        NearDuplicatePolicy.Result result = strict.deduplicate(List.of(
+                chunk("a", ORIGINAL), chunk("b", edited), chunk("c", ORIGINAL)));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a", "b");
+        assertThat(result.getCanonicalByDuplicate()).containsExactlyEntriesOf(Map.of("c", "a"));
+    }
+
+    @Test
+    void shouldNotCollapsePunctuationOnlyChunks() {
+        NearDuplicatePolicy.Result result = policy.deduplicate(List.of(
+                chunk("a", "……"), chunk("b", "——！"), chunk("c", "* * *")));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a", "b", "c");
+        assertThat(result.getDuplicateCount()).isZero();
+    }
+
+    @Test
+    void shouldRenumberChapterIndexesAfterCollapsing() {
+        String other = "自由联想要求患者放弃对浮现念头的批判，把脑中出现的一切如实说出，无论它看起来多么琐碎或无关。";
+
+        NearDuplicatePolicy.Result result = policy.deduplicate(List.of(
+                chapterChunk("a", ORIGINAL, 0, 0),
+                chapterChunk("b", ORIGINAL, 0, 1),
+                chapterChunk("c", other, 0, 2),
+                chapterChunk("d", other + "！", 1, 0),
+                chapterChunk("e", ORIGINAL.replace("梦", "夢"), 1, 1)));
+
+        assertThat(result.getKept()).extracting(DocumentChunk::getId).containsExactly("a", "c", "e");
+        assertThat(result.getKept()).extracting(chunk -> chunk.getMetadata().get("chunk_index_in_chapter"))
+                .containsExactly(0, 1, 0);
+        assertThat(result.getKept().get(1).getMetadata())
+                .containsEntry(NearDuplicatePolicy.DUPLICATE_IDS_METADATA_KEY, List.of("d"));
+    }
+
+    @Test
+    void shouldReturnInputUnchangedWhenDisabled() {
+        List<DocumentChunk> chunks = List.of(chunk("a", ORIGINAL), chunk("b", ORIGINAL));
+
+        NearDuplicatePolicy.Result result = NearDuplicatePolicy.disabled().deduplicate(chunks);
+
+        assertThat(result.getKept()).isEqualTo(chunks);
+        assertThat(result.getDuplicateCount()).isZero();
+    }
+
+    @Test
+    void shouldRejectInvalidParameters() {
+        assertThatThrownBy(() -> new NearDuplicatePolicy(0, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new NearDuplicatePolicy(1.1, 5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new NearDuplicatePolicy(0.9, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static DocumentChunk chunk(String id, String content) {
+        return new DocumentChunk(id, content, Map.of("source", "test"));
+    }
+
+    private static DocumentChunk chapterChunk(String id, String content, int chapterId, int indexInChapter) {
+        return new DocumentChunk(id, content, Map.of("source", "text", "file", "a.md",
+                "chapter-ID", chapterId, "chunk_index_in_chapter", indexInChapter));
+    }
+}
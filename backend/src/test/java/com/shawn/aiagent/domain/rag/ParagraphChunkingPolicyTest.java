@@ -0,0 +1,134 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParagraphChunkingPolicyTest {
+
+    private final TokenEstimationPolicy tokens = new TokenEstimationPolicy();
+
+    @Test
+    void shouldPackWholeParagraphsUpToBudget() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(10, 0, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("梦的解析", "第一章", "梦的材料与来源"));
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getParaStart()).isEqualTo(0);
+        assertThat(chunks.get(0).getParaEnd()).isEqualTo(1);
+        assertThat(chunks.get(0).getText()).isEqualTo("梦的解析\n\n第一章");
+        assertThat(chunks.get(1).getParaStart()).isEqualTo(2);
+        assertThat(chunks.get(1).getParaEnd()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldOverlapByTrailingParagraphsWithinOverlapBudget() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(6, 3, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("一二三", "四五六", "七八九"));
+
+        assertThat(chunks).hasSize(2);
+        assertThat(chunks.get(0).getParaStart()).isEqualTo(0);
+        assertThat(chunks.get(0).getParaEnd()).isEqualTo(1);
+        assertThat(chunks.get(1).getParaStart()).isEqualTo(1);
+        assertThat(chunks.get(1).getParaEnd()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAlwaysAdvanceEvenWhenOverlapCoversWholeChunk() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(4, 3, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("一二三", "四五六", "七八九"));
+
+        assertThat(chunks).extracting(ChunkSpan::getParaStart).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    void shouldNotEmitChunkContainedInPreviousWhenNextParagraphCannotFollowOverlap() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(6, 3, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("一二", "三四五", "六七八九"));
+
+        assertThat(chunks).extracting(ChunkSpan::getParaStart).containsExactly(0, 2);
+        assertThat(chunks).extracting(ChunkSpan::getParaEnd).containsExactly(1, 2);
+    }
+
+    @Test
+    void shouldNotOverlapIntoOversizedParagraph() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(6, 3, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("一二", "三四", "五六七八九十一二"));
+
+        assertThat(chunks.get(0).getParaEnd()).isEqualTo(1);
+        assertThat(chunks.subList(1, chunks.size())).allSatisfy(chunk -> {
+            assertThat(chunk.getParaStart()).isEqualTo(2);
+            assertThat(chunk.getParaEnd()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void shouldCarryOverlapAcrossSectionSeams() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(6, 3, tokens);
+        List<String> paragraphs = List.of("一二三", "四五六", "七八九", "十一二", "三四五", "六七八");
+
+        assertThat(splitInSections(policy, paragraphs, 3)).isEqualTo(spans(policy.split(paragraphs)));
+    }
+
+    @Test
+    void shouldDropSectionTailChunkCoveredByNextSection() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(6, 4, tokens);
+        List<String> paragraphs = List.of("一二三四", "五六七", "八", "九十");
+
+        assertThat(policy.overlapBefore(paragraphs, 0, 3)).isEqualTo(2);
+        assertThat(splitInSections(policy, paragraphs, 3))
+                .containsExactly(List.of(0, 0), List.of(1, 3))
+                .isEqualTo(spans(policy.split(paragraphs)));
+    }
+
+    @Test
+    void shouldSplitOversizedParagraphBySentences() {
+        ParagraphChunkingPolicy policy = new ParagraphChunkingPolicy(5, 0, tokens);
+
+        List<ChunkSpan> chunks = policy.split(List.of("一二三。四五六。七八", "短句"));
+
+        assertThat(chunks).extracting(ChunkSpan::getText).containsExactly("一二三。", "四五六。", "七八", "短句");
+        assertThat(chunks.subList(0, 3)).allSatisfy(chunk -> {
+            assertThat(chunk.getParaStart()).isZero();
+            assertThat(chunk.getParaEnd()).isZero();
+        });
+        assertThat(chunks).allSatisfy(chunk -> assertThat(tokens.estimate(chunk.getText())).isLessThanOrEqualTo(5));
+    }
+
+    @Test
+    void shouldRejectOverlapNotSmallerThanBudget() {
+        assertThatThrownBy(() -> new ParagraphChunkingPolicy(10, 10, tokens))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * 按 TextDirectoryDocumentLoaderAdapter 的方式分段切分，返回以整段为基准的 [paraStart, paraEnd]
+     */
+    private static List<List<Integer>> splitInSections(ParagraphChunkingPolicy policy, List<String> paragraphs, int perTask) {
+        List<List<Integer>> result = new ArrayList<>();
+        int leadIn = 0;
+        for (int from = 0; from < paragraphs.size(); from += perTask) {
+            int to = Math.min(from + perTask, paragraphs.size());
+            int trailOut = policy.overlapBefore(paragraphs, from, to);
+            int offset = from - leadIn;
+            for (ChunkSpan chunk : policy.split(paragraphs.subList(offset, to), trailOut)) {
+                result.add(List.of(offset + chunk.getParaStart(), offset + chunk.getParaEnd()));
+            }
+            leadIn = trailOut;
+        }
+        return result;
+    }
+
+    private static List<List<Integer>> spans(List<ChunkSpan> chunks) {
+        return chunks.stream().map(chunk -> List.of(chunk.getParaStart(), chunk.getParaEnd())).toList();
+    }
+}
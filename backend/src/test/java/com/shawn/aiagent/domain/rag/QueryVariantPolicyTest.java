@@ -0,0 +1,53 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryVariantPolicyTest {
+
+    private static final List<List<String>> SYNONYMS = List.of(
+            List.of("梦境", "梦"),
+            List.of("潜意识", "无意识"));
+
+    @Test
+    void shouldStripQuestionWordsAndParticlesIntoKeywords() {
+        assertThat(QueryVariantPolicy.keywords("请问什么是愿望满足？")).isEqualTo("愿望满足");
+        assertThat(QueryVariantPolicy.keywords("为什么会做噩梦呢")).isEqualTo("会做噩梦");
+        assertThat(QueryVariantPolicy.keywords("What is the dream work?")).isEqualTo("dream work");
+    }
+
+    @Test
+    void shouldKeepOriginalFirstAndAddKeywordAndSynonymVariants() {
+        QueryVariantPolicy policy = new QueryVariantPolicy(SYNONYMS, 10);
+
+        List<String> variants = policy.variants("什么是潜意识");
+
+        assertThat(variants).containsExactly("什么是潜意识", "潜意识", "什么是无意识", "潜意识 无意识");
+    }
+
+    @Test
+    void shouldReplaceLongestMatchingSynonymOnly() {
+        QueryVariantPolicy policy = new QueryVariantPolicy(SYNONYMS, 10);
+
+        List<String> variants = policy.variants("梦境");
+
+        assertThat(variants).containsExactly("梦境");
+    }
+
+    @Test
+    void shouldCapVariantsAndSkipDuplicates() {
+        QueryVariantPolicy policy = new QueryVariantPolicy(SYNONYMS, 2);
+
+        assertThat(policy.variants("潜意识 梦")).containsExactly("潜意识 梦", "潜意识 梦境");
+        assertThat(new QueryVariantPolicy(List.of(), 4).variants("愿望满足")).containsExactly("愿望满足");
+    }
+
+    @Test
+    void shouldRejectNonPositiveMaxVariants() {
+        assertThatThrownBy(() -> new QueryVariantPolicy(SYNONYMS, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
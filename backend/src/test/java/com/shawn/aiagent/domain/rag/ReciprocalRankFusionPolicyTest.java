@@ -0,0 +1,49 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReciprocalRankFusionPolicyTest {
+
+    @Test
+    void shouldRankChunksFoundByMultipleVariantsFirst() {
+        ReciprocalRankFusionPolicy policy = new ReciprocalRankFusionPolicy(60);
+
+        List<RetrievalResult> fused = policy.fuse(List.of(
+                List.of(chunk("a", 0.9), chunk("b", 0.8)),
+                List.of(chunk("c", 0.95), chunk("b", 0.7))), 3);
+
+        assertThat(fused).extracting(RetrievalResult::getChunkId).containsExactly("b", "c", "a");
+    }
+
+    @Test
+    void shouldKeepHighestSimilarityAsScore() {
+        ReciprocalRankFusionPolicy policy = new ReciprocalRankFusionPolicy(60);
+
+        List<RetrievalResult> fused = policy.fuse(List.of(
+                List.of(chunk("a", 0.6)),
+                List.of(chunk("a", 0.8))), 5);
+
+        assertThat(fused).hasSize(1);
+        assertThat(fused.get(0).getScore()).isEqualTo(0.8);
+    }
+
+    @Test
+    void shouldLimitToTopK() {
+        ReciprocalRankFusionPolicy policy = new ReciprocalRankFusionPolicy(60);
+
+        List<RetrievalResult> fused = policy.fuse(List.of(
+                List.of(chunk("a", 0.9), chunk("b", 0.8), chunk("c", 0.7))), 2);
+
+        assertThat(fused).extracting(RetrievalResult::getChunkId).containsExactly("a", "b");
+        assertThat(policy.fuse(List.of(), 3)).isEmpty();
+    }
+
+    private static RetrievalResult chunk(String id, double score) {
+        return new RetrievalResult(id, id, score, Map.of());
+    }
+}
@@ -0,0 +1,59 @@
+package com.shawn.aiagent.domain.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorNormalizationPolicyTest {
+
+    private final VectorNormalizationPolicy policy = new VectorNormalizationPolicy();
+
+    @Test
+    void shouldScaleToUnitLengthWithoutMutatingInput() {
+        float[] input = {3f, 4f};
+
+        float[] normalized = policy.normalize(input);
+
+        assertThat(normalized[0]).isCloseTo(0.6f, within(1e-6f));
+        assertThat(normalized[1]).isCloseTo(0.8f, within(1e-6f));
+        assertThat(input).containsExactly(3f, 4f);
+    }
+
+    @Test
+    void shouldNormalizeWholeQueryVector() {
+        List<Double> normalized = policy.normalize(List.of(3d, 0d, 4d));
+
+        assertThat(normalized).hasSize(3);
+        assertThat(normalized.get(0)).isCloseTo(0.6, within(1e-12));
+        assertThat(normalized.get(1)).isZero();
+        assertThat(normalized.get(2)).isCloseTo(0.8, within(1e-12));
+        assertThat(policy.normalize(List.of())).isEmpty();
+    }
+
+    @Test
+    void shouldReturnZeroVectorUnchanged() {
+        assertThat(policy.normalize(new float[]{0f, 0f, 0f})).containsExactly(0f, 0f, 0f);
+        assertThat(policy.normalizePrefix(List.of(0d, 0d, 1d), 2)).containsExactly(0d, 0d);
+    }
+
+    @Test
+    void shouldRenormalizePrefixOfUnitVector() {
+        // (0.6, 0.8, 0) 为单位向量，前 1 维 0.6 需重新缩放为 1
+        List<Double> prefix = policy.normalizePrefix(List.of(0.6, 0.8, 0d), 1);
+
+        assertThat(prefix).hasSize(1);
+        assertThat(prefix.get(0)).isCloseTo(1d, within(1e-12));
+    }
+
+    @Test
+    void shouldRejectOutOfRangePrefix() {
+        assertThatThrownBy(() -> policy.normalizePrefix(List.of(1d, 2d), 3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> policy.normalizePrefix(List.of(1d, 2d), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,120 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.domain.chat.ChatMemoryEvictionPolicy;
+import com.shawn.aiagent.domain.chat.ChatMemoryUsage;
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class BoundedInMemoryChatMemoryRepositoryTest {
+
+    private static final int CONVERSATIONS = 200;
+    private static final int TURNS = 3;
+
+    @TempDir
+    private Path spillDir;
+
+    private BoundedInMemoryChatMemoryRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        if (repository != null) {
+            repository.shutdown();
+        }
+    }
+
+    @Test
+    void shouldStayWithinBudgetAndReloadSpilledConversationsIntact() {
+        long maxBytes = 8 * conversationBytes(window("c0", TURNS));
+        repository = newRepository(maxBytes, 50);
+
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            repository.saveAll("c" + i, window("c" + i, TURNS));
+            assertWithinBudget(repository.usage(), maxBytes, 50);
+        }
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            assertThat(repository.findByConversationId("c" + i)).isEqualTo(window("c" + i, TURNS));
+            assertWithinBudget(repository.usage(), maxBytes, 50);
+        }
+        assertThat(repository.findConversationIds()).hasSize(CONVERSATIONS);
+    }
+
+    @Test
+    void shouldKeepEveryConversationIntactUnderConcurrentChurn() throws Exception {
+        long maxBytes = 8 * conversationBytes(window("c0", TURNS));
+        repository = newRepository(maxBytes, 50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < 8; worker++) {
+                int offset = worker;
+                futures.add(executor.submit(() -> {
+                    for (int i = offset; i < CONVERSATIONS; i += 8) {
+                        String id = "c" + i;
+                        for (int turn = 1; turn <= TURNS; turn++) {
+                            List<Message> window = window(id, turn);
+                            assertThat(repository.findByConversationId(id)).isEqualTo(window(id, turn - 1));
+                            repository.saveAll(id, window);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            assertThat(repository.findByConversationId("c" + i)).isEqualTo(window("c" + i, TURNS));
+        }
+        assertWithinBudget(repository.usage(), maxBytes, 50);
+    }
+
+    private BoundedInMemoryChatMemoryRepository newRepository(long maxBytes, int maxConversations) {
+        ChatMemoryConfig config = new ChatMemoryConfig();
+        config.setHotCacheMaxBytes(maxBytes);
+        config.setHotCacheMaxConversations(maxConversations);
+        config.setSweepIntervalSeconds(3600);
+        config.setSpillDir(spillDir.toString());
+        return new BoundedInMemoryChatMemoryRepository(config, mock(ChatMemoryMetricsGateway.class));
+    }
+
+    private static void assertWithinBudget(ChatMemoryUsage usage, long maxBytes, int maxConversations) {
+        assertThat(usage.getEstimatedBytes()).isLessThanOrEqualTo(maxBytes);
+        assertThat(usage.getConversations()).isLessThanOrEqualTo(maxConversations);
+    }
+
+    private static List<Message> window(String conversationId, int turns) {
+        List<Message> messages = new ArrayList<>();
+        for (int turn = 0; turn < turns; turn++) {
+            messages.add(new UserMessage(conversationId + " 的第 " + turn + " 个问题"));
+            messages.add(new AssistantMessage(conversationId + " 的第 " + turn + " 个回答"));
+        }
+        return messages;
+    }
+
+    private static long conversationBytes(List<Message> messages) {
+        long bytes = ChatMemoryEvictionPolicy.conversationOverheadBytes();
+        for (Message message : messages) {
+            bytes += ChatMemoryEvictionPolicy.estimateMessageBytes(message.getText());
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,269 @@
+package com.shawn.aiagent.infra.chat;
+
+import com.shawn.aiagent.port.chat.ChatMemoryMetricsGateway;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PgChatMemoryRepositoryTest {
+
+    private final InMemoryJdbcTemplate jdbcTemplate = new InMemoryJdbcTemplate();
+    private final ChatMemoryConfig config = new ChatMemoryConfig();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PgChatMemoryRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.open();
+        if (repository != null) {
+            repository.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReloadEvictedConversationFromTable() {
+        config.setHotCacheMaxConversations(1);
+        repository = newRepository();
+        List<Message> first = List.of(new UserMessage("u1"), new AssistantMessage("a1"));
+
+        repository.saveAll("a", first);
+        awaitTrue(() -> jdbcTemplate.contents("a").equals(first));
+        repository.saveAll("b", List.of(new UserMessage("u2")));
+
+        assertThat(repository.usage().getConversations()).isEqualTo(1);
+        assertThat(repository.findByConversationId("a")).isEqualTo(first);
+        assertThat(jdbcTemplate.loads("a")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldServeCallerWhenSingleConversationExceedsBudget() {
+        config.setHotCacheMaxConversations(1);
+        config.setHotCacheMaxBytes(1);
+        repository = newRepository();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int turn = 0; turn < 20; turn++) {
+                String conversationId = turn % 2 == 0 ? "a" : "b";
+                List<Message> window = new ArrayList<>(repository.findByConversationId(conversationId));
+                window.add(new UserMessage(conversationId + turn));
+                repository.saveAll(conversationId, window);
+                assertThat(repository.findByConversationId(conversationId)).isEqualTo(window);
+            }
+        });
+    }
+
+    @Test
+    void shouldPersistSlidingWindowInWriteOrder() {
+        jdbcTemplate.close();
+        repository = newRepository();
+        Message m1 = new UserMessage("m1");
+        Message m2 = new AssistantMessage("m2");
+        Message m3 = new UserMessage("m3");
+        Message m4 = new AssistantMessage("m4");
+        Message m5 = new UserMessage("m5");
+
+        repository.saveAll("a", List.of(m1));
+        repository.saveAll("a", List.of(m1, m2));
+        repository.saveAll("a", List.of(m2, m3));
+        repository.saveAll("a", List.of(m3, m4, m5));
+        jdbcTemplate.open();
+
+        awaitTrue(() -> jdbcTemplate.contents("a").equals(List.of(m3, m4, m5)));
+        assertThat(jdbcTemplate.seqs("a")).containsExactly(2L, 3L, 4L);
+    }
+
+    @Test
+    void shouldNotBlockWriterWhenQueueIsFull() {
+        config.setWriteQueueCapacity(1);
+        jdbcTemplate.close();
+        repository = newRepository();
+        Message m1 = new UserMessage("m1");
+        Message m2 = new AssistantMessage("m2");
+        Message m3 = new UserMessage("m3");
+
+        repository.saveAll("a", List.of(m1));
+        awaitTrue(() -> jdbcTemplate.waitingFlushes() == 1);
+        repository.saveAll("b", List.of(m2));
+        // 队列已满、刷写线程卡在数据库上：写入方仍立即返回
+        assertTimeoutPreemptively(Duration.ofMillis(500), () -> {
+            repository.saveAll("c", List.of(m3));
+            repository.saveAll("a", List.of(m1, m2));
+        });
+        assertThat(meterRegistry.get("chat.memory.write.deferred").counter().count()).isEqualTo(2.0);
+
+        jdbcTemplate.open();
+        awaitTrue(() -> jdbcTemplate.contents("a").equals(List.of(m1, m2))
+                && jdbcTemplate.contents("b").equals(List.of(m2))
+                && jdbcTemplate.contents("c").equals(List.of(m3)));
+    }
+
+    @Test
+    void shouldCoalesceQueuedWritesOfSameConversation() {
+        jdbcTemplate.close();
+        repository = newRepository();
+        Message m1 = new UserMessage("m1");
+        Message m2 = new AssistantMessage("m2");
+        Message m3 = new UserMessage("m3");
+        Message m4 = new AssistantMessage("m4");
+
+        repository.saveAll("a", List.of(m1));
+        awaitTrue(() -> jdbcTemplate.waitingFlushes() == 1);
+        repository.saveAll("a", List.of(m1, m2));
+        repository.saveAll("a", List.of(m2, m3));
+        repository.saveAll("a", List.of(m3, m4));
+        assertThat(meterRegistry.get("chat.memory.write.queue").gauge().value()).isEqualTo(1.0);
+        jdbcTemplate.open();
+
+        awaitTrue(() -> jdbcTemplate.contents("a").equals(List.of(m3, m4)));
+        // m2 落库前已滑出窗口，不再插入
+        assertThat(jdbcTemplate.insertedRows()).isEqualTo(3);
+    }
+
+    private PgChatMemoryRepository newRepository() {
+        config.setFlushIntervalMillis(10);
+        config.setRetryDelayMillis(10);
+        return new PgChatMemoryRepository(jdbcTemplate, new DirectTransactionTemplate(), config,
+                mock(ChatMemoryMetricsGateway.class), meterRegistry);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5s").isLessThan(deadline);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * 内存中的消息表：只实现 PgChatMemoryRepository 用到的语句；close() 后刷写线程在 batchUpdate 上等待，模拟数据库变慢
+     */
+    private static final class InMemoryJdbcTemplate extends JdbcTemplate {
+
+        private final Map<String, ConcurrentSkipListMap<Long, Message>> rows = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        private final AtomicInteger waitingFlushes = new AtomicInteger();
+        private final AtomicInteger insertedRows = new AtomicInteger();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        void close() {
+            gate = new CountDownLatch(1);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        int waitingFlushes() {
+            return waitingFlushes.get();
+        }
+
+        int insertedRows() {
+            return insertedRows.get();
+        }
+
+        int loads(String conversationId) {
+            return loads.getOrDefault(conversationId, new AtomicInteger()).get();
+        }
+
+        List<Message> contents(String conversationId) {
+            return List.copyOf(rows.getOrDefault(conversationId, new ConcurrentSkipListMap<>()).values());
+        }
+
+        List<Long> seqs(String conversationId) {
+            return List.copyOf(rows.getOrDefault(conversationId, new ConcurrentSkipListMap<>()).keySet());
+        }
+
+        @Override
+        public void execute(String sql) {
+            // 建表语句：内存表无需建表
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            String conversationId = (String) args[0];
+            loads.computeIfAbsent(conversationId, id -> new AtomicInteger()).incrementAndGet();
+            for (Map.Entry<Long, Message> row : rows.getOrDefault(conversationId, new ConcurrentSkipListMap<>()).entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                try {
+                    when(rs.getLong("seq")).thenReturn(row.getKey());
+                    when(rs.getString("message_type")).thenReturn(row.getValue().getMessageType().name());
+                    when(rs.getString("content")).thenReturn(row.getValue().getText());
+                    rch.processRow(rs);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType) {
+            return rows.keySet().stream().map(elementType::cast).toList();
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            waitingFlushes.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                waitingFlushes.decrementAndGet();
+            }
+            for (Object[] args : batchArgs) {
+                ConcurrentSkipListMap<Long, Message> conversation =
+                        rows.computeIfAbsent((String) args[0], id -> new ConcurrentSkipListMap<>());
+                if (sql.startsWith("INSERT")) {
+                    insertedRows.incrementAndGet();
+                    String type = (String) args[2];
+                    String content = (String) args[3];
+                    conversation.putIfAbsent((Long) args[1],
+                            "USER".equals(type) ? new UserMessage(content) : new AssistantMessage(content));
+                } else {
+                    conversation.headMap((Long) args[1]).clear();
+                }
+            }
+            return new int[batchArgs.size()];
+        }
+    }
+
+    private static final class DirectTransactionTemplate extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+}
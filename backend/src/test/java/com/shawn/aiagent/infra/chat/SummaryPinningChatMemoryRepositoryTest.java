@@ -0,0 +1,57 @@
+package com.shawn.aiagent.infra.chat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SummaryPinningChatMemoryRepositoryTest {
+
+    private final ChatMemoryRepository repository = new InMemoryChatMemoryRepository();
+    private final CompactingChatMemory chatMemory = new CompactingChatMemory(
+            MessageWindowChatMemory.builder()
+                    .chatMemoryRepository(new SummaryPinningChatMemoryRepository(repository))
+                    .maxMessages(2)
+                    .build(),
+            repository);
+
+    @Test
+    void shouldKeepSummaryOutsideWindowTruncation() {
+        Message u1 = new UserMessage("u1");
+        Message a1 = new AssistantMessage("a1");
+        chatMemory.add("c", List.of(u1, a1));
+        Message summary = new AssistantMessage(ChatHistoryCompactor.SUMMARY_PREFIX + "用户提到了 u1");
+
+        assertThat(chatMemory.replacePrefix("c", List.of(u1), summary)).isTrue();
+        chatMemory.add("c", List.of(new UserMessage("u2"), new AssistantMessage("a2")));
+
+        assertThat(chatMemory.get("c")).containsExactly(summary, new UserMessage("u2"), new AssistantMessage("a2"));
+        assertThat(chatMemory.get("c")).noneMatch(message -> message.getMessageType() == MessageType.SYSTEM);
+    }
+
+    @Test
+    void shouldTruncateAsUsualWithoutSummary() {
+        chatMemory.add("c", List.of(new UserMessage("u1"), new AssistantMessage("a1"), new UserMessage("u2")));
+
+        assertThat(chatMemory.get("c")).containsExactly(new AssistantMessage("a1"), new UserMessage("u2"));
+    }
+
+    @Test
+    void shouldDropSummaryWhenConversationCleared() {
+        chatMemory.add("c", List.of(new UserMessage("u1"), new AssistantMessage("a1")));
+        chatMemory.replacePrefix("c", List.of(new UserMessage("u1")),
+                new AssistantMessage(ChatHistoryCompactor.SUMMARY_PREFIX + "摘要"));
+
+        chatMemory.clear("c");
+
+        assertThat(chatMemory.get("c")).isEmpty();
+    }
+}
@@ -0,0 +1,187 @@
+package com.shawn.aiagent.infra.chat.streamCancellation.integration;
+
+import com.alibaba.cloud.ai.dashscope.api.DashScopeApi;
+import com.alibaba.cloud.ai.dashscope.chat.DashScopeChatModel;
+import com.shawn.aiagent.api.chat.ChatController;
+import com.shawn.aiagent.api.chat.ChatRequest;
+import com.shawn.aiagent.app.chat.ChatStreamCoalescer;
+import com.shawn.aiagent.app.chat.ChatWithPsychiatristUseCaseImpl;
+import com.shawn.aiagent.app.chat.ConversationTurnSequencer;
+import com.shawn.aiagent.app.chat.ResumableStreamRegistry;
+import com.shawn.aiagent.app.rag.RetrieveTop1ChunkByQueryUseCase;
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import com.shawn.aiagent.infra.chat.DashScopeChatModelAdapter;
+import com.shawn.aiagent.infra.chat.MicrometerChatGroundingMetricsAdapter;
+import com.shawn.aiagent.infra.chat.MicrometerChatStreamMetricsAdapter;
+import com.shawn.aiagent.infra.chat.QwenTokenizerAdapter;
+import com.shawn.aiagent.port.chat.ChatStreamMetricsGateway;
+import com.shawn.aiagent.support.config.ChatGroundingConfig;
+import com.shawn.aiagent.support.config.ChatMemoryConfig;
+import com.shawn.aiagent.support.config.ChatStreamConfig;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 客户端取消必须关闭上游 DashScope 连接，而不是把剩余输出读完；半截回复不进入记忆。
+ * 从 ChatController 发起，经 ResumableStreamRegistry → ConversationTurnSequencer → ChatStreamCoalescer 到 Gateway，
+ * 覆盖线上的完整取消链路；使用默认的流式配置（resume-grace-millis=0），最后一个客户端断开即取消上游。
+ * 本地替身服务器按固定间隔无限吐 SSE 片段，写入失败即说明对端已关闭连接。
+ */
+class ChatStreamCancellationIT {
+
+    private static final int MAX_CHUNKS = 500;
+    private static final long CHUNK_INTERVAL_MS = 20;
+    private static final long CLOSE_DEADLINE_MS = 2000;
+
+    private final AtomicInteger chunksSent = new AtomicInteger();
+    private final CountDownLatch upstreamClosed = new CountDownLatch(1);
+    private final CountDownLatch upstreamDrained = new CountDownLatch(1);
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatMemory chatMemory;
+    private ResumableStreamRegistry resumableStreamRegistry;
+    private ChatController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < MAX_CHUNKS; i++) {
+                    body.write(chunk(i));
+                    body.flush();
+                    chunksSent.incrementAndGet();
+                    Thread.sleep(CHUNK_INTERVAL_MS);
+                }
+                upstreamDrained.countDown();
+            } catch (IOException e) {
+                upstreamClosed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+        DashScopeChatModel chatModel = DashScopeChatModel.builder()
+                .dashScopeApi(DashScopeApi.builder().apiKey("test-sk").baseUrl(baseUrl).build())
+                .build();
+        chatMemory = MessageWindowChatMemory.builder()
+                .chatMemoryRepository(new InMemoryChatMemoryRepository())
+                .build();
+        meterRegistry = new SimpleMeterRegistry();
+        ChatStreamMetricsGateway streamMetricsGateway = new MicrometerChatStreamMetricsAdapter(meterRegistry);
+        DashScopeChatModelAdapter adapter = new DashScopeChatModelAdapter(
+                chatModel,
+                chatMemory,
+                new MicrometerChatGroundingMetricsAdapter(meterRegistry),
+                new QwenTokenizerAdapter(new ChatMemoryConfig()),
+                streamMetricsGateway);
+
+        ChatStreamConfig streamConfig = new ChatStreamConfig();
+        ChatGroundingConfig groundingConfig = new ChatGroundingConfig();
+        groundingConfig.setEnabled(false);
+        ChatWithPsychiatristUseCaseImpl useCase = new ChatWithPsychiatristUseCaseImpl(
+                adapter,
+                (conversationId, systemPrompt) -> { },
+                mock(RetrieveTop1ChunkByQueryUseCase.class),
+                groundingConfig,
+                new MicrometerChatGroundingMetricsAdapter(meterRegistry),
+                streamMetricsGateway,
+                new ChatStreamCoalescer(streamConfig, streamMetricsGateway),
+                new ConversationTurnSequencer(streamMetricsGateway),
+                "你是测试助手");
+        resumableStreamRegistry = new ResumableStreamRegistry(streamConfig, streamMetricsGateway);
+        controller = new ChatController();
+        ReflectionTestUtils.setField(controller, "chatWithPsychiatristUseCase", useCase);
+        ReflectionTestUtils.setField(controller, "resumableStreamRegistry", resumableStreamRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resumableStreamRegistry.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void givenClientCancelsMidReplyWhenStreamingThenUpstreamConnectionClosesPromptly() throws InterruptedException {
+        ChatRequest request = new ChatRequest();
+        request.setMessage("你好");
+        request.setChatId("it-cancel");
+
+        List<ServerSentEvent<String>> received = controller.sendMessageStream(request, new MockServerHttpResponse())
+                .take(3)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(received).hasSize(3);
+        assertThat(upstreamClosed.await(CLOSE_DEADLINE_MS, TimeUnit.MILLISECONDS))
+                .as("取消后 %d ms 内上游连接应被关闭", CLOSE_DEADLINE_MS)
+                .isTrue();
+        assertThat(upstreamDrained.getCount()).isEqualTo(1);
+        assertThat(chunksSent.get()).isLessThan(MAX_CHUNKS / 2);
+
+        // 只有请求前保存的用户消息，没有半截助手回复
+        assertThat(chatMemory.get("it-cancel"))
+                .extracting(org.springframework.ai.chat.messages.Message::getMessageType)
+                .containsExactly(MessageType.USER);
+        assertThat(meterRegistry.get("chat.stream.cancelled").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("chat.stream.tokens").tag("outcome", "cancelled").counter().count())
+                .isPositive();
+
+        // 取消即结束：回复已移出续传注册表，重连只能重新发送消息
+        String lastEventId = received.get(received.size() - 1).id();
+        assertThatThrownBy(() -> controller.resumeMessageStream(lastEventId, null))
+                .isInstanceOfSatisfying(BusinessException.class,
+                        e -> assertThat(e.getCode()).isEqualTo(ErrorCode.NOT_FOUND_ERROR.getCode()));
+    }
+
+    /**
+     * DashScope 增量输出（incremental_output）格式的一个 SSE 片段
+     */
+    private static byte[] chunk(int index) {
+        String event = "id:" + (index + 1) + "\n"
+                + "event:result\n"
+                + ":HTTP_STATUS/200\n"
+                + "data:{\"output\":{\"choices\":[{\"message\":{\"content\":\"梦" + index + "\",\"role\":\"assistant\"},"
+                + "\"finish_reason\":\"null\"}]},"
+                + "\"usage\":{\"total_tokens\":" + (10 + index) + ",\"input_tokens\":10,\"output_tokens\":" + (index + 1) + "},"
+                + "\"request_id\":\"it-cancel\"}\n\n";
+        return event.getBytes(StandardCharsets.UTF_8);
+    }
+}
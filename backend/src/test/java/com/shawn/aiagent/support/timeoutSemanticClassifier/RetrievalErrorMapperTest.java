@@ -0,0 +1,57 @@
+package com.shawn.aiagent.support.timeoutSemanticClassifier;
+
+import com.shawn.aiagent.domain.common.error.ErrorCode;
+import com.shawn.aiagent.domain.common.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetrievalErrorMapperTest {
+
+    private final RetrievalErrorMapper mapper = new RetrievalErrorMapper(new TimeoutSemanticClassifierImpl());
+
+    @Test
+    void shouldPassBusinessExceptionThrough() {
+        BusinessException original = new BusinessException(ErrorCode.MODEL_CONFIG_ERROR, "维度不匹配");
+
+        assertThat(mapper.embedding().apply(original)).isSameAs(original);
+        assertThat(mapper.total().apply(original)).isSameAs(original);
+    }
+
+    @Test
+    void shouldMapTimeoutToStageTimeoutCode() {
+        Throwable timeout = Exceptions.propagate(new TimeoutException("slow"));
+
+        assertThat(codeOf(mapper.embedding().apply(timeout))).isEqualTo(ErrorCode.EMBEDDING_TIMEOUT.getCode());
+        assertThat(codeOf(mapper.vectorSearch().apply(timeout))).isEqualTo(ErrorCode.VECTOR_SEARCH_TIMEOUT.getCode());
+        assertThat(codeOf(mapper.total().apply(timeout))).isEqualTo(ErrorCode.TOTAL_TIMEOUT.getCode());
+    }
+
+    @Test
+    void shouldMapIllegalArgumentToInvalidQueryOnlyWithinStages() {
+        Throwable invalid = new RuntimeException(new IllegalArgumentException("bad query"));
+
+        Throwable mapped = mapper.vectorSearch().apply(invalid);
+        assertThat(codeOf(mapped)).isEqualTo(ErrorCode.INVALID_QUERY.getCode());
+        assertThat(mapped.getMessage()).contains("bad query");
+        assertThat(codeOf(mapper.total().apply(invalid))).isEqualTo(ErrorCode.SYSTEM_ERROR.getCode());
+    }
+
+    @Test
+    void shouldUseFirstNonBlankMessageInCauseChain() {
+        Throwable failure = new RuntimeException(" ", new IllegalStateException("connection refused"));
+
+        Throwable mapped = mapper.embedding().apply(failure);
+
+        assertThat(codeOf(mapped)).isEqualTo(ErrorCode.EMBEDDING_API_ERROR.getCode());
+        assertThat(mapped.getMessage()).contains("向量化失败: connection refused");
+    }
+
+    private static int codeOf(Throwable mapped) {
+        assertThat(mapped).isInstanceOf(BusinessException.class);
+        return ((BusinessException) mapped).getCode();
+    }
+}
@@ -14,6 +14,7 @@ export const API_BASE_URL = import.meta.env.MODE === 'development'
  */
 export const API_ENDPOINTS: ApiEndpoints = {
   CHAT_STREAM: '/chat/send/stream',  // SSE流式接口
+  CHAT_STREAM_RESUME: '/chat/send/stream/resume',  // SSE断线续传接口
   HEALTH: '/health',
 }
 
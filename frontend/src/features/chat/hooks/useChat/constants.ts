@@ -1,6 +0,0 @@
-/**
- * useChat 相关常量
- */
-
-// 分段标记符
-export const CHUNK_DELIMITER = '<chunk>'
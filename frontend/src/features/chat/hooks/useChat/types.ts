@@ -13,7 +13,7 @@ export interface UseChatReturn {
 }
 
 export interface StreamHandlers {
-  onChunk: (deltaText: string) => void
+  onSegment: (segment: string) => void
   onComplete: () => void
   onError: (error: Error) => void
 }
@@ -69,9 +69,11 @@ export function useChatActions({
     cancelRequestRef.current = sendMessageStream(
       inputValue,
       chatId,
-      handlers.onChunk,
+      handlers.onSegment,
       handlers.onComplete,
-      handlers.onError
+      handlers.onError,
+      // 首轮由服务端分配会话ID，之后的请求沿用
+      (issuedChatId) => useChatStore.getState().setChatId(issuedChatId)
     )
   }, [isLoading, chatId, setMessages, setIsLoading, cancelRequestRef, createStreamHandlers])
 
@@ -1,17 +1,16 @@
 /**
  * SSE 流式响应处理器 Hook
  * 组合子 Hook 实现完整的流式处理功能
+ * 段落由服务端切分（segment 事件），这里只负责排队并按间隔输出为气泡
  */
 
 import { useRef, useCallback } from 'react'
-import { CHUNK_DELIMITER } from './constants'
 import { generateSegmentMessageId, updateMessageContent, addMessage } from './messageUtils'
 import { createAssistantMessage } from '../../utils/messageUtils'
 import { DEFAULT_MESSAGES } from '../../constants/messages'
 import type { Message } from '../../types'
 import type { StreamHandlers } from './types'
 import { useSegmentQueue } from './useSegmentQueue'
-import { useStreamBuffer } from './useStreamBuffer'
 import { useSegmentOutput } from './useSegmentOutput'
 import { shouldCreateNewBubble } from './streamUtils'
 
@@ -39,7 +38,6 @@ export function useStreamProcessor(
 
   // 使用子 Hook
   const queue = useSegmentQueue()
-  const buffer = useStreamBuffer({ delimiter: CHUNK_DELIMITER })
   const output = useSegmentOutput({ interval: OUTPUT_CONFIG.SEGMENT_INTERVAL })
 
   // 辅助函数：更新当前消息
@@ -70,28 +68,11 @@ export function useStreamProcessor(
     }
   }, [updateCurrentMessage])
 
-  // 辅助函数：处理剩余 buffer 内容
-  const processRemainingBuffer = useCallback(() => {
-    const remaining = buffer.flush()
-    const cleaned = remaining.trim()
-    
-    if (cleaned) {
-      if (!stateRef.current.currentSegmentContent) {
-        stateRef.current.currentSegmentContent = cleaned
-        updateCurrentMessage(cleaned)
-      } else {
-        stateRef.current.currentSegmentContent += cleaned
-        updateCurrentMessage(stateRef.current.currentSegmentContent)
-      }
-    }
-  }, [buffer, updateCurrentMessage])
-
   // 辅助函数：处理输出完成
   const handleOutputComplete = useCallback(() => {
-    processRemainingBuffer()
     finishLoading()
     handleEmptyResponse()
-  }, [processRemainingBuffer, finishLoading, handleEmptyResponse])
+  }, [finishLoading, handleEmptyResponse])
 
   // 处理下一个段落
   const processNextSegment = useCallback((): boolean => {
@@ -133,7 +114,6 @@ export function useStreamProcessor(
     // 清理之前的状态
     output.stop()
     queue.clear()
-    buffer.clear()
 
     // 重置状态
     stateRef.current = {
@@ -143,15 +123,11 @@ export function useStreamProcessor(
     }
 
     return {
-      // 处理数据块
-      onChunk: (deltaText: string) => {
-        const segments = buffer.appendChunk(deltaText)
-        
-        segments.forEach(segment => {
-          queue.enqueue(segment)
-        })
+      // 处理完整段落
+      onSegment: (segment: string) => {
+        queue.enqueue(segment)
 
-        if (segments.length > 0 && !output.isRunningRef.current) {
+        if (!output.isRunningRef.current) {
           startOutput()
         }
       },
@@ -164,22 +140,7 @@ export function useStreamProcessor(
           if (!queue.isEmpty()) {
             startOutput()
           } else {
-            // 处理剩余 buffer 内容
-            const remaining = buffer.flush()
-            const cleaned = remaining.trim()
-            
-            if (cleaned) {
-              if (!stateRef.current.currentSegmentContent) {
-                stateRef.current.currentSegmentContent = cleaned
-                updateCurrentMessage(cleaned)
-              } else {
-                stateRef.current.currentSegmentContent += cleaned
-                updateCurrentMessage(stateRef.current.currentSegmentContent)
-              }
-            }
-
-            finishLoading()
-            handleEmptyResponse()
+            handleOutputComplete()
           }
         }
       },
@@ -190,7 +151,6 @@ export function useStreamProcessor(
         
         output.stop()
         queue.clear()
-        buffer.clear()
         
         stateRef.current.streamEnded = true
         
@@ -198,7 +158,7 @@ export function useStreamProcessor(
         updateCurrentMessage(DEFAULT_MESSAGES.ERROR, true)
       }
     }
-  }, [output, queue, buffer, startOutput, updateCurrentMessage, finishLoading, handleEmptyResponse])
+  }, [output, queue, startOutput, updateCurrentMessage, finishLoading, handleOutputComplete])
 
   return {
     createStreamHandlers
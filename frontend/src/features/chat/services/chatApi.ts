@@ -1,91 +1,171 @@
 import { API_BASE_URL, API_ENDPOINTS } from '../constants/api'
 import type {
   ChatRequest,
-  OnChunkCallback,
+  OnSegmentCallback,
   OnCompleteCallback,
   OnErrorCallback,
+  OnChatIdCallback,
   CancelRequestFn,
   HealthCheckResponse
 } from '../types'
 
+/**
+ * 断线后最多重连次数（第 n 次在 n × RESUME_DELAY_MS 后发起）
+ */
+const MAX_RESUME_ATTEMPTS = 3
+const RESUME_DELAY_MS = 1000
+
 /**
  * 发送聊天消息（SSE 流式）
+ * 服务端已按 <chunk> 标记切分段落：只消费 segment 事件，delta（增量文本）在此忽略，done 表示回复完整结束
+ * 连接在 done 之前中断时，带最后收到的事件 ID（Last-Event-ID）重连续传，服务端补发漏掉的事件并接上仍在进行的生成
  * @param message - 用户消息
- * @param chatId - 会话ID
- * @param onChunk - 收到数据块的回调函数
+ * @param chatId - 会话ID（为空时由服务端分配）
+ * @param onSegment - 收到完整段落的回调函数
  * @param onComplete - 完成时的回调函数
  * @param onError - 错误时的回调函数
+ * @param onChatId - 收到本次对话所用会话ID（X-Chat-Id 响应头）的回调函数
  * @returns 取消请求的函数
  */
 export const sendMessageStream = (
   message: string,
   chatId: string,
-  onChunk: OnChunkCallback,
+  onSegment: OnSegmentCallback,
   onComplete: OnCompleteCallback,
-  onError: OnErrorCallback
+  onError: OnErrorCallback,
+  onChatId?: OnChatIdCallback
 ): CancelRequestFn => {
   const controller = new AbortController()
   const { signal } = controller
 
-  const requestBody: ChatRequest = {
-    message,
-    chatId
-  }
+  const requestBody: ChatRequest = chatId ? { message, chatId } : { message }
 
-  fetch(`${API_BASE_URL}${API_ENDPOINTS.CHAT_STREAM}`, {
-    method: 'POST',
-    headers: {
-      'Content-Type': 'application/json',
-    },
-    body: JSON.stringify(requestBody),
-    signal
-  })
-    .then(async (response) => {
-      if (!response.ok) {
-        throw new Error(`HTTP error! status: ${response.status}`)
-      }
+  // 最后一个完整收到的事件 ID；为空表示无法续传
+  let lastEventId = ''
 
-      const reader = response.body?.getReader()
-      if (!reader) {
-        throw new Error('Response body is null')
+  /**
+   * 读取一个 SSE 响应直到 done 事件；连接在 done 之前结束时抛出错误
+   */
+  const readEventStream = async (response: Response): Promise<void> => {
+    if (!response.ok) {
+      throw new Error(`HTTP error! status: ${response.status}`)
+    }
+    if (!response.headers.get('Content-Type')?.includes('text/event-stream')) {
+      // 服务端以 JSON 返回错误（如回复已过期），不再重连
+      lastEventId = ''
+      throw new Error('服务端未返回事件流')
+    }
+
+    const reader = response.body?.getReader()
+    if (!reader) {
+      throw new Error('Response body is null')
+    }
+
+    const decoder = new TextDecoder('utf-8')
+    let buffer = ''
+    let eventName = ''
+    let eventId = ''
+    let dataLines: string[] = []
+
+    while (true) {
+      const { done, value } = await reader.read()
+
+      if (done) {
+        throw new Error('连接在回复结束前中断')
       }
 
-      const decoder = new TextDecoder('utf-8')
-      let buffer = ''
+      // 解码数据块
+      buffer += decoder.decode(value, { stream: true })
 
-      while (true) {
-        const { done, value } = await reader.read()
-        
-        if (done) {
-          onComplete()
-          break
-        }
+      // 处理 SSE 事件格式：id: xxx\nevent: xxx\ndata: xxx\n(data: xxx\n)*\n
+      const lines = buffer.split('\n')
+      buffer = lines.pop() || '' // 保留未完成的行
 
-        // 解码数据块
-        buffer += decoder.decode(value, { stream: true })
-        
-        // 处理 SSE 数据格式：data: xxx\n\n
-        const lines = buffer.split('\n')
-        buffer = lines.pop() || '' // 保留未完成的行
-
-        for (const line of lines) {
-          if (line.startsWith('data:')) {
-            const data = line.slice(5).trim()
-            if (data) {
-              onChunk(data)
-            }
+      for (const rawLine of lines) {
+        const line = rawLine.endsWith('\r') ? rawLine.slice(0, -1) : rawLine
+        if (line === '') {
+          // 空行结束一个事件；多个 data 行按换行拼接
+          if (eventId) {
+            lastEventId = eventId
+          }
+          if (eventName === 'segment' && dataLines.length > 0) {
+            onSegment(dataLines.join('\n'))
+          } else if (eventName === 'done') {
+            await reader.cancel()
+            return
           }
+          eventName = ''
+          eventId = ''
+          dataLines = []
+          continue
+        }
+        const colon = line.indexOf(':')
+        const field = colon === -1 ? line : line.slice(0, colon)
+        let fieldValue = colon === -1 ? '' : line.slice(colon + 1)
+        if (fieldValue.startsWith(' ')) {
+          fieldValue = fieldValue.slice(1)
+        }
+        if (field === 'event') {
+          eventName = fieldValue
+        } else if (field === 'data') {
+          dataLines.push(fieldValue)
+        } else if (field === 'id') {
+          eventId = fieldValue
         }
       }
+    }
+  }
+
+  const run = async (): Promise<void> => {
+    const response = await fetch(`${API_BASE_URL}${API_ENDPOINTS.CHAT_STREAM}`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+      body: JSON.stringify(requestBody),
+      signal
     })
-    .catch((error: unknown) => {
-      if (error instanceof Error && error.name === 'AbortError') {
-        console.log('请求已取消')
-      } else {
-        console.error('发送消息失败:', error)
-        onError(error instanceof Error ? error : new Error(String(error)))
+
+    const issuedChatId = response.headers.get('X-Chat-Id')
+    if (issuedChatId && issuedChatId !== chatId) {
+      onChatId?.(issuedChatId)
+    }
+
+    let current: Response | null = response
+    let attempts = 0
+    while (true) {
+      try {
+        if (!current) {
+          current = await fetch(`${API_BASE_URL}${API_ENDPOINTS.CHAT_STREAM_RESUME}`, {
+            headers: {
+              'Last-Event-ID': lastEventId,
+            },
+            signal
+          })
+        }
+        await readEventStream(current)
+        onComplete()
+        return
+      } catch (error) {
+        if (signal.aborted || !lastEventId || attempts >= MAX_RESUME_ATTEMPTS) {
+          throw error
+        }
+        attempts++
+        current = null
+        console.warn(`连接中断，${RESUME_DELAY_MS * attempts}ms 后续传（第 ${attempts} 次）`, error)
+        await new Promise((resolve) => setTimeout(resolve, RESUME_DELAY_MS * attempts))
       }
-    })
+    }
+  }
+
+  run().catch((error: unknown) => {
+    if (error instanceof Error && error.name === 'AbortError') {
+      console.log('请求已取消')
+    } else {
+      console.error('发送消息失败:', error)
+      onError(error instanceof Error ? error : new Error(String(error)))
+    }
+  })
 
   // 返回取消函数
   return () => controller.abort()
@@ -6,8 +6,8 @@ import type { Message } from './message'
 export interface ChatRequest {
   /** 用户消息 */
   message: string
-  /** 会话ID */
-  chatId: string
+  /** 会话ID（缺省时服务端分配新会话，通过 X-Chat-Id 响应头返回） */
+  chatId?: string
 }
 
 /**
@@ -25,9 +25,10 @@ export interface ChatResponse {
 /**
  * SSE流式回调函数类型
  */
-export type OnChunkCallback = (deltaText: string) => void
+export type OnSegmentCallback = (segment: string) => void
 export type OnCompleteCallback = () => void
 export type OnErrorCallback = (error: Error) => void
+export type OnChatIdCallback = (chatId: string) => void
 export type CancelRequestFn = () => void
 
 /**
@@ -6,9 +6,10 @@ export type { MessageRole, Message, CreateMessageParams } from './message'
 export type {
   ChatRequest,
   ChatResponse,
-  OnChunkCallback,
+  OnSegmentCallback,
   OnCompleteCallback,
   OnErrorCallback,
+  OnChatIdCallback,
   CancelRequestFn,
   UseChatReturn
 } from './chat'
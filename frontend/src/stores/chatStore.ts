@@ -10,7 +10,7 @@ interface ChatState {
   // 状态
   messages: Message[]
   isLoading: boolean
-  chatId: string
+  chatId: string  // 服务端分配的会话ID；为空表示尚未开始会话
   hasInitialized: boolean  // 是否已发送初始消息
   
   // Actions
@@ -20,11 +20,10 @@ interface ChatState {
   clearMessages: () => void
   setIsLoading: (loading: boolean) => void
   setHasInitialized: (initialized: boolean) => void
+  setChatId: (chatId: string) => void
   resetChat: () => void
 }
 
-const generateChatId = () => `user_${Date.now()}`
-
 export const useChatStore = create<ChatState>()(
   devtools(
     persist(
@@ -32,7 +31,7 @@ export const useChatStore = create<ChatState>()(
         // 初始状态
         messages: [],
         isLoading: false,
-        chatId: generateChatId(),
+        chatId: '',
         hasInitialized: false,
         
         // Actions
@@ -62,11 +61,14 @@ export const useChatStore = create<ChatState>()(
         setHasInitialized: (initialized) =>
           set({ hasInitialized: initialized }),
         
+        setChatId: (chatId) =>
+          set({ chatId }),
+        
         resetChat: () =>
           set({
             messages: [],
             isLoading: false,
-            chatId: generateChatId(),
+            chatId: '',
             hasInitialized: false
           })
       }),
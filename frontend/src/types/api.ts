@@ -9,6 +9,8 @@ export type HttpMethod = 'GET' | 'POST' | 'PUT' | 'DELETE' | 'PATCH'
 export interface ApiEndpoints {
   /** SSE流式聊天接口 */
   CHAT_STREAM: string
+  /** SSE断线续传接口（带 Last-Event-ID） */
+  CHAT_STREAM_RESUME: string
   /** 健康检查接口 */
   HEALTH: string
 }
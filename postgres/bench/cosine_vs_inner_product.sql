@@ -0,0 +1,124 @@
+-- 归一化向量上的余弦（<=>）vs 内积（<#>）HNSW 检索吞吐
+--
+-- 用法（默认 10 万行 × 1024 维随机向量）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb < postgres/bench/cosine_vs_inner_product.sql
+-- 用线上表的真实向量：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb -v source=dreams_chunks_text_embedding_v4 \
+--     < postgres/bench/cosine_vs_inner_product.sql
+--
+-- 两张表存同一份 l2_normalize 后的向量，分别以 vector_cosine_ops / vector_ip_ops 建索引；
+-- 每种模式连续执行 :queries 次检索，QPS = 查询数 / 总耗时（单连接）。recall@10 以余弦精确检索为基准。
+-- 多连接吞吐可用 pgbench 对同样的 SELECT 压测，结论方向应一致。
+
+\if :{?rows}
+\else
+\set rows 100000
+\endif
+\if :{?dim}
+\else
+\set dim 1024
+\endif
+\if :{?queries}
+\else
+\set queries 1000
+\endif
+\if :{?work_mem}
+\else
+\set work_mem '1GB'
+\endif
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+\echo '== 准备数据 (dim=' :dim ')'
+DROP TABLE IF EXISTS bench_cos;
+CREATE TABLE bench_cos (id uuid PRIMARY KEY, embedding vector(:dim));
+\if :{?source}
+INSERT INTO bench_cos SELECT id, l2_normalize(embedding::vector) FROM :source;
+\else
+INSERT INTO bench_cos
+SELECT gen_random_uuid(),
+       l2_normalize((SELECT array_agg(random()::real - 0.5) FROM generate_series(1, :dim) WHERE g > 0)::vector(:dim))
+FROM generate_series(1, :rows) AS g;
+\endif
+DROP TABLE IF EXISTS bench_ip;
+CREATE TABLE bench_ip AS SELECT * FROM bench_cos;
+ANALYZE bench_cos;
+ANALYZE bench_ip;
+
+DROP TABLE IF EXISTS bench_ip_queries;
+CREATE TABLE bench_ip_queries AS
+SELECT row_number() OVER () AS qid, embedding FROM bench_cos ORDER BY random() LIMIT :queries;
+
+\echo '== 精确 top-10 基准（顺序扫描）'
+SET enable_indexscan = off;
+DROP TABLE IF EXISTS bench_ip_truth;
+CREATE TABLE bench_ip_truth AS
+SELECT q.qid, t.id
+FROM bench_ip_queries q
+CROSS JOIN LATERAL (
+    SELECT id FROM bench_cos ORDER BY embedding <=> q.embedding LIMIT 10
+) t;
+RESET enable_indexscan;
+
+SET maintenance_work_mem = :'work_mem';
+\timing on
+\echo '== 建索引：vector_cosine_ops'
+CREATE INDEX bench_cos_index ON bench_cos USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+\echo '== 建索引：vector_ip_ops'
+CREATE INDEX bench_ip_index ON bench_ip USING hnsw (embedding vector_ip_ops) WITH (m = 16, ef_construction = 64);
+\timing off
+RESET maintenance_work_mem;
+
+CREATE OR REPLACE FUNCTION pg_temp.bench_ip_run(inner_product boolean)
+RETURNS TABLE (qps double precision, avg_ms double precision, recall double precision) AS $$
+DECLARE
+    q record;
+    started timestamptz;
+    total_ms double precision := 0;
+    n int := 0;
+    recall_sum double precision := 0;
+    hits uuid[];
+    r double precision;
+BEGIN
+    FOR q IN SELECT * FROM bench_ip_queries LOOP
+        started := clock_timestamp();
+        IF inner_product THEN
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT b.id FROM bench_ip b ORDER BY b.embedding <#> q.embedding LIMIT 10
+            ) c;
+        ELSE
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT b.id FROM bench_cos b ORDER BY b.embedding <=> q.embedding LIMIT 10
+            ) c;
+        END IF;
+        total_ms := total_ms + extract(epoch FROM clock_timestamp() - started) * 1000;
+        n := n + 1;
+        SELECT count(*) / 10.0 INTO r FROM bench_ip_truth t WHERE t.qid = q.qid AND t.id = ANY(hits);
+        recall_sum := recall_sum + r;
+    END LOOP;
+    qps := n / (total_ms / 1000);
+    avg_ms := total_ms / n;
+    recall := recall_sum / n;
+    RETURN NEXT;
+END;
+$$ LANGUAGE plpgsql;
+
+SET hnsw.ef_search = 40;
+-- 先各跑一轮预热，第二轮计入结果
+SELECT * FROM pg_temp.bench_ip_run(false);
+SELECT * FROM pg_temp.bench_ip_run(true);
+
+\echo '== 结果（热缓存）'
+SELECT 'COSINE' AS mode, round(qps::numeric, 1) AS qps, round(avg_ms::numeric, 3) AS avg_ms,
+       round(recall::numeric, 4) AS recall_at_10
+FROM pg_temp.bench_ip_run(false)
+UNION ALL
+SELECT 'INNER_PRODUCT', round(qps::numeric, 1), round(avg_ms::numeric, 3), round(recall::numeric, 4)
+FROM pg_temp.bench_ip_run(true);
+RESET hnsw.ef_search;
+
+\echo '== 清理'
+DROP TABLE IF EXISTS bench_ip_truth;
+DROP TABLE IF EXISTS bench_ip_queries;
+DROP TABLE IF EXISTS bench_ip;
+DROP TABLE IF EXISTS bench_cos;
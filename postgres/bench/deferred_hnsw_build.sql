@@ -0,0 +1,68 @@
+-- 延迟建索引 vs 先建索引再写入：合成数据对比
+--
+-- 用法（默认 100 万行 × 1024 维，与 text-embedding-v4 一致；约需 2 × 4GB 磁盘）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb < postgres/bench/deferred_hnsw_build.sql
+-- 缩小规模试跑：
+--   psql -U dream -d dreamdb -v rows=100000 -v dim=256 -f postgres/bench/deferred_hnsw_build.sql
+--
+-- 两个场景写入同一份预先生成的源数据，计时只包含"写入 + 建索引"，不包含随机向量生成。
+-- HNSW 参数与 application.properties 一致（m=16, ef_construction=64）。
+
+\if :{?rows}
+\else
+\set rows 1000000
+\endif
+\if :{?dim}
+\else
+\set dim 1024
+\endif
+\if :{?work_mem}
+\else
+\set work_mem '1GB'
+\endif
+\if :{?workers}
+\else
+\set workers 4
+\endif
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+\echo '== 准备源数据 (rows=' :rows ', dim=' :dim ')'
+DROP TABLE IF EXISTS bench_src;
+CREATE UNLOGGED TABLE bench_src AS
+SELECT gen_random_uuid() AS id,
+       'chunk ' || g AS content,
+       json_build_object('seq', g) AS metadata,
+       (SELECT array_agg(random()::real) FROM generate_series(1, :dim) WHERE g > 0)::vector(:dim) AS embedding
+FROM generate_series(1, :rows) AS g;
+
+\timing on
+
+\echo '== 场景 A：先建 HNSW 索引，再写入（initialize-schema=true 的现状）'
+DROP TABLE IF EXISTS bench_incremental;
+CREATE TABLE bench_incremental (id uuid PRIMARY KEY, content text, metadata json, embedding vector(:dim));
+CREATE INDEX bench_incremental_index ON bench_incremental
+    USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+INSERT INTO bench_incremental SELECT * FROM bench_src;
+
+\echo '== 场景 B：先写入，再以调优会话参数建索引（BLUE_GREEN / IN_PLACE_DEFERRED_INDEX）'
+DROP TABLE IF EXISTS bench_deferred;
+CREATE TABLE bench_deferred (id uuid PRIMARY KEY, content text, metadata json, embedding vector(:dim));
+INSERT INTO bench_deferred SELECT * FROM bench_src;
+SET maintenance_work_mem = :'work_mem';
+SET max_parallel_maintenance_workers = :workers;
+CREATE INDEX bench_deferred_index ON bench_deferred
+    USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+RESET maintenance_work_mem;
+RESET max_parallel_maintenance_workers;
+
+\timing off
+
+-- 另开一个会话可观察场景 B 的建索引进度：
+--   SELECT phase, blocks_done, blocks_total, tuples_done, tuples_total
+--   FROM pg_stat_progress_create_index;
+
+\echo '== 清理'
+DROP TABLE IF EXISTS bench_incremental;
+DROP TABLE IF EXISTS bench_deferred;
+DROP TABLE IF EXISTS bench_src;
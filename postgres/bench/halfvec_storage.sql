@@ -0,0 +1,144 @@
+-- float32（vector）vs float16（halfvec）存储：recall、表/索引大小、建索引耗时、查询延迟
+--
+-- 用法（默认 10 万行 × 1024 维随机向量）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb < postgres/bench/halfvec_storage.sql
+-- 用线上表的真实向量（推荐，recall 以语料为准）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb -v source=dreams_chunks_text_embedding_v4 \
+--     < postgres/bench/halfvec_storage.sql
+--
+-- 查询向量取自表内随机 :queries 行；recall@10 以 float32 精确检索（顺序扫描）为基准。
+-- 延迟分别在冷缓存近似（刚建完索引后首轮）与热缓存（第二轮）下各测一次。
+-- HNSW 参数与 application.properties 一致（m=16, ef_construction=64, ef_search=40）。
+
+\if :{?rows}
+\else
+\set rows 100000
+\endif
+\if :{?dim}
+\else
+\set dim 1024
+\endif
+\if :{?queries}
+\else
+\set queries 200
+\endif
+\if :{?work_mem}
+\else
+\set work_mem '1GB'
+\endif
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+\echo '== 准备数据 (dim=' :dim ')'
+DROP TABLE IF EXISTS bench_f32;
+CREATE TABLE bench_f32 (id uuid PRIMARY KEY, embedding vector(:dim));
+\if :{?source}
+INSERT INTO bench_f32 SELECT id, embedding FROM :source;
+\else
+INSERT INTO bench_f32
+SELECT gen_random_uuid(),
+       (SELECT array_agg(random()::real - 0.5) FROM generate_series(1, :dim) WHERE g > 0)::vector(:dim)
+FROM generate_series(1, :rows) AS g;
+\endif
+
+DROP TABLE IF EXISTS bench_f16;
+CREATE TABLE bench_f16 (id uuid PRIMARY KEY, embedding halfvec(:dim));
+INSERT INTO bench_f16 SELECT id, embedding::halfvec(:dim) FROM bench_f32;
+ANALYZE bench_f32;
+ANALYZE bench_f16;
+
+DROP TABLE IF EXISTS bench_half_queries;
+CREATE TABLE bench_half_queries AS
+SELECT row_number() OVER () AS qid, embedding FROM bench_f32 ORDER BY random() LIMIT :queries;
+
+\echo '== 精确 top-10 基准（float32 顺序扫描）'
+SET enable_indexscan = off;
+DROP TABLE IF EXISTS bench_half_truth;
+CREATE TABLE bench_half_truth AS
+SELECT q.qid, t.id
+FROM bench_half_queries q
+CROSS JOIN LATERAL (
+    SELECT id FROM bench_f32 ORDER BY embedding <=> q.embedding LIMIT 10
+) t;
+RESET enable_indexscan;
+
+SET maintenance_work_mem = :'work_mem';
+\timing on
+
+\echo '== 建索引：vector_cosine_ops'
+CREATE INDEX bench_f32_index ON bench_f32
+    USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+
+\echo '== 建索引：halfvec_cosine_ops'
+CREATE INDEX bench_f16_index ON bench_f16
+    USING hnsw (embedding halfvec_cosine_ops) WITH (m = 16, ef_construction = 64);
+
+\timing off
+RESET maintenance_work_mem;
+
+\echo '== 表与索引大小'
+SELECT 'vector'  AS storage,
+       pg_size_pretty(pg_table_size('bench_f32'))          AS table_size,
+       pg_size_pretty(pg_relation_size('bench_f32_index')) AS index_size
+UNION ALL
+SELECT 'halfvec' AS storage,
+       pg_size_pretty(pg_table_size('bench_f16'))          AS table_size,
+       pg_size_pretty(pg_relation_size('bench_f16_index')) AS index_size;
+
+CREATE OR REPLACE FUNCTION pg_temp.bench_half_run(half boolean)
+RETURNS TABLE (qid bigint, latency_ms double precision, recall double precision) AS $$
+DECLARE
+    q record;
+    started timestamptz;
+    hits uuid[];
+BEGIN
+    FOR q IN SELECT * FROM bench_half_queries LOOP
+        started := clock_timestamp();
+        IF half THEN
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT b.id FROM bench_f16 b ORDER BY b.embedding <=> q.embedding::halfvec LIMIT 10
+            ) c;
+        ELSE
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT b.id FROM bench_f32 b ORDER BY b.embedding <=> q.embedding LIMIT 10
+            ) c;
+        END IF;
+        qid := q.qid;
+        latency_ms := extract(epoch FROM clock_timestamp() - started) * 1000;
+        SELECT count(*) / 10.0 INTO recall FROM bench_half_truth t WHERE t.qid = q.qid AND t.id = ANY(hits);
+        RETURN NEXT;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SET hnsw.ef_search = 40;
+
+\echo '== 第 1 轮（首轮）'
+SELECT 'vector' AS storage, round(avg(latency_ms)::numeric, 3) AS avg_ms,
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3) AS p99_ms,
+       round(avg(recall)::numeric, 4) AS recall_at_10
+FROM pg_temp.bench_half_run(false)
+UNION ALL
+SELECT 'halfvec', round(avg(latency_ms)::numeric, 3),
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3),
+       round(avg(recall)::numeric, 4)
+FROM pg_temp.bench_half_run(true);
+
+\echo '== 第 2 轮（热缓存）'
+SELECT 'vector' AS storage, round(avg(latency_ms)::numeric, 3) AS avg_ms,
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3) AS p99_ms
+FROM pg_temp.bench_half_run(false)
+UNION ALL
+SELECT 'halfvec', round(avg(latency_ms)::numeric, 3),
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3)
+FROM pg_temp.bench_half_run(true);
+
+RESET hnsw.ef_search;
+
+-- 冷查询（索引不在 shared_buffers）需在受控环境下测：重启 PostgreSQL 并清空 OS 页缓存后只跑第 1 轮。
+
+\echo '== 清理'
+DROP TABLE IF EXISTS bench_half_truth;
+DROP TABLE IF EXISTS bench_half_queries;
+DROP TABLE IF EXISTS bench_f16;
+DROP TABLE IF EXISTS bench_f32;
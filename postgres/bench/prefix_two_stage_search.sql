@@ -0,0 +1,141 @@
+-- 全量向量单阶段检索 vs 前缀向量两阶段检索：索引大小、建索引耗时、查询延迟
+--
+-- 用法（默认 10 万行，全量 1024 维，前缀 256 维，候选 100）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb < postgres/bench/prefix_two_stage_search.sql
+-- 调整规模：
+--   psql -U dream -d dreamdb -v rows=1000000 -v prefix=128 -v candidates=200 -f postgres/bench/prefix_two_stage_search.sql
+-- 用线上表的真实向量（recall 才有意义；随机向量没有 Matryoshka 结构，前缀召回率会明显偏低）：
+--   psql -U dream -d dreamdb -v source=dreams_chunks_text_embedding_v4 -f postgres/bench/prefix_two_stage_search.sql
+--
+-- 查询向量取自表内随机 :queries 行；recall@10 以全量向量精确检索（顺序扫描）为基准。
+-- HNSW 参数与 application.properties 一致（m=16, ef_construction=64）。
+
+\if :{?rows}
+\else
+\set rows 100000
+\endif
+\if :{?dim}
+\else
+\set dim 1024
+\endif
+\if :{?prefix}
+\else
+\set prefix 256
+\endif
+\if :{?candidates}
+\else
+\set candidates 100
+\endif
+\if :{?queries}
+\else
+\set queries 200
+\endif
+\if :{?work_mem}
+\else
+\set work_mem '1GB'
+\endif
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+\echo '== 准备数据 (dim=' :dim ', prefix=' :prefix ')'
+DROP TABLE IF EXISTS bench_prefix;
+CREATE TABLE bench_prefix (
+    id uuid PRIMARY KEY,
+    embedding vector(:dim),
+    embedding_prefix vector(:prefix) GENERATED ALWAYS AS (subvector(embedding, 1, :prefix)::vector(:prefix)) STORED
+);
+\if :{?source}
+INSERT INTO bench_prefix (id, embedding) SELECT id, embedding FROM :source;
+\else
+INSERT INTO bench_prefix (id, embedding)
+SELECT gen_random_uuid(),
+       (SELECT array_agg(random()::real - 0.5) FROM generate_series(1, :dim) WHERE g > 0)::vector(:dim)
+FROM generate_series(1, :rows) AS g;
+\endif
+ANALYZE bench_prefix;
+
+DROP TABLE IF EXISTS bench_prefix_queries;
+CREATE TABLE bench_prefix_queries AS
+SELECT row_number() OVER () AS qid, embedding FROM bench_prefix ORDER BY random() LIMIT :queries;
+
+\echo '== 精确 top-10 基准（顺序扫描）'
+SET enable_indexscan = off;
+DROP TABLE IF EXISTS bench_prefix_truth;
+CREATE TABLE bench_prefix_truth AS
+SELECT q.qid, t.id
+FROM bench_prefix_queries q
+CROSS JOIN LATERAL (
+    SELECT id FROM bench_prefix ORDER BY embedding <=> q.embedding LIMIT 10
+) t;
+RESET enable_indexscan;
+
+SET maintenance_work_mem = :'work_mem';
+\timing on
+
+\echo '== 配置 A：全量向量 HNSW'
+CREATE INDEX bench_prefix_full_index ON bench_prefix
+    USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+
+\echo '== 配置 B：前缀向量 HNSW'
+CREATE INDEX bench_prefix_prefix_index ON bench_prefix
+    USING hnsw (embedding_prefix vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+
+\timing off
+RESET maintenance_work_mem;
+
+\echo '== 索引大小'
+SELECT 'A full'   AS config, pg_size_pretty(pg_relation_size('bench_prefix_full_index'))   AS index_size
+UNION ALL
+SELECT 'B prefix' AS config, pg_size_pretty(pg_relation_size('bench_prefix_prefix_index')) AS index_size;
+
+-- 逐条执行查询并记录延迟与 recall@10（两个配置的查询在同一会话内执行，缓存状态相近）
+CREATE OR REPLACE FUNCTION pg_temp.bench_prefix_run(two_stage boolean, prefix_dim int, candidates int)
+RETURNS TABLE (qid bigint, latency_ms double precision, recall double precision) AS $$
+DECLARE
+    q record;
+    started timestamptz;
+    hits uuid[];
+BEGIN
+    FOR q IN SELECT * FROM bench_prefix_queries LOOP
+        started := clock_timestamp();
+        IF two_stage THEN
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT p.id FROM (
+                    SELECT b.id, b.embedding FROM bench_prefix b
+                    ORDER BY b.embedding_prefix <=> subvector(q.embedding, 1, prefix_dim)
+                    LIMIT candidates
+                ) p
+                ORDER BY p.embedding <=> q.embedding LIMIT 10
+            ) c;
+        ELSE
+            SELECT array_agg(c.id) INTO hits FROM (
+                SELECT b.id FROM bench_prefix b ORDER BY b.embedding <=> q.embedding LIMIT 10
+            ) c;
+        END IF;
+        qid := q.qid;
+        latency_ms := extract(epoch FROM clock_timestamp() - started) * 1000;
+        SELECT count(*) / 10.0 INTO recall FROM bench_prefix_truth t WHERE t.qid = q.qid AND t.id = ANY(hits);
+        RETURN NEXT;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+\echo '== 配置 A：全量向量单阶段（ef_search=40）'
+SET hnsw.ef_search = 40;
+SELECT round(avg(latency_ms)::numeric, 3) AS avg_ms,
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3) AS p99_ms,
+       round(avg(recall)::numeric, 4) AS recall_at_10
+FROM pg_temp.bench_prefix_run(false, 0, 0);
+
+\echo '== 配置 B：前缀召回 + 全量精排（ef_search=candidates）'
+SELECT set_config('hnsw.ef_search', greatest(40, :candidates)::text, false);
+SELECT round(avg(latency_ms)::numeric, 3) AS avg_ms,
+       round(percentile_cont(0.99) WITHIN GROUP (ORDER BY latency_ms)::numeric, 3) AS p99_ms,
+       round(avg(recall)::numeric, 4) AS recall_at_10
+FROM pg_temp.bench_prefix_run(true, :prefix, :candidates);
+RESET hnsw.ef_search;
+
+\echo '== 清理'
+DROP TABLE IF EXISTS bench_prefix_truth;
+DROP TABLE IF EXISTS bench_prefix_queries;
+DROP TABLE IF EXISTS bench_prefix;
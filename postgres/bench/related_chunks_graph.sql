@@ -0,0 +1,134 @@
+-- 相关 chunk：每次实时 kNN 检索 vs 读取预计算近邻图
+--
+-- 用法（默认 10 万行 × 1024 维随机向量，每个 chunk 10 个近邻）：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb < postgres/bench/related_chunks_graph.sql
+-- 用线上表的真实向量：
+--   docker exec -i dream-postgres psql -U dream -d dreamdb -v source=dreams_chunks_text_embedding_v4 \
+--     < postgres/bench/related_chunks_graph.sql
+--
+-- 近邻图的构建 SQL 与 PgChunkNeighborAdapter 相同（每批 :batch 个 chunk 一条 LATERAL 语句）；
+-- 查询对比对随机 :queries 个 chunk 各执行一次"取 top-10 相关 chunk"，单连接。
+
+\if :{?rows}
+\else
+\set rows 100000
+\endif
+\if :{?dim}
+\else
+\set dim 1024
+\endif
+\if :{?neighbors}
+\else
+\set neighbors 10
+\endif
+\if :{?batch}
+\else
+\set batch 200
+\endif
+\if :{?queries}
+\else
+\set queries 1000
+\endif
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+\echo '== 准备数据 (dim=' :dim ')'
+DROP TABLE IF EXISTS bench_related;
+CREATE TABLE bench_related (id uuid PRIMARY KEY, embedding vector(:dim));
+\if :{?source}
+INSERT INTO bench_related SELECT id, embedding::vector FROM :source;
+\else
+INSERT INTO bench_related
+SELECT gen_random_uuid(),
+       l2_normalize((SELECT array_agg(random()::real - 0.5) FROM generate_series(1, :dim) WHERE g > 0)::vector(:dim))
+FROM generate_series(1, :rows) AS g;
+\endif
+CREATE INDEX ON bench_related USING hnsw (embedding vector_cosine_ops) WITH (m = 16, ef_construction = 64);
+ANALYZE bench_related;
+
+DROP TABLE IF EXISTS bench_related_neighbors;
+CREATE TABLE bench_related_neighbors (
+    chunk_id uuid PRIMARY KEY, neighbor_ids uuid[] NOT NULL, scores real[] NOT NULL, computed_at timestamptz NOT NULL);
+
+CREATE OR REPLACE FUNCTION pg_temp.bench_related_build(batch_size int, neighbor_count int)
+RETURNS void AS $$
+DECLARE
+    ids uuid[];
+BEGIN
+    FOR ids IN
+        SELECT array_agg(id) FROM (SELECT id, (row_number() OVER ()) / batch_size AS b FROM bench_related) x GROUP BY b
+    LOOP
+        INSERT INTO bench_related_neighbors (chunk_id, neighbor_ids, scores, computed_at)
+        SELECT c.id,
+               COALESCE(array_agg(n.id ORDER BY n.score DESC) FILTER (WHERE n.id IS NOT NULL), '{}'),
+               COALESCE(array_agg(n.score ORDER BY n.score DESC) FILTER (WHERE n.id IS NOT NULL), '{}'),
+               now()
+        FROM bench_related c LEFT JOIN LATERAL (
+            SELECT t.id, (1 - (t.embedding <=> c.embedding))::real AS score FROM bench_related t
+            WHERE t.id <> c.id ORDER BY t.embedding <=> c.embedding LIMIT neighbor_count) n ON true
+        WHERE c.id = ANY(ids)
+        GROUP BY c.id
+        ON CONFLICT (chunk_id) DO UPDATE SET neighbor_ids = EXCLUDED.neighbor_ids, scores = EXCLUDED.scores;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SET hnsw.ef_search = 40;
+\timing on
+\echo '== 全量构建近邻图'
+SELECT pg_temp.bench_related_build(:batch, :neighbors);
+\timing off
+
+DROP TABLE IF EXISTS bench_related_queries;
+CREATE TABLE bench_related_queries AS SELECT id FROM bench_related ORDER BY random() LIMIT :queries;
+
+CREATE OR REPLACE FUNCTION pg_temp.bench_related_run(use_graph boolean)
+RETURNS TABLE (qps double precision, avg_ms double precision) AS $$
+DECLARE
+    q record;
+    started timestamptz;
+    total_ms double precision := 0;
+    n int := 0;
+    hits uuid[];
+BEGIN
+    FOR q IN SELECT * FROM bench_related_queries LOOP
+        started := clock_timestamp();
+        IF use_graph THEN
+            SELECT array_agg(t.id ORDER BY u.ord) INTO hits
+            FROM bench_related_neighbors g
+            CROSS JOIN LATERAL unnest(g.neighbor_ids) WITH ORDINALITY AS u(id, ord)
+            JOIN bench_related t ON t.id = u.id
+            WHERE g.chunk_id = q.id;
+        ELSE
+            SELECT array_agg(x.id) INTO hits FROM (
+                SELECT t.id FROM bench_related t, bench_related c
+                WHERE c.id = q.id AND t.id <> c.id ORDER BY t.embedding <=> c.embedding LIMIT 10) x;
+        END IF;
+        total_ms := total_ms + extract(epoch FROM clock_timestamp() - started) * 1000;
+        n := n + 1;
+    END LOOP;
+    qps := n / (total_ms / 1000);
+    avg_ms := total_ms / n;
+    RETURN NEXT;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 先各跑一轮预热，第二轮计入结果
+SELECT * FROM pg_temp.bench_related_run(false);
+SELECT * FROM pg_temp.bench_related_run(true);
+
+\echo '== 结果（热缓存）'
+SELECT 'kNN 检索' AS method, round(qps::numeric, 1) AS qps, round(avg_ms::numeric, 3) AS avg_ms
+FROM pg_temp.bench_related_run(false)
+UNION ALL
+SELECT '近邻图', round(qps::numeric, 1), round(avg_ms::numeric, 3)
+FROM pg_temp.bench_related_run(true);
+RESET hnsw.ef_search;
+
+\echo '== 近邻表大小'
+SELECT pg_size_pretty(pg_total_relation_size('bench_related_neighbors')) AS neighbor_table_size;
+
+\echo '== 清理'
+DROP TABLE IF EXISTS bench_related_queries;
+DROP TABLE IF EXISTS bench_related_neighbors;
+DROP TABLE IF EXISTS bench_related;